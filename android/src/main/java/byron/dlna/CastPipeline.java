@@ -0,0 +1,439 @@
+package byron.dlna;
+
+import android.util.Log;
+
+import org.fourthline.cling.controlpoint.ActionCallback;
+import org.fourthline.cling.controlpoint.ActionFuture;
+import org.fourthline.cling.controlpoint.ControlPoint;
+import org.fourthline.cling.model.action.ActionInvocation;
+import org.fourthline.cling.model.message.UpnpResponse;
+import org.fourthline.cling.model.meta.Device;
+import org.fourthline.cling.model.meta.Service;
+import org.fourthline.cling.model.types.UDN;
+import org.fourthline.cling.support.avtransport.callback.GetTransportInfo;
+import org.fourthline.cling.support.avtransport.callback.Play;
+import org.fourthline.cling.support.avtransport.callback.SetAVTransportURI;
+import org.fourthline.cling.support.avtransport.callback.Stop;
+import org.fourthline.cling.support.model.TransportInfo;
+import org.fourthline.cling.support.model.TransportState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Casts media to MediaRenderers with as few round trips as possible.
+ *
+ * {@link #prepare(String)} asks a renderer for its transport state while the user picks a
+ * device, which also opens a keep-alive connection to it. A cast stops the previous media
+ * while SetAVTransportURI is in flight and sends Play when both have completed. A failed
+ * step is retried with exponential backoff, the steps before it aren't repeated.
+ */
+class CastPipeline {
+
+    private static final String TAG = "RNByronDLNA";
+
+    static final int MAX_ATTEMPTS = 3;
+    static final long INITIAL_RETRY_DELAY_MILLIS = 1000;
+    static final long ACTION_TIMEOUT_MILLIS = 15000; // per attempt of a step
+    static final long PREPARE_TIMEOUT_MILLIS = 5000; // GetTransportInfo and Stop, nothing waits for them long
+    static final long PREPARED_MILLIS = 15000; // as long as the stream client keeps a connection alive
+
+    static final String STAGE_CONNECTING = "connecting";
+    static final String STAGE_BUFFERING = "buffering";
+    static final String STAGE_PLAYING = "playing";
+
+    /**
+     * Called on the thread completing a step, usually a thread of the HTTP client.
+     */
+    interface Listener {
+
+        /**
+         * @param stage The stage which has been reached.
+         * @param stageMillis How long the step leading to this stage took, including retries.
+         * @param totalMillis Time since the cast started.
+         * @param attempts Attempts of the step leading to this stage.
+         */
+        void progress(String stage, String deviceName, long stageMillis, long totalMillis, int attempts);
+
+        void succeeded(String deviceName, long totalMillis);
+
+        void failed(String code, String message);
+    }
+
+    /**
+     * The AVTransport service of a renderer, and its transport state if it is known.
+     */
+    static final class Prepared {
+        final Service service;
+        final TransportState state;
+        final long preparedMillis;
+
+        Prepared(Service service, TransportState state) {
+            this.service = service;
+            this.state = state;
+            this.preparedMillis = System.currentTimeMillis();
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() - preparedMillis < PREPARED_MILLIS;
+        }
+
+        boolean isStopped() {
+            return state == TransportState.STOPPED || state == TransportState.NO_MEDIA_PRESENT;
+        }
+    }
+
+    private final ControlPoint controlPoint;
+
+    // Guarded by this
+    private final Map<String, Prepared> prepared = new HashMap<>();
+    private final Map<String, Cast> casts = new HashMap<>();
+
+    CastPipeline(ControlPoint controlPoint) {
+        this.controlPoint = controlPoint;
+    }
+
+    /**
+     * Asks the renderer for its transport state, unless that has been done recently.
+     *
+     * @return <code>false</code> if the device isn't a renderer in the registry.
+     */
+    boolean prepare(final String deviceId) {
+        final Service service = findService(deviceId);
+        if (service == null)
+            return false;
+        synchronized (this) {
+            Prepared current = prepared.get(deviceId);
+            if (current != null && current.isFresh())
+                return true;
+            // Further calls don't send another request while this one is in flight
+            prepared.put(deviceId, new Prepared(service, null));
+        }
+
+        controlPoint.execute(
+            new GetTransportInfo(service) {
+                @Override
+                public void received(ActionInvocation invocation, TransportInfo transportInfo) {
+                    Log.d(TAG, "Prepared cast to " + deviceId + ", transport state: " + transportInfo.getCurrentTransportState());
+                    setPrepared(deviceId, new Prepared(service, transportInfo.getCurrentTransportState()));
+                }
+
+                @Override
+                public void failure(ActionInvocation invocation, UpnpResponse operation, String defaultMsg) {
+                    Log.w(TAG, "Preparing cast to " + deviceId + " failed: " + defaultMsg);
+                    removePrepared(deviceId);
+                }
+            },
+            PREPARE_TIMEOUT_MILLIS
+        );
+        return true;
+    }
+
+    /**
+     * Casts the media, a cast in progress to the same device is cancelled.
+     */
+    void cast(String deviceId, String url, String metadata, Listener listener) {
+        Cast cast = new Cast(deviceId, url, metadata, listener);
+        Cast previous;
+        synchronized (this) {
+            previous = casts.put(deviceId, cast);
+        }
+        if (previous != null)
+            previous.cancel("Cast has been replaced by a new cast to the same device.");
+        cast.start();
+    }
+
+    /**
+     * Cancels all casts in progress and forgets prepared renderers.
+     */
+    void cancelAll() {
+        List<Cast> cancelled;
+        synchronized (this) {
+            cancelled = new ArrayList<>(casts.values());
+            casts.clear();
+            prepared.clear();
+        }
+        for (Cast cast : cancelled) {
+            cast.cancel("DLNA service has been stopped.");
+        }
+    }
+
+    private Service findService(String deviceId) {
+        Device device = controlPoint.getRegistry().getDevice(UDN.valueOf(deviceId), false);
+        return device != null ? device.findService(RendererIndex.AV_TRANSPORT) : null;
+    }
+
+    synchronized private Prepared getPrepared(String deviceId) {
+        Prepared current = prepared.get(deviceId);
+        return current != null && current.isFresh() ? current : null;
+    }
+
+    synchronized private void setPrepared(String deviceId, Prepared state) {
+        prepared.put(deviceId, state);
+    }
+
+    synchronized private void removePrepared(String deviceId) {
+        prepared.remove(deviceId);
+    }
+
+    synchronized private void finished(Cast cast) {
+        if (casts.get(cast.deviceId) == cast)
+            casts.remove(cast.deviceId);
+    }
+
+    /**
+     * One step of a cast, a new action is created for each attempt.
+     */
+    private abstract class Step {
+        final String name;
+        final String failureMessage;
+        final long startMillis = System.currentTimeMillis();
+        int attempt;
+
+        Step(String name, String failureMessage) {
+            this.name = name;
+            this.failureMessage = failureMessage;
+        }
+
+        abstract ActionCallback createAction(Service service);
+
+        long elapsedMillis() {
+            return System.currentTimeMillis() - startMillis;
+        }
+    }
+
+    private final class Cast {
+        final String deviceId;
+        final String url;
+        final String metadata;
+        final Listener listener;
+        final long startMillis = System.currentTimeMillis();
+
+        String deviceName;
+        Service service;
+
+        // Guarded by this
+        private boolean finished;
+        private boolean uriSet;
+        private boolean stopDone;
+        private final List<Future<?>> pending = new ArrayList<>();
+
+        Cast(String deviceId, String url, String metadata, Listener listener) {
+            this.deviceId = deviceId;
+            this.url = url;
+            this.metadata = metadata;
+            this.listener = listener;
+        }
+
+        void start() {
+            Device device = controlPoint.getRegistry().getDevice(UDN.valueOf(deviceId), false);
+            if (device == null) {
+                fail("DEVICE_NOT_FOUND",
+                    "Device with ID '" + deviceId + "' not found. " +
+                    "Device may have gone offline or discovery needs to be re-run. " +
+                    "Try calling discoverDevices() again.");
+                return;
+            }
+            deviceName = device.getDetails().getFriendlyName();
+
+            Prepared state = getPrepared(deviceId);
+            service = state != null ? state.service : device.findService(RendererIndex.AV_TRANSPORT);
+            if (service == null) {
+                fail("SERVICE_NOT_AVAILABLE",
+                    "Device '" + deviceName + "' does not support AVTransport service. " +
+                    "This device cannot play media via DLNA. " +
+                    "Only MediaRenderer devices with AVTransport are supported.");
+                return;
+            }
+            listener.progress(STAGE_CONNECTING, deviceName, elapsedMillis(), elapsedMillis(), 1);
+
+            // The new URI replaces the previous media, stopping it runs alongside
+            if (state != null && state.isStopped()) {
+                stopDone = true;
+            } else {
+                stopPrevious();
+            }
+            execute(new Step(STAGE_BUFFERING,
+                "Failed to load media: %s. Check that the URL is accessible from the TV's network.") {
+                @Override
+                ActionCallback createAction(Service service) {
+                    final Step step = this;
+                    return new SetAVTransportURI(service, url, metadata) {
+                        @Override
+                        public void success(ActionInvocation invocation) {
+                            completed(step);
+                            uriSet();
+                        }
+
+                        @Override
+                        public void failure(ActionInvocation invocation, UpnpResponse operation, String defaultMsg) {
+                            retryOrFail(step, defaultMsg);
+                        }
+                    };
+                }
+            });
+        }
+
+        private void stopPrevious() {
+            ActionFuture future = controlPoint.execute(
+                new Stop(service) {
+                    @Override
+                    public void success(ActionInvocation invocation) {
+                        stopDone();
+                    }
+
+                    @Override
+                    public void failure(ActionInvocation invocation, UpnpResponse operation, String defaultMsg) {
+                        // Many renderers refuse to stop when nothing is playing
+                        Log.d(TAG, "Stopping previous media on " + deviceName + " failed: " + defaultMsg);
+                        stopDone();
+                    }
+                },
+                PREPARE_TIMEOUT_MILLIS
+            );
+            addPending(future);
+        }
+
+        private void stopDone() {
+            boolean play;
+            synchronized (this) {
+                stopDone = true;
+                play = uriSet;
+            }
+            if (play)
+                play();
+        }
+
+        private void uriSet() {
+            boolean play;
+            synchronized (this) {
+                uriSet = true;
+                play = stopDone;
+            }
+            if (play)
+                play();
+        }
+
+        private void play() {
+            execute(new Step(STAGE_PLAYING,
+                "Play command failed: %s. Device may not support the media format or is busy.") {
+                @Override
+                ActionCallback createAction(Service service) {
+                    final Step step = this;
+                    return new Play(service) {
+                        @Override
+                        public void success(ActionInvocation invocation) {
+                            completed(step);
+                            setPrepared(deviceId, new Prepared(service, TransportState.PLAYING));
+                            if (finish())
+                                listener.succeeded(deviceName, Cast.this.elapsedMillis());
+                        }
+
+                        @Override
+                        public void failure(ActionInvocation invocation, UpnpResponse operation, String defaultMsg) {
+                            retryOrFail(step, defaultMsg);
+                        }
+                    };
+                }
+            });
+        }
+
+        private void execute(Step step) {
+            synchronized (this) {
+                if (finished)
+                    return;
+                step.attempt++;
+            }
+            Log.d(TAG, "Cast to " + deviceName + ", " + step.name + " attempt " + step.attempt + "/" + MAX_ATTEMPTS);
+            addPending(controlPoint.execute(step.createAction(service), ACTION_TIMEOUT_MILLIS));
+        }
+
+        private void completed(Step step) {
+            synchronized (this) {
+                if (finished)
+                    return;
+            }
+            listener.progress(step.name, deviceName, step.elapsedMillis(), elapsedMillis(), step.attempt);
+        }
+
+        private void retryOrFail(final Step step, String defaultMsg) {
+            String errorMsg = String.format(step.failureMessage, defaultMsg);
+            synchronized (this) {
+                if (finished)
+                    return;
+            }
+            if (step.attempt >= MAX_ATTEMPTS) {
+                Log.e(TAG, errorMsg + " - Max attempts (" + MAX_ATTEMPTS + ") exceeded");
+                removePrepared(deviceId);
+                fail("CAST_FAILED", errorMsg + " after " + MAX_ATTEMPTS + " attempts");
+                return;
+            }
+
+            long delay = INITIAL_RETRY_DELAY_MILLIS << (step.attempt - 1);
+            Log.w(TAG, "Cast step " + step.name + " failed: " + errorMsg + ". Retrying in " + delay + "ms");
+            ScheduledExecutorService scheduler = controlPoint.getConfiguration().getScheduledExecutorService();
+            addPending(scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    execute(step);
+                }
+            }, delay, TimeUnit.MILLISECONDS));
+        }
+
+        void cancel(String message) {
+            List<Future<?>> cancelled;
+            synchronized (this) {
+                cancelled = new ArrayList<>(pending);
+            }
+            if (!finish())
+                return;
+            for (Future<?> future : cancelled) {
+                future.cancel(false);
+            }
+            listener.failed("CAST_CANCELLED", message);
+        }
+
+        private void fail(String code, String message) {
+            if (finish())
+                listener.failed(code, message);
+        }
+
+        /**
+         * @return <code>false</code> if the cast has already been finished.
+         */
+        private boolean finish() {
+            synchronized (this) {
+                if (finished)
+                    return false;
+                finished = true;
+                pending.clear();
+            }
+            finished(this);
+            return true;
+        }
+
+        private void addPending(Future<?> future) {
+            synchronized (this) {
+                if (!finished) {
+                    // Completed futures are of no use for cancelling
+                    for (int i = pending.size() - 1; i >= 0; i--) {
+                        if (pending.get(i).isDone())
+                            pending.remove(i);
+                    }
+                    pending.add(future);
+                    return;
+                }
+            }
+            future.cancel(false);
+        }
+
+        long elapsedMillis() {
+            return System.currentTimeMillis() - startMillis;
+        }
+    }
+}
@@ -65,7 +65,11 @@ public class RNByronDLNAModule extends ReactContextBaseJavaModule {
         @Override
         public void onServiceDisconnected(ComponentName componentName) {
             upnpService = null;
+            if (mediaServer != null)
+                mediaServer.stop();
             mediaServer = null;
+            if (mediaRenderer != null)
+                mediaRenderer.shutdown();
             mediaRenderer = null;
             Log.v("RNByronDLNAModule", "upnpService close");
         }
@@ -94,6 +98,10 @@ public class RNByronDLNAModule extends ReactContextBaseJavaModule {
 
     @ReactMethod
     public void closeService() {
+        if (mediaServer != null)
+            mediaServer.stop();
+        if (mediaRenderer != null)
+            mediaRenderer.shutdown();
         Intent intent = new Intent(reactContext, AndroidUpnpServiceImpl.class);
         reactContext.stopService(intent);
     }
@@ -1,6 +1,6 @@
 // RNByronDLNAModuleEnhanced.java
 // Enhanced version with DLNA Controller (DMC) functionality for casting to devices
-// Includes retry logic and timeout handling
+// Casts run as a pipeline which retries only the failed step
 
 package byron.dlna;
 
@@ -13,9 +13,7 @@ import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.net.wifi.WifiInfo;
 import android.net.wifi.WifiManager;
-import android.os.Handler;
 import android.os.IBinder;
-import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -37,6 +35,7 @@ import org.fourthline.cling.android.AndroidUpnpService;
 import org.fourthline.cling.android.AndroidUpnpServiceImpl;
 import org.fourthline.cling.model.action.ActionInvocation;
 import org.fourthline.cling.model.message.UpnpResponse;
+import org.fourthline.cling.model.message.header.UDAServiceTypeHeader;
 import org.fourthline.cling.model.meta.Device;
 import org.fourthline.cling.model.meta.LocalDevice;
 import org.fourthline.cling.model.meta.RemoteDevice;
@@ -46,23 +45,20 @@ import org.fourthline.cling.model.types.UDN;
 import org.fourthline.cling.registry.DefaultRegistryListener;
 import org.fourthline.cling.registry.Registry;
 import org.fourthline.cling.support.avtransport.callback.Play;
-import org.fourthline.cling.support.avtransport.callback.SetAVTransportURI;
 import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
 import org.greenrobot.eventbus.ThreadMode;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.Collection;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.List;
 
 public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
 
     private static final String TAG = "RNByronDLNA";
-    private static final int MAX_RETRIES = 3;
-    private static final long INITIAL_RETRY_DELAY = 1000; // 1 second
-    private static final int CAST_TIMEOUT_MS = 30000; // 30 seconds
     private static final String EVENT_CAST_PROGRESS = "dlna-cast-progress";
+    private static final String EVENT_DEVICES_CHANGED = "dlna-devices-changed";
+    private static final int SEARCH_MX_SECONDS = 1; // Renderers answer within a second
 
     private final ReactApplicationContext reactContext;
     private AndroidUpnpService upnpService;
@@ -70,6 +66,12 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
     private ZxtMediaRenderer mediaRenderer;
     public String friendlyName = "";
 
+    // Renderers in the registry, changes are emitted to JS once per frame
+    private final RendererIndex rendererIndex = new RendererIndex(this::emitRenderersChanged);
+
+    // Created when the service is connected
+    private volatile CastPipeline castPipeline;
+
     private final ServiceConnection serviceConnection = new ServiceConnection() {
 
         @Override
@@ -78,8 +80,13 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
             BaseApplication.upnpService = upnpService;
             Log.v(TAG, "upnpService start");
 
-            // Register device listener for discovery
+            // Index the renderers already known, then follow the registry. A renderer added in
+            // between is picked up by the search below, a removed one can't come back.
+            rendererIndex.addAll(upnpService.getRegistry());
             upnpService.getRegistry().addListener(registryListener);
+            upnpService.getRegistry().addListener(rendererIndex);
+            searchRenderers(SEARCH_MX_SECONDS);
+            castPipeline = new CastPipeline(upnpService.getControlPoint());
 
             try {
                 mediaServer = new MediaServer(reactContext, friendlyName);
@@ -94,28 +101,29 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
 
         @Override
         public void onServiceDisconnected(ComponentName componentName) {
+            rendererIndex.clear();
+            cancelCasts();
             upnpService = null;
+            if (mediaServer != null)
+                mediaServer.stop();
             mediaServer = null;
+            if (mediaRenderer != null)
+                mediaRenderer.shutdown();
             mediaRenderer = null;
             Log.v(TAG, "upnpService close");
         }
     };
 
-    // Registry listener for device discovery
+    // Registry listener for device discovery logging, the rendererIndex emits the events
     private final DefaultRegistryListener registryListener = new DefaultRegistryListener() {
         @Override
         public void remoteDeviceAdded(Registry registry, RemoteDevice device) {
             Log.d(TAG, "Remote device added: " + device.getDetails().getFriendlyName());
-            // Emit event to React Native if it's a MediaRenderer
-            if (isMediaRenderer(device)) {
-                sendDeviceDiscoveredEvent(device);
-            }
         }
 
         @Override
         public void remoteDeviceRemoved(Registry registry, RemoteDevice device) {
             Log.d(TAG, "Remote device removed: " + device.getDetails().getFriendlyName());
-            sendDeviceRemovedEvent(device);
         }
 
         @Override
@@ -149,7 +157,14 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
     public void closeService() {
         if (upnpService != null && registryListener != null) {
             upnpService.getRegistry().removeListener(registryListener);
+            upnpService.getRegistry().removeListener(rendererIndex);
         }
+        rendererIndex.clear();
+        cancelCasts();
+        if (mediaServer != null)
+            mediaServer.stop();
+        if (mediaRenderer != null)
+            mediaRenderer.shutdown();
         Intent intent = new Intent(reactContext, AndroidUpnpServiceImpl.class);
         reactContext.stopService(intent);
         if (upnpService != null) {
@@ -161,10 +176,6 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
         }
     }
 
-    /**
-     * Discover DLNA devices (MediaRenderers) on the network
-     * Returns a Promise that resolves to an array of devices
-     */
     @ReactMethod
     public void addListener(String eventName) {
         // Required for RN EventEmitter - kept for compatibility
@@ -175,6 +186,11 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
         // Required for RN EventEmitter - kept for compatibility
     }
 
+    /**
+     * Discover DLNA devices (MediaRenderers) on the network
+     * Returns a Promise that resolves to an array of devices, read from the renderer index
+     * without scanning the registry. Changes are also emitted as "dlna-devices-changed".
+     */
     @ReactMethod
     public void discoverDevices(Promise promise) {
         if (upnpService == null) {
@@ -187,14 +203,8 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
         try {
             WritableArray devicesArray = Arguments.createArray();
 
-            // Get all devices from registry
-            Collection<Device> devices = upnpService.getRegistry().getDevices();
-
-            for (Device device : devices) {
-                if (isMediaRenderer(device)) {
-                    WritableMap deviceMap = createDeviceMap(device);
-                    devicesArray.pushMap(deviceMap);
-                }
+            for (RendererIndex.Renderer renderer : rendererIndex.getRenderers()) {
+                devicesArray.pushMap(createDeviceMap(renderer));
             }
 
             Log.d(TAG, "Discovered " + devicesArray.size() + " MediaRenderer devices");
@@ -207,7 +217,49 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
     }
 
     /**
-     * Cast video to a specific DLNA device (like Samsung TV) with retry logic
+     * Search for MediaRenderers, only devices with an AVTransport service respond
+     * @param mxSeconds - Maximum seconds devices wait before responding, at least 1
+     */
+    @ReactMethod
+    public void searchDevices(int mxSeconds) {
+        if (upnpService == null) {
+            Log.w(TAG, "DLNA service not started, can't search for devices");
+            return;
+        }
+        searchRenderers(mxSeconds);
+    }
+
+    /**
+     * Prepare casting while the user picks a device, call when the device picker opens
+     * Asks the renderer for its transport state, which opens a connection to it, so a
+     * following castToDevice() doesn't wait for the connection and skips stopping idle renderers.
+     * @param deviceId - UDN of the device, or null for all discovered renderers
+     */
+    @ReactMethod
+    public void prepareCast(String deviceId) {
+        CastPipeline pipeline = castPipeline;
+        if (pipeline == null) {
+            Log.w(TAG, "DLNA service not started, can't prepare casting");
+            return;
+        }
+
+        try {
+            if (deviceId != null) {
+                pipeline.prepare(deviceId);
+                return;
+            }
+            for (RendererIndex.Renderer renderer : rendererIndex.getRenderers()) {
+                pipeline.prepare(renderer.id);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Error preparing cast", e);
+        }
+    }
+
+    /**
+     * Cast video to a specific DLNA device (like Samsung TV)
+     * Previous media is stopped while the new URI is set, a failed step is retried
+     * with exponential backoff without repeating the steps before it.
      * @param deviceId - UDN of the device
      * @param videoUrl - URL of the video to cast
      * @param title - Optional title for the media
@@ -221,22 +273,8 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
             return; // Already rejected by validateVideoUrl
         }
 
-        castToDeviceWithRetry(deviceId, videoUrl, title, promise, 1);
-    }
-
-    /**
-     * Internal method for casting with retry logic and exponential backoff
-     */
-    private void castToDeviceWithRetry(String deviceId, String videoUrl, String title, Promise promise, int attemptNumber) {
-        if (attemptNumber > MAX_RETRIES) {
-            promise.reject("MAX_RETRIES_EXCEEDED",
-                "Failed to cast after " + MAX_RETRIES + " attempts. " +
-                "Device may be offline or incompatible. Try restarting the device and discovering again.",
-                (Throwable)null);
-            return;
-        }
-
-        if (upnpService == null) {
+        CastPipeline pipeline = castPipeline;
+        if (pipeline == null) {
             promise.reject("SERVICE_NOT_STARTED",
                 "DLNA service not started. Call startService('Your App Name') before casting.",
                 (Throwable)null);
@@ -244,134 +282,33 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
         }
 
         try {
-            // Find device by UDN
-            Device device = upnpService.getRegistry().getDevice(UDN.valueOf(deviceId), false);
-
-            if (device == null) {
-                promise.reject("DEVICE_NOT_FOUND",
-                    "Device with ID '" + deviceId + "' not found. " +
-                    "Device may have gone offline or discovery needs to be re-run. " +
-                    "Try calling discoverDevices() again.",
-                    (Throwable)null);
-                return;
-            }
-
-            String deviceName = device.getDetails().getFriendlyName();
-
-            // Emit connecting progress
-            emitCastProgress("connecting", "Connecting to device...", deviceName);
-
-            // Find AVTransport service
-            Service avTransportService = device.findService(new UDAServiceType("AVTransport"));
-
-            if (avTransportService == null) {
-                promise.reject("SERVICE_NOT_AVAILABLE",
-                    "Device '" + deviceName + "' does not support AVTransport service. " +
-                    "This device cannot play media via DLNA. " +
-                    "Only MediaRenderer devices with AVTransport are supported.",
-                    (Throwable)null);
-                return;
-            }
-
-            // Generate DIDL-Lite metadata
             String metadata = generateDIDLMetadata(videoUrl, title != null ? title : "Video");
 
-            // Setup timeout handler
-            Handler timeoutHandler = new Handler(Looper.getMainLooper());
-            final AtomicBoolean operationCompleted = new AtomicBoolean(false);
+            pipeline.cast(deviceId, videoUrl, metadata, new CastPipeline.Listener() {
+                @Override
+                public void progress(String stage, String deviceName, long stageMillis, long totalMillis, int attempts) {
+                    emitCastProgress(stage, getStageMessage(stage), deviceName, stageMillis, totalMillis, attempts);
+                }
 
-            Runnable timeoutRunnable = () -> {
-                if (!operationCompleted.get()) {
-                    Log.e(TAG, "Cast operation timed out after 30 seconds on attempt " + attemptNumber);
-                    retryOrFail(deviceId, videoUrl, title, promise, attemptNumber, "Operation timed out");
+                @Override
+                public void succeeded(String deviceName, long totalMillis) {
+                    Log.d(TAG, "Cast to " + deviceName + " playing after " + totalMillis + "ms");
+                    promise.resolve(true);
                 }
-            };
-
-            timeoutHandler.postDelayed(timeoutRunnable, CAST_TIMEOUT_MS);
-
-            // Set AV Transport URI
-            upnpService.getControlPoint().execute(
-                new SetAVTransportURI(avTransportService, videoUrl, metadata) {
-                    @Override
-                    public void success(ActionInvocation invocation) {
-                        Log.d(TAG, "SetAVTransportURI success on attempt " + attemptNumber + ", now playing...");
-
-                        // Emit buffering progress
-                        emitCastProgress("buffering", "Loading media on TV...", deviceName);
-
-                        // After setting URI, send Play command
-                        upnpService.getControlPoint().execute(
-                            new Play(avTransportService) {
-                                @Override
-                                public void success(ActionInvocation invocation) {
-                                    if (operationCompleted.compareAndSet(false, true)) {
-                                        timeoutHandler.removeCallbacks(timeoutRunnable);
-                                        Log.d(TAG, "Play command success on attempt " + attemptNumber);
-
-                                        // Emit playing progress
-                                        emitCastProgress("playing", "Media is now playing", deviceName);
-
-                                        promise.resolve(true);
-                                    }
-                                }
-
-                                @Override
-                                public void failure(ActionInvocation invocation,
-                                                  UpnpResponse operation,
-                                                  String defaultMsg) {
-                                    if (operationCompleted.compareAndSet(false, true)) {
-                                        timeoutHandler.removeCallbacks(timeoutRunnable);
-                                        Log.e(TAG, "Play command failed on attempt " + attemptNumber + ": " + defaultMsg);
-
-                                        String errorMsg = "Play command failed: " + defaultMsg + ". " +
-                                            "Device may not support the media format or is busy.";
-                                        retryOrFail(deviceId, videoUrl, title, promise, attemptNumber, errorMsg);
-                                    }
-                                }
-                            }
-                        );
-                    }
-
-                    @Override
-                    public void failure(ActionInvocation invocation,
-                                      UpnpResponse operation,
-                                      String defaultMsg) {
-                        if (operationCompleted.compareAndSet(false, true)) {
-                            timeoutHandler.removeCallbacks(timeoutRunnable);
-                            Log.e(TAG, "SetAVTransportURI failed on attempt " + attemptNumber + ": " + defaultMsg);
-
-                            String errorMsg = "Failed to load media: " + defaultMsg + ". " +
-                                "Check that the URL is accessible from the TV's network.";
-                            retryOrFail(deviceId, videoUrl, title, promise, attemptNumber, errorMsg);
-                        }
-                    }
+
+                @Override
+                public void failed(String code, String message) {
+                    promise.reject(code, message, (Throwable)null);
                 }
-            );
+            });
 
         } catch (Exception e) {
-            Log.e(TAG, "Exception on attempt " + attemptNumber + ": " + e.getMessage(), e);
-            String errorMsg = "Network error while casting: " + e.getMessage() + ". " +
-                "Check that both devices are on the same WiFi network.";
-            retryOrFail(deviceId, videoUrl, title, promise, attemptNumber, errorMsg);
-        }
-    }
-
-    /**
-     * Helper method to retry or fail based on attempt number
-     */
-    private void retryOrFail(String deviceId, String videoUrl, String title, Promise promise, int attemptNumber, String errorMsg) {
-        if (attemptNumber >= MAX_RETRIES) {
-            Log.e(TAG, errorMsg + " - Max retries (" + MAX_RETRIES + ") exceeded");
-            promise.reject("CAST_FAILED", errorMsg + " after " + MAX_RETRIES + " attempts");
-            return;
+            Log.e(TAG, "Exception while casting: " + e.getMessage(), e);
+            promise.reject("CAST_FAILED",
+                "Network error while casting: " + e.getMessage() + ". " +
+                "Check that both devices are on the same WiFi network.",
+                e);
         }
-
-        long delay = INITIAL_RETRY_DELAY * (long) Math.pow(2, attemptNumber - 1);
-        Log.w(TAG, "Cast attempt " + attemptNumber + " failed: " + errorMsg + ". Retrying in " + delay + "ms (attempt " + (attemptNumber + 1) + "/" + MAX_RETRIES + ")");
-
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            castToDeviceWithRetry(deviceId, videoUrl, title, promise, attemptNumber + 1);
-        }, delay);
     }
 
     /**
@@ -398,7 +335,7 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
             }
 
             String deviceName = device.getDetails().getFriendlyName();
-            Service avTransportService = device.findService(new UDAServiceType("AVTransport"));
+            Service avTransportService = device.findService(RendererIndex.AV_TRANSPORT);
 
             if (avTransportService == null) {
                 promise.reject("SERVICE_NOT_AVAILABLE",
@@ -503,37 +440,69 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
 
     // ==================== Helper Methods ====================
 
-    private boolean isMediaRenderer(Device device) {
-        if (device == null) return false;
-        Service avTransportService = device.findService(new UDAServiceType("AVTransport"));
-        return avTransportService != null;
+    private void cancelCasts() {
+        CastPipeline pipeline = castPipeline;
+        castPipeline = null;
+        if (pipeline != null) {
+            pipeline.cancelAll();
+        }
+    }
+
+    private void searchRenderers(int mxSeconds) {
+        // Targeted search, other devices on the network stay quiet
+        upnpService.getControlPoint().search(
+            new UDAServiceTypeHeader(new UDAServiceType("AVTransport", 1)),
+            Math.max(1, mxSeconds)
+        );
     }
 
-    private WritableMap createDeviceMap(Device device) {
+    private WritableMap createDeviceMap(RendererIndex.Renderer renderer) {
         WritableMap map = Arguments.createMap();
 
-        map.putString("id", device.getIdentity().getUdn().toString());
-        map.putString("name", device.getDetails().getFriendlyName());
-        map.putString("manufacturer", device.getDetails().getManufacturerDetails() != null ?
-            device.getDetails().getManufacturerDetails().getManufacturer() : "Unknown");
-        map.putString("modelName", device.getDetails().getModelDetails() != null ?
-            device.getDetails().getModelDetails().getModelName() : "Unknown");
-        map.putString("type", device.getType().getType());
+        map.putString("id", renderer.id);
+        map.putString("name", renderer.name);
+        map.putString("manufacturer", renderer.manufacturer);
+        map.putString("modelName", renderer.modelName);
+        map.putString("type", renderer.type);
 
         return map;
     }
 
-    private void sendDeviceDiscoveredEvent(Device device) {
-        WritableMap deviceMap = createDeviceMap(device);
-        reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-            .emit("dlna-device-found", deviceMap);
-    }
+    /**
+     * Called on the main thread with the renderer changes of one frame
+     */
+    private void emitRenderersChanged(List<RendererIndex.Renderer> added,
+                                      List<RendererIndex.Renderer> updated,
+                                      List<RendererIndex.Renderer> removed) {
+        DeviceEventManagerModule.RCTDeviceEventEmitter emitter =
+            reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class);
+
+        WritableArray addedArray = Arguments.createArray();
+        WritableArray updatedArray = Arguments.createArray();
+        WritableArray removedArray = Arguments.createArray();
+        for (RendererIndex.Renderer renderer : added) {
+            addedArray.pushMap(createDeviceMap(renderer));
+            // Individual events for existing listeners, which only ever got remote devices
+            if (renderer.remote)
+                emitter.emit("dlna-device-found", createDeviceMap(renderer));
+        }
+        for (RendererIndex.Renderer renderer : updated) {
+            updatedArray.pushMap(createDeviceMap(renderer));
+        }
+        for (RendererIndex.Renderer renderer : removed) {
+            removedArray.pushString(renderer.id);
+            if (renderer.remote) {
+                WritableMap params = Arguments.createMap();
+                params.putString("id", renderer.id);
+                emitter.emit("dlna-device-lost", params);
+            }
+        }
 
-    private void sendDeviceRemovedEvent(Device device) {
-        WritableMap params = Arguments.createMap();
-        params.putString("id", device.getIdentity().getUdn().toString());
-        reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-            .emit("dlna-device-lost", params);
+        WritableMap changes = Arguments.createMap();
+        changes.putArray("added", addedArray);
+        changes.putArray("updated", updatedArray);
+        changes.putArray("removed", removedArray);
+        emitter.emit(EVENT_DEVICES_CHANGED, changes);
     }
 
     private String generateDIDLMetadata(String url, String title) {
@@ -550,16 +519,18 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
             protocolInfo = "http-get:*:video/*:*";
         }
 
-        return "<DIDL-Lite xmlns=\"urn:schemas-upnp-org:metadata-1-0/DIDL-Lite/\" " +
-               "xmlns:dc=\"http://purl.org/dc/elements/1.1/\" " +
-               "xmlns:upnp=\"urn:schemas-upnp-org:metadata-1-0/upnp/\" " +
-               "xmlns:dlna=\"urn:schemas-dlna-org:metadata-1-0/\">" +
-               "<item id=\"1\" parentID=\"0\" restricted=\"1\">" +
-               "<dc:title>" + escapedTitle + "</dc:title>" +
-               "<upnp:class>object.item.videoItem</upnp:class>" +
-               "<res protocolInfo=\"" + protocolInfo + "\">" + escapedUrl + "</res>" +
-               "</item>" +
-               "</DIDL-Lite>";
+        StringBuilder didl = new StringBuilder(512 + escapedUrl.length() + escapedTitle.length());
+        didl.append("<DIDL-Lite xmlns=\"urn:schemas-upnp-org:metadata-1-0/DIDL-Lite/\" ")
+            .append("xmlns:dc=\"http://purl.org/dc/elements/1.1/\" ")
+            .append("xmlns:upnp=\"urn:schemas-upnp-org:metadata-1-0/upnp/\" ")
+            .append("xmlns:dlna=\"urn:schemas-dlna-org:metadata-1-0/\">")
+            .append("<item id=\"1\" parentID=\"0\" restricted=\"1\">")
+            .append("<dc:title>").append(escapedTitle).append("</dc:title>")
+            .append("<upnp:class>object.item.videoItem</upnp:class>")
+            .append("<res protocolInfo=\"").append(protocolInfo).append("\">").append(escapedUrl).append("</res>")
+            .append("</item>")
+            .append("</DIDL-Lite>");
+        return didl.toString();
     }
 
     private String escapeXml(String text) {
@@ -571,12 +542,27 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
                    .replace("'", "&apos;");
     }
 
-    private void emitCastProgress(String stage, String message, String deviceName) {
+    private String getStageMessage(String stage) {
+        switch (stage) {
+            case CastPipeline.STAGE_CONNECTING:
+                return "Connecting to device...";
+            case CastPipeline.STAGE_BUFFERING:
+                return "Loading media on TV...";
+            default:
+                return "Media is now playing";
+        }
+    }
+
+    private void emitCastProgress(String stage, String message, String deviceName,
+                                  long stageMillis, long totalMillis, int attempts) {
         WritableMap progressData = Arguments.createMap();
         progressData.putString("stage", stage); // "connecting", "buffering", "playing"
         progressData.putString("message", message);
         progressData.putString("deviceName", deviceName);
         progressData.putDouble("timestamp", System.currentTimeMillis());
+        progressData.putDouble("stageMs", stageMillis); // latency of the step reaching this stage
+        progressData.putDouble("elapsedMs", totalMillis); // since castToDevice was called
+        progressData.putInt("attempts", attempts);
 
         reactContext
             .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
@@ -639,6 +625,7 @@ public class RNByronDLNAModuleEnhanced extends ReactContextBaseJavaModule {
             }
             if (upnpService != null && registryListener != null) {
                 upnpService.getRegistry().removeListener(registryListener);
+                upnpService.getRegistry().removeListener(rendererIndex);
             }
         } catch (Exception e) {
             Log.e(TAG, "Cleanup error", e);
@@ -0,0 +1,203 @@
+package byron.dlna;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.fourthline.cling.model.meta.Device;
+import org.fourthline.cling.model.meta.RemoteDevice;
+import org.fourthline.cling.model.types.UDAServiceType;
+import org.fourthline.cling.registry.DefaultRegistryListener;
+import org.fourthline.cling.registry.Registry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MediaRenderers in the registry, kept up to date by registry callbacks.
+ *
+ * Lookups read the index instead of scanning the registry. Changes are collected and
+ * delivered to the listener on the main thread at most once per frame, each batch only
+ * holds the renderers added, changed or removed since the listener last saw them.
+ */
+class RendererIndex extends DefaultRegistryListener {
+
+    static final long FRAME_MILLIS = 16;
+    static final UDAServiceType AV_TRANSPORT = new UDAServiceType("AVTransport");
+
+    interface Listener {
+        void renderersChanged(List<Renderer> added, List<Renderer> updated, List<Renderer> removed);
+    }
+
+    /**
+     * The device details shown to JS, compared to detect updates.
+     */
+    static final class Renderer {
+        final String id;
+        final String name;
+        final String manufacturer;
+        final String modelName;
+        final String type;
+        // False for the app's own renderer, which the registry reports as a local device
+        final boolean remote;
+
+        Renderer(Device device) {
+            id = device.getIdentity().getUdn().toString();
+            name = device.getDetails().getFriendlyName();
+            manufacturer = device.getDetails().getManufacturerDetails() != null ?
+                device.getDetails().getManufacturerDetails().getManufacturer() : "Unknown";
+            modelName = device.getDetails().getModelDetails() != null ?
+                device.getDetails().getModelDetails().getModelName() : "Unknown";
+            type = device.getType().getType();
+            remote = device instanceof RemoteDevice;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Renderer)) return false;
+            Renderer that = (Renderer) o;
+            return id.equals(that.id)
+                && equal(name, that.name)
+                && equal(manufacturer, that.manufacturer)
+                && equal(modelName, that.modelName)
+                && equal(type, that.type)
+                && remote == that.remote;
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Guarded by this
+    private final Map<String, Renderer> renderers = new LinkedHashMap<>();
+    private final Set<String> changedIds = new LinkedHashSet<>();
+    private boolean flushScheduled;
+
+    // What the listener has seen, only accessed on the main thread
+    private final Map<String, Renderer> delivered = new HashMap<>();
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    RendererIndex(Listener listener) {
+        this.listener = listener;
+    }
+
+    static boolean isMediaRenderer(Device device) {
+        return device != null && device.findService(AV_TRANSPORT) != null;
+    }
+
+    /**
+     * Indexes the devices already in the registry, call before adding this listener.
+     */
+    void addAll(Registry registry) {
+        for (Device device : registry.getDevices()) {
+            deviceAdded(registry, device);
+        }
+    }
+
+    /**
+     * Removes all renderers, the listener receives them as removed.
+     */
+    synchronized void clear() {
+        changedIds.addAll(renderers.keySet());
+        renderers.clear();
+        scheduleFlush();
+    }
+
+    synchronized List<Renderer> getRenderers() {
+        return new ArrayList<>(renderers.values());
+    }
+
+    @Override
+    public void deviceAdded(Registry registry, Device device) {
+        if (isMediaRenderer(device))
+            put(new Renderer(device));
+    }
+
+    @Override
+    public void remoteDeviceUpdated(Registry registry, RemoteDevice device) {
+        // Called for every alive NOTIFY, usually nothing changed
+        if (isMediaRenderer(device))
+            put(new Renderer(device));
+    }
+
+    @Override
+    public void deviceRemoved(Registry registry, Device device) {
+        remove(device.getIdentity().getUdn().toString());
+    }
+
+    synchronized private void put(Renderer renderer) {
+        Renderer previous = renderers.put(renderer.id, renderer);
+        if (!renderer.equals(previous)) {
+            changedIds.add(renderer.id);
+            scheduleFlush();
+        }
+    }
+
+    synchronized private void remove(String id) {
+        if (renderers.remove(id) != null) {
+            changedIds.add(id);
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            mainHandler.postDelayed(flush, FRAME_MILLIS);
+        }
+    }
+
+    private void flush() {
+        List<Renderer> current = new ArrayList<>();
+        List<String> ids;
+        synchronized (this) {
+            flushScheduled = false;
+            ids = new ArrayList<>(changedIds);
+            changedIds.clear();
+            for (String id : ids) {
+                current.add(renderers.get(id));
+            }
+        }
+
+        // Compare with what the listener has seen, a renderer added and removed within a frame isn't reported
+        List<Renderer> added = new ArrayList<>();
+        List<Renderer> updated = new ArrayList<>();
+        List<Renderer> removed = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            String id = ids.get(i);
+            Renderer renderer = current.get(i);
+            Renderer seen = renderer != null ? delivered.put(id, renderer) : delivered.remove(id);
+            if (renderer == null) {
+                if (seen != null)
+                    removed.add(seen);
+            } else if (seen == null) {
+                added.add(renderer);
+            } else if (!renderer.equals(seen)) {
+                updated.add(renderer);
+            }
+        }
+
+        if (!added.isEmpty() || !updated.isEmpty() || !removed.isEmpty())
+            listener.renderersChanged(added, updated, removed);
+    }
+}
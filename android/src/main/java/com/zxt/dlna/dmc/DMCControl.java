@@ -12,6 +12,7 @@ import com.zxt.dlna.util.Action;
 import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.content.Intent;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
 import android.util.Log;
@@ -47,6 +48,8 @@ public class DMCControl {
 
 	private String metaData;
 
+	private PlaybackSession playbackSession;
+
 	String relTime;
 
 	private boolean threadGetState = false;
@@ -88,10 +91,13 @@ public class DMCControl {
 				case DMCControlMessage.REMOTE_NOMEDIA:
 				case DMCControlMessage.REDUCEVOLUME:
 
-				case DMCControlMessage.UPDATE_PLAY_TRACK:
+				case DMCControlMessage.UPDATE_PLAY_TRACK: {
 
-				case DMCControlMessage.STOP: {
+				break;
+			}
 
+				case DMCControlMessage.STOP: {
+				release();
 				break;
 			}
 
@@ -108,10 +114,16 @@ public class DMCControl {
 			}
 
 				case DMCControlMessage.GETPOTITION: {
-				getPositionInfo();
+				// A single update loop, however often it is started
+				mHandle.removeMessages(DMCControlMessage.GETPOTITION);
+				if (msg.arg1 == 1) {
+					break;
+				}
+				updatePosition();
 
-				// TODO
-				if (!isExit && controlType != TYPE_IMAGE) {
+				if (isExit) {
+					release();
+				} else if (controlType != TYPE_IMAGE) {
 					mHandle.sendEmptyMessageDelayed(
 							DMCControlMessage.GETPOTITION, 500);
 				}
@@ -121,6 +133,7 @@ public class DMCControl {
 				case DMCControlMessage.PLAY: {
 				mHandle.sendEmptyMessageDelayed(DMCControlMessage.GETPOTITION,
 						500);
+				startPlaybackSession();
 				play();
 				break;
 			}
@@ -185,6 +198,79 @@ public class DMCControl {
 		activity.sendBroadcast(localIntent);
 	}
 
+	private final PlaybackSession.Listener playbackListener = new PlaybackSession.Listener() {
+
+		public void onPlaybackStateChanged(PlaybackSession session) {
+			if (session.getVolume() >= 0) {
+				currentVolume = session.getVolume();
+			}
+			if (session.isMute() != isMute) {
+				isMute = session.isMute();
+				setMuteToActivity(isMute);
+			}
+		}
+	};
+
+	/**
+	 * Follows the playback state of the renderer through events, so the position
+	 * updates don't query it.
+	 */
+	public void startPlaybackSession() {
+		if (playbackSession != null) {
+			return;
+		}
+		try {
+			Device localDevice = this.executeDeviceItem.getDevice();
+			Service avTransport = localDevice.findService(new UDAServiceType(
+					"AVTransport"));
+			if (avTransport == null) {
+				return;
+			}
+			playbackSession = new PlaybackSession(
+					this.upnpService.getControlPoint(), avTransport,
+					localDevice.findService(new UDAServiceType(
+							"RenderingControl")), playbackListener);
+			playbackSession.start();
+		} catch (Exception localException) {
+			localException.printStackTrace();
+		}
+	}
+
+	public PlaybackSession getPlaybackSession() {
+		return playbackSession;
+	}
+
+	/**
+	 * Ends the playback session and the position updates.
+	 */
+	public void release() {
+		mHandle.removeMessages(DMCControlMessage.GETPOTITION);
+		if (playbackSession != null) {
+			playbackSession.stop();
+			playbackSession = null;
+		}
+	}
+
+	private void updatePosition() {
+		if (playbackSession == null) {
+			getPositionInfo();
+			return;
+		}
+		Bundle localBundle = new Bundle();
+		localBundle.putString("TrackDuration",
+				playbackSession.getTrackDuration());
+		localBundle.putString("RelTime", playbackSession.getRelTime());
+		Intent localIntent = new Intent(Action.PLAY_UPDATE);
+		localIntent.putExtras(localBundle);
+		activity.sendBroadcast(localIntent);
+	}
+
+	private void markActivity() {
+		if (playbackSession != null) {
+			playbackSession.markActivity();
+		}
+	}
+
 	private void stopGetPosition() {
 		Message msg = new Message();
 		msg.what = DMCControlMessage.GETPOTITION;
@@ -320,6 +406,7 @@ public class DMCControl {
 				Log.e("pause", "pause");
 				this.upnpService.getControlPoint().execute(
 						new PauseCallback(localService));
+				markActivity();
 			} else {
 				Log.e("null", "null");
 			}
@@ -336,6 +423,7 @@ public class DMCControl {
 				Log.e("start play", "start play");
 				this.upnpService.getControlPoint().execute(
 						new PlayerCallback(localService, mHandle));
+				markActivity();
 			} else {
 				Log.e("null", "null");
 			}
@@ -348,18 +436,12 @@ public class DMCControl {
 		if (this.isGetNoMediaPlay)
 			return;
 		this.isGetNoMediaPlay = true;
-		new Thread(new Runnable() {
+		mHandle.postDelayed(new Runnable() {
 			public void run() {
-				try {
-					Thread.sleep(2000L);
-					DMCControl.this.setAvURL();
-					DMCControl.this.isGetNoMediaPlay = false;
-					return;
-				} catch (Exception localException) {
-					localException.printStackTrace();
-				}
+				DMCControl.this.setAvURL();
+				DMCControl.this.isGetNoMediaPlay = false;
 			}
-		}).start();
+		}, 2000L);
 	}
 
 	@SuppressLint("LongLogTag")
@@ -374,6 +456,9 @@ public class DMCControl {
 				this.upnpService.getControlPoint().execute(
 						new SeekCallback(activity, localService, paramString,
 								mHandle));
+				if (playbackSession != null) {
+					playbackSession.seek(paramString);
+				}
 			} else {
 				Log.e("null", "null");
 			}
@@ -392,6 +477,7 @@ public class DMCControl {
 						new SetAVTransportURIActionCallback(localService,
 								this.uriString, this.metaData, mHandle,
 								this.controlType));
+				markActivity();
 			} else {
 				Log.e("null", "null");
 			}
@@ -463,22 +549,8 @@ public class DMCControl {
 		if (!threadGetState)
 			return;
 		threadGetState = false;
-		new Thread(new Runnable() {
-			public void run() {
-				try {
-					boolean bool = DMCControlMessage.runing;
-					if (!bool) {
-						DMCControl.this.threadGetState = true;
-						return;
-					}
-					Thread.sleep(1000L);
-					DMCControl.this.getPositionInfo();
-					// DMCControl.this.getTransportInfo(true);
-				} catch (Exception localException) {
-					localException.printStackTrace();
-				}
-			}
-		}).start();
+		startPlaybackSession();
+		mHandle.sendEmptyMessageDelayed(DMCControlMessage.GETPOTITION, 1000L);
 	}
 
 	public void stop(Boolean paramBoolean) {
@@ -489,6 +561,7 @@ public class DMCControl {
 				this.upnpService.getControlPoint().execute(
 						new StopCallback(localService, mHandle, paramBoolean,
 								this.controlType));
+				release();
 			} else {
 				Log.e("null", "null");
 			}
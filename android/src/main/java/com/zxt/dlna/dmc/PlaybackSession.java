@@ -0,0 +1,587 @@
+package com.zxt.dlna.dmc;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.fourthline.cling.controlpoint.ControlPoint;
+import org.fourthline.cling.controlpoint.SubscriptionCallback;
+import org.fourthline.cling.model.ModelUtil;
+import org.fourthline.cling.model.action.ActionInvocation;
+import org.fourthline.cling.model.gena.CancelReason;
+import org.fourthline.cling.model.gena.GENASubscription;
+import org.fourthline.cling.model.message.UpnpResponse;
+import org.fourthline.cling.model.meta.Service;
+import org.fourthline.cling.model.state.StateVariableValue;
+import org.fourthline.cling.support.avtransport.callback.GetPositionInfo;
+import org.fourthline.cling.support.avtransport.callback.GetTransportInfo;
+import org.fourthline.cling.support.model.PositionInfo;
+import org.fourthline.cling.support.model.TransportInfo;
+import org.fourthline.cling.support.model.TransportState;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Playback state of a renderer, kept up to date by LastChange events.
+ * <p>
+ * Subscribes to AVTransport and RenderingControl and applies each variable of a
+ * LastChange event as it is parsed. The position isn't evented, it is interpolated
+ * locally and only queried when the transport state changes, and every
+ * {@link #RESYNC_MILLIS} while playing. Renderers which don't send events are polled
+ * instead, less often the longer nothing changes.
+ * </p>
+ */
+public class PlaybackSession {
+
+	public interface Listener {
+
+		/**
+		 * Called on the main thread when the transport state, duration, volume or mute
+		 * changed, or the position jumped.
+		 */
+		void onPlaybackStateChanged(PlaybackSession session);
+	}
+
+	private static final String TAG = "PlaybackSession";
+
+	public static final int SUBSCRIPTION_SECONDS = 1800;
+
+	// Renderers send the current values right after subscribing
+	public static final long EVENT_TIMEOUT_MILLIS = 3000;
+
+	public static final long RESYNC_MILLIS = 15000;
+
+	public static final long MIN_POLL_MILLIS = 1000;
+
+	public static final long MAX_POLL_MILLIS = 8000;
+
+	// A pause at the renderer shows up sooner while the position moves
+	public static final long MAX_PLAYING_POLL_MILLIS = 3000;
+
+	// Positions are reported in seconds, smaller differences are rounding
+	private static final long DRIFT_MILLIS = 1500;
+
+	private final ControlPoint controlPoint;
+
+	private final Service avTransportService;
+
+	private final Service renderingControlService;
+
+	private final Listener listener;
+
+	private final Handler handler = new Handler(Looper.getMainLooper());
+
+	private SubscriptionCallback avTransportSubscription;
+
+	private SubscriptionCallback renderingControlSubscription;
+
+	// Guarded by this, events of both subscriptions may arrive at once
+	private XmlPullParser parser;
+
+	// Only accessed on the main thread
+	private boolean started;
+
+	private boolean evented;
+
+	private boolean polling;
+
+	private boolean pollChanged;
+
+	private long pollMillis = MIN_POLL_MILLIS;
+
+	private TransportState transportState = TransportState.NO_MEDIA_PRESENT;
+
+	private String trackUri;
+
+	private long durationMillis;
+
+	private long positionMillis;
+
+	private long positionAtMillis;
+
+	private int volume = -1;
+
+	private boolean mute;
+
+	private int eventCount;
+
+	private int queryCount;
+
+	private final Runnable fallback = new Runnable() {
+		public void run() {
+			if (started && !evented) {
+				Log.w(TAG, "No events from " + avTransportService + ", polling");
+				startPolling();
+			}
+		}
+	};
+
+	private final Runnable poll = new Runnable() {
+		public void run() {
+			poll();
+		}
+	};
+
+	private final Runnable resync = new Runnable() {
+		public void run() {
+			if (started && evented && transportState == TransportState.PLAYING) {
+				queryPosition();
+				handler.postDelayed(this, RESYNC_MILLIS);
+			}
+		}
+	};
+
+	public PlaybackSession(ControlPoint controlPoint, Service avTransportService,
+			Service renderingControlService, Listener listener) {
+		this.controlPoint = controlPoint;
+		this.avTransportService = avTransportService;
+		this.renderingControlService = renderingControlService;
+		this.listener = listener;
+	}
+
+	/**
+	 * Subscribes to the renderer, call on the main thread.
+	 */
+	public void start() {
+		if (started)
+			return;
+		started = true;
+		avTransportSubscription = new LastChangeSubscription(avTransportService);
+		controlPoint.execute(avTransportSubscription);
+		if (renderingControlService != null) {
+			renderingControlSubscription = new LastChangeSubscription(
+					renderingControlService);
+			controlPoint.execute(renderingControlSubscription);
+		}
+		// The position isn't part of the initial event
+		queryPosition();
+		handler.postDelayed(fallback, EVENT_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Ends the subscriptions and polling, call on the main thread.
+	 */
+	public void stop() {
+		if (!started)
+			return;
+		started = false;
+		handler.removeCallbacksAndMessages(null);
+		if (avTransportSubscription != null)
+			avTransportSubscription.end();
+		if (renderingControlSubscription != null)
+			renderingControlSubscription.end();
+		avTransportSubscription = null;
+		renderingControlSubscription = null;
+	}
+
+	/**
+	 * Called after the user controlled playback, the change is picked up quickly even
+	 * when the renderer is polled.
+	 */
+	public void markActivity() {
+		if (!started)
+			return;
+		if (evented) {
+			// A seek or a new URI doesn't change the transport state of every renderer
+			handler.removeCallbacks(resync);
+			handler.postDelayed(resync, MIN_POLL_MILLIS);
+		} else if (polling) {
+			pollMillis = MIN_POLL_MILLIS;
+			handler.removeCallbacks(poll);
+			handler.postDelayed(poll, MIN_POLL_MILLIS);
+		}
+	}
+
+	/**
+	 * Moves the interpolated position to the seek target until the renderer reports it.
+	 */
+	public void seek(String relTime) {
+		long target = parseTimeMillis(relTime);
+		if (target >= 0) {
+			positionMillis = target;
+			positionAtMillis = SystemClock.elapsedRealtime();
+		}
+		markActivity();
+	}
+
+	public TransportState getTransportState() {
+		return transportState;
+	}
+
+	public boolean isEvented() {
+		return evented;
+	}
+
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	/**
+	 * @return The position reported last, advanced by the time since then while playing.
+	 */
+	public long getPositionMillis() {
+		long position = positionMillis;
+		if (transportState == TransportState.PLAYING && positionAtMillis > 0)
+			position += SystemClock.elapsedRealtime() - positionAtMillis;
+		return durationMillis > 0 ? Math.min(position, durationMillis) : position;
+	}
+
+	public String getRelTime() {
+		return ModelUtil.toTimeString(getPositionMillis() / 1000);
+	}
+
+	public String getTrackDuration() {
+		return ModelUtil.toTimeString(durationMillis / 1000);
+	}
+
+	/**
+	 * @return The volume of the master channel, <code>-1</code> if it isn't known.
+	 */
+	public int getVolume() {
+		return volume;
+	}
+
+	public boolean isMute() {
+		return mute;
+	}
+
+	/**
+	 * @return The LastChange events received.
+	 */
+	public int getEventCount() {
+		return eventCount;
+	}
+
+	/**
+	 * @return The GetTransportInfo and GetPositionInfo actions sent.
+	 */
+	public int getQueryCount() {
+		return queryCount;
+	}
+
+	private void startPolling() {
+		if (polling)
+			return;
+		polling = true;
+		pollMillis = MIN_POLL_MILLIS;
+		handler.post(poll);
+	}
+
+	private void stopPolling() {
+		polling = false;
+		handler.removeCallbacks(poll);
+	}
+
+	/**
+	 * Queries the transport state, and the position if it moves or the state changed.
+	 */
+	private void poll() {
+		if (!started)
+			return;
+		pollChanged = false;
+		queryCount++;
+		controlPoint.execute(new GetTransportInfo(avTransportService) {
+			@Override
+			public void received(ActionInvocation invocation,
+					final TransportInfo transportInfo) {
+				handler.post(new Runnable() {
+					public void run() {
+						if (!started)
+							return;
+						if (setTransportState(transportInfo
+								.getCurrentTransportState()))
+							notifyChanged();
+						// Subscribed sessions query the position on state changes
+						if (!polling)
+							return;
+						// The position of a stopped track doesn't move
+						if (transportState == TransportState.PLAYING
+								|| pollChanged) {
+							queryPosition();
+						} else {
+							scheduleNextPoll();
+						}
+					}
+				});
+			}
+
+			@Override
+			public void failure(ActionInvocation invocation,
+					UpnpResponse operation, String defaultMsg) {
+				Log.w(TAG, "Polling transport state failed: " + defaultMsg);
+				handler.post(new Runnable() {
+					public void run() {
+						scheduleNextPoll();
+					}
+				});
+			}
+		});
+	}
+
+	private void scheduleNextPoll() {
+		if (!started || !polling)
+			return;
+		long maxPollMillis = transportState == TransportState.PLAYING ? MAX_PLAYING_POLL_MILLIS
+				: MAX_POLL_MILLIS;
+		pollMillis = pollChanged ? MIN_POLL_MILLIS : Math.min(pollMillis * 2,
+				maxPollMillis);
+		handler.removeCallbacks(poll);
+		handler.postDelayed(poll, pollMillis);
+	}
+
+	private void queryPosition() {
+		queryCount++;
+		controlPoint.execute(new GetPositionInfo(avTransportService) {
+			@Override
+			public void received(ActionInvocation invocation,
+					final PositionInfo positionInfo) {
+				handler.post(new Runnable() {
+					public void run() {
+						if (!started)
+							return;
+						setPosition(positionInfo);
+						if (polling)
+							scheduleNextPoll();
+					}
+				});
+			}
+
+			@Override
+			public void failure(ActionInvocation invocation,
+					UpnpResponse operation, String defaultMsg) {
+				Log.w(TAG, "Querying position failed: " + defaultMsg);
+				handler.post(new Runnable() {
+					public void run() {
+						if (polling)
+							scheduleNextPoll();
+					}
+				});
+			}
+		});
+	}
+
+	private void setPosition(PositionInfo positionInfo) {
+		boolean changed = false;
+		long duration = parseTimeMillis(positionInfo.getTrackDuration());
+		if (duration >= 0 && duration != durationMillis) {
+			durationMillis = duration;
+			changed = true;
+		}
+		long position = parseTimeMillis(positionInfo.getRelTime());
+		if (position >= 0
+				&& (positionAtMillis == 0 || Math.abs(position
+						- getPositionMillis()) >= DRIFT_MILLIS)) {
+			positionMillis = position;
+			positionAtMillis = SystemClock.elapsedRealtime();
+			changed = true;
+		}
+		if (changed) {
+			pollChanged = true;
+			notifyChanged();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the state changed.
+	 */
+	private boolean setTransportState(TransportState state) {
+		if (state == null || state == transportState)
+			return false;
+		// Freeze or resume the interpolated position
+		positionMillis = getPositionMillis();
+		positionAtMillis = SystemClock.elapsedRealtime();
+		transportState = state;
+		pollChanged = true;
+		if (evented) {
+			queryPosition();
+			handler.removeCallbacks(resync);
+			if (state == TransportState.PLAYING)
+				handler.postDelayed(resync, RESYNC_MILLIS);
+		}
+		return true;
+	}
+
+	private void applyLastChange(List<String[]> values) {
+		if (!started)
+			return;
+		eventCount++;
+		boolean changed = false;
+		for (String[] value : values) {
+			String name = value[0];
+			String val = value[1];
+			if ("TransportState".equals(name)) {
+				changed |= setTransportState(TransportState.valueOrCustomOf(val));
+			} else if ("CurrentTrackDuration".equals(name)) {
+				long duration = parseTimeMillis(val);
+				if (duration >= 0 && duration != durationMillis) {
+					durationMillis = duration;
+					changed = true;
+				}
+			} else if ("RelativeTimePosition".equals(name)) {
+				long position = parseTimeMillis(val);
+				if (position >= 0) {
+					positionMillis = position;
+					positionAtMillis = SystemClock.elapsedRealtime();
+					changed = true;
+				}
+			} else if ("CurrentTrackURI".equals(name)) {
+				if (val.length() > 0 && !val.equals(trackUri)) {
+					if (trackUri != null) {
+						positionMillis = 0;
+						positionAtMillis = SystemClock.elapsedRealtime();
+						changed = true;
+					}
+					trackUri = val;
+				}
+			} else if ("Volume".equals(name)) {
+				try {
+					int v = Integer.parseInt(val);
+					changed |= v != volume;
+					volume = v;
+				} catch (NumberFormatException ex) {
+					Log.w(TAG, "Invalid volume: " + val);
+				}
+			} else if ("Mute".equals(name)) {
+				boolean m = "1".equals(val) || "true".equalsIgnoreCase(val);
+				changed |= m != mute;
+				mute = m;
+			}
+		}
+		if (changed)
+			notifyChanged();
+	}
+
+	private void notifyChanged() {
+		if (listener != null)
+			listener.onPlaybackStateChanged(this);
+	}
+
+	/**
+	 * Reads the values of instance 0 and the master channel from a LastChange document,
+	 * in document order.
+	 */
+	synchronized protected List<String[]> parseLastChange(String xml)
+			throws Exception {
+		if (parser == null) {
+			XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+			factory.setNamespaceAware(true);
+			parser = factory.newPullParser();
+		}
+		parser.setInput(new StringReader(xml));
+		List<String[]> values = new ArrayList<String[]>();
+		boolean instance = false;
+		int eventType;
+		while ((eventType = parser.next()) != XmlPullParser.END_DOCUMENT) {
+			if (eventType != XmlPullParser.START_TAG)
+				continue;
+			String name = parser.getName();
+			if ("InstanceID".equals(name)) {
+				instance = "0".equals(parser.getAttributeValue(null, "val"));
+				continue;
+			}
+			String channel = parser.getAttributeValue(null, "channel");
+			String val = parser.getAttributeValue(null, "val");
+			if (!instance || val == null
+					|| (channel != null && !"Master".equals(channel)))
+				continue;
+			values.add(new String[] { name, val });
+		}
+		return values;
+	}
+
+	private static long parseTimeMillis(String time) {
+		if (time == null || time.length() == 0
+				|| "NOT_IMPLEMENTED".equals(time))
+			return -1;
+		try {
+			return ModelUtil.fromTimeString(time) * 1000;
+		} catch (Exception ex) {
+			return -1;
+		}
+	}
+
+	private class LastChangeSubscription extends SubscriptionCallback {
+
+		LastChangeSubscription(Service service) {
+			super(service, SUBSCRIPTION_SECONDS);
+		}
+
+		@Override
+		protected void established(GENASubscription subscription) {
+			Log.d(TAG, "Subscribed to " + service);
+		}
+
+		@Override
+		protected void failed(GENASubscription subscription,
+				UpnpResponse responseStatus, Exception exception,
+				String defaultMsg) {
+			Log.w(TAG, "Subscribing to " + service + " failed: " + defaultMsg);
+			subscriptionLost();
+		}
+
+		@Override
+		protected void ended(GENASubscription subscription,
+				CancelReason reason, UpnpResponse responseStatus) {
+			// Without a reason the subscription has been ended by stop()
+			if (reason != null) {
+				Log.w(TAG, "Subscription to " + service + " ended: " + reason);
+				subscriptionLost();
+			}
+		}
+
+		@Override
+		protected void eventReceived(GENASubscription subscription) {
+			StateVariableValue lastChange = (StateVariableValue) subscription
+					.getCurrentValues().get("LastChange");
+			if (lastChange == null || lastChange.getValue() == null)
+				return;
+			final List<String[]> values;
+			try {
+				values = parseLastChange(lastChange.toString());
+			} catch (Exception ex) {
+				Log.w(TAG, "Invalid LastChange from " + service + ": " + ex);
+				return;
+			}
+			final boolean transport = service == avTransportService;
+			handler.post(new Runnable() {
+				public void run() {
+					if (transport && started && !evented) {
+						Log.d(TAG, "Events from " + service + ", interpolating position");
+						evented = true;
+						stopPolling();
+						if (transportState == TransportState.PLAYING)
+							handler.postDelayed(resync, RESYNC_MILLIS);
+					}
+					applyLastChange(values);
+				}
+			});
+		}
+
+		@Override
+		protected void eventsMissed(GENASubscription subscription,
+				int numberOfMissedEvents) {
+			Log.w(TAG, "Missed " + numberOfMissedEvents + " events from " + service);
+			if (service == avTransportService)
+				handler.post(poll);
+		}
+
+		private void subscriptionLost() {
+			if (service != avTransportService)
+				return;
+			handler.post(new Runnable() {
+				public void run() {
+					if (!started)
+						return;
+					evented = false;
+					handler.removeCallbacks(resync);
+					startPolling();
+				}
+			});
+		}
+	}
+}
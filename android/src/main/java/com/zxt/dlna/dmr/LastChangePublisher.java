@@ -0,0 +1,175 @@
+package com.zxt.dlna.dmr;
+
+import java.beans.PropertyChangeListener;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.fourthline.cling.model.gena.LocalGENASubscription;
+import org.fourthline.cling.support.lastchange.LastChange;
+import org.fourthline.cling.support.lastchange.LastChangeAwareServiceManager;
+
+import android.util.Log;
+
+/**
+ * Sends the accumulated "LastChange" values of the renderer's services to their GENA subscribers.
+ * <p>
+ * Nothing runs periodically, the players call {@link #changed()} after they filled a LastChange and
+ * a single task is scheduled to fire it. Changes of a service without subscribers are dropped, a new
+ * subscriber receives the current state in its initial event anyway. Changes arriving within the
+ * minimum interval of {@link LastChangeAwareServiceManager} are merged into the next event.
+ * </p>
+ */
+public class LastChangePublisher {
+
+    private static final String TAG = "LastChangePublisher";
+
+    final protected LastChangeAwareServiceManager<?>[] managers;
+    final protected LastChange[] lastChanges;
+
+    final protected ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "LastChangePublisher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    final protected AtomicLong changeCount = new AtomicLong();
+    final protected AtomicLong firedCount = new AtomicLong();
+    final protected AtomicLong suppressedCount = new AtomicLong();
+    final protected AtomicLong deferredCount = new AtomicLong();
+
+    // Guarded by this
+    protected boolean scheduled;
+    protected boolean stopped;
+
+    final protected Runnable publish = new Runnable() {
+        @Override
+        public void run() {
+            publish();
+        }
+    };
+
+    /**
+     * @param managers    The services to publish.
+     * @param lastChanges The LastChange the players fill for each service, in the same order.
+     */
+    public LastChangePublisher(LastChangeAwareServiceManager<?>[] managers, LastChange[] lastChanges) {
+        if (managers.length != lastChanges.length)
+            throw new IllegalArgumentException("One LastChange per service manager required");
+        this.managers = managers;
+        this.lastChanges = lastChanges;
+    }
+
+    /**
+     * Call after values were set on one of the LastChanges, returns immediately.
+     */
+    public void changed() {
+        changeCount.incrementAndGet();
+        schedule(0);
+    }
+
+    synchronized public void stop() {
+        stopped = true;
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The number of change notifications received from the players.
+     */
+    public long getChangeCount() {
+        return changeCount.get();
+    }
+
+    /**
+     * @return The number of events sent to the subscribers of a service.
+     */
+    public long getFiredCount() {
+        return firedCount.get();
+    }
+
+    /**
+     * @return The number of times accumulated changes were dropped because a service had no subscribers.
+     */
+    public long getSuppressedCount() {
+        return suppressedCount.get();
+    }
+
+    /**
+     * @return The number of times firing was postponed to honor the minimum event interval.
+     */
+    public long getDeferredCount() {
+        return deferredCount.get();
+    }
+
+    synchronized protected void schedule(long delayMillis) {
+        if (scheduled || stopped)
+            return;
+        scheduled = true;
+        executor.schedule(publish, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    protected void publish() {
+        synchronized (this) {
+            scheduled = false;
+        }
+
+        long retryMillis = 0;
+        for (int i = 0; i < managers.length; i++) {
+            try {
+                long remainingMillis = publish(managers[i], lastChanges[i]);
+                if (remainingMillis > 0)
+                    retryMillis = retryMillis == 0 ? remainingMillis : Math.min(retryMillis, remainingMillis);
+            } catch (Exception ex) {
+                Log.e(TAG, "Firing LastChange of " + managers[i] + " failed", ex);
+            }
+        }
+
+        if (retryMillis > 0) {
+            deferredCount.incrementAndGet();
+            schedule(retryMillis);
+        }
+    }
+
+    /**
+     * @return The milliseconds until the remaining changes can be fired, <code>0</code> if none are left.
+     */
+    protected long publish(LastChangeAwareServiceManager<?> manager, LastChange lastChange) {
+        if (!lastChange.hasChanges())
+            return 0;
+
+        if (!hasSubscribers(manager)) {
+            lastChange.reset();
+            suppressedCount.incrementAndGet();
+            return 0;
+        }
+
+        long remainingMillis = manager.fireLastChange();
+        if (remainingMillis == 0)
+            firedCount.incrementAndGet();
+        return remainingMillis;
+    }
+
+    protected boolean hasSubscribers(LastChangeAwareServiceManager<?> manager) {
+        // Each LocalGENASubscription listens on the manager while it is active, the manager's
+        // own listener is always registered and doesn't count
+        for (PropertyChangeListener listener : manager.getPropertyChangeSupport().getPropertyChangeListeners()) {
+            if (listener instanceof LocalGENASubscription)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") Changes: " + getChangeCount()
+                + ", fired: " + getFiredCount()
+                + ", suppressed: " + getSuppressedCount()
+                + ", deferred: " + getDeferredCount();
+    }
+}
@@ -36,11 +36,53 @@ public class ZxtMediaPlayer {
     final private UnsignedIntegerFourBytes instanceId;
     final private LastChange avTransportLastChange;
     final private LastChange renderingControlLastChange;
-    private volatile TransportInfo currentTransportInfo = new TransportInfo();
-    private final PositionInfo currentPositionInfo = new PositionInfo();
-    private final MediaInfo currentMediaInfo = new MediaInfo();
-    private double storedVolume;
-    
+
+    /**
+     * Everything control points can query about this instance. A snapshot never changes, writers
+     * replace it, so readers don't lock and always see values that belong together.
+     */
+    public static final class State {
+
+        final private TransportInfo transportInfo;
+        final private PositionInfo positionInfo;
+        final private MediaInfo mediaInfo;
+
+        public State() {
+            this(new TransportInfo(), new PositionInfo(), new MediaInfo());
+        }
+
+        public State(TransportInfo transportInfo, PositionInfo positionInfo, MediaInfo mediaInfo) {
+            this.transportInfo = transportInfo;
+            this.positionInfo = positionInfo;
+            this.mediaInfo = mediaInfo;
+        }
+
+        public TransportInfo getTransportInfo() {
+            return transportInfo;
+        }
+
+        public PositionInfo getPositionInfo() {
+            return positionInfo;
+        }
+
+        public MediaInfo getMediaInfo() {
+            return mediaInfo;
+        }
+
+        public State withTransportInfo(TransportInfo transportInfo) {
+            return new State(transportInfo, positionInfo, mediaInfo);
+        }
+
+        public State withMedia(MediaInfo mediaInfo, PositionInfo positionInfo) {
+            return new State(transportInfo, positionInfo, mediaInfo);
+        }
+    }
+
+    // Writers hold this while they replace the state and set the matching evented values, so
+    // LastChange sees the updates in the order they were made. Readers never take it.
+    final private Object writeLock = new Object();
+    private volatile State state = new State();
+
     private final Context mContext;
 
     public ZxtMediaPlayer(UnsignedIntegerFourBytes instanceId,Context context,
@@ -65,34 +107,58 @@ public class ZxtMediaPlayer {
         return renderingControlLastChange;
     }
 
-    synchronized public TransportInfo getCurrentTransportInfo() {
-        return currentTransportInfo;
+    /**
+     * @return The current snapshot, read several values from it if they have to be consistent.
+     */
+    public State getState() {
+        return state;
+    }
+
+    public TransportInfo getCurrentTransportInfo() {
+        return state.getTransportInfo();
     }
 
-    synchronized public PositionInfo getCurrentPositionInfo() {
-        return currentPositionInfo;
+    public PositionInfo getCurrentPositionInfo() {
+        return state.getPositionInfo();
     }
 
-    synchronized public MediaInfo getCurrentMediaInfo() {
-        return currentMediaInfo;
+    public MediaInfo getCurrentMediaInfo() {
+        return state.getMediaInfo();
     }
 
-    synchronized public void setURI(URI uri, String type, String name, String currentURIMetaData) {
+    public void setURI(URI uri, String type, String name, String currentURIMetaData) {
         Log.i(TAG, "setURI " + uri);
+        synchronized (writeLock) {
+            state = state.withMedia(
+                    new MediaInfo(uri.toString(), currentURIMetaData),
+                    new PositionInfo(1, currentURIMetaData, uri.toString())
+            );
+
+            getAvTransportLastChange().setEventedValue(
+                    getInstanceId(),
+                    new AVTransportVariable.AVTransportURI(uri),
+                    new AVTransportVariable.CurrentTrackURI(uri)
+            );
+        }
+        lastChangeUpdated();
+
         NativeAsyncEvent event = new NativeAsyncEvent(type, String.valueOf(uri), name);
         EventBus.getDefault().post(event);
     }
 
-    synchronized public void setVolume(double volume) {
+    public void setVolume(double volume) {
         Log.i(TAG,"setVolume " + volume);
     }
 
-    synchronized public void setMute(boolean desiredMute) {
+    public void setMute(boolean desiredMute) {
+
+    }
 
+    public TransportAction[] getCurrentTransportActions() {
+        return getTransportActions(state.getTransportInfo().getCurrentTransportState());
     }
 
-    synchronized public TransportAction[] getCurrentTransportActions() {
-        TransportState state = currentTransportInfo.getCurrentTransportState();
+    protected TransportAction[] getTransportActions(TransportState state) {
         TransportAction[] actions;
 
         switch (state) {
@@ -122,16 +188,25 @@ public class ZxtMediaPlayer {
         return actions;
     }
 
-    synchronized protected void transportStateChanged(TransportState newState) {
-        TransportState currentTransportState = currentTransportInfo.getCurrentTransportState();
-        log.fine("Current state is: " + currentTransportState + ", changing to new state: " + newState);
-        currentTransportInfo = new TransportInfo(newState);
+    protected void transportStateChanged(TransportState newState) {
+        synchronized (writeLock) {
+            TransportState currentTransportState = state.getTransportInfo().getCurrentTransportState();
+            log.fine("Current state is: " + currentTransportState + ", changing to new state: " + newState);
+            state = state.withTransportInfo(new TransportInfo(newState));
+
+            getAvTransportLastChange().setEventedValue(
+                    getInstanceId(),
+                    new AVTransportVariable.TransportState(newState),
+                    new AVTransportVariable.CurrentTransportActions(getTransportActions(newState))
+            );
+        }
+        lastChangeUpdated();
+    }
 
-        getAvTransportLastChange().setEventedValue(
-                getInstanceId(),
-                new AVTransportVariable.TransportState(newState),
-                new AVTransportVariable.CurrentTransportActions(getCurrentTransportActions())
-        );
+    /**
+     * Called after evented values were set on one of the LastChanges, override to get them sent.
+     */
+    protected void lastChangeUpdated() {
     }
 
     public double getVolume() {
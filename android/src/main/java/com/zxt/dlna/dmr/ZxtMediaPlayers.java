@@ -49,6 +49,11 @@ public class ZxtMediaPlayers extends ConcurrentHashMap<UnsignedIntegerFourBytes,
                                 onStop(this);
                             }
                         }
+
+                        @Override
+                        protected void lastChangeUpdated() {
+                            onLastChange(this);
+                        }
                     };
             put(player.getInstanceId(), player);
         }
@@ -61,4 +66,8 @@ public class ZxtMediaPlayers extends ConcurrentHashMap<UnsignedIntegerFourBytes,
     protected void onStop(ZxtMediaPlayer player) {
         log.fine("Player is stopping: " + player.getInstanceId());
     }
+
+    protected void onLastChange(ZxtMediaPlayer player) {
+        log.fine("Player changed evented state: " + player.getInstanceId());
+    }
 }
@@ -6,9 +6,11 @@ import java.util.Map;
 
 import org.fourthline.cling.binding.LocalServiceBinder;
 import org.fourthline.cling.binding.annotations.AnnotationLocalServiceBinder;
+import org.fourthline.cling.model.Command;
 import org.fourthline.cling.model.DefaultServiceManager;
 import org.fourthline.cling.model.ServiceManager;
 import org.fourthline.cling.model.ValidationException;
+import org.fourthline.cling.model.action.AbstractActionExecutor;
 import org.fourthline.cling.model.meta.DeviceDetails;
 import org.fourthline.cling.model.meta.DeviceIdentity;
 import org.fourthline.cling.model.meta.Icon;
@@ -36,8 +38,6 @@ import com.zxt.dlna.util.Utils;
 
 public class ZxtMediaRenderer {
 
-    public static final long LAST_CHANGE_FIRING_INTERVAL_MILLISECONDS = 500;
-
     private static final String TAG = "GstMediaRenderer";
 
     final protected LocalServiceBinder binder = new AnnotationLocalServiceBinder();
@@ -54,6 +54,8 @@ public class ZxtMediaRenderer {
 
     final protected LocalDevice device;
 
+    final protected LastChangePublisher lastChangePublisher;
+
    protected  Context mContext;
 
     public ZxtMediaRenderer(int numberOfPlayers,Context context, String friendlyName) {
@@ -76,6 +78,12 @@ public class ZxtMediaRenderer {
             protected void onStop(ZxtMediaPlayer player) {
 //                getDisplayHandler().onStop(player);
             }
+
+            @Override
+            protected void onLastChange(ZxtMediaPlayer player) {
+                if (lastChangePublisher != null)
+                    lastChangePublisher.changed();
+            }
         };
 
         // The connection manager doesn't have to do much, HTTP is stateless
@@ -86,6 +94,11 @@ public class ZxtMediaRenderer {
                     protected Object createServiceInstance() throws Exception {
                         return new ZxtConnectionManagerService();
                     }
+
+                    @Override
+                    protected boolean isLockRequired(Command cmd) {
+                        return !isQuery(cmd);
+                    }
                 };
         connectionManagerService.setManager(connectionManager);
 
@@ -100,6 +113,11 @@ public class ZxtMediaRenderer {
                     protected AVTransportService createServiceInstance() throws Exception {
                         return new AVTransportService(avTransportLastChange, mediaPlayers);
                     }
+
+                    @Override
+                    protected boolean isLockRequired(Command<AVTransportService> cmd) {
+                        return !isQuery(cmd);
+                    }
                 };
         avTransportService.setManager(avTransport);
 
@@ -114,6 +132,11 @@ public class ZxtMediaRenderer {
                     protected AudioRenderingControl createServiceInstance() throws Exception {
                         return new AudioRenderingControl(renderingControlLastChange, mediaPlayers);
                     }
+
+                    @Override
+                    protected boolean isLockRequired(Command<AudioRenderingControl> cmd) {
+                        return !isQuery(cmd);
+                    }
                 };
         renderingControlService.setManager(renderingControl);
 
@@ -147,29 +170,24 @@ public class ZxtMediaRenderer {
             throw new RuntimeException(ex);
         }
 
-        runLastChangePushThread();
+        // The backend player instances will fill the LastChange whenever something happens with
+        // whatever event messages are appropriate and notify the publisher, which flushes these
+        // changes to subscribers of the LastChange state variable of each service.
+        lastChangePublisher = new LastChangePublisher(
+                new LastChangeAwareServiceManager<?>[]{avTransport, renderingControl},
+                new LastChange[]{avTransportLastChange, renderingControlLastChange}
+        );
     }
 
-    // The backend player instances will fill the LastChange whenever something happens with
-    // whatever event messages are appropriate. This loop will periodically flush these changes
-    // to subscribers of the LastChange state variable of each service.
-    protected void runLastChangePushThread() {
-        // TODO: We should only run this if we actually have event subscribers
-        new Thread() {
-            @Override
-            public void run() {
-                try {
-                    while (true) {
-                        // These operations will NOT block and wait for network responses
-                        avTransport.fireLastChange();
-                        renderingControl.fireLastChange();
-                        Thread.sleep(LAST_CHANGE_FIRING_INTERVAL_MILLISECONDS);
-                    }
-                } catch (Exception ex) {
-                    Log.e(TAG, "runLastChangePushThread ex", ex);
-                }
-            }
-        }.start();
+    /**
+     * The Get* actions of these services only read the players' state snapshots or state that is
+     * synchronized on its own, they don't have to wait for a Play or Seek in progress. All other
+     * actions change the transport and still run one at a time.
+     */
+    protected static boolean isQuery(Command<?> cmd) {
+        return cmd instanceof AbstractActionExecutor.InvocationCommand
+                && ((AbstractActionExecutor.InvocationCommand) cmd)
+                        .getActionInvocation().getAction().getName().startsWith("Get");
     }
 
     public LocalDevice getDevice() {
@@ -193,6 +211,17 @@ public class ZxtMediaRenderer {
         }
     }
 
+    public LastChangePublisher getLastChangePublisher() {
+        return lastChangePublisher;
+    }
+
+    /**
+     * Stops sending LastChange events, call when the device is removed.
+     */
+    public void shutdown() {
+        lastChangePublisher.stop();
+    }
+
     public ServiceManager<ZxtConnectionManagerService> getConnectionManager() {
         return connectionManager;
     }
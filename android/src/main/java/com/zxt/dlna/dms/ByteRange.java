@@ -0,0 +1,131 @@
+package com.zxt.dlna.dms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * One satisfiable range of a byte range request (RFC 7233), with
+ * inclusive start and end positions.
+ */
+class ByteRange {
+
+	/**
+	 * Requests asking for more ranges than this are served in full.
+	 */
+	public final static int MAX_RANGES = 32;
+
+	/**
+	 * Ranges closer than this are merged, a multipart boundary costs about as much.
+	 */
+	private final static long MERGE_GAP = 80;
+
+	private final long start;
+	private final long end;
+
+	public ByteRange(long start, long end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long getEnd() {
+		return end;
+	}
+
+	public long getLength() {
+		return end - start + 1;
+	}
+
+	public String toContentRange(long entityLength) {
+		return "bytes " + start + "-" + end + "/" + entityLength;
+	}
+
+	/**
+	 * Parses the value of a Range header against an entity of the given length.
+	 * Suffix ranges ("-500") and open ranges ("9500-") are resolved, overlapping
+	 * or nearby ranges are merged.
+	 *
+	 * @return the ranges to send, an empty list if none of them is satisfiable,
+	 *         or null if the header is malformed or should be ignored
+	 */
+	public static List<ByteRange> parse(String header, long entityLength) {
+		if (header == null)
+			return null;
+		header = header.trim();
+		if (!header.regionMatches(true, 0, "bytes=", 0, "bytes=".length()))
+			return null;
+
+		List<ByteRange> ranges = new ArrayList<ByteRange>();
+		StringTokenizer st = new StringTokenizer(header.substring("bytes=".length()), ",");
+		int count = 0;
+		while (st.hasMoreTokens()) {
+			String spec = st.nextToken().trim();
+			if (spec.length() == 0)
+				continue;
+			if (++count > MAX_RANGES)
+				return null;
+
+			int minus = spec.indexOf('-');
+			if (minus < 0)
+				return null;
+			try {
+				String first = spec.substring(0, minus).trim();
+				String last = spec.substring(minus + 1).trim();
+				if (first.length() == 0) {
+					// Suffix range: the final N bytes
+					long suffix = Long.parseLong(last);
+					if (suffix < 0)
+						return null;
+					if (suffix > 0 && entityLength > 0)
+						ranges.add(new ByteRange(Math.max(0, entityLength - suffix), entityLength - 1));
+				} else {
+					long from = Long.parseLong(first);
+					long to = last.length() == 0 ? Long.MAX_VALUE : Long.parseLong(last);
+					if (from < 0 || to < from)
+						return null;
+					if (from < entityLength)
+						ranges.add(new ByteRange(from, Math.min(to, entityLength - 1)));
+				}
+			} catch (NumberFormatException nfe) {
+				return null;
+			}
+		}
+		if (count == 0)
+			return null;
+		return coalesce(ranges);
+	}
+
+	private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+		if (ranges.size() < 2)
+			return ranges;
+
+		List<ByteRange> sorted = new ArrayList<ByteRange>(ranges);
+		Collections.sort(sorted, new Comparator<ByteRange>() {
+			public int compare(ByteRange a, ByteRange b) {
+				return a.start < b.start ? -1 : (a.start == b.start ? 0 : 1);
+			}
+		});
+
+		List<ByteRange> merged = new ArrayList<ByteRange>();
+		ByteRange current = sorted.get(0);
+		for (int i = 1; i < sorted.size(); i++) {
+			ByteRange next = sorted.get(i);
+			if (next.start <= current.end + MERGE_GAP) {
+				current = new ByteRange(current.start, Math.max(current.end, next.end));
+			} else {
+				merged.add(current);
+				current = next;
+			}
+		}
+		merged.add(current);
+
+		// Keep the order the client asked for unless something was merged
+		return merged.size() == ranges.size() ? ranges : merged;
+	}
+}
@@ -18,15 +18,13 @@
 package com.zxt.dlna.dms;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Logger;
 
-import org.fourthline.cling.model.action.ActionException;
 import org.fourthline.cling.model.action.ActionInvocation;
 import org.fourthline.cling.model.message.UpnpResponse;
 import org.fourthline.cling.model.meta.Service;
-import org.fourthline.cling.model.types.ErrorCode;
+import org.fourthline.cling.support.contentdirectory.DIDLParser;
 import org.fourthline.cling.support.contentdirectory.callback.Browse;
 import org.fourthline.cling.support.model.BrowseFlag;
 import org.fourthline.cling.support.model.DIDLContent;
@@ -44,6 +42,11 @@ import android.os.Handler;
 /**
  * Updates a tree model after querying a backend <em>ContentDirectory</em>
  * service.
+ * <p>
+ * The result is parsed incrementally: every {@link #BATCH_SIZE} objects are
+ * added to the list on the UI thread, and handed to the optional
+ * {@link BatchListener}, while the rest of the result is still parsed.
+ * </p>
  * 
  * @author Christian Bauer
  */
@@ -52,6 +55,20 @@ public class ContentBrowseActionCallback extends Browse {
 	private static Logger log = Logger
 			.getLogger(ContentBrowseActionCallback.class.getName());
 
+	public final static int BATCH_SIZE = 50;
+
+	/**
+	 * Receives the children of the browsed container in batches, on the UI
+	 * thread, for example to forward them to JavaScript.
+	 */
+	public interface BatchListener {
+
+		/**
+		 * @param last <code>true</code> for the final, possibly empty, batch
+		 */
+		void received(List<ContentItem> batch, boolean last);
+	}
+
 	private Service service;
 
 	private Container container;
@@ -62,8 +79,23 @@ public class ContentBrowseActionCallback extends Browse {
 
 	private Handler handler;
 
+	private BatchListener batchListener;
+
+	// Only accessed by the thread parsing the result
+	private List<ContentItem> pending = new ArrayList<ContentItem>();
+	private boolean firstBatch = true;
+
+	// Only accessed on the UI thread
+	private int containerCount;
+
 	public ContentBrowseActionCallback(Activity activity, Service service,
 			Container container, ArrayList<ContentItem> list, Handler handler) {
+		this(activity, service, container, list, handler, null);
+	}
+
+	public ContentBrowseActionCallback(Activity activity, Service service,
+			Container container, ArrayList<ContentItem> list, Handler handler,
+			BatchListener batchListener) {
 		super(service, container.getId(), BrowseFlag.DIRECT_CHILDREN, "*", 0,
 				null, new SortCriterion(true, "dc:title"));
 		this.activity = activity;
@@ -71,89 +103,100 @@ public class ContentBrowseActionCallback extends Browse {
 		this.container = container;
 		this.list = list;
 		this.handler = handler;
+		this.batchListener = batchListener;
+	}
+
+	@Override
+	protected DIDLParser.Listener createListener(ActionInvocation actionInvocation) {
+		return new DIDLParser.Listener() {
+			public boolean container(Container childContainer) {
+				add(new ContentItem(childContainer, service));
+				return true;
+			}
+
+			public boolean item(Item childItem) {
+				add(new ContentItem(childItem, service));
+				return true;
+			}
+		};
+	}
+
+	private void add(ContentItem contentItem) {
+		pending.add(contentItem);
+		if (pending.size() >= BATCH_SIZE) {
+			post(pending, false);
+			pending = new ArrayList<ContentItem>();
+		}
 	}
 
 	public void received(final ActionInvocation actionInvocation,
 			final DIDLContent didl) {
 		log.fine("Received browse action DIDL descriptor, creating tree nodes");
+		// Objects of a result parsed without listener
+		for (Container childContainer : didl.getContainers()) {
+			pending.add(new ContentItem(childContainer, service));
+		}
+		for (Item childItem : didl.getItems()) {
+			pending.add(new ContentItem(childItem, service));
+		}
+		post(pending, true);
+		pending = new ArrayList<ContentItem>();
+	}
+
+	private void post(final List<ContentItem> batch, final boolean last) {
+		final boolean first = firstBatch;
+		firstBatch = false;
 		activity.runOnUiThread(new Runnable() {
 			public void run() {
-				try {
+				if (first) {
 					list.clear();
-					// Containers first
-					for (Container childContainer : didl.getContainers()) {
+					ConfigData.listPhotos.clear();
+					containerCount = 0;
+				}
+				for (ContentItem contentItem : batch) {
+					if (contentItem.isContainer()) {
+						// Containers first
 						log.fine("add child container "
-								+ childContainer.getTitle());
-						list.add(new ContentItem(childContainer, service));
-					}
-					// Now items
-					for (Item childItem : didl.getItems()) {
-						log.fine("add child item" + childItem.getTitle());
-						list.add(new ContentItem(childItem, service));
+								+ contentItem.getContainer().getTitle());
+						list.add(containerCount++, contentItem);
+					} else {
+						log.fine("add child item"
+								+ contentItem.getItem().getTitle());
+						list.add(contentItem);
+						classify(contentItem);
 					}
-				} catch (Exception ex) {
-					log.fine("Creating DIDL tree nodes failed: " + ex);
-					actionInvocation.setFailure(new ActionException(
-							ErrorCode.ACTION_FAILED,
-							"Can't create list childs: " + ex, ex));
-					failure(actionInvocation, null);
-//					handler.sendEmptyMessage(ContentActivity.CONTENT_GET_FAIL);
 				}
-				ConfigData.listPhotos.clear();
-				Iterator iterator = didl.getItems().iterator();
-				while (iterator.hasNext()) {
-					Item item = (Item) iterator.next();
-					ContentItem contentItem = new ContentItem(item,
-							ContentBrowseActionCallback.this.service);
-					if ((contentItem.getItem().getTitle().toString() != null)
-							&& (contentItem.getItem().getResources() != null)) {
-						List list = contentItem.getItem().getResources();
-						if ((list.size() != 0)
-								&& (((Res) list.get(0)).getProtocolInfo() != null)
-								&& (((Res) list.get(0)).getProtocolInfo()
-										.getContentFormat() != null)) {
-							if (((Res) list.get(0))
-									.getProtocolInfo()
-									.getContentFormat()
-									.substring(
-											0,
-											((Res) list.get(0))
-													.getProtocolInfo()
-													.getContentFormat()
-													.indexOf("/"))
-									.equals("image")) {
-								ConfigData.listPhotos
-										.add(new ContentItem(
-												item,
-												ContentBrowseActionCallback.this.service));
-							} else if (((Res) list.get(0))
-									.getProtocolInfo()
-									.getContentFormat()
-									.substring(
-											0,
-											((Res) list.get(0))
-													.getProtocolInfo()
-													.getContentFormat()
-													.indexOf("/"))
-									.equals("audio")) {
-								ConfigData.listAudios
-										.add(new ContentItem(
-												item,
-												ContentBrowseActionCallback.this.service));
-							} else {
-								ConfigData.listVideos
-										.add(new ContentItem(
-												item,
-												ContentBrowseActionCallback.this.service));
-							}
-						}
-					}
+				if (batchListener != null) {
+					batchListener.received(batch, last);
 				}
-//				handler.sendEmptyMessage(ContentActivity.CONTENT_GET_SUC);
+//				if (last) handler.sendEmptyMessage(ContentActivity.CONTENT_GET_SUC);
 			}
 		});
 	}
 
+	private void classify(ContentItem contentItem) {
+		Item item = contentItem.getItem();
+		if (item.getTitle() == null || item.getResources() == null
+				|| item.getResources().size() == 0) {
+			return;
+		}
+		Res res = item.getResources().get(0);
+		if (res.getProtocolInfo() == null
+				|| res.getProtocolInfo().getContentFormat() == null) {
+			return;
+		}
+		String format = res.getProtocolInfo().getContentFormat();
+		int slash = format.indexOf('/');
+		String type = slash >= 0 ? format.substring(0, slash) : format;
+		if (type.equals("image")) {
+			ConfigData.listPhotos.add(contentItem);
+		} else if (type.equals("audio")) {
+			ConfigData.listAudios.add(contentItem);
+		} else {
+			ConfigData.listVideos.add(contentItem);
+		}
+	}
+
 	public void updateStatus(final Status status) {
 	}
 
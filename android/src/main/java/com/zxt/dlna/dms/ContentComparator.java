@@ -0,0 +1,94 @@
+package com.zxt.dlna.dms;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.fourthline.cling.support.contentdirectory.ContentDirectoryErrorCode;
+import org.fourthline.cling.support.contentdirectory.ContentDirectoryException;
+import org.fourthline.cling.support.model.DIDLObject;
+import org.fourthline.cling.support.model.SortCriterion;
+
+/**
+ * Orders content nodes by UPnP sort criteria such as "+upnp:album,-dc:date".
+ * <p>
+ * Without criteria containers come before items, otherwise the children
+ * keep the order of the index.
+ * </p>
+ */
+class ContentComparator implements Comparator<ContentNode> {
+
+	public final static List<String> SORT_CAPABILITIES = Arrays.asList(
+			"dc:title", "dc:creator", "dc:date", "upnp:class", "upnp:artist",
+			"upnp:album", "upnp:genre", "upnp:originalTrackNumber");
+
+	private final SortCriterion[] criteria;
+
+	/**
+	 * @throws ContentDirectoryException if a property is not in {@link #SORT_CAPABILITIES}
+	 */
+	public ContentComparator(SortCriterion[] criteria) throws ContentDirectoryException {
+		this.criteria = criteria != null ? criteria : new SortCriterion[0];
+		for (SortCriterion criterion : this.criteria) {
+			if (!SORT_CAPABILITIES.contains(criterion.getPropertyName())) {
+				throw new ContentDirectoryException(ContentDirectoryErrorCode.UNSUPPORTED_SORT_CRITERIA,
+						"Can't sort by: " + criterion.getPropertyName());
+			}
+		}
+	}
+
+	@Override
+	public int compare(ContentNode a, ContentNode b) {
+		if (criteria.length == 0) {
+			return a.isItem() == b.isItem() ? 0 : (a.isItem() ? 1 : -1);
+		}
+		DIDLObject objectA = a.getDIDLObject();
+		DIDLObject objectB = b.getDIDLObject();
+		for (SortCriterion criterion : criteria) {
+			int result = compareValues(value(objectA, criterion.getPropertyName()),
+					value(objectB, criterion.getPropertyName()));
+			if (result != 0) {
+				return criterion.isAscending() ? result : -result;
+			}
+		}
+		return 0;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static int compareValues(Comparable a, Comparable b) {
+		if (a == null || b == null) {
+			// Objects without the property go last
+			return a == b ? 0 : (a == null ? 1 : -1);
+		}
+		if (a instanceof String && b instanceof String) {
+			return String.CASE_INSENSITIVE_ORDER.compare((String) a, (String) b);
+		}
+		if (a.getClass() != b.getClass()) {
+			return a.toString().compareTo(b.toString());
+		}
+		return a.compareTo(b);
+	}
+
+	@SuppressWarnings("rawtypes")
+	static Comparable value(DIDLObject object, String property) {
+		if ("dc:title".equals(property)) {
+			return object.getTitle();
+		} else if ("dc:creator".equals(property)) {
+			return object.getCreator();
+		} else if ("dc:date".equals(property)) {
+			return object.getFirstPropertyValue(DIDLObject.Property.DC.DATE.class);
+		} else if ("upnp:class".equals(property)) {
+			return object.getClazz() != null ? object.getClazz().getValue() : null;
+		} else if ("upnp:artist".equals(property)) {
+			Object artist = object.getFirstPropertyValue(DIDLObject.Property.UPNP.ARTIST.class);
+			return artist != null ? artist.toString() : null;
+		} else if ("upnp:album".equals(property)) {
+			return object.getFirstPropertyValue(DIDLObject.Property.UPNP.ALBUM.class);
+		} else if ("upnp:genre".equals(property)) {
+			return object.getFirstPropertyValue(DIDLObject.Property.UPNP.GENRE.class);
+		} else if ("upnp:originalTrackNumber".equals(property)) {
+			return object.getFirstPropertyValue(DIDLObject.Property.UPNP.ORIGINAL_TRACK_NUMBER.class);
+		}
+		return null;
+	}
+}
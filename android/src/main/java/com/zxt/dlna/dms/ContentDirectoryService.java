@@ -1,30 +1,67 @@
 package com.zxt.dlna.dms;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.fourthline.cling.binding.annotations.UpnpStateVariable;
 import org.fourthline.cling.support.contentdirectory.AbstractContentDirectoryService;
 import org.fourthline.cling.support.contentdirectory.ContentDirectoryErrorCode;
 import org.fourthline.cling.support.contentdirectory.ContentDirectoryException;
-import org.fourthline.cling.support.contentdirectory.DIDLParser;
+import org.fourthline.cling.support.contentdirectory.DIDLWriter;
 import org.fourthline.cling.support.model.BrowseFlag;
 import org.fourthline.cling.support.model.BrowseResult;
-import org.fourthline.cling.support.model.DIDLContent;
 import org.fourthline.cling.support.model.SortCriterion;
-import org.fourthline.cling.support.model.container.Container;
-import org.fourthline.cling.support.model.item.Item;
 
 import android.util.Log;
 
-public class ContentDirectoryService extends AbstractContentDirectoryService {
+public class ContentDirectoryService extends AbstractContentDirectoryService
+		implements ContentTree.Listener {
 
 	private final static String LOGTAG = "MediaServer-CDS";
+
+	@UpnpStateVariable(sendEvents = true, defaultValue = "", eventMaximumRateMilliseconds = 200)
+	private String containerUpdateIDs = "";
+
+	// Last sorted view of each browsed container
+	private final ConcurrentHashMap<String, SortedChildren> sortedChildren = new ConcurrentHashMap<String, SortedChildren>();
+
+	private volatile SearchResult lastSearch;
+
+	public ContentDirectoryService() {
+		super(SearchCriteria.SEARCH_CAPABILITIES, ContentComparator.SORT_CAPABILITIES);
+		ContentTree.addListener(this);
+	}
+
+	public synchronized String getContainerUpdateIDs() {
+		return containerUpdateIDs;
+	}
+
+	/**
+	 * Advances SystemUpdateID and announces the changed container, so control
+	 * points only refresh what they have cached of it.
+	 */
+	@Override
+	public void containerChanged(String containerId, long containerUpdateID) {
+		String oldValue;
+		synchronized (this) {
+			oldValue = containerUpdateIDs;
+			containerUpdateIDs = containerId + "," + containerUpdateID;
+		}
+		sortedChildren.remove(containerId);
+		changeSystemUpdateID();
+		getPropertyChangeSupport().firePropertyChange("ContainerUpdateIDs", oldValue, containerUpdateIDs);
+	}
+
 	@Override
 	public BrowseResult browse(String objectID, BrowseFlag browseFlag,
 			String filter, long firstResult, long maxResults,
 			SortCriterion[] orderby) throws ContentDirectoryException {
-		// TODO Auto-generated method stub
 		try {
 
-			DIDLContent didl = new DIDLContent();
-
 			ContentNode contentNode = ContentTree.getNode(objectID);
 			
 			Log.v(LOGTAG, "someone's browsing id: " + objectID);
@@ -32,51 +69,173 @@ public class ContentDirectoryService extends AbstractContentDirectoryService {
 			if (contentNode == null)
 				return new BrowseResult("", 0, 0);
 
-			if (contentNode.isItem()) {
-				didl.addItem(contentNode.getItem());
-				
-				Log.v(LOGTAG, "returing item: " + contentNode.getItem().getTitle());
-				
-				return new BrowseResult(new DIDLParser().generate(didl), 1, 1);
-			} else {
-				if (browseFlag == BrowseFlag.METADATA) {
-					didl.addContainer(contentNode.getContainer());
-					
-					Log.v(LOGTAG, "returning metadata of container: " + contentNode.getContainer().getTitle());
-					
-					return new BrowseResult(new DIDLParser().generate(didl), 1,
-							1);
-				} else {
-					for (Container container : contentNode.getContainer()
-							.getContainers()) {
-						didl.addContainer(container);
-						
-						Log.v(LOGTAG, "getting child container: " + container.getTitle());
-					}
-					for (Item item : contentNode.getContainer().getItems()) {
-						didl.addItem(item);
-						
-						Log.v(LOGTAG, "getting child item: " + item.getTitle());
-					}
-					return new BrowseResult(new DIDLParser().generate(didl),
-							contentNode.getContainer().getChildCount(),
-							contentNode.getContainer().getChildCount());
-				}
-
+			if (contentNode.isItem() || browseFlag == BrowseFlag.METADATA) {
+				return new BrowseResult(generate(Collections.singletonList(contentNode)), 1, 1);
 			}
 
+			SortedChildren children = getSortedChildren(contentNode, orderby);
+			List<ContentNode> page = page(children.nodes, firstResult, maxResults);
+
+			Log.v(LOGTAG, "returning " + page.size() + " of " + children.nodes.size()
+					+ " children from index " + firstResult);
+
+			return new BrowseResult(generate(page), page.size(),
+					children.nodes.size(), children.updateID);
+
+		} catch (ContentDirectoryException ex) {
+			throw ex;
 		} catch (Exception ex) {
 			throw new ContentDirectoryException(
 					ContentDirectoryErrorCode.CANNOT_PROCESS, ex.toString());
 		}
 	}
 
+	/**
+	 * Searches below a container with the {@link ContentIndex}. The result of
+	 * the last search is kept until the content changes, so a control point
+	 * paging through it doesn't search again.
+	 */
 	@Override
 	public BrowseResult search(String containerId, String searchCriteria,
 			String filter, long firstResult, long maxResults,
 			SortCriterion[] orderBy) throws ContentDirectoryException {
-		// You can override this method to implement searching!
-		return super.search(containerId, searchCriteria, filter, firstResult,
-				maxResults, orderBy);
+		try {
+			ContentNode container = ContentTree.getNode(containerId);
+			if (container == null || container.isItem()) {
+				throw new ContentDirectoryException(
+						ContentDirectoryErrorCode.NO_SUCH_OBJECT, "No container with ID: " + containerId);
+			}
+
+			SearchCriteria criteria;
+			try {
+				criteria = SearchCriteria.parse(searchCriteria);
+			} catch (IllegalArgumentException ex) {
+				throw new ContentDirectoryException(
+						ContentDirectoryErrorCode.UNSUPPORTED_SEARCH_CRITERIA, ex.getMessage());
+			}
+			ContentComparator comparator = new ContentComparator(orderBy);
+			String sort = SortCriterion.toString(orderBy);
+
+			Log.v(LOGTAG, "someone's searching id: " + containerId + " for: " + criteria);
+
+			SearchResult result = lastSearch;
+			long systemUpdateID = getSystemUpdateID().getValue();
+			if (result == null || !result.isFor(container, criteria.toString(), sort, systemUpdateID)) {
+				List<ContentNode> nodes = new ArrayList<ContentNode>(ContentTree.search(containerId, criteria));
+				Collections.sort(nodes, comparator);
+				result = new SearchResult(container, criteria.toString(), sort,
+						systemUpdateID, Collections.unmodifiableList(nodes));
+				lastSearch = result;
+			}
+
+			List<ContentNode> page = page(result.nodes, firstResult, maxResults);
+			return new BrowseResult(generate(page), page.size(),
+					result.nodes.size(), container.getUpdateID());
+
+		} catch (ContentDirectoryException ex) {
+			throw ex;
+		} catch (Exception ex) {
+			throw new ContentDirectoryException(
+					ContentDirectoryErrorCode.CANNOT_PROCESS, ex.toString());
+		}
+	}
+
+	/**
+	 * Returns the children of a container in the requested order. The
+	 * sorted list is kept until the container changes, so paging through
+	 * a large container sorts it once.
+	 */
+	private SortedChildren getSortedChildren(ContentNode container,
+			SortCriterion[] orderby) throws ContentDirectoryException {
+		ContentComparator comparator = new ContentComparator(orderby);
+		String criteria = SortCriterion.toString(orderby);
+
+		// Load first, then take the update ID before the snapshot: a change
+		// in between only makes the next request sort again
+		ContentTree.getChildren(container.getId());
+		long updateID = container.getUpdateID();
+
+		SortedChildren sorted = sortedChildren.get(container.getId());
+		if (sorted != null && sorted.container == container
+				&& sorted.updateID == updateID && sorted.criteria.equals(criteria)) {
+			return sorted;
+		}
+
+		List<ContentNode> nodes = new ArrayList<ContentNode>(container.getChildren());
+		Collections.sort(nodes, comparator);
+		sorted = new SortedChildren(container, updateID, criteria,
+				Collections.unmodifiableList(nodes));
+		sortedChildren.put(container.getId(), sorted);
+		return sorted;
+	}
+
+	/**
+	 * The slice selected by StartingIndex and RequestedCount, where a count
+	 * of 0 asks for everything.
+	 */
+	private static List<ContentNode> page(List<ContentNode> nodes,
+			long firstResult, long maxResults) {
+		int from = (int) Math.min(Math.max(firstResult, 0), nodes.size());
+		int to = maxResults <= 0 ? nodes.size()
+				: (int) Math.min((long) from + maxResults, nodes.size());
+		return nodes.subList(from, to);
+	}
+
+	/**
+	 * Writes DIDL-Lite for the given nodes only, without collecting them in
+	 * a DIDLContent or building a DOM.
+	 */
+	private static String generate(List<ContentNode> nodes) throws IOException {
+		StringWriter out = new StringWriter();
+		DIDLWriter writer = new DIDLWriter(out);
+		writer.writeStartDocument();
+		for (ContentNode node : nodes) {
+			if (node.isItem()) {
+				writer.writeItem(node.getItem());
+			} else {
+				writer.writeContainer(node.getContainer(), false);
+			}
+		}
+		writer.writeEndDocument();
+		return out.toString();
+	}
+
+	private static class SearchResult {
+
+		final ContentNode container;
+		final String criteria;
+		final String sort;
+		final long systemUpdateID;
+		final List<ContentNode> nodes;
+
+		SearchResult(ContentNode container, String criteria, String sort,
+				long systemUpdateID, List<ContentNode> nodes) {
+			this.container = container;
+			this.criteria = criteria;
+			this.sort = sort;
+			this.systemUpdateID = systemUpdateID;
+			this.nodes = nodes;
+		}
+
+		boolean isFor(ContentNode container, String criteria, String sort, long systemUpdateID) {
+			return this.container == container && this.criteria.equals(criteria)
+					&& this.sort.equals(sort) && this.systemUpdateID == systemUpdateID;
+		}
+	}
+
+	private static class SortedChildren {
+
+		final ContentNode container;
+		final long updateID;
+		final String criteria;
+		final List<ContentNode> nodes;
+
+		SortedChildren(ContentNode container, long updateID, String criteria,
+				List<ContentNode> nodes) {
+			this.container = container;
+			this.updateID = updateID;
+			this.criteria = criteria;
+			this.nodes = nodes;
+		}
 	}
 }
@@ -0,0 +1,202 @@
+package com.zxt.dlna.dms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.fourthline.cling.support.model.DIDLObject;
+import org.fourthline.cling.support.model.item.Item;
+
+/**
+ * Inverted index over the searchable properties of the {@link ContentTree},
+ * mapping the words of dc:title, upnp:artist, upnp:album and upnp:genre,
+ * and the whole upnp:class, to the IDs of the nodes carrying them.
+ * <p>
+ * Lookups return candidates only, a search still checks every candidate
+ * against its criteria.
+ * </p>
+ */
+class ContentIndex {
+
+	public final static String TITLE = "dc:title";
+	public final static String ARTIST = "upnp:artist";
+	public final static String ALBUM = "upnp:album";
+	public final static String GENRE = "upnp:genre";
+	public final static String CLASS = "upnp:class";
+
+	private final static String[] FIELDS = { TITLE, ARTIST, ALBUM, GENRE, CLASS };
+
+	// Field -> term -> node IDs
+	private final ConcurrentHashMap<String, ConcurrentHashMap<String, Set<String>>> postings =
+			new ConcurrentHashMap<String, ConcurrentHashMap<String, Set<String>>>();
+
+	public ContentIndex() {
+		for (String field : FIELDS) {
+			postings.put(field, new ConcurrentHashMap<String, Set<String>>());
+		}
+	}
+
+	public static boolean isIndexed(String property) {
+		for (String field : FIELDS) {
+			if (field.equals(property)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public void add(ContentNode node) {
+		for (String field : FIELDS) {
+			ConcurrentHashMap<String, Set<String>> terms = postings.get(field);
+			for (String term : terms(node.getDIDLObject(), field)) {
+				Set<String> ids = terms.get(term);
+				if (ids == null) {
+					ids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+					Set<String> existing = terms.putIfAbsent(term, ids);
+					if (existing != null) {
+						ids = existing;
+					}
+				}
+				ids.add(node.getId());
+			}
+		}
+	}
+
+	public void remove(ContentNode node) {
+		for (String field : FIELDS) {
+			Map<String, Set<String>> terms = postings.get(field);
+			for (String term : terms(node.getDIDLObject(), field)) {
+				Set<String> ids = terms.get(term);
+				if (ids != null) {
+					ids.remove(node.getId());
+					// Empty sets stay, the vocabulary of a library is small
+				}
+			}
+		}
+	}
+
+	/**
+	 * IDs of the nodes with the given word in a field.
+	 */
+	public Set<String> lookup(String field, String term) {
+		Set<String> ids = postings.get(field).get(term);
+		return ids != null ? new HashSet<String>(ids) : new HashSet<String>();
+	}
+
+	/**
+	 * IDs of the nodes with a word in a field that contains, starts or ends
+	 * with the given text, found by scanning the vocabulary of the field.
+	 */
+	public Set<String> lookupPartial(String field, String text, boolean prefix, boolean suffix) {
+		Set<String> result = new HashSet<String>();
+		for (Map.Entry<String, Set<String>> entry : postings.get(field).entrySet()) {
+			String term = entry.getKey();
+			boolean match;
+			if (prefix && suffix) {
+				match = term.equals(text);
+			} else if (prefix) {
+				match = term.startsWith(text);
+			} else if (suffix) {
+				match = term.endsWith(text);
+			} else {
+				match = term.contains(text);
+			}
+			if (match) {
+				result.addAll(entry.getValue());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The words of a search value, split like indexed values are.
+	 */
+	public static List<String> tokenize(String value) {
+		List<String> tokens = new ArrayList<String>();
+		if (value == null) {
+			return tokens;
+		}
+		String lower = value.toLowerCase(Locale.ENGLISH);
+		int start = -1;
+		for (int i = 0; i <= lower.length(); i++) {
+			boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+			if (word && start < 0) {
+				start = i;
+			} else if (!word && start >= 0) {
+				tokens.add(lower.substring(start, i));
+				start = -1;
+			}
+		}
+		return tokens;
+	}
+
+	private static Set<String> terms(DIDLObject object, String field) {
+		Set<String> terms = new HashSet<String>();
+		if (CLASS.equals(field)) {
+			if (object.getClazz() != null && object.getClazz().getValue() != null) {
+				terms.add(object.getClazz().getValue().toLowerCase(Locale.ENGLISH));
+			}
+			return terms;
+		}
+		for (String value : values(object, field)) {
+			terms.addAll(tokenize(value));
+		}
+		return terms;
+	}
+
+	/**
+	 * All values of a property of an object, as strings.
+	 */
+	public static List<String> values(DIDLObject object, String property) {
+		List<String> values = new ArrayList<String>();
+		if (TITLE.equals(property)) {
+			addIfNotNull(values, object.getTitle());
+		} else if ("dc:creator".equals(property)) {
+			addIfNotNull(values, object.getCreator());
+		} else if (CLASS.equals(property)) {
+			addIfNotNull(values, object.getClazz() != null ? object.getClazz().getValue() : null);
+		} else if ("@id".equals(property)) {
+			addIfNotNull(values, object.getId());
+		} else if ("@parentID".equals(property)) {
+			addIfNotNull(values, object.getParentID());
+		} else if ("@refID".equals(property)) {
+			if (object instanceof Item) {
+				addIfNotNull(values, ((Item) object).getRefID());
+			}
+		} else {
+			Class<? extends DIDLObject.Property> propertyClass = propertyClass(property);
+			if (propertyClass != null) {
+				for (DIDLObject.Property p : object.getProperties()) {
+					if (propertyClass.isInstance(p) && p.getValue() != null) {
+						values.add(p.getValue().toString());
+					}
+				}
+			}
+		}
+		return values;
+	}
+
+	private static Class<? extends DIDLObject.Property> propertyClass(String property) {
+		if (ARTIST.equals(property)) {
+			return DIDLObject.Property.UPNP.ARTIST.class;
+		} else if (ALBUM.equals(property)) {
+			return DIDLObject.Property.UPNP.ALBUM.class;
+		} else if (GENRE.equals(property)) {
+			return DIDLObject.Property.UPNP.GENRE.class;
+		} else if ("dc:date".equals(property)) {
+			return DIDLObject.Property.DC.DATE.class;
+		}
+		return null;
+	}
+
+	private static void addIfNotNull(List<String> values, String value) {
+		if (value != null) {
+			values.add(value);
+		}
+	}
+}
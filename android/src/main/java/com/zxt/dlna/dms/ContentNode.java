@@ -1,5 +1,11 @@
 package com.zxt.dlna.dms;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.fourthline.cling.support.model.DIDLObject;
 import org.fourthline.cling.support.model.container.Container;
 import org.fourthline.cling.support.model.item.Item;
 
@@ -9,41 +15,125 @@ public class ContentNode {
 		private String id;
 		private String fullPath;
 		private boolean isItem;
-		
+
+		// Children of a container in insertion order, guarded by this
+		private final LinkedHashMap<String, ContentNode> children = new LinkedHashMap<String, ContentNode>();
+		private volatile List<ContentNode> childSnapshot;
+		private volatile long updateID;
+		private volatile boolean loaded;
+		private volatile boolean loading;
+
 		public ContentNode(String id, Container container) {
 			this.id = id;
 			this.container = container;
 			this.fullPath = null;
 			this.isItem = false;
 		}
-		
+
 		public ContentNode(String id, Item item, String fullPath) {
 			this.id = id;
 			this.item = item;
 			this.fullPath = fullPath;
 			this.isItem = true;
 		}
-		
+
 		public String getId() {
 			return id;
 		}
-		
+
 		public Container getContainer() {
 			return container;
 		}
-		
+
 		public Item getItem() {
 			return item;
 		}
-		
+
 		public String getFullPath() {
 			if (isItem && fullPath != null) {
 				return fullPath;
 			}
 			return null;
 		}
-		
+
 		public boolean isItem() {
 			return isItem;
 		}
+
+		public DIDLObject getDIDLObject() {
+			return isItem ? item : container;
+		}
+
+		public String getParentId() {
+			return isItem ? item.getParentID() : container.getParentID();
+		}
+
+		/**
+		 * Returns an immutable snapshot of the children, which stays valid
+		 * while the container changes underneath.
+		 */
+		public List<ContentNode> getChildren() {
+			List<ContentNode> snapshot = childSnapshot;
+			if (snapshot == null) {
+				synchronized (this) {
+					if (childSnapshot == null) {
+						childSnapshot = Collections.unmodifiableList(
+								new ArrayList<ContentNode>(children.values()));
+					}
+					snapshot = childSnapshot;
+				}
+			}
+			return snapshot;
+		}
+
+		public synchronized int getChildCount() {
+			return children.size();
+		}
+
+		/**
+		 * The container update ID, advanced on every change of the children.
+		 */
+		public long getUpdateID() {
+			return updateID;
+		}
+
+		public boolean isLoaded() {
+			return loaded;
+		}
+
+		boolean isLoading() {
+			return loading;
+		}
+
+		void setLoading(boolean loading) {
+			this.loading = loading;
+			if (!loading) {
+				this.loaded = true;
+			}
+		}
+
+		/**
+		 * Adds or replaces a child, returns the replaced one.
+		 */
+		synchronized ContentNode putChild(ContentNode child) {
+			ContentNode old = children.put(child.getId(), child);
+			childrenChanged();
+			return old;
+		}
+
+		synchronized ContentNode removeChild(String childId) {
+			ContentNode old = children.remove(childId);
+			if (old != null) {
+				childrenChanged();
+			}
+			return old;
+		}
+
+		private void childrenChanged() {
+			childSnapshot = null;
+			updateID++;
+			if (container != null) {
+				container.setChildCount(children.size());
+			}
+		}
 }
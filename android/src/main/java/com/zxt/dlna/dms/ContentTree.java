@@ -1,11 +1,27 @@
 package com.zxt.dlna.dms;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.fourthline.cling.support.model.WriteStatus;
 import org.fourthline.cling.support.model.container.Container;
 
 
+/**
+ * Concurrent index of the content served by the local MediaServer.
+ * <p>
+ * Containers keep their own children, so nodes can be added and removed
+ * one at a time while control points browse. A {@link ContentLoader} fills
+ * a container the first time it is browsed, {@link Listener}s learn about
+ * every change together with the new container update ID. A
+ * {@link ContentIndex} over the searchable properties is kept in step.
+ * </p>
+ */
 public class ContentTree {
 
 	public final static String ROOT_ID = "0";
@@ -16,8 +32,36 @@ public class ContentTree {
 	public final static String VIDEO_PREFIX = "video-item-";
 	public final static String AUDIO_PREFIX = "audio-item-";
 	public final static String IMAGE_PREFIX = "image-item-";
-	
-	private static HashMap<String, ContentNode> contentMap = new HashMap<String, ContentNode>();
+
+	private final static int MAX_DEPTH = 64;
+
+	/**
+	 * Fills containers on demand.
+	 */
+	public interface ContentLoader {
+
+		/**
+		 * Adds the children of a container with {@link ContentTree#addChild}.
+		 * Called once per container, the first time its children are requested.
+		 */
+		void loadChildren(ContentNode container);
+	}
+
+	/**
+	 * Notified after the children of a container changed.
+	 */
+	public interface Listener {
+
+		void containerChanged(String containerId, long containerUpdateID);
+	}
+
+	private static ConcurrentHashMap<String, ContentNode> contentMap = new ConcurrentHashMap<String, ContentNode>();
+
+	private static CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	private static volatile ContentLoader contentLoader;
+
+	private static ContentIndex index = new ContentIndex();
 
 	private static ContentNode rootNode = createRootNode();
 
@@ -38,23 +82,203 @@ public class ContentTree {
 		contentMap.put(ROOT_ID, rootNode);
 		return rootNode;
 	}
-	
+
 	public static ContentNode getRootNode() {
 		return rootNode;
 	}
-	
+
 	public static ContentNode getNode(String id) {
-		if( contentMap.containsKey(id)) {
-			return contentMap.get(id);
-		}
-		return null;
+		return contentMap.get(id);
 	}
-	
+
 	public static boolean hasNode(String id) {
 		return contentMap.containsKey(id);
 	}
 
+	/**
+	 * Adds a node below the container named by its parent ID, like
+	 * {@link #addChild}, so add containers before their children. A node
+	 * whose parent isn't in the tree is only registered under its ID.
+	 */
 	public static void addNode(String ID, ContentNode Node) {
-		contentMap.put(ID, Node);
+		ContentNode parent = Node.getParentId() != null ? contentMap.get(Node.getParentId()) : null;
+		if (parent != null && !parent.isItem() && ID.equals(Node.getId())) {
+			addChild(parent.getId(), Node);
+			return;
+		}
+		ContentNode replaced = contentMap.put(ID, Node);
+		if (replaced != null) {
+			index.remove(replaced);
+		}
+		index.add(Node);
+	}
+
+	public static void setContentLoader(ContentLoader loader) {
+		contentLoader = loader;
+	}
+
+	public static void addListener(Listener listener) {
+		listeners.addIfAbsent(listener);
+	}
+
+	public static void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Adds a node below the given container, or replaces the node with the same ID.
+	 */
+	public static void addChild(String parentId, ContentNode node) {
+		ContentNode parent = contentMap.get(parentId);
+		if (parent == null || parent.isItem()) {
+			throw new IllegalArgumentException("No container with ID: " + parentId);
+		}
+		ContentNode previous = contentMap.put(node.getId(), node);
+		if (previous != null) {
+			index.remove(previous);
+		}
+		index.add(node);
+		ContentNode replaced = parent.putChild(node);
+		if (replaced != null && replaced != node) {
+			removeDescendants(replaced);
+		}
+		fireContainerChanged(parent);
+	}
+
+	/**
+	 * Removes a node and everything below it.
+	 *
+	 * @return the removed node or null if there was none
+	 */
+	public static ContentNode removeNode(String id) {
+		if (ROOT_ID.equals(id)) {
+			throw new IllegalArgumentException("Can't remove the root container");
+		}
+		ContentNode node = contentMap.remove(id);
+		if (node == null) {
+			return null;
+		}
+		index.remove(node);
+		removeDescendants(node);
+		ContentNode parent = contentMap.get(node.getParentId());
+		if (parent != null && parent.removeChild(id) != null) {
+			fireContainerChanged(parent);
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the children of a container, loading them first if this is
+	 * the first time they are requested.
+	 */
+	public static List<ContentNode> getChildren(String containerId) {
+		ContentNode node = contentMap.get(containerId);
+		if (node == null || node.isItem()) {
+			return Collections.emptyList();
+		}
+		ContentLoader loader = contentLoader;
+		if (!node.isLoaded() && loader != null) {
+			synchronized (node) {
+				if (!node.isLoaded()) {
+					node.setLoading(true);
+					try {
+						loader.loadChildren(node);
+					} finally {
+						node.setLoading(false);
+					}
+					fireContainerChanged(node);
+				}
+			}
+		}
+		return node.getChildren();
+	}
+
+	/**
+	 * Returns the nodes below a container which match the criteria, ordered
+	 * by ID. Containers which haven't been browsed yet are loaded first.
+	 */
+	static List<ContentNode> search(String containerId, SearchCriteria criteria) {
+		ContentNode container = contentMap.get(containerId);
+		if (container == null || container.isItem()) {
+			return Collections.emptyList();
+		}
+		if (contentLoader != null) {
+			loadDescendants(container);
+		}
+
+		List<ContentNode> result = new ArrayList<ContentNode>();
+		Set<String> candidates = criteria.candidates(index);
+		if (candidates == null) {
+			collectMatches(container, criteria, result);
+		} else {
+			for (String id : candidates) {
+				ContentNode node = contentMap.get(id);
+				if (node != null && !id.equals(containerId) && isDescendant(node, containerId)
+						&& criteria.matches(node.getDIDLObject())) {
+					result.add(node);
+				}
+			}
+		}
+		Collections.sort(result, new Comparator<ContentNode>() {
+			public int compare(ContentNode a, ContentNode b) {
+				return a.getId().compareTo(b.getId());
+			}
+		});
+		return result;
+	}
+
+	private static void loadDescendants(ContentNode container) {
+		for (ContentNode child : getChildren(container.getId())) {
+			if (!child.isItem()) {
+				loadDescendants(child);
+			}
+		}
+	}
+
+	private static void collectMatches(ContentNode container, SearchCriteria criteria,
+			List<ContentNode> result) {
+		for (ContentNode child : container.getChildren()) {
+			if (criteria.matches(child.getDIDLObject())) {
+				result.add(child);
+			}
+			if (!child.isItem()) {
+				collectMatches(child, criteria, result);
+			}
+		}
+	}
+
+	private static boolean isDescendant(ContentNode node, String containerId) {
+		String parentId = node.getParentId();
+		// Bounded in case a broken source links containers in a cycle
+		for (int depth = 0; parentId != null && depth < MAX_DEPTH; depth++) {
+			if (parentId.equals(containerId)) {
+				return true;
+			}
+			ContentNode parent = contentMap.get(parentId);
+			if (parent == null) {
+				return false;
+			}
+			parentId = parent.getParentId();
+		}
+		return false;
+	}
+
+	private static void removeDescendants(ContentNode node) {
+		for (ContentNode child : node.getChildren()) {
+			if (contentMap.remove(child.getId(), child)) {
+				index.remove(child);
+				removeDescendants(child);
+			}
+		}
+	}
+
+	private static void fireContainerChanged(ContentNode container) {
+		// A container being loaded is announced once when it is complete
+		if (container.isLoading()) {
+			return;
+		}
+		for (Listener listener : listeners) {
+			listener.containerChanged(container.getId(), container.getUpdateID());
+		}
 	}
 }
@@ -1,6 +1,7 @@
 package com.zxt.dlna.dms;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -8,25 +9,45 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.io.SequenceInputStream;
+import java.net.InetSocketAddress;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
 import java.util.Vector;
 import java.util.Hashtable;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 
 /**
- * A simple, tiny, nicely embeddable HTTP 1.0 server in Java
+ * A simple, tiny, nicely embeddable HTTP 1.1 server in Java
  * Modified from NanoHTTPD, you can find it here
  * http://elonen.iki.fi/code/nanohttpd/
  */
@@ -114,6 +135,20 @@ public class HttpServer
 			this.data = data;
 		}
 
+		/**
+		 * File backed constructor: sends <code>length</code> bytes of the
+		 * file starting at <code>offset</code> straight from the file
+		 * channel to the socket, without copying them through the heap.
+		 */
+		public Response( String status, String mimeType, FileChannel file, long offset, long length )
+		{
+			this.status = status;
+			this.mimeType = mimeType;
+			this.file = file;
+			this.fileOffset = offset;
+			addHeader( "Content-Length", "" + length );
+		}
+
 		/**
 		 * Convenience method that makes an InputStream out of
 		 * given text.
@@ -155,6 +190,17 @@ public class HttpServer
 		 */
 		public InputStream data;
 
+		/**
+		 * File to send instead of data, may be null. The amount
+		 * to send is given by the Content-Length header.
+		 */
+		public FileChannel file;
+
+		/**
+		 * Position in file where the response body starts.
+		 */
+		public long fileOffset;
+
 		/**
 		 * Headers for the HTTP response. Use addHeader()
 		 * to add lines.
@@ -168,13 +214,15 @@ public class HttpServer
 	public static final String
 		HTTP_OK = "200 OK",
 		HTTP_PARTIALCONTENT = "206 Partial Content",
+		HTTP_NOTMODIFIED = "304 Not Modified",
 		HTTP_RANGE_NOT_SATISFIABLE = "416 Requested Range Not Satisfiable",
 		HTTP_REDIRECT = "301 Moved Permanently",
 		HTTP_FORBIDDEN = "403 Forbidden",
 		HTTP_NOTFOUND = "404 Not Found",
 		HTTP_BADREQUEST = "400 Bad Request",
 		HTTP_INTERNALERROR = "500 Internal Server Error",
-		HTTP_NOTIMPLEMENTED = "501 Not Implemented";
+		HTTP_NOTIMPLEMENTED = "501 Not Implemented",
+		HTTP_UNAVAILABLE = "503 Service Unavailable";
 
 	/**
 	 * Common mime types for dynamic content
@@ -189,28 +237,98 @@ public class HttpServer
 	// Socket & server code
 	// ==================================================
 
+	/**
+	 * Default number of worker threads parsing requests and running serve().
+	 */
+	public static final int DEFAULT_WORKER_THREADS = 4;
+
+	/**
+	 * Default maximum number of simultaneously open client connections.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS = 64;
+
+	/**
+	 * Default idle time after which a kept-alive connection is closed, in milliseconds.
+	 */
+	public static final int KEEP_ALIVE_TIMEOUT = 15000;
+
+	/**
+	 * Default time a response may be stalled by the client before the connection
+	 * is closed, in milliseconds. Renderers stop reading while playback is paused.
+	 */
+	public static final int WRITE_TIMEOUT = 30 * 60 * 1000;
+
+	/**
+	 * Default number of requests served on one connection before it is closed.
+	 */
+	public static final int MAX_REQUESTS_PER_CONNECTION = 100;
+
 	/**
 	 * Starts a HTTP server to given port.<p>
 	 * Throws an IOException if the socket is already in use
 	 */
 	public HttpServer( int port ) throws IOException
+	{
+		this( port, DEFAULT_WORKER_THREADS, DEFAULT_MAX_CONNECTIONS );
+	}
+
+	/**
+	 * Starts a HTTP server to given port.<p>
+	 *
+	 * All sockets are multiplexed by a single selector thread, requests are
+	 * parsed and served by at most <code>workerThreads</code> threads. While
+	 * <code>maxConnections</code> connections are open, further clients wait
+	 * in the listen backlog until one of them is closed.<p>
+	 *
+	 * Throws an IOException if the socket is already in use
+	 */
+	public HttpServer( int port, int workerThreads, int maxConnections ) throws IOException
 	{
 		myTcpPort = port;
+		myMaxConnections = maxConnections;
 		this.myRootDir = new File("/");
-		myServerSocket = new ServerSocket( myTcpPort );
+
+		mySelector = Selector.open();
+		myServerChannel = ServerSocketChannel.open();
+		myServerChannel.socket().setReuseAddress( true );
+		myServerChannel.socket().bind( new InetSocketAddress( myTcpPort ));
+		myServerChannel.configureBlocking( false );
+		myServerKey = myServerChannel.register( mySelector, SelectionKey.OP_ACCEPT );
+
+		myWorkers = new ThreadPoolExecutor(
+			workerThreads, workerThreads,
+			60, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<Runnable>( maxConnections ),
+			new ThreadFactory()
+			{
+				private final AtomicInteger count = new AtomicInteger();
+
+				public Thread newThread( Runnable r )
+				{
+					Thread t = new Thread( r, "HttpServer-worker-" + count.incrementAndGet());
+					t.setDaemon( true );
+					return t;
+				}
+			});
+		myWorkers.allowCoreThreadTimeOut( true );
+
 		myThread = new Thread( new Runnable()
 			{
 				public void run()
 				{
 					try
 					{
-						while( true )
-							new HTTPSession( myServerSocket.accept());
+						while( myServerChannel.isOpen())
+							select();
 					}
 					catch ( IOException ioe )
 					{}
+					finally
+					{
+						closeAll();
+					}
 				}
-			});
+			}, "HttpServer-selector" );
 		myThread.setDaemon( true );
 		myThread.start();
 	}
@@ -222,33 +340,505 @@ public class HttpServer
 	{
 		try
 		{
-			myServerSocket.close();
+			myServerChannel.close();
+			mySelector.wakeup();
 			myThread.join();
 		}
 		catch ( IOException ioe ) {}
 		catch ( InterruptedException e ) {}
+		myWorkers.shutdownNow();
+	}
+
+	/**
+	 * Sets the idle time after which a kept-alive connection is closed, in milliseconds.
+	 */
+	public void setKeepAliveTimeout( int millis )
+	{
+		myKeepAliveTimeout = millis;
+	}
+
+	/**
+	 * Sets how long a response may make no progress before its connection is closed, in milliseconds.
+	 */
+	public void setWriteTimeout( int millis )
+	{
+		myWriteTimeout = millis;
+	}
+
+	/**
+	 * Sets how many requests one connection may carry before it is closed.
+	 */
+	public void setMaxRequestsPerConnection( int max )
+	{
+		myMaxRequestsPerConnection = max;
+	}
+
+	/**
+	 * Returns the number of currently open client connections.
+	 */
+	public int getConnectionCount()
+	{
+		return myConnectionCount;
+	}
+
+	/**
+	 * Returns the number of connections accepted since the server started.
+	 */
+	public long getAcceptedConnectionCount()
+	{
+		return myAcceptedConnectionCount;
+	}
+
+	/**
+	 * Returns the number of connections that carried more than one request.
+	 */
+	public long getReusedConnectionCount()
+	{
+		return myReusedConnectionCount;
+	}
+
+	/**
+	 * Returns the number of requests received since the server started.
+	 */
+	public long getRequestCount()
+	{
+		return myRequestCount;
+	}
+
+	/**
+	 * One turn of the selector loop: runs tasks posted by the workers,
+	 * dispatches ready channels and closes idle connections.
+	 */
+	private void select() throws IOException
+	{
+		mySelector.select( 1000 );
+
+		Runnable task;
+		while (( task = mySelectorTasks.poll()) != null )
+			task.run();
+
+		Iterator<SelectionKey> keys = mySelector.selectedKeys().iterator();
+		while ( keys.hasNext())
+		{
+			SelectionKey key = keys.next();
+			keys.remove();
+			if ( !key.isValid())
+				continue;
+
+			if ( key == myServerKey )
+			{
+				accept();
+				continue;
+			}
+
+			HTTPSession session = (HTTPSession)key.attachment();
+			try
+			{
+				if ( key.isReadable())
+					session.onReadable();
+				if ( key.isValid() && key.isWritable())
+					session.onWritable();
+			}
+			catch ( IOException ioe )
+			{
+				session.close();
+			}
+		}
+
+		long now = System.currentTimeMillis();
+		if ( now - myLastSweep >= 1000 )
+		{
+			myLastSweep = now;
+			for ( HTTPSession session : new ArrayList<HTTPSession>( mySessions ))
+				if ( session.isIdle( now ))
+					session.close();
+		}
 	}
 
 	/**
-	 * Handles one session, i.e. parses the HTTP request
-	 * and returns the response.
+	 * Accepts pending connections until the connection cap is reached.
 	 */
-	private class HTTPSession implements Runnable
+	private void accept() throws IOException
 	{
-		public HTTPSession( Socket s )
+		while ( myConnectionCount < myMaxConnections )
 		{
-			mySocket = s;
-			Thread t = new Thread( this );
-			t.setDaemon( true );
-			t.start();
+			SocketChannel channel = myServerChannel.accept();
+			if ( channel == null )
+				return;
+
+			channel.configureBlocking( false );
+			channel.socket().setTcpNoDelay( true );
+			SelectionKey key = channel.register( mySelector, SelectionKey.OP_READ );
+			HTTPSession session = new HTTPSession( channel, key );
+			key.attach( session );
+			mySessions.add( session );
+			myConnectionCount++;
+			myAcceptedConnectionCount++;
+		}
+
+		// Leave further clients in the backlog until a connection is closed
+		myServerKey.interestOps( 0 );
+	}
+
+	/**
+	 * Runs the given task on the selector thread.
+	 */
+	private void runOnSelector( Runnable task )
+	{
+		mySelectorTasks.add( task );
+		mySelector.wakeup();
+	}
+
+	private void closeAll()
+	{
+		for ( HTTPSession session : new ArrayList<HTTPSession>( mySessions ))
+			session.close();
+		try { mySelector.close(); } catch ( IOException ioe ) {}
+	}
+
+	/**
+	 * Finds the end of the request header, i.e. the index just past the
+	 * first empty line, or -1 if the header is not complete yet.
+	 */
+	private static int findHeaderEnd( byte[] buf, int len )
+	{
+		for ( int i = 3; i < len; i++ )
+		{
+			if ( buf[i] == '\n' && buf[i-1] == '\r' && buf[i-2] == '\n' && buf[i-3] == '\r' )
+				return i + 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the value of the Content-Length header, 0 if there is none
+	 * or -1 if it is malformed.
+	 */
+	private static long parseContentLength( byte[] buf, int headerEnd )
+	{
+		StringTokenizer st = new StringTokenizer( new String( buf, 0, headerEnd, ISO_8859_1 ), "\r\n" );
+		while ( st.hasMoreTokens())
+		{
+			String line = st.nextToken();
+			int p = line.indexOf( ':' );
+			if ( p > 0 && line.substring( 0, p ).trim().equalsIgnoreCase( "content-length" ))
+			{
+				try { return Long.parseLong( line.substring( p+1 ).trim()); }
+				catch ( NumberFormatException nfe ) { return -1; }
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Handles one connection: collects a complete request on the selector
+	 * thread, parses and serves it on a worker thread and writes the
+	 * response back without blocking. Connections are kept alive
+	 * between requests when the client allows it.
+	 */
+	private class HTTPSession
+	{
+		public HTTPSession( SocketChannel channel, SelectionKey key )
+		{
+			myChannel = channel;
+			myKey = key;
+			myLastActivity = System.currentTimeMillis();
+		}
+
+		/**
+		 * Reads what is available and hands a complete request to a worker.
+		 */
+		void onReadable() throws IOException
+		{
+			int read = myChannel.read( myIn );
+			if ( read < 0 )
+			{
+				// The client is done sending, answer what is in flight first
+				myInputClosed = true;
+				if ( !myProcessing && !myWriting && myResponses.isEmpty())
+					close();
+				else
+					updateInterest();
+				return;
+			}
+			myLastActivity = System.currentTimeMillis();
+			dispatchRequest();
+			updateInterest();
 		}
 
-		public void run()
+		/**
+		 * Hands the next buffered request to a worker if it is complete.
+		 * Pipelined requests are served while earlier responses are still
+		 * being written, at most one at a time per connection.
+		 */
+		void dispatchRequest()
 		{
+			if ( myProcessing || myClosing || myResponses.size() >= MAX_PIPELINED_RESPONSES )
+				return;
+
+			byte[] buf = myIn.array();
+			int len = myIn.position();
+			int headerEnd = findHeaderEnd( buf, len );
+			if ( headerEnd < 0 )
+			{
+				// Apache's default header limit is 8KB.
+				if ( len >= MAX_HEADER_SIZE )
+					reject( HTTP_BADREQUEST, "BAD REQUEST: Header too large." );
+				return;
+			}
+
+			long bodyLen = parseContentLength( buf, headerEnd );
+			if ( bodyLen < 0 || bodyLen > MAX_BODY_SIZE )
+			{
+				reject( HTTP_BADREQUEST, "BAD REQUEST: Invalid Content-Length." );
+				return;
+			}
+
+			int total = headerEnd + (int)bodyLen;
+			if ( len < total )
+			{
+				// Wait for the rest of the body
+				if ( myIn.capacity() < total )
+				{
+					ByteBuffer bigger = ByteBuffer.allocate( total );
+					myIn.flip();
+					bigger.put( myIn );
+					myIn = bigger;
+				}
+				return;
+			}
+
+			final byte[] request = new byte[total];
+			myIn.flip();
+			myIn.get( request );
+			myIn.compact();
+			if ( myIn.capacity() > MAX_HEADER_SIZE && myIn.position() <= MAX_HEADER_SIZE )
+			{
+				ByteBuffer smaller = ByteBuffer.allocate( MAX_HEADER_SIZE );
+				myIn.flip();
+				smaller.put( myIn );
+				myIn = smaller;
+			}
+
+			myRequests++;
+			myRequestCount++;
+			if ( myRequests == 2 )
+				myReusedConnectionCount++;
+
+			// The last request allowed on this connection is answered with close
+			final int remaining = myMaxRequestsPerConnection - myRequests;
+			if ( remaining <= 0 )
+				myClosing = true;
+
+			myProcessing = true;
 			try
 			{
-				InputStream is = mySocket.getInputStream();
-				if ( is == null) return;
+				myWorkers.execute( new Runnable()
+					{
+						public void run()
+						{
+							handleRequest( request, remaining );
+						}
+					});
+			}
+			catch ( RejectedExecutionException ree )
+			{
+				myProcessing = false;
+				reject( HTTP_UNAVAILABLE, "SERVICE UNAVAILABLE: Too many pending requests." );
+			}
+		}
+
+		/**
+		 * Writes as much of the current response as the socket accepts,
+		 * then continues with the next queued one.
+		 */
+		void onWritable() throws IOException
+		{
+			while ( myWriting )
+			{
+				if ( myOut.hasRemaining())
+				{
+					int written = myChannel.write( myOut );
+					if ( written > 0 )
+						myLastActivity = System.currentTimeMillis();
+					if ( myOut.hasRemaining())
+						return;
+				}
+
+				if ( myPending <= 0 || ( myData == null && myFile == null ))
+				{
+					finishResponse();
+					continue;
+				}
+
+				if ( myFile != null )
+				{
+					// Let the kernel move the bytes from the file to the socket
+					long sent = myFile.transferTo( myFilePosition, myPending, myChannel );
+					if ( sent > 0 )
+					{
+						myFilePosition += sent;
+						myPending -= sent;
+						myLastActivity = System.currentTimeMillis();
+						continue;
+					}
+					if ( myFilePosition >= myFile.size())
+					{
+						// The file shrank below the announced length
+						close();
+					}
+					return;
+				}
+
+				if ( myChunk == null )
+					myChunk = ByteBuffer.allocate( CHUNK_SIZE );
+				myChunk.clear();
+				int read = myData.read( myChunk.array(), 0, (int)Math.min( CHUNK_SIZE, myPending ));
+				if ( read <= 0 )
+				{
+					// The body is shorter than announced, the connection is unusable
+					close();
+					return;
+				}
+				myChunk.limit( read );
+				myPending -= read;
+				myOut = myChunk;
+			}
+		}
+
+		/**
+		 * Queues a response prepared by a worker behind those of earlier
+		 * requests and starts writing if the socket is free.
+		 */
+		void queueResponse( QueuedResponse response )
+		{
+			myProcessing = false;
+			if ( !myChannel.isOpen())
+			{
+				response.close();
+				return;
+			}
+			if ( !response.keepAlive )
+				myClosing = true;
+			myResponses.add( response );
+			if ( !myWriting )
+				nextResponse();
+			dispatchRequest();
+			updateInterest();
+		}
+
+		private void nextResponse()
+		{
+			QueuedResponse response = myResponses.poll();
+			if ( response == null )
+				return;
+			myWriting = true;
+			myOut = ByteBuffer.wrap( response.head );
+			myData = response.data;
+			myFile = response.file;
+			myFilePosition = response.fileOffset;
+			myPending = response.length;
+			myKeepAlive = response.keepAlive;
+			try
+			{
+				onWritable();
+			}
+			catch ( IOException ioe )
+			{
+				close();
+			}
+		}
+
+		private void finishResponse()
+		{
+			closeQuietly( myData );
+			closeQuietly( myFile );
+			myData = null;
+			myFile = null;
+			myChunk = null;
+			myWriting = false;
+			myLastActivity = System.currentTimeMillis();
+			if ( !myKeepAlive )
+			{
+				close();
+				return;
+			}
+			nextResponse();
+			if ( !myChannel.isOpen())
+				return;
+			dispatchRequest();
+			if ( myInputClosed && !myProcessing && !myWriting && myResponses.isEmpty())
+				close();
+			else
+				updateInterest();
+		}
+
+		/**
+		 * Reads while there is room for pipelined requests, writes while
+		 * a response is pending.
+		 */
+		private void updateInterest()
+		{
+			if ( !myKey.isValid())
+				return;
+			int ops = 0;
+			if ( !myInputClosed && !myClosing && myIn.hasRemaining())
+				ops |= SelectionKey.OP_READ;
+			if ( myWriting )
+				ops |= SelectionKey.OP_WRITE;
+			myKey.interestOps( ops );
+		}
+
+		/**
+		 * Answers with an error on the selector thread and closes afterwards.
+		 */
+		private void reject( String status, String msg )
+		{
+			byte[] body = msg.getBytes();
+			queueResponse( new QueuedResponse( responseHead( status, MIME_PLAINTEXT, null, body.length, false, 0 ),
+				new ByteArrayInputStream( body ), null, 0, body.length, false ));
+		}
+
+		boolean isIdle( long now )
+		{
+			if ( myProcessing )
+				return false;	// A worker is serving a request
+			if ( myWriting || !myResponses.isEmpty())
+				return now - myLastActivity > myWriteTimeout;	// The client isn't reading
+			return now - myLastActivity > myKeepAliveTimeout;
+		}
+
+		void close()
+		{
+			if ( !mySessions.remove( this ))
+				return;
+			myKey.cancel();
+			try { myChannel.close(); } catch ( IOException ioe ) {}
+			closeQuietly( myData );
+			closeQuietly( myFile );
+			myData = null;
+			myFile = null;
+			QueuedResponse response;
+			while (( response = myResponses.poll()) != null )
+				response.close();
+			myConnectionCount--;
+			if ( myServerKey.isValid())
+				myServerKey.interestOps( SelectionKey.OP_ACCEPT );
+		}
+
+		/**
+		 * Parses one complete request and serves it. Runs on a worker thread.
+		 *
+		 * @param remaining	Number of further requests allowed on this connection
+		 */
+		private void handleRequest( byte[] request, int remaining )
+		{
+			myRequestKeepAlive = false;
+			myHeadRequest = false;
+			myRemainingRequests = remaining;
+			try
+			{
+				InputStream is = new ByteArrayInputStream( request );
 
 				// Read the first 8192 bytes.
 				// The full header should fit in here.
@@ -256,7 +846,6 @@ public class HttpServer
 				int bufsize = 8192;
 				byte[] buf = new byte[bufsize];
 				int rlen = is.read(buf, 0, bufsize);
-				if (rlen <= 0) return;
 
 				// Create a BufferedReader for parsing the header.
 				ByteArrayInputStream hbis = new ByteArrayInputStream(buf, 0, rlen);
@@ -270,6 +859,8 @@ public class HttpServer
 				decodeHeader(hin, pre, parms, header);
 				String method = pre.getProperty("method");
 				String uri = pre.getProperty("uri");
+				myHeadRequest = "HEAD".equalsIgnoreCase( method );
+				myRequestKeepAlive = isKeepAlive( pre.getProperty("protocol"), header.getProperty("connection"));
 
 				long size = 0x7FFFFFFFFFFFFFFFl;
 				String contentLength = header.getProperty("content-length");
@@ -371,7 +962,7 @@ public class HttpServer
 				if ( r == null )
 					sendError( HTTP_INTERNALERROR, "SERVER INTERNAL ERROR: Serve() returned a null response." );
 				else
-					sendResponse( r.status, r.mimeType, r.header, r.data );
+					sendResponse( r.status, r.mimeType, r.header, r.data, r.file, r.fileOffset );
 
 				in.close();
 				is.close();
@@ -386,10 +977,39 @@ public class HttpServer
 			}
 			catch ( InterruptedException ie )
 			{
-				// Thrown by sendError, ignore and exit the thread.
+				// Thrown by sendError, the response is already prepared.
+			}
+			finally
+			{
+				// Hand over last, the next pipelined request reuses this state
+				final QueuedResponse response = myResponse;
+				myResponse = null;
+				runOnSelector( new Runnable()
+					{
+						public void run()
+						{
+							if ( response != null )
+								queueResponse( response );
+							else
+								close();	// serve() blew up, there is nothing sensible to answer
+						}
+					});
 			}
 		}
 
+		/**
+		 * HTTP/1.1 connections persist unless the client asks to close them,
+		 * HTTP/1.0 ones only when the client asks to keep them alive.
+		 */
+		private boolean isKeepAlive( String protocol, String connection )
+		{
+			if ( protocol == null )
+				return false;
+			if ( protocol.equalsIgnoreCase( "HTTP/1.1" ))
+				return connection == null || !connection.toLowerCase().contains( "close" );
+			return connection != null && connection.toLowerCase().contains( "keep-alive" );
+		}
+
 		/**
 		 * Decodes the sent headers and loads the data into
 		 * java Properties' key - value pairs
@@ -423,11 +1043,12 @@ public class HttpServer
 				else uri = decodePercent(uri);
 
 				// If there's another token, it's protocol version,
-				// followed by HTTP headers. Ignore version but parse headers.
+				// followed by HTTP headers.
 				// NOTE: this now forces header names lowercase since they are
 				// case insensitive and vary by client.
 				if ( st.hasMoreTokens())
 				{
+					pre.put("protocol", st.nextToken());
 					String line = in.readLine();
 					while ( line != null && line.trim().length() > 0 )
 					{
@@ -671,6 +1292,7 @@ public class HttpServer
 		 */
 		private void sendError( String status, String msg ) throws InterruptedException
 		{
+			myRequestKeepAlive = false;
 			sendResponse( status, MIME_PLAINTEXT, null, new ByteArrayInputStream( msg.getBytes()));
 			throw new InterruptedException();
 		}
@@ -680,60 +1302,155 @@ public class HttpServer
 		 */
 		private void sendResponse( String status, String mime, Properties header, InputStream data )
 		{
+			sendResponse( status, mime, header, data, null, 0 );
+		}
+
+		/**
+		 * Sends given response to the socket. The header is prepared here,
+		 * the selector thread writes it and the data or the file slice
+		 * starting at fileOffset once the request has been handled and
+		 * the socket is ready.
+		 */
+		private void sendResponse( String status, String mime, Properties header, InputStream data,
+								   FileChannel file, long fileOffset )
+		{
+			if ( status == null )
+				throw new Error( "sendResponse(): Status can't be null." );
+			if ( myResponse != null )
+				return;
+
+			long length = 0;
 			try
 			{
-				if ( status == null )
-					throw new Error( "sendResponse(): Status can't be null." );
+				String contentLength = header != null ? header.getProperty( "Content-Length" ) : null;
+				if ( contentLength != null )
+					length = Long.parseLong( contentLength );
+				else if ( data != null )
+					length = data.available();	// This is to support partial sends, see serveFile()
+			}
+			catch ( NumberFormatException nfe )
+			{
+				myRequestKeepAlive = false;
+			}
+			catch ( IOException ioe )
+			{
+				myRequestKeepAlive = false;
+			}
 
-				OutputStream out = mySocket.getOutputStream();
-				PrintWriter pw = new PrintWriter( out );
-				pw.print("HTTP/1.0 " + status + " \r\n");
+			boolean keepAlive = myRequestKeepAlive && myRemainingRequests > 0;
+			byte[] head = responseHead( status, mime, header, length, keepAlive, myRemainingRequests );
+			if ( myHeadRequest )
+			{
+				closeQuietly( data );
+				closeQuietly( file );
+				data = null;
+				file = null;
+				length = 0;
+			}
 
-				if ( mime != null )
-					pw.print("Content-Type: " + mime + "\r\n");
+			myResponse = new QueuedResponse( head, data, file, fileOffset, length, keepAlive );
+		}
 
-				if ( header == null || header.getProperty( "Date" ) == null )
-					pw.print( "Date: " + gmtFrmt.format( new Date()) + "\r\n");
+		private byte[] responseHead( String status, String mime, Properties header, long length,
+									 boolean keepAlive, int remaining )
+		{
+			StringBuilder sb = new StringBuilder();
+			sb.append("HTTP/1.1 " + status + " \r\n");
 
-				if ( header != null )
-				{
-					Enumeration e = header.keys();
-					while ( e.hasMoreElements())
-					{
-						String key = (String)e.nextElement();
-						String value = header.getProperty( key );
-						pw.print( key + ": " + value + "\r\n");
-					}
-				}
+			if ( mime != null )
+				sb.append("Content-Type: " + mime + "\r\n");
 
-				pw.print("\r\n");
-				pw.flush();
+			if ( header == null || header.getProperty( "Date" ) == null )
+				sb.append( "Date: " + formatDate( new Date()) + "\r\n");
 
-				if ( data != null )
+			if (( header == null || header.getProperty( "Content-Length" ) == null ) && !status.equals( HTTP_NOTMODIFIED ))
+				sb.append( "Content-Length: " + length + "\r\n");
+
+			sb.append( "Connection: " + ( keepAlive ? "keep-alive" : "close" ) + "\r\n");
+			if ( keepAlive )
+				sb.append( "Keep-Alive: timeout=" + myKeepAliveTimeout / 1000 + ", max=" + remaining + "\r\n");
+
+			if ( header != null )
+			{
+				Enumeration e = header.keys();
+				while ( e.hasMoreElements())
 				{
-					int pending = data.available();	// This is to support partial sends, see serveFile()
-					byte[] buff = new byte[2048];
-					while (pending>0)
-					{
-						int read = data.read( buff, 0, ( (pending>2048) ?  2048 : pending ));
-						if (read <= 0)	break;
-						out.write( buff, 0, read );
-						pending -= read;
-					}
+					String key = (String)e.nextElement();
+					String value = header.getProperty( key );
+					sb.append( key + ": " + value + "\r\n");
 				}
-				out.flush();
-				out.close();
-				if ( data != null )
-					data.close();
 			}
-			catch( IOException ioe )
+
+			sb.append("\r\n");
+			try
+			{
+				return sb.toString().getBytes( "UTF-8" );
+			}
+			catch ( java.io.UnsupportedEncodingException uee )
 			{
-				// Couldn't write? No can do.
-				try { mySocket.close(); } catch( Throwable t ) {}
+				return sb.toString().getBytes();
 			}
 		}
 
-		private Socket mySocket;
+		private final SocketChannel myChannel;
+		private final SelectionKey myKey;
+		private ByteBuffer myIn = ByteBuffer.allocate( MAX_HEADER_SIZE );
+		private ByteBuffer myOut = ByteBuffer.allocate( 0 );
+		private ByteBuffer myChunk;
+		private InputStream myData;
+		private FileChannel myFile;
+		private long myFilePosition;
+		private boolean myWriting;
+		private long myPending;
+		private boolean myKeepAlive;
+		private final Queue<QueuedResponse> myResponses = new ArrayDeque<QueuedResponse>();
+		private boolean myProcessing;
+		private boolean myClosing;
+		private boolean myInputClosed;
+		private int myRequests;
+		private long myLastActivity;
+
+		// Per request state, only touched by the worker serving the request
+		private QueuedResponse myResponse;
+		private boolean myRequestKeepAlive;
+		private boolean myHeadRequest;
+		private int myRemainingRequests;
+	}
+
+	/**
+	 * A response waiting for its turn on a connection.
+	 */
+	private static class QueuedResponse
+	{
+		QueuedResponse( byte[] head, InputStream data, FileChannel file, long fileOffset,
+						long length, boolean keepAlive )
+		{
+			this.head = head;
+			this.data = data;
+			this.file = file;
+			this.fileOffset = fileOffset;
+			this.length = length;
+			this.keepAlive = keepAlive;
+		}
+
+		void close()
+		{
+			closeQuietly( data );
+			closeQuietly( file );
+		}
+
+		final byte[] head;
+		final InputStream data;
+		final FileChannel file;
+		final long fileOffset;
+		final long length;
+		final boolean keepAlive;
+	}
+
+	private static void closeQuietly( Closeable c )
+	{
+		if ( c != null )
+			try { c.close(); } catch ( IOException ioe ) {}
 	}
 
 	/**
@@ -761,8 +1478,30 @@ public class HttpServer
 		return newUri;
 	}
 
+	private static final int MAX_HEADER_SIZE = 8192;
+	private static final int MAX_BODY_SIZE = 16 * 1024 * 1024;
+	private static final int CHUNK_SIZE = 16 * 1024;
+	private static final int MAX_PIPELINED_RESPONSES = 4;
+	private static final Charset ISO_8859_1 = Charset.forName( "ISO-8859-1" );
+
 	private int myTcpPort;
-	private final ServerSocket myServerSocket;
+	private final int myMaxConnections;
+	private final Selector mySelector;
+	private final ServerSocketChannel myServerChannel;
+	private final SelectionKey myServerKey;
+	private final ThreadPoolExecutor myWorkers;
+	private final Queue<Runnable> mySelectorTasks = new ConcurrentLinkedQueue<Runnable>();
+	private final Set<HTTPSession> mySessions = new HashSet<HTTPSession>();
+	private volatile int myKeepAliveTimeout = KEEP_ALIVE_TIMEOUT;
+	private volatile int myWriteTimeout = WRITE_TIMEOUT;
+	private volatile int myMaxRequestsPerConnection = MAX_REQUESTS_PER_CONNECTION;
+
+	// Written by the selector thread only
+	private volatile int myConnectionCount;
+	private volatile long myAcceptedConnectionCount;
+	private volatile long myReusedConnectionCount;
+	private volatile long myRequestCount;
+	private long myLastSweep;
 	private Thread myThread;
 	private File myRootDir;
 
@@ -772,7 +1511,8 @@ public class HttpServer
 
 	/**
 	 * Serves file from homeDir and its' subdirectories (only).
-	 * Uses only URI, ignores all headers and HTTP parameters.
+	 * Uses the URI and the Range, If-Range, If-None-Match and
+	 * If-Modified-Since headers, ignores HTTP parameters.
 	 */
 	public Response serveFile( String uri, Properties header, File homeDir,
 							   boolean allowDirectoryListing )
@@ -893,59 +1633,47 @@ public class HttpServer
 				if ( mime == null )
 					mime = MIME_DEFAULT_BINARY;
 
-				// Support (simple) skipping:
-				long startFrom = 0;
-				long endAt = -1;
-				String range = header.getProperty( "range" );
-				if ( range != null )
+				// Validators for conditional and ranged requests
+				long fileLen = f.length();
+				long lastModified = f.lastModified() / 1000 * 1000;
+				String etag = "\"" + Long.toHexString( lastModified ) + "-" + Long.toHexString( fileLen ) + "\"";
+
+				if ( isNotModified( header, etag, lastModified ))
 				{
-					if ( range.startsWith( "bytes=" ))
-					{
-						range = range.substring( "bytes=".length());
-						int minus = range.indexOf( '-' );
-						try {
-							if ( minus > 0 )
-							{
-								startFrom = Long.parseLong( range.substring( 0, minus ));
-								endAt = Long.parseLong( range.substring( minus+1 ));
-							}
-						}
-						catch ( NumberFormatException nfe ) {}
-					}
+					res = new Response();
+					res.status = HTTP_NOTMODIFIED;
 				}
-
-				// Change return code and add Content-Range header when skipping is requested
-				long fileLen = f.length();
-				if (range != null && startFrom >= 0)
+				else
 				{
-					if ( startFrom >= fileLen)
+					// A stale If-Range means the client wants the whole new file
+					List<ByteRange> ranges = null;
+					String range = header.getProperty( "range" );
+					if ( range != null && isRangeCurrent( header.getProperty( "if-range" ), etag, lastModified ))
+						ranges = ByteRange.parse( range, fileLen );
+
+					if ( ranges == null )
+					{
+						res = new Response( HTTP_OK, mime, new FileInputStream( f ).getChannel(), 0, fileLen );
+					}
+					else if ( ranges.isEmpty())
 					{
 						res = new Response( HTTP_RANGE_NOT_SATISFIABLE, MIME_PLAINTEXT, "" );
-						res.addHeader( "Content-Range", "bytes 0-0/" + fileLen);
+						res.addHeader( "Content-Range", "bytes */" + fileLen);
+					}
+					else if ( ranges.size() == 1 )
+					{
+						ByteRange r = ranges.get( 0 );
+						res = new Response( HTTP_PARTIALCONTENT, mime,
+							new FileInputStream( f ).getChannel(), r.getStart(), r.getLength());
+						res.addHeader( "Content-Range", r.toContentRange( fileLen ));
 					}
 					else
 					{
-						if ( endAt < 0 )
-							endAt = fileLen-1;
-						long newLen = endAt - startFrom + 1;
-						if ( newLen < 0 ) newLen = 0;
-
-						final long dataLen = newLen;
-						FileInputStream fis = new FileInputStream( f ) {
-							public int available() throws IOException { return (int)dataLen; }
-						};
-						fis.skip( startFrom );
-
-						res = new Response( HTTP_PARTIALCONTENT, mime, fis );
-						res.addHeader( "Content-Length", "" + dataLen);
-						res.addHeader( "Content-Range", "bytes " + startFrom + "-" + endAt + "/" + fileLen);
+						res = serveByteRanges( f, mime, ranges, fileLen );
 					}
 				}
-				else
-				{
-					res = new Response( HTTP_OK, mime, new FileInputStream( f ));
-					res.addHeader( "Content-Length", "" + fileLen);
-				}
+				res.addHeader( "ETag", etag );
+				res.addHeader( "Last-Modified", formatDate( new Date( lastModified )));
 			}
 		}
 		catch( IOException ioe )
@@ -957,6 +1685,124 @@ public class HttpServer
 		return res;
 	}
 
+	/**
+	 * Builds a multipart/byteranges response with one part per range.
+	 */
+	private Response serveByteRanges( File f, String mime, List<ByteRange> ranges, long fileLen )
+		throws IOException
+	{
+		String boundary = "BYTERANGES_" + Long.toHexString( System.nanoTime());
+		FileChannel channel = new FileInputStream( f ).getChannel();
+		Vector<InputStream> parts = new Vector<InputStream>();
+		long total = 0;
+		for ( int i = 0; i < ranges.size(); i++ )
+		{
+			ByteRange r = ranges.get( i );
+			byte[] partHead = ( "\r\n--" + boundary + "\r\n" +
+				"Content-Type: " + mime + "\r\n" +
+				"Content-Range: " + r.toContentRange( fileLen ) + "\r\n\r\n" ).getBytes( ISO_8859_1 );
+			parts.add( new ByteArrayInputStream( partHead ));
+			parts.add( new FileSliceInputStream( channel, r.getStart(), r.getLength(), i == ranges.size() - 1 ));
+			total += partHead.length + r.getLength();
+		}
+		byte[] tail = ( "\r\n--" + boundary + "--\r\n" ).getBytes( ISO_8859_1 );
+		parts.add( new ByteArrayInputStream( tail ));
+		total += tail.length;
+
+		Response res = new Response( HTTP_PARTIALCONTENT, "multipart/byteranges; boundary=" + boundary,
+			new SequenceInputStream( parts.elements()));
+		res.addHeader( "Content-Length", "" + total );
+		return res;
+	}
+
+	/**
+	 * Evaluates If-None-Match, or If-Modified-Since when there is no
+	 * entity tag to compare, for the file being served.
+	 */
+	private static boolean isNotModified( Properties header, String etag, long lastModified )
+	{
+		String ifNoneMatch = header.getProperty( "if-none-match" );
+		if ( ifNoneMatch != null )
+		{
+			StringTokenizer st = new StringTokenizer( ifNoneMatch, "," );
+			while ( st.hasMoreTokens())
+			{
+				String tag = st.nextToken().trim();
+				if ( tag.startsWith( "W/" ))
+					tag = tag.substring( 2 );
+				if ( tag.equals( "*" ) || tag.equals( etag ))
+					return true;
+			}
+			return false;
+		}
+		long since = parseDate( header.getProperty( "if-modified-since" ));
+		return since >= 0 && lastModified <= since;
+	}
+
+	/**
+	 * Evaluates If-Range: the Range header only applies if the client's
+	 * copy still matches, by strong entity tag or exact modification date.
+	 */
+	private static boolean isRangeCurrent( String ifRange, String etag, long lastModified )
+	{
+		if ( ifRange == null )
+			return true;
+		ifRange = ifRange.trim();
+		if ( ifRange.startsWith( "\"" ) || ifRange.startsWith( "W/" ))
+			return ifRange.equals( etag );
+		return parseDate( ifRange ) == lastModified;
+	}
+
+	/**
+	 * Reads a slice of a file channel without moving its position,
+	 * so that several slices can share one channel.
+	 */
+	private static class FileSliceInputStream extends InputStream
+	{
+		public FileSliceInputStream( FileChannel channel, long offset, long length, boolean closeChannel )
+		{
+			myFileChannel = channel;
+			myPosition = offset;
+			myRemaining = length;
+			myCloseChannel = closeChannel;
+		}
+
+		public int read() throws IOException
+		{
+			byte[] b = new byte[1];
+			return read( b, 0, 1 ) == 1 ? b[0] & 0xff : -1;
+		}
+
+		public int read( byte[] b, int off, int len ) throws IOException
+		{
+			if ( myRemaining <= 0 )
+				return -1;
+			int read = myFileChannel.read( ByteBuffer.wrap( b, off, (int)Math.min( len, myRemaining )), myPosition );
+			if ( read > 0 )
+			{
+				myPosition += read;
+				myRemaining -= read;
+			}
+			return read;
+		}
+
+		public int available()
+		{
+			return (int)Math.min( myRemaining, Integer.MAX_VALUE );
+		}
+
+		public void close() throws IOException
+		{
+			if ( myCloseChannel )
+				myFileChannel.close();
+		}
+
+		private final FileChannel myFileChannel;
+		private final boolean myCloseChannel;
+		private long myPosition;
+		private long myRemaining;
+	}
+
 	/**
 	 * Hashtable mapping (String)FILENAME_EXTENSION -> (String)MIME_TYPE
 	 */
@@ -996,6 +1842,37 @@ public class HttpServer
 		gmtFrmt.setTimeZone(TimeZone.getTimeZone("GMT"));
 	}
 
+	/**
+	 * Formats a date with gmtFrmt, which is shared by all worker threads.
+	 */
+	private static String formatDate( Date date )
+	{
+		synchronized ( gmtFrmt )
+		{
+			return gmtFrmt.format( date );
+		}
+	}
+
+	/**
+	 * Parses a HTTP date, returns -1 if it is missing or malformed.
+	 */
+	private static long parseDate( String date )
+	{
+		if ( date == null )
+			return -1;
+		synchronized ( gmtFrmt )
+		{
+			try
+			{
+				return gmtFrmt.parse( date.trim()).getTime();
+			}
+			catch ( java.text.ParseException pe )
+			{
+				return -1;
+			}
+		}
+	}
+
 	/**
 	 * The distribution licence
 	 */
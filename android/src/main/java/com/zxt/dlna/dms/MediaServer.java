@@ -41,6 +41,10 @@ public class MediaServer {
     public final static int PORT = 8192;
     private Context mContext;
 
+    private HttpServer httpServer;
+
+    private final MediaStoreContentSource contentSource;
+
     public MediaServer(Context context, String friendlyName) throws ValidationException {
         mContext = context;
         DeviceType type = new UDADeviceType(deviceType, version);
@@ -66,13 +70,26 @@ public class MediaServer {
 
         // start http server
         try {
-            new HttpServer(PORT);
+            httpServer = new HttpServer(PORT);
         } catch (IOException ioe) {
             System.err.println("Couldn't start server:\n" + ioe);
             System.exit(-1);
         }
 
         Log.v(LOGTAG, "Started Http Server on port " + PORT);
+
+        // Videos, music and photos are listed from the MediaStore when first browsed
+        contentSource = new MediaStoreContentSource(context, getAddress());
+        contentSource.start();
+    }
+
+    /**
+     * Stops following the MediaStore, removes its containers from the ContentTree
+     * and closes the HTTP server so the port can be bound again.
+     */
+    public void stop() {
+        contentSource.stop();
+        httpServer.stop();
     }
 
     public LocalDevice getDevice() {
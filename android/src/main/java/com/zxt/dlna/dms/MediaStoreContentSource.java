@@ -0,0 +1,243 @@
+package com.zxt.dlna.dms;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.fourthline.cling.model.ModelUtil;
+import org.fourthline.cling.support.model.DIDLObject;
+import org.fourthline.cling.support.model.Res;
+import org.fourthline.cling.support.model.WriteStatus;
+import org.fourthline.cling.support.model.container.Container;
+import org.fourthline.cling.support.model.item.ImageItem;
+import org.fourthline.cling.support.model.item.Item;
+import org.fourthline.cling.support.model.item.MusicTrack;
+import org.fourthline.cling.support.model.item.VideoItem;
+import org.seamless.util.MimeType;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.MediaStore;
+import android.util.Log;
+
+/**
+ * Feeds the video, audio and image containers of the {@link ContentTree}
+ * from the MediaStore.
+ * <p>
+ * Nothing is scanned up front: a container is queried the first time it is
+ * browsed. Afterwards MediaStore change notifications are applied to the
+ * loaded containers as individual additions and removals.
+ * </p>
+ */
+public class MediaStoreContentSource implements ContentTree.ContentLoader {
+
+	private final static String LOGTAG = "MediaStoreContentSource";
+
+	private final ContentResolver resolver;
+
+	private final String address;
+
+	private final ExecutorService updater = Executors.newSingleThreadExecutor();
+
+	private final ContentObserver videoObserver = new MediaObserver(ContentTree.VIDEO_ID);
+
+	private final ContentObserver audioObserver = new MediaObserver(ContentTree.AUDIO_ID);
+
+	private final ContentObserver imageObserver = new MediaObserver(ContentTree.IMAGE_ID);
+
+	/**
+	 * @param address host:port of the HttpServer serving the files
+	 */
+	public MediaStoreContentSource(Context context, String address) {
+		this.resolver = context.getContentResolver();
+		this.address = address;
+	}
+
+	public void start() {
+		ContentTree.setContentLoader(this);
+		ContentTree.addChild(ContentTree.ROOT_ID, createContainer(ContentTree.VIDEO_ID, "Videos"));
+		ContentTree.addChild(ContentTree.ROOT_ID, createContainer(ContentTree.AUDIO_ID, "Music"));
+		ContentTree.addChild(ContentTree.ROOT_ID, createContainer(ContentTree.IMAGE_ID, "Photos"));
+
+		resolver.registerContentObserver(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, true, videoObserver);
+		resolver.registerContentObserver(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, true, audioObserver);
+		resolver.registerContentObserver(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, true, imageObserver);
+	}
+
+	public void stop() {
+		resolver.unregisterContentObserver(videoObserver);
+		resolver.unregisterContentObserver(audioObserver);
+		resolver.unregisterContentObserver(imageObserver);
+		updater.shutdownNow();
+		ContentTree.setContentLoader(null);
+		ContentTree.removeNode(ContentTree.VIDEO_ID);
+		ContentTree.removeNode(ContentTree.AUDIO_ID);
+		ContentTree.removeNode(ContentTree.IMAGE_ID);
+	}
+
+	@Override
+	public void loadChildren(ContentNode container) {
+		sync(container.getId());
+	}
+
+	/**
+	 * Brings a container in line with the MediaStore, touching only the
+	 * items that were added or removed since the last pass.
+	 */
+	private void sync(String containerId) {
+		ContentNode container = ContentTree.getNode(containerId);
+		if (container == null) {
+			return;
+		}
+
+		Set<String> stale = new HashSet<String>();
+		for (ContentNode child : container.getChildren()) {
+			stale.add(child.getId());
+		}
+
+		Cursor cursor = query(containerId);
+		if (cursor == null) {
+			return;
+		}
+		try {
+			while (cursor.moveToNext()) {
+				String id = itemId(containerId, cursor.getLong(0));
+				if (!stale.remove(id)) {
+					ContentNode node = createItem(containerId, id, cursor);
+					if (node != null) {
+						ContentTree.addChild(containerId, node);
+					}
+				}
+			}
+		} finally {
+			cursor.close();
+		}
+
+		for (String id : stale) {
+			ContentTree.removeNode(id);
+		}
+	}
+
+	private Cursor query(String containerId) {
+		try {
+			if (ContentTree.VIDEO_ID.equals(containerId)) {
+				return resolver.query(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, new String[] {
+						MediaStore.Video.Media._ID, MediaStore.Video.Media.DATA,
+						MediaStore.Video.Media.TITLE, MediaStore.Video.Media.ARTIST,
+						MediaStore.Video.Media.MIME_TYPE, MediaStore.Video.Media.SIZE,
+						MediaStore.Video.Media.DURATION, MediaStore.Video.Media.RESOLUTION },
+						null, null, null);
+			} else if (ContentTree.AUDIO_ID.equals(containerId)) {
+				return resolver.query(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, new String[] {
+						MediaStore.Audio.Media._ID, MediaStore.Audio.Media.DATA,
+						MediaStore.Audio.Media.TITLE, MediaStore.Audio.Media.ARTIST,
+						MediaStore.Audio.Media.MIME_TYPE, MediaStore.Audio.Media.SIZE,
+						MediaStore.Audio.Media.DURATION, MediaStore.Audio.Media.ALBUM },
+						null, null, null);
+			} else if (ContentTree.IMAGE_ID.equals(containerId)) {
+				return resolver.query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, new String[] {
+						MediaStore.Images.Media._ID, MediaStore.Images.Media.DATA,
+						MediaStore.Images.Media.TITLE, MediaStore.Images.Media.DESCRIPTION,
+						MediaStore.Images.Media.MIME_TYPE, MediaStore.Images.Media.SIZE },
+						null, null, null);
+			}
+		} catch (SecurityException ex) {
+			Log.w(LOGTAG, "No permission to read the MediaStore: " + ex);
+		}
+		return null;
+	}
+
+	private ContentNode createItem(String containerId, String id, Cursor cursor) {
+		String path = cursor.getString(1);
+		String title = cursor.getString(2);
+		String creator = cursor.getString(3);
+		String mimeType = cursor.getString(4);
+		long size = cursor.getLong(5);
+		if (path == null || mimeType == null || mimeType.indexOf('/') < 0) {
+			return null;
+		}
+
+		Res res = new Res(new MimeType(mimeType.substring(0, mimeType.indexOf('/')),
+				mimeType.substring(mimeType.indexOf('/') + 1)), size, "http://" + address + "/" + id);
+
+		Item item;
+		if (ContentTree.VIDEO_ID.equals(containerId)) {
+			res.setDuration(ModelUtil.toTimeString(cursor.getLong(6) / 1000));
+			res.setResolution(cursor.getString(7));
+			item = new VideoItem(id, containerId, title, creator, res);
+		} else if (ContentTree.AUDIO_ID.equals(containerId)) {
+			res.setDuration(ModelUtil.toTimeString(cursor.getLong(6) / 1000));
+			item = new MusicTrack(id, containerId, title, creator, cursor.getString(7), creator, res);
+		} else {
+			item = new ImageItem(id, containerId, title, creator, res);
+		}
+		return new ContentNode(id, item, path);
+	}
+
+	private static String itemId(String containerId, long mediaId) {
+		if (ContentTree.VIDEO_ID.equals(containerId)) {
+			return ContentTree.VIDEO_PREFIX + mediaId;
+		} else if (ContentTree.AUDIO_ID.equals(containerId)) {
+			return ContentTree.AUDIO_PREFIX + mediaId;
+		}
+		return ContentTree.IMAGE_PREFIX + mediaId;
+	}
+
+	private static ContentNode createContainer(String id, String title) {
+		Container container = new Container();
+		container.setClazz(new DIDLObject.Class("object.container"));
+		container.setId(id);
+		container.setParentID(ContentTree.ROOT_ID);
+		container.setTitle(title);
+		container.setRestricted(true);
+		container.setWriteStatus(WriteStatus.NOT_WRITABLE);
+		container.setChildCount(0);
+		return new ContentNode(id, container);
+	}
+
+	/**
+	 * Re-syncs a container after the MediaStore changed, but only if it has
+	 * been loaded already; otherwise the first browse picks up the changes.
+	 */
+	private class MediaObserver extends ContentObserver {
+
+		private final String containerId;
+
+		// Notifications arriving while a sync is queued are covered by it
+		private final AtomicBoolean pending = new AtomicBoolean();
+
+		MediaObserver(String containerId) {
+			super(null);
+			this.containerId = containerId;
+		}
+
+		@Override
+		public void onChange(boolean selfChange, Uri uri) {
+			onChange(selfChange);
+		}
+
+		@Override
+		public void onChange(boolean selfChange) {
+			ContentNode container = ContentTree.getNode(containerId);
+			if (container == null || !container.isLoaded() || !pending.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				updater.execute(new Runnable() {
+					public void run() {
+						pending.set(false);
+						sync(containerId);
+					}
+				});
+			} catch (RejectedExecutionException ex) {
+				// Stopped
+			}
+		}
+	}
+}
@@ -0,0 +1,386 @@
+package com.zxt.dlna.dms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.fourthline.cling.support.model.DIDLObject;
+
+/**
+ * A parsed ContentDirectory SearchCriteria string, for example
+ * <code>upnp:class derivedfrom "object.item.audioItem" and dc:title contains "love"</code>.
+ * <p>
+ * Relations on properties of the {@link ContentIndex} narrow a search down
+ * to candidates, the criteria are then checked on every candidate. String
+ * comparisons ignore case; an object without the property matches nothing
+ * but <code>exists false</code>.
+ * </p>
+ */
+class SearchCriteria {
+
+	public final static List<String> SEARCH_CAPABILITIES = Arrays.asList(
+			"dc:title", "dc:creator", "dc:date", "upnp:class", "upnp:artist",
+			"upnp:album", "upnp:genre", "@id", "@parentID", "@refID");
+
+	private final static List<String> OPERATORS = Arrays.asList(
+			"=", "!=", "<", "<=", ">", ">=", "contains", "doesNotContain",
+			"startsWith", "derivedfrom", "exists");
+
+	private final String text;
+
+	private final Expression expression;
+
+	private SearchCriteria(String text, Expression expression) {
+		this.text = text;
+		this.expression = expression;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the criteria are malformed or use
+	 *         a property outside of {@link #SEARCH_CAPABILITIES}
+	 */
+	public static SearchCriteria parse(String criteria) {
+		String text = criteria != null ? criteria.trim() : "";
+		if (text.length() == 0 || text.equals("*")) {
+			return new SearchCriteria("*", null);
+		}
+		Parser parser = new Parser(text);
+		Expression expression = parser.parseOr();
+		if (parser.hasMore()) {
+			throw new IllegalArgumentException("Unexpected '" + parser.next().text + "' in: " + text);
+		}
+		return new SearchCriteria(text, expression);
+	}
+
+	public boolean matches(DIDLObject object) {
+		return expression == null || expression.matches(object);
+	}
+
+	/**
+	 * IDs of the objects which may match, or null if every object in scope
+	 * has to be checked.
+	 */
+	public Set<String> candidates(ContentIndex index) {
+		return expression == null ? null : expression.candidates(index);
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+	private static abstract class Expression {
+
+		abstract boolean matches(DIDLObject object);
+
+		abstract Set<String> candidates(ContentIndex index);
+	}
+
+	private static class And extends Expression {
+
+		final Expression left;
+		final Expression right;
+
+		And(Expression left, Expression right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		boolean matches(DIDLObject object) {
+			return left.matches(object) && right.matches(object);
+		}
+
+		Set<String> candidates(ContentIndex index) {
+			Set<String> a = left.candidates(index);
+			Set<String> b = right.candidates(index);
+			if (a == null || b == null) {
+				return a == null ? b : a;
+			}
+			a.retainAll(b);
+			return a;
+		}
+	}
+
+	private static class Or extends Expression {
+
+		final Expression left;
+		final Expression right;
+
+		Or(Expression left, Expression right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		boolean matches(DIDLObject object) {
+			return left.matches(object) || right.matches(object);
+		}
+
+		Set<String> candidates(ContentIndex index) {
+			Set<String> a = left.candidates(index);
+			if (a == null) {
+				return null;
+			}
+			Set<String> b = right.candidates(index);
+			if (b == null) {
+				return null;
+			}
+			a.addAll(b);
+			return a;
+		}
+	}
+
+	private static class Relation extends Expression {
+
+		final String property;
+		final String operator;
+		final String value;
+		final String lowerValue;
+
+		Relation(String property, String operator, String value) {
+			this.property = property;
+			this.operator = operator;
+			this.value = value;
+			this.lowerValue = value.toLowerCase(Locale.ENGLISH);
+		}
+
+		boolean matches(DIDLObject object) {
+			List<String> values = ContentIndex.values(object, property);
+			if ("exists".equals(operator)) {
+				return values.isEmpty() != Boolean.parseBoolean(value);
+			}
+			if (values.isEmpty()) {
+				return false;
+			}
+			if ("!=".equals(operator) || "doesNotContain".equals(operator)) {
+				String positive = "!=".equals(operator) ? "=" : "contains";
+				for (String v : values) {
+					if (test(positive, v)) {
+						return false;
+					}
+				}
+				return true;
+			}
+			for (String v : values) {
+				if (test(operator, v)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean test(String operator, String v) {
+			String lower = v.toLowerCase(Locale.ENGLISH);
+			if ("=".equals(operator)) {
+				return lower.equals(lowerValue);
+			} else if ("<".equals(operator)) {
+				return lower.compareTo(lowerValue) < 0;
+			} else if ("<=".equals(operator)) {
+				return lower.compareTo(lowerValue) <= 0;
+			} else if (">".equals(operator)) {
+				return lower.compareTo(lowerValue) > 0;
+			} else if (">=".equals(operator)) {
+				return lower.compareTo(lowerValue) >= 0;
+			} else if ("contains".equals(operator)) {
+				return lower.contains(lowerValue);
+			} else if ("startsWith".equals(operator)) {
+				return lower.startsWith(lowerValue);
+			} else if ("derivedfrom".equals(operator)) {
+				return lower.equals(lowerValue) || lower.startsWith(lowerValue + ".");
+			}
+			return false;
+		}
+
+		Set<String> candidates(ContentIndex index) {
+			if (!ContentIndex.isIndexed(property)) {
+				return null;
+			}
+
+			if (ContentIndex.CLASS.equals(property)) {
+				// Classes are indexed as a whole
+				if ("=".equals(operator)) {
+					return index.lookup(property, lowerValue);
+				} else if ("derivedfrom".equals(operator)) {
+					Set<String> ids = index.lookup(property, lowerValue);
+					ids.addAll(index.lookupPartial(property, lowerValue + ".", true, false));
+					return ids;
+				} else if ("contains".equals(operator)) {
+					return index.lookupPartial(property, lowerValue, false, false);
+				} else if ("startsWith".equals(operator)) {
+					return index.lookupPartial(property, lowerValue, true, false);
+				}
+				return null;
+			}
+
+			List<String> tokens = ContentIndex.tokenize(value);
+			if (tokens.isEmpty()) {
+				return null;
+			}
+			if ("=".equals(operator)) {
+				Set<String> ids = null;
+				for (String token : tokens) {
+					ids = intersect(ids, index.lookup(property, token));
+				}
+				return ids;
+			} else if ("contains".equals(operator) || "startsWith".equals(operator)) {
+				if (tokens.size() == 1) {
+					return index.lookupPartial(property, tokens.get(0), false, false);
+				}
+				// Inner words are complete, the outer ones may be cut off
+				Set<String> ids = index.lookupPartial(property, tokens.get(0), false, true);
+				for (int i = 1; i < tokens.size() - 1; i++) {
+					ids = intersect(ids, index.lookup(property, tokens.get(i)));
+				}
+				return intersect(ids, index.lookupPartial(property, tokens.get(tokens.size() - 1), true, false));
+			}
+			return null;
+		}
+
+		private static Set<String> intersect(Set<String> a, Set<String> b) {
+			if (a == null) {
+				return b;
+			}
+			a.retainAll(b);
+			return a;
+		}
+	}
+
+	private static class Token {
+
+		final String text;
+		final boolean quoted;
+
+		Token(String text, boolean quoted) {
+			this.text = text;
+			this.quoted = quoted;
+		}
+	}
+
+	/**
+	 * Recursive descent over the grammar of the ContentDirectory spec,
+	 * "and" binding tighter than "or".
+	 */
+	private static class Parser {
+
+		private final String input;
+		private final List<Token> tokens = new ArrayList<Token>();
+		private int position;
+
+		Parser(String input) {
+			this.input = input;
+			tokenize();
+		}
+
+		boolean hasMore() {
+			return position < tokens.size();
+		}
+
+		Token next() {
+			if (!hasMore()) {
+				throw new IllegalArgumentException("Unexpected end of: " + input);
+			}
+			return tokens.get(position++);
+		}
+
+		private boolean nextIs(String keyword) {
+			if (hasMore() && !tokens.get(position).quoted
+					&& tokens.get(position).text.equalsIgnoreCase(keyword)) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		Expression parseOr() {
+			Expression expression = parseAnd();
+			while (nextIs("or")) {
+				expression = new Or(expression, parseAnd());
+			}
+			return expression;
+		}
+
+		private Expression parseAnd() {
+			Expression expression = parsePrimary();
+			while (nextIs("and")) {
+				expression = new And(expression, parsePrimary());
+			}
+			return expression;
+		}
+
+		private Expression parsePrimary() {
+			if (nextIs("(")) {
+				Expression expression = parseOr();
+				if (!nextIs(")")) {
+					throw new IllegalArgumentException("Missing ')' in: " + input);
+				}
+				return expression;
+			}
+
+			Token property = next();
+			if (property.quoted || !SEARCH_CAPABILITIES.contains(property.text)) {
+				throw new IllegalArgumentException("Can't search by: " + property.text);
+			}
+			Token operator = next();
+			if (operator.quoted || !OPERATORS.contains(operator.text)) {
+				throw new IllegalArgumentException("Unknown operator: " + operator.text);
+			}
+			Token value = next();
+			if ("exists".equals(operator.text)) {
+				if (value.quoted || !(value.text.equals("true") || value.text.equals("false"))) {
+					throw new IllegalArgumentException("Expected true or false after exists: " + value.text);
+				}
+			} else if (!value.quoted) {
+				throw new IllegalArgumentException("Expected a quoted value: " + value.text);
+			}
+			return new Relation(property.text, operator.text, value.text);
+		}
+
+		private void tokenize() {
+			int i = 0;
+			while (i < input.length()) {
+				char c = input.charAt(i);
+				if (Character.isWhitespace(c)) {
+					i++;
+				} else if (c == '(' || c == ')') {
+					tokens.add(new Token(String.valueOf(c), false));
+					i++;
+				} else if (c == '"') {
+					StringBuilder value = new StringBuilder();
+					i++;
+					while (true) {
+						if (i >= input.length()) {
+							throw new IllegalArgumentException("Unterminated string in: " + input);
+						}
+						c = input.charAt(i++);
+						if (c == '"') {
+							break;
+						}
+						if (c == '\\' && i < input.length()) {
+							c = input.charAt(i++);
+						}
+						value.append(c);
+					}
+					tokens.add(new Token(value.toString(), true));
+				} else if (isOperatorChar(c)) {
+					int start = i;
+					while (i < input.length() && isOperatorChar(input.charAt(i))) {
+						i++;
+					}
+					tokens.add(new Token(input.substring(start, i), false));
+				} else {
+					int start = i;
+					while (i < input.length() && !Character.isWhitespace(input.charAt(i))
+							&& "()\"".indexOf(input.charAt(i)) < 0 && !isOperatorChar(input.charAt(i))) {
+						i++;
+					}
+					tokens.add(new Token(input.substring(start, i), false));
+				}
+			}
+		}
+
+		private static boolean isOperatorChar(char c) {
+			return c == '=' || c == '!' || c == '<' || c == '>';
+		}
+	}
+}
@@ -25,6 +25,7 @@ import org.fourthline.cling.model.message.UpnpHeaders;
 import org.fourthline.cling.model.meta.RemoteDeviceIdentity;
 import org.fourthline.cling.model.meta.RemoteService;
 import org.fourthline.cling.model.types.ServiceType;
+import org.fourthline.cling.protocol.DescriptorCache;
 import org.fourthline.cling.transport.impl.DatagramIOConfigurationImpl;
 import org.fourthline.cling.transport.impl.DatagramIOImpl;
 import org.fourthline.cling.transport.impl.DatagramProcessorImpl;
@@ -37,6 +38,9 @@ import org.fourthline.cling.transport.impl.StreamClientConfigurationImpl;
 import org.fourthline.cling.transport.impl.StreamClientImpl;
 import org.fourthline.cling.transport.impl.StreamServerConfigurationImpl;
 import org.fourthline.cling.transport.impl.StreamServerImpl;
+import org.fourthline.cling.transport.impl.nio.DatagramChannelSelector;
+import org.fourthline.cling.transport.impl.nio.DatagramIOChannelImpl;
+import org.fourthline.cling.transport.impl.nio.MulticastReceiverChannelImpl;
 import org.fourthline.cling.transport.spi.DatagramIO;
 import org.fourthline.cling.transport.spi.DatagramProcessor;
 import org.fourthline.cling.transport.spi.GENAEventProcessor;
@@ -48,14 +52,23 @@ import org.fourthline.cling.transport.spi.StreamServer;
 import org.seamless.util.Exceptions;
 
 import javax.enterprise.inject.Alternative;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 /**
@@ -69,12 +82,34 @@ import java.util.logging.Logger;
  * {@link org.fourthline.cling.binding.xml}.
  * </p>
  * <p>
- * The thread <code>Executor</code> is an <code>Executors.newCachedThreadPool()</code> with
- * a custom {@link ClingThreadFactory} (it only sets a thread name).
+ * Each protocol role gets its own {@link ClingExecutor}, so a flood of discovery messages can't
+ * starve control requests:
  * </p>
+ * <ul>
+ * <li>The multicast receiver, datagram IO and registry maintainer loops run on the default
+ * executor, an <code>Executors.newCachedThreadPool()</code> with a custom {@link ClingThreadFactory}.</li>
+ * <li>The stream server and stream client get up to 64 threads each, without a queue; the
+ * servlet container and HTTP client use these pools for their own threads.</li>
+ * <li>Asynchronous (discovery) protocols run on 8 threads of lower priority, with 512 queued tasks.
+ * When full, the oldest queued task is discarded, as stale SSDP messages are worthless.</li>
+ * <li>Synchronous (control) protocols run on 16 threads, with 256 queued tasks. When full, new
+ * protocols are rejected. The control point fails the callback instead of blocking its caller,
+ * which may be the UI thread.</li>
+ * <li>Registry listeners are called on 4 threads, with 1024 queued tasks. When full, the
+ * submitting thread calls the listener.</li>
+ * <li>Delayed tasks, such as repeated SSDP announcements, run on a single scheduler thread.</li>
+ * </ul>
  * <p>
- * Note that this pool is effectively unlimited, so the number of threads will
- * grow (and shrink) as needed - or restricted by your JVM.
+ * Override the <code>create...ExecutorService()</code> methods to change the sizes or the
+ * {@link RejectionPolicy} of a pool; {@link #getExecutorServices()} exposes queue metrics.
+ * </p>
+ * <p>
+ * Multicast receivers and datagram IO services use blocking sockets, one thread each. Override
+ * {@link #isDatagramChannelTransport()} to read and write all datagrams with non-blocking
+ * channels on a single selector thread instead.
+ * </p>
+ * <p>
+ * Remote device descriptors are cached in memory, see {@link #createDescriptorCache()}.
  * </p>
  * <p>
  * The default {@link org.fourthline.cling.model.Namespace} is configured without any
@@ -91,6 +126,12 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
     final private int streamListenPort;
 
     final private ExecutorService defaultExecutorService;
+    final private ExecutorService streamServerExecutorService;
+    final private ExecutorService streamClientExecutorService;
+    final private ExecutorService asyncProtocolExecutorService;
+    final private ExecutorService syncProtocolExecutorService;
+    final private ExecutorService registryListenerExecutorService;
+    final private ScheduledExecutorService scheduledExecutorService;
 
     final private DatagramProcessor datagramProcessor;
     final private SOAPActionProcessor soapActionProcessor;
@@ -101,6 +142,10 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
 
     final private Namespace namespace;
 
+    final private DescriptorCache descriptorCache;
+
+    private DatagramChannelSelector datagramChannelSelector;
+
     /**
      * Defaults to port '0', ephemeral.
      */
@@ -124,6 +169,12 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
         this.streamListenPort = streamListenPort;
 
         defaultExecutorService = createDefaultExecutorService();
+        streamServerExecutorService = createStreamServerExecutorService();
+        streamClientExecutorService = createStreamClientExecutorService();
+        asyncProtocolExecutorService = createAsyncProtocolExecutorService();
+        syncProtocolExecutorService = createSyncProtocolExecutorService();
+        registryListenerExecutorService = createRegistryListenerExecutorService();
+        scheduledExecutorService = createScheduledExecutorService();
 
         datagramProcessor = createDatagramProcessor();
         soapActionProcessor = createSOAPActionProcessor();
@@ -133,6 +184,8 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
         serviceDescriptorBinderUDA10 = createServiceDescriptorBinderUDA10();
 
         namespace = createNamespace();
+
+        descriptorCache = createDescriptorCache();
     }
 
     public DatagramProcessor getDatagramProcessor() {
@@ -150,24 +203,50 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
     public StreamClient createStreamClient() {
         return new StreamClientImpl(
             new StreamClientConfigurationImpl(
-                getSyncProtocolExecutorService()
+                getStreamClientExecutorService()
             )
         );
     }
 
     public MulticastReceiver createMulticastReceiver(NetworkAddressFactory networkAddressFactory) {
-        return new MulticastReceiverImpl(
+        MulticastReceiverConfigurationImpl configuration =
                 new MulticastReceiverConfigurationImpl(
                         networkAddressFactory.getMulticastGroup(),
                         networkAddressFactory.getMulticastPort()
-                )
-        );
+                );
+        if (isDatagramChannelTransport())
+            return new MulticastReceiverChannelImpl(configuration, getDatagramChannelSelector());
+        return new MulticastReceiverImpl(configuration);
     }
 
     public DatagramIO createDatagramIO(NetworkAddressFactory networkAddressFactory) {
+        if (isDatagramChannelTransport())
+            return new DatagramIOChannelImpl(new DatagramIOConfigurationImpl(), getDatagramChannelSelector());
         return new DatagramIOImpl(new DatagramIOConfigurationImpl());
     }
 
+    /**
+     * @return <code>false</code>, override to receive and send datagrams with
+     *         {@link MulticastReceiverChannelImpl} and {@link DatagramIOChannelImpl} on a
+     *         single selector thread. These need Java 7, or Android API level 24.
+     */
+    protected boolean isDatagramChannelTransport() {
+        return false;
+    }
+
+    /**
+     * @return The selector shared by all datagram channels of this stack, created on first use.
+     */
+    synchronized protected DatagramChannelSelector getDatagramChannelSelector() {
+        if (datagramChannelSelector == null)
+            datagramChannelSelector = createDatagramChannelSelector();
+        return datagramChannelSelector;
+    }
+
+    protected DatagramChannelSelector createDatagramChannelSelector() {
+        return new DatagramChannelSelector();
+    }
+
     public StreamServer createStreamServer(NetworkAddressFactory networkAddressFactory) {
         return new StreamServerImpl(
                 new StreamServerConfigurationImpl(
@@ -185,7 +264,15 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
     }
 
     public ExecutorService getStreamServerExecutorService() {
-        return getDefaultExecutorService();
+        return streamServerExecutorService;
+    }
+
+    /**
+     * @return The executor of the {@link StreamClient}, it has to be separate from the
+     *         callers waiting for HTTP responses, usually synchronous protocols.
+     */
+    public ExecutorService getStreamClientExecutorService() {
+        return streamClientExecutorService;
     }
 
     public DeviceDescriptorBinder getDeviceDescriptorBinderUDA10() {
@@ -211,6 +298,10 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
         return null;
     }
 
+    public DescriptorCache getDescriptorCache() {
+        return descriptorCache;
+    }
+
     public UpnpHeaders getEventSubscriptionHeaders(RemoteService service) {
         return null;
     }
@@ -234,11 +325,11 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
     }
 
     public Executor getAsyncProtocolExecutor() {
-        return getDefaultExecutorService();
+        return asyncProtocolExecutorService;
     }
 
     public ExecutorService getSyncProtocolExecutorService() {
-        return getDefaultExecutorService();
+        return syncProtocolExecutorService;
     }
 
     public Namespace getNamespace() {
@@ -250,7 +341,27 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
     }
 
     public Executor getRegistryListenerExecutor() {
-        return getDefaultExecutorService();
+        return registryListenerExecutorService;
+    }
+
+    public ScheduledExecutorService getScheduledExecutorService() {
+        return scheduledExecutorService;
+    }
+
+    /**
+     * @return All executors of this configuration, {@link ClingExecutor}s report their queue
+     *         metrics in <code>toString()</code>.
+     */
+    public List<ExecutorService> getExecutorServices() {
+        return Collections.unmodifiableList(Arrays.asList(
+                defaultExecutorService,
+                streamServerExecutorService,
+                streamClientExecutorService,
+                asyncProtocolExecutorService,
+                syncProtocolExecutorService,
+                registryListenerExecutorService,
+                scheduledExecutorService
+        ));
     }
 
     public NetworkAddressFactory createNetworkAddressFactory() {
@@ -258,8 +369,14 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
     }
 
     public void shutdown() {
-        log.fine("Shutting down default executor service");
-        getDefaultExecutorService().shutdownNow();
+        for (ExecutorService executorService : getExecutorServices()) {
+            log.fine("Shutting down executor service: " + executorService);
+            executorService.shutdownNow();
+        }
+        synchronized (this) {
+            if (datagramChannelSelector != null)
+                datagramChannelSelector.close();
+        }
     }
 
     protected NetworkAddressFactory createNetworkAddressFactory(int streamListenPort) {
@@ -290,6 +407,13 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
         return new Namespace();
     }
 
+    /**
+     * @return An in-memory cache, override to store descriptors in a directory.
+     */
+    protected DescriptorCache createDescriptorCache() {
+        return new DescriptorCache();
+    }
+
     protected ExecutorService getDefaultExecutorService() {
         return defaultExecutorService;
     }
@@ -298,8 +422,68 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
         return new ClingExecutor();
     }
 
+    protected ExecutorService createStreamServerExecutorService() {
+        return new ClingExecutor("cling-server", 64, 0, Thread.NORM_PRIORITY, RejectionPolicy.ABORT);
+    }
+
+    protected ExecutorService createStreamClientExecutorService() {
+        return new ClingExecutor("cling-client", 64, 0, Thread.NORM_PRIORITY, RejectionPolicy.ABORT);
+    }
+
+    protected ExecutorService createAsyncProtocolExecutorService() {
+        return new ClingExecutor("cling-async", 8, 512, Thread.NORM_PRIORITY - 1, RejectionPolicy.DISCARD_OLDEST);
+    }
+
+    protected ExecutorService createSyncProtocolExecutorService() {
+        return new ClingExecutor("cling-sync", 16, 256, Thread.NORM_PRIORITY, RejectionPolicy.ABORT);
+    }
+
+    protected ExecutorService createRegistryListenerExecutorService() {
+        return new ClingExecutor("cling-listener", 4, 1024, Thread.NORM_PRIORITY, RejectionPolicy.CALLER_RUNS);
+    }
+
+    protected ScheduledExecutorService createScheduledExecutorService() {
+        return new ScheduledThreadPoolExecutor(1, new ClingThreadFactory("cling-scheduler-", Thread.NORM_PRIORITY));
+    }
+
+    /**
+     * What a bounded {@link ClingExecutor} does with a task it has no room for.
+     * <p>
+     * Rejected tasks are counted and logged, rejected <code>Future</code>s are cancelled so
+     * nobody waits for them. Rejections during shutdown are always discarded quietly.
+     * </p>
+     */
+    public enum RejectionPolicy {
+
+        /**
+         * Discard the oldest queued task and retry, or the rejected task if there is no queue.
+         */
+        DISCARD_OLDEST,
+
+        /**
+         * Run the task on the submitting thread, slowing the producer down.
+         */
+        CALLER_RUNS,
+
+        /**
+         * Throw a <code>RejectedExecutionException</code> to the submitter.
+         */
+        ABORT
+    }
+
     public static class ClingExecutor extends ThreadPoolExecutor {
 
+        final private static RejectedExecutionHandler POLICY_HANDLER = new RejectedExecutionHandler() {
+            public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+                ((ClingExecutor) executor).reject(runnable);
+            }
+        };
+
+        final protected String name;
+        final protected RejectionPolicy rejectionPolicy;
+        final protected AtomicLong rejectedCount = new AtomicLong();
+        final protected AtomicInteger peakQueueSize = new AtomicInteger();
+
         public ClingExecutor() {
             this(new ClingThreadFactory(),
                  new ThreadPoolExecutor.DiscardPolicy() {
@@ -324,6 +508,109 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
                   threadFactory,
                   rejectedHandler
             );
+            this.name = "cling";
+            this.rejectionPolicy = null;
+        }
+
+        /**
+         * A bounded pool, its idle threads terminate after 60 seconds.
+         *
+         * @param name The prefix of thread names, also used in log messages.
+         * @param maxThreads The maximum number of threads.
+         * @param queueCapacity The maximum number of waiting tasks, with <code>0</code> a
+         *                      task is rejected if no thread is available.
+         * @param threadPriority The priority of the threads.
+         * @param rejectionPolicy What to do with tasks the pool has no room for.
+         */
+        public ClingExecutor(String name, int maxThreads, int queueCapacity,
+                             int threadPriority, RejectionPolicy rejectionPolicy) {
+            super(queueCapacity > 0 ? maxThreads : 0,
+                  maxThreads,
+                  60L,
+                  TimeUnit.SECONDS,
+                  queueCapacity > 0
+                          ? new LinkedBlockingQueue<Runnable>(queueCapacity)
+                          : new SynchronousQueue<Runnable>(),
+                  new ClingThreadFactory(name + "-", threadPriority),
+                  POLICY_HANDLER
+            );
+            if (queueCapacity > 0)
+                allowCoreThreadTimeOut(true);
+            this.name = name;
+            this.rejectionPolicy = rejectionPolicy;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getRejectedCount() {
+            return rejectedCount.get();
+        }
+
+        /**
+         * @return The largest number of tasks that were waiting at the same time.
+         */
+        public int getPeakQueueSize() {
+            return peakQueueSize.get();
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            super.execute(command);
+            int size = getQueue().size();
+            int peak;
+            while (size > (peak = peakQueueSize.get())) {
+                if (peakQueueSize.compareAndSet(peak, size))
+                    break;
+            }
+        }
+
+        protected void reject(Runnable runnable) {
+            if (isShutdown()) {
+                log.fine("Discarding task of stopped executor " + name + ": " + runnable.getClass());
+                cancel(runnable);
+                return;
+            }
+
+            // Log the first rejection, then every time the count doubles
+            long count = rejectedCount.incrementAndGet();
+            if (Long.bitCount(count) == 1)
+                log.warning("Executor is saturated, " + rejectionPolicy + " (" + count + " rejected): " + this);
+
+            switch (rejectionPolicy) {
+                case DISCARD_OLDEST:
+                    Runnable oldest = getQueue().poll();
+                    if (oldest != null) {
+                        cancel(oldest);
+                        execute(runnable);
+                    } else {
+                        cancel(runnable);
+                    }
+                    break;
+                case CALLER_RUNS:
+                    runnable.run();
+                    break;
+                default:
+                    cancel(runnable);
+                    throw new RejectedExecutionException("Executor " + name + " is saturated: " + this);
+            }
+        }
+
+        protected void cancel(Runnable runnable) {
+            if (runnable instanceof Future)
+                ((Future) runnable).cancel(false);
+        }
+
+        @Override
+        public String toString() {
+            return name
+                + " (threads: " + getPoolSize() + "/" + getMaximumPoolSize()
+                + ", active: " + getActiveCount()
+                + ", queued: " + getQueue().size()
+                + ", peak queued: " + getPeakQueueSize()
+                + ", completed: " + getCompletedTaskCount()
+                + ", rejected: " + getRejectedCount() + ")";
         }
 
         @Override
@@ -349,11 +636,18 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
 
         protected final ThreadGroup group;
         protected final AtomicInteger threadNumber = new AtomicInteger(1);
-        protected final String namePrefix = "cling-";
+        protected final String namePrefix;
+        protected final int priority;
 
         public ClingThreadFactory() {
+            this("cling-", Thread.NORM_PRIORITY);
+        }
+
+        public ClingThreadFactory(String namePrefix, int priority) {
             SecurityManager s = System.getSecurityManager();
             group = (s != null) ? s.getThreadGroup() : Thread.currentThread().getThreadGroup();
+            this.namePrefix = namePrefix;
+            this.priority = priority;
         }
 
         public Thread newThread(Runnable r) {
@@ -364,8 +658,8 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
             );
             if (t.isDaemon())
                 t.setDaemon(false);
-            if (t.getPriority() != Thread.NORM_PRIORITY)
-                t.setPriority(Thread.NORM_PRIORITY);
+            if (t.getPriority() != priority)
+                t.setPriority(priority);
 
             return t;
         }
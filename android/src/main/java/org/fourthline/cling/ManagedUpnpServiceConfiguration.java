@@ -25,6 +25,7 @@ import org.fourthline.cling.model.message.UpnpHeaders;
 import org.fourthline.cling.model.meta.RemoteDeviceIdentity;
 import org.fourthline.cling.model.meta.RemoteService;
 import org.fourthline.cling.model.types.ServiceType;
+import org.fourthline.cling.protocol.DescriptorCache;
 import org.fourthline.cling.transport.impl.DatagramIOConfigurationImpl;
 import org.fourthline.cling.transport.impl.DatagramIOImpl;
 import org.fourthline.cling.transport.impl.GENAEventProcessorImpl;
@@ -50,6 +51,8 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.logging.Logger;
 
 /**
@@ -67,6 +70,7 @@ public class ManagedUpnpServiceConfiguration implements UpnpServiceConfiguration
     private int streamListenPort;
 
     private ExecutorService defaultExecutorService;
+    private ScheduledExecutorService scheduledExecutorService;
 
     @Inject
     protected DatagramProcessor datagramProcessor;
@@ -89,6 +93,7 @@ public class ManagedUpnpServiceConfiguration implements UpnpServiceConfiguration
         this.streamListenPort = NetworkAddressFactoryImpl.DEFAULT_TCP_HTTP_LISTEN_PORT;
 
         defaultExecutorService = createDefaultExecutorService();
+        scheduledExecutorService = createScheduledExecutorService();
 
         soapActionProcessor = createSOAPActionProcessor();
         genaEventProcessor = createGENAEventProcessor();
@@ -175,6 +180,10 @@ public class ManagedUpnpServiceConfiguration implements UpnpServiceConfiguration
         return null;
     }
 
+    public DescriptorCache getDescriptorCache() {
+        return null;
+    }
+
     public UpnpHeaders getEventSubscriptionHeaders(RemoteService service) {
         return null;
     }
@@ -217,6 +226,10 @@ public class ManagedUpnpServiceConfiguration implements UpnpServiceConfiguration
         return getDefaultExecutorService();
     }
 
+    public ScheduledExecutorService getScheduledExecutorService() {
+        return scheduledExecutorService;
+    }
+
     public NetworkAddressFactory createNetworkAddressFactory() {
         return createNetworkAddressFactory(streamListenPort);
     }
@@ -224,6 +237,7 @@ public class ManagedUpnpServiceConfiguration implements UpnpServiceConfiguration
     public void shutdown() {
         log.fine("Shutting down default executor service");
         getDefaultExecutorService().shutdownNow();
+        getScheduledExecutorService().shutdownNow();
     }
 
     protected NetworkAddressFactory createNetworkAddressFactory(int streamListenPort) {
@@ -257,4 +271,10 @@ public class ManagedUpnpServiceConfiguration implements UpnpServiceConfiguration
     protected ExecutorService createDefaultExecutorService() {
         return new DefaultUpnpServiceConfiguration.ClingExecutor();
     }
+
+    protected ScheduledExecutorService createScheduledExecutorService() {
+        return new ScheduledThreadPoolExecutor(
+            1, new DefaultUpnpServiceConfiguration.ClingThreadFactory("cling-scheduler-", Thread.NORM_PRIORITY)
+        );
+    }
 }
@@ -22,6 +22,7 @@ import org.fourthline.cling.model.message.UpnpHeaders;
 import org.fourthline.cling.model.meta.RemoteDeviceIdentity;
 import org.fourthline.cling.model.meta.RemoteService;
 import org.fourthline.cling.model.types.ServiceType;
+import org.fourthline.cling.protocol.DescriptorCache;
 import org.fourthline.cling.transport.spi.DatagramIO;
 import org.fourthline.cling.transport.spi.DatagramProcessor;
 import org.fourthline.cling.transport.spi.GENAEventProcessor;
@@ -33,6 +34,7 @@ import org.fourthline.cling.transport.spi.StreamServer;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Shared configuration data of the UPnP stack..
@@ -140,7 +142,8 @@ public interface UpnpServiceConfiguration {
     public ServiceType[] getExclusiveServiceTypes();
 
     /**
-     * @return The time in milliseconds to wait between each registry maintenance operation.
+     * @return The minimum time in milliseconds between registry maintenance operations; maintenance
+     *         runs when a registry item is due, items due within this time are maintained together.
      */
     public int getRegistryMaintenanceIntervalMillis();
     
@@ -211,6 +214,18 @@ public interface UpnpServiceConfiguration {
      */
     public UpnpHeaders getDescriptorRetrievalHeaders(RemoteDeviceIdentity identity);
 
+    /**
+     * Optional cache of remote device and service descriptors.
+     * <p>
+     * Devices which come back with the same <code>CONFIGID.UPNP.ORG</code> or
+     * <code>BOOTID.UPNP.ORG</code>, or an unmodified device descriptor, are hydrated
+     * from the cache instead of retrieving all their descriptors again.
+     * </p>
+     *
+     * @return <code>null</code> to always retrieve descriptors, or the cache.
+     */
+    public DescriptorCache getDescriptorCache();
+
     /**
      * Optional extra headers for event subscription (almost HTTP) messages.
      * <p>
@@ -248,6 +263,12 @@ public interface UpnpServiceConfiguration {
      */
     public Executor getRegistryListenerExecutor();
 
+    /**
+     * @return The executor which runs short, delayed tasks such as the repetitions of SSDP
+     *         announcements, or <code>null</code> if these should wait on the calling thread.
+     */
+    public ScheduledExecutorService getScheduledExecutorService();
+
     /**
      * Called by the {@link org.fourthline.cling.UpnpService} on shutdown, useful to e.g. shutdown thread pools.
      */
@@ -88,7 +88,7 @@ public class AndroidUpnpServiceConfiguration extends DefaultUpnpServiceConfigura
         // Use Jetty
         return new StreamClientImpl(
             new StreamClientConfigurationImpl(
-                getSyncProtocolExecutorService()
+                getStreamClientExecutorService()
             ) {
                 @Override
                 public String getUserAgentValue(int majorVersion, int minorVersion) {
@@ -137,7 +137,7 @@ public class AndroidUpnpServiceConfiguration extends DefaultUpnpServiceConfigura
 
     @Override
     public int getRegistryMaintenanceIntervalMillis() {
-        return 3000; // Preserve battery on Android, only run every 3 seconds
+        return 3000; // Preserve battery on Android, maintain items due within 3 seconds together
     }
 
 }
@@ -33,10 +33,13 @@ import org.fourthline.cling.UpnpService;
 import org.fourthline.cling.UpnpServiceConfiguration;
 import org.fourthline.cling.UpnpServiceImpl;
 import org.fourthline.cling.controlpoint.ControlPoint;
+import org.fourthline.cling.protocol.DescriptorCache;
 import org.fourthline.cling.protocol.ProtocolFactory;
 import org.fourthline.cling.registry.Registry;
 import org.fourthline.cling.transport.Router;
 
+import java.io.File;
+
 /**
  * Provides a UPnP stack with Android configuration as an application service component.
  * <p>
@@ -109,7 +112,13 @@ public class AndroidUpnpServiceImpl extends Service {
     }
 
     protected UpnpServiceConfiguration createConfiguration() {
-        return new AndroidUpnpServiceConfiguration();
+        return new AndroidUpnpServiceConfiguration() {
+            @Override
+            protected DescriptorCache createDescriptorCache() {
+                // Keep remote descriptors across restarts of the service
+                return new DescriptorCache(new File(getCacheDir(), "cling-descriptors"), 64);
+            }
+        };
     }
 
     protected AndroidRouter createRouter(UpnpServiceConfiguration configuration,
@@ -0,0 +1,408 @@
+/*
+ * Copyright (C) 2013 4th Line GmbH, Switzerland
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * Lesser General Public License Version 2 or later ("LGPL") or the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.fourthline.cling.controlpoint;
+
+import org.fourthline.cling.model.action.ActionCancelledException;
+import org.fourthline.cling.model.action.ActionException;
+import org.fourthline.cling.model.action.ActionInvocation;
+import org.fourthline.cling.model.message.UpnpResponse;
+import org.fourthline.cling.model.types.ErrorCode;
+import org.fourthline.cling.protocol.sync.SendingAction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The pending result of an action executed with {@link ControlPoint#execute(ActionInvocation, long)}.
+ * <p>
+ * No thread waits for the response of the remote service. Listeners are called on the thread
+ * that completes the action, usually a thread of the HTTP client, and shouldn't block. Further
+ * actions can be chained with {@link #then(Step)}, they are executed when the previous action
+ * succeeded:
+ * </p>
+ * <pre>{@code
+ * controlPoint.execute(new SetAVTransportURI(service, uri), 5000)
+ *     .then(new Play(service), 5000)
+ *     .then(new Seek(service, "00:01:30"), 5000)
+ *     .addListener(listener);
+ * }</pre>
+ * <p>
+ * Cancelling a future, or reaching its deadline, aborts the HTTP request of the action in
+ * progress and completes the future with a failed {@link ActionInvocation}.
+ * </p>
+ */
+public class ActionFuture implements Future<ActionInvocation> {
+
+    final private static Logger log = Logger.getLogger(ActionFuture.class.getName());
+
+    /**
+     * Notified once, when the future completes.
+     */
+    public interface Listener {
+
+        public void completed(ActionFuture future);
+    }
+
+    /**
+     * Executes the next action of a sequence.
+     */
+    public interface Step {
+
+        /**
+         * @param controlPoint The control point which executed the previous action.
+         * @param previous The successful invocation of the previous action.
+         * @return The next action, or <code>null</code> to complete the sequence with the previous action.
+         */
+        public ActionFuture execute(ControlPoint controlPoint, ActionInvocation previous);
+    }
+
+    final protected ControlPoint controlPoint;
+
+    private ActionInvocation actionInvocation;
+    private UpnpResponse response;
+    private boolean done;
+    private boolean terminated; // Cancelled or expired
+    private boolean cancelled;
+    private List<Listener> listeners = new ArrayList<Listener>(2);
+
+    // Aborted when the future is cancelled or expires
+    private SendingAction sendingAction;
+    private ActionFuture current;
+    private Future<?> deadline;
+
+    /**
+     * @param actionInvocation The action, or <code>null</code> if this future completes a sequence.
+     */
+    public ActionFuture(ControlPoint controlPoint, ActionInvocation actionInvocation) {
+        this.controlPoint = controlPoint;
+        this.actionInvocation = actionInvocation;
+    }
+
+    public ControlPoint getControlPoint() {
+        return controlPoint;
+    }
+
+    /**
+     * @return The executed action; for a sequence, the action which completed it.
+     */
+    synchronized public ActionInvocation getActionInvocation() {
+        return actionInvocation;
+    }
+
+    /**
+     * @return The response of the remote service, <code>null</code> if none has been received.
+     */
+    synchronized public UpnpResponse getResponse() {
+        return response;
+    }
+
+    synchronized public boolean isDone() {
+        return done;
+    }
+
+    synchronized public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return <code>true</code> if the action has been completed without failure.
+     */
+    synchronized public boolean isSuccessful() {
+        return done && !cancelled && actionInvocation != null && actionInvocation.getFailure() == null;
+    }
+
+    /**
+     * @return The invocation with the output values of a successful action.
+     * @throws ExecutionException with the {@link ActionException} of a failed action.
+     */
+    synchronized public ActionInvocation get() throws InterruptedException, ExecutionException {
+        while (!done)
+            wait();
+        return result();
+    }
+
+    synchronized public ActionInvocation get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long waitUntil = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (!done) {
+            long remaining = waitUntil - System.currentTimeMillis();
+            if (remaining <= 0)
+                throw new TimeoutException("Action hasn't been completed: " + actionInvocation);
+            wait(remaining);
+        }
+        return result();
+    }
+
+    /**
+     * Adds a listener, or calls it on the current thread if the future is already done.
+     *
+     * @return This future.
+     */
+    public ActionFuture addListener(Listener listener) {
+        synchronized (this) {
+            if (!done) {
+                listeners.add(listener);
+                return this;
+            }
+        }
+        notifyListener(listener);
+        return this;
+    }
+
+    /**
+     * Executes the action of the callback when this action succeeded.
+     *
+     * @see ControlPoint#execute(ActionCallback, long)
+     */
+    public ActionFuture then(final ActionCallback callback, final long timeoutMillis) {
+        return then(new Step() {
+            public ActionFuture execute(ControlPoint controlPoint, ActionInvocation previous) {
+                return controlPoint.execute(callback, timeoutMillis);
+            }
+        });
+    }
+
+    /**
+     * Executes the action when this action succeeded.
+     *
+     * @see ControlPoint#execute(ActionInvocation, long)
+     */
+    public ActionFuture then(final ActionInvocation actionInvocation, final long timeoutMillis) {
+        return then(new Step() {
+            public ActionFuture execute(ControlPoint controlPoint, ActionInvocation previous) {
+                return controlPoint.execute(actionInvocation, timeoutMillis);
+            }
+        });
+    }
+
+    /**
+     * Executes the next step of a sequence when this action succeeded.
+     *
+     * @return A future which completes with the next action. Cancelling it cancels the action
+     *         in progress. If an action fails, it completes with that action.
+     */
+    public ActionFuture then(final Step step) {
+        final ActionFuture next = new ActionFuture(controlPoint, null);
+        next.setCurrent(this);
+        addListener(new Listener() {
+            public void completed(ActionFuture previous) {
+                if (!previous.isSuccessful()) {
+                    next.completed(previous);
+                    return;
+                }
+                ActionFuture following;
+                try {
+                    following = step.execute(controlPoint, previous.getActionInvocation());
+                } catch (RuntimeException ex) {
+                    log.log(Level.WARNING, "Executing next action failed: " + ex, ex);
+                    ActionInvocation failed = previous.getActionInvocation();
+                    failed.setFailure(new ActionException(ErrorCode.ACTION_FAILED, "Executing next action failed: " + ex));
+                    next.completed(previous);
+                    return;
+                }
+                if (following == null) {
+                    next.completed(previous);
+                    return;
+                }
+                next.setCurrent(following);
+                following.addListener(new Listener() {
+                    public void completed(ActionFuture following) {
+                        next.completed(following);
+                    }
+                });
+            }
+        });
+        return next;
+    }
+
+    /**
+     * Aborts the action in progress, and completes the future with an
+     * {@link ActionCancelledException}.
+     */
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return terminate(
+            true,
+            new ActionCancelledException(new InterruptedException("Action has been cancelled"))
+        );
+    }
+
+    /**
+     * Called when the deadline of the action has been reached, aborts the action in progress.
+     */
+    public boolean expire(long timeoutMillis) {
+        log.fine("Deadline of " + timeoutMillis + "ms reached, aborting: " + actionInvocation);
+        return terminate(
+            false,
+            new ActionException(ErrorCode.ACTION_FAILED, "No response received within " + timeoutMillis + "ms")
+        );
+    }
+
+    /**
+     * Called by the {@link ControlPoint} when the action has been executed.
+     *
+     * @param response The response of the remote service, or <code>null</code>.
+     * @return <code>false</code> if this future has already been completed.
+     */
+    public boolean completed(UpnpResponse response) {
+        synchronized (this) {
+            if (done || terminated)
+                return false;
+            this.response = response;
+            if (response != null && response.isFailed() && actionInvocation.getFailure() == null) {
+                actionInvocation.setFailure(
+                    new ActionException(ErrorCode.ACTION_FAILED, "Remote execution failure: " + response.getResponseDetails())
+                );
+            }
+        }
+        complete();
+        return true;
+    }
+
+    /**
+     * Called by the {@link ControlPoint} with the protocol sending the action.
+     */
+    public void setSendingAction(SendingAction sendingAction) {
+        synchronized (this) {
+            if (!done) {
+                this.sendingAction = sendingAction;
+                return;
+            }
+        }
+        // Cancelled or expired before the request could be sent
+        if (isTerminated())
+            sendingAction.abort();
+    }
+
+    /**
+     * Called by the {@link ControlPoint} with the scheduled {@link #expire(long)} call.
+     */
+    public void setDeadline(Future<?> deadline) {
+        synchronized (this) {
+            if (!done) {
+                this.deadline = deadline;
+                return;
+            }
+        }
+        deadline.cancel(false);
+    }
+
+    synchronized protected boolean isTerminated() {
+        return terminated;
+    }
+
+    protected void setCurrent(ActionFuture current) {
+        synchronized (this) {
+            if (!done && !terminated) {
+                this.current = current;
+                return;
+            }
+        }
+        if (isTerminated())
+            current.cancel(false);
+    }
+
+    protected void completed(ActionFuture last) {
+        synchronized (this) {
+            if (done || terminated)
+                return;
+            actionInvocation = last.getActionInvocation();
+            response = last.getResponse();
+            cancelled = last.isCancelled();
+        }
+        complete();
+    }
+
+    protected boolean terminate(boolean cancel, ActionException failure) {
+        SendingAction sendingAction;
+        ActionFuture current;
+        synchronized (this) {
+            if (done || terminated)
+                return false;
+            // Completions of the aborted action are ignored from now on
+            terminated = true;
+            cancelled = cancel;
+            if (actionInvocation != null)
+                actionInvocation.setFailure(failure);
+            sendingAction = this.sendingAction;
+            current = this.current;
+        }
+        if (sendingAction != null)
+            sendingAction.abort();
+        if (current != null) {
+            if (cancel) {
+                current.cancel(false);
+            } else {
+                current.terminate(false, failure);
+            }
+            synchronized (this) {
+                if (actionInvocation == null)
+                    actionInvocation = current.getActionInvocation();
+            }
+        }
+        complete();
+        return true;
+    }
+
+    protected void complete() {
+        List<Listener> completedListeners;
+        Future<?> deadline;
+        synchronized (this) {
+            done = true;
+            completedListeners = listeners;
+            listeners = null;
+            deadline = this.deadline;
+            this.deadline = null;
+            sendingAction = null;
+            current = null;
+            notifyAll();
+        }
+        if (deadline != null)
+            deadline.cancel(false);
+        if (completedListeners == null)
+            return;
+        for (Listener listener : completedListeners) {
+            notifyListener(listener);
+        }
+    }
+
+    protected void notifyListener(Listener listener) {
+        try {
+            listener.completed(this);
+        } catch (Exception ex) {
+            log.log(Level.WARNING, "Action listener failed: " + ex, ex);
+        }
+    }
+
+    protected ActionInvocation result() throws ExecutionException {
+        if (cancelled)
+            throw new CancellationException("Action has been cancelled: " + actionInvocation);
+        if (actionInvocation.getFailure() != null)
+            throw new ExecutionException(actionInvocation.getFailure());
+        return actionInvocation;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") " + getActionInvocation();
+    }
+}
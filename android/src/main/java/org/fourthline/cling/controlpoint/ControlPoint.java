@@ -15,6 +15,7 @@
 
 package org.fourthline.cling.controlpoint;
 
+import org.fourthline.cling.model.action.ActionInvocation;
 import org.fourthline.cling.model.message.header.UpnpHeader;
 import org.fourthline.cling.protocol.ProtocolFactory;
 import org.fourthline.cling.UpnpServiceConfiguration;
@@ -40,4 +41,19 @@ public interface ControlPoint {
     public Future execute(ActionCallback callback);
     public void execute(SubscriptionCallback callback);
 
+    /**
+     * Executes the action without occupying a thread while waiting for the response.
+     *
+     * @param timeoutMillis The deadline of the action, <code>0</code> to only expire with the HTTP request.
+     */
+    public ActionFuture execute(ActionInvocation actionInvocation, long timeoutMillis);
+
+    /**
+     * Executes the action of the callback without occupying a thread while waiting for the response,
+     * the callback is notified on the thread which completes the action.
+     *
+     * @param timeoutMillis The deadline of the action, <code>0</code> to only expire with the HTTP request.
+     */
+    public ActionFuture execute(ActionCallback callback, long timeoutMillis);
+
 }
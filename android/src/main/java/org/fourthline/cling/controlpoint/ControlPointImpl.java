@@ -18,17 +18,31 @@ package org.fourthline.cling.controlpoint;
 import org.fourthline.cling.UpnpServiceConfiguration;
 import org.fourthline.cling.controlpoint.event.ExecuteAction;
 import org.fourthline.cling.controlpoint.event.Search;
+import org.fourthline.cling.model.action.ActionException;
+import org.fourthline.cling.model.action.ActionInvocation;
+import org.fourthline.cling.model.message.UpnpResponse;
+import org.fourthline.cling.model.message.control.IncomingActionResponseMessage;
 import org.fourthline.cling.model.message.header.MXHeader;
 import org.fourthline.cling.model.message.header.STAllHeader;
 import org.fourthline.cling.model.message.header.UpnpHeader;
+import org.fourthline.cling.model.meta.LocalService;
+import org.fourthline.cling.model.meta.RemoteService;
+import org.fourthline.cling.model.meta.Service;
+import org.fourthline.cling.model.types.ErrorCode;
 import org.fourthline.cling.protocol.ProtocolFactory;
+import org.fourthline.cling.protocol.sync.SendingAction;
 import org.fourthline.cling.registry.Registry;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import java.net.URL;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
@@ -36,6 +50,10 @@ import java.util.logging.Logger;
  * <p>
  * This implementation uses the executor returned by
  * {@link org.fourthline.cling.UpnpServiceConfiguration#getSyncProtocolExecutorService()}.
+ * Actions executed with {@link #execute(ActionInvocation, long)} are sent with
+ * {@link org.fourthline.cling.protocol.sync.SendingAction#executeAsync(Runnable)} instead,
+ * their deadlines are scheduled on
+ * {@link org.fourthline.cling.UpnpServiceConfiguration#getScheduledExecutorService()}.
  * </p>
  *
  * @author Christian Bauer
@@ -104,12 +122,93 @@ public class ControlPointImpl implements ControlPoint {
         log.fine("Invoking action in background: " + callback);
         callback.setControlPoint(this);
         ExecutorService executor = getConfiguration().getSyncProtocolExecutorService();
-        return executor.submit(callback);
+        FutureTask task = new FutureTask(callback, null);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            // Callers may be on the UI thread, never run the request here
+            task.cancel(false);
+            ActionInvocation actionInvocation = callback.getActionInvocation();
+            actionInvocation.setFailure(new ActionException(ErrorCode.ACTION_FAILED, ex.getMessage()));
+            callback.failure(actionInvocation, null);
+        }
+        return task;
+    }
+
+    public ActionFuture execute(final ActionCallback callback, long timeoutMillis) {
+        callback.setControlPoint(this);
+        final ActionInvocation actionInvocation = callback.getActionInvocation();
+        return execute(actionInvocation, timeoutMillis).addListener(
+            new ActionFuture.Listener() {
+                public void completed(ActionFuture future) {
+                    if (future.isSuccessful()) {
+                        callback.success(actionInvocation);
+                    } else {
+                        callback.failure(actionInvocation, future.getResponse());
+                    }
+                }
+            }
+        );
+    }
+
+    public ActionFuture execute(final ActionInvocation actionInvocation, final long timeoutMillis) {
+        log.fine("Invoking action without waiting: " + actionInvocation);
+        final ActionFuture future = new ActionFuture(this, actionInvocation);
+
+        ScheduledExecutorService scheduler = getConfiguration().getScheduledExecutorService();
+        if (timeoutMillis > 0 && scheduler != null) {
+            future.setDeadline(
+                scheduler.schedule(new Runnable() {
+                    public void run() {
+                        future.expire(timeoutMillis);
+                    }
+                }, timeoutMillis, TimeUnit.MILLISECONDS)
+            );
+        }
+
+        Service service = actionInvocation.getAction().getService();
+
+        if (service instanceof LocalService) {
+            final LocalService localService = (LocalService)service;
+            try {
+                getConfiguration().getSyncProtocolExecutorService().execute(new Runnable() {
+                    public void run() {
+                        try {
+                            localService.getExecutor(actionInvocation.getAction()).execute(actionInvocation);
+                        } catch (RuntimeException ex) {
+                            actionInvocation.setFailure(new ActionException(ErrorCode.ACTION_FAILED, ex.toString()));
+                        }
+                        future.completed((UpnpResponse)null);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                actionInvocation.setFailure(new ActionException(ErrorCode.ACTION_FAILED, ex.getMessage()));
+                future.completed((UpnpResponse)null);
+            }
+
+        } else if (service instanceof RemoteService) {
+            RemoteService remoteService = (RemoteService)service;
+            URL controlURL = remoteService.getDevice().normalizeURI(remoteService.getControlURI());
+
+            final SendingAction prot = getProtocolFactory().createSendingAction(actionInvocation, controlURL);
+            future.setSendingAction(prot);
+            prot.executeAsync(new Runnable() {
+                public void run() {
+                    IncomingActionResponseMessage response = prot.getOutputMessage();
+                    future.completed(response != null ? response.getOperation() : null);
+                }
+            });
+        }
+        return future;
     }
 
     public void execute(SubscriptionCallback callback) {
         log.fine("Invoking subscription in background: " + callback);
         callback.setControlPoint(this);
-        getConfiguration().getSyncProtocolExecutorService().execute(callback);
+        try {
+            getConfiguration().getSyncProtocolExecutorService().execute(callback);
+        } catch (RejectedExecutionException ex) {
+            callback.failed(null, null, ex);
+        }
     }
 }
@@ -30,6 +30,7 @@ import org.fourthline.cling.protocol.sync.SendingSubscribe;
 import org.seamless.util.Exceptions;
 
 import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -264,9 +265,14 @@ public abstract class SubscriptionCallback implements Runnable {
 
     private void endRemoteSubscription(RemoteGENASubscription subscription) {
         log.fine("Ending remote subscription: " + subscription);
-        getControlPoint().getConfiguration().getSyncProtocolExecutorService().execute(
-                getControlPoint().getProtocolFactory().createSendingUnsubscribe(subscription)
-        );
+        try {
+            getControlPoint().getConfiguration().getSyncProtocolExecutorService().execute(
+                    getControlPoint().getProtocolFactory().createSendingUnsubscribe(subscription)
+            );
+        } catch (RejectedExecutionException ex) {
+            // The device drops the subscription when it isn't renewed
+            log.warning("Not sending UNSUBSCRIBE, executor is saturated: " + subscription);
+        }
     }
 
     protected void failed(GENASubscription subscription, UpnpResponse responseStatus, Exception exception) {
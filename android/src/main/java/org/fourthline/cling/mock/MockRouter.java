@@ -26,9 +26,11 @@ import org.fourthline.cling.transport.RouterException;
 import org.fourthline.cling.transport.impl.NetworkAddressFactoryImpl;
 import org.fourthline.cling.transport.spi.InitializationException;
 import org.fourthline.cling.transport.spi.NetworkAddressFactory;
+import org.fourthline.cling.transport.spi.StreamClient;
 import org.fourthline.cling.transport.spi.UpnpStream;
 
 import javax.enterprise.inject.Alternative;
+import java.net.DatagramPacket;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
@@ -55,6 +57,7 @@ public class MockRouter implements Router {
     public List<UpnpStream> receivedUpnpStreams = new ArrayList();
     public List<StreamRequestMessage> sentStreamRequestMessages = new ArrayList();
     public List<byte[]> broadcastedBytes = new ArrayList();
+    public List<DatagramPacket> sentDatagrams = new ArrayList();
 
     protected UpnpServiceConfiguration configuration;
     protected ProtocolFactory protocolFactory;
@@ -126,6 +129,10 @@ public class MockRouter implements Router {
         outgoingDatagramMessages.add(msg);
     }
 
+    public void send(DatagramPacket datagram) throws RouterException {
+        sentDatagrams.add(datagram);
+    }
+
     public StreamResponseMessage send(StreamRequestMessage msg) throws RouterException {
         sentStreamRequestMessages.add(msg);
         counter++;
@@ -134,6 +141,11 @@ public class MockRouter implements Router {
             : getStreamResponseMessage(msg);
     }
 
+    public StreamClient.PendingRequest send(StreamRequestMessage msg, StreamClient.ResponseListener listener) throws RouterException {
+        listener.received(send(msg));
+        return null;
+    }
+
     public void broadcast(byte[] bytes) {
         broadcastedBytes.add(bytes);
     }
@@ -162,6 +174,10 @@ public class MockRouter implements Router {
         return broadcastedBytes;
     }
 
+    public List<DatagramPacket> getSentDatagrams() {
+        return sentDatagrams;
+    }
+
     public StreamResponseMessage[] getStreamResponseMessages() {
         return null;
     }
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -95,6 +96,37 @@ public class MockUpnpServiceConfiguration extends DefaultUpnpServiceConfiguratio
         return getDefaultExecutorService();
     }
 
+    @Override
+    public ExecutorService getStreamServerExecutorService() {
+        return isMultiThreaded() ? super.getStreamServerExecutorService() : getDefaultExecutorService();
+    }
+
+    @Override
+    public ExecutorService getStreamClientExecutorService() {
+        return isMultiThreaded() ? super.getStreamClientExecutorService() : getDefaultExecutorService();
+    }
+
+    @Override
+    public Executor getAsyncProtocolExecutor() {
+        return isMultiThreaded() ? super.getAsyncProtocolExecutor() : getDefaultExecutorService();
+    }
+
+    @Override
+    public ExecutorService getSyncProtocolExecutorService() {
+        return isMultiThreaded() ? super.getSyncProtocolExecutorService() : getDefaultExecutorService();
+    }
+
+    @Override
+    public Executor getRegistryListenerExecutor() {
+        return isMultiThreaded() ? super.getRegistryListenerExecutor() : getDefaultExecutorService();
+    }
+
+    @Override
+    public ScheduledExecutorService getScheduledExecutorService() {
+        // Without threads, delayed tasks wait on the calling thread
+        return isMultiThreaded() ? super.getScheduledExecutorService() : null;
+    }
+
     @Override
     protected ExecutorService getDefaultExecutorService() {
         if (isMultiThreaded()) {
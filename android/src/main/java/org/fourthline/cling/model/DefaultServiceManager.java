@@ -45,6 +45,10 @@ import org.seamless.util.Reflections;
  * bean is slow and requires more time for typical action executions or state
  * variable reading.
  * </p>
+ * <p>
+ * Override {@link #isLockRequired(Command)} to run commands that only read thread-safe
+ * state without the lock, they then neither wait for nor delay other operations.
+ * </p>
  *
  * @author Christian Bauer
  */
@@ -56,9 +60,9 @@ public class DefaultServiceManager<T> implements ServiceManager<T> {
     final protected Class<T> serviceClass;
     final protected ReentrantLock lock = new ReentrantLock(true);
 
-    // Locking!
-    protected T serviceImpl;
-    protected PropertyChangeSupport propertyChangeSupport;
+    // Locking! Written while locked, read without the lock once initialized
+    protected volatile T serviceImpl;
+    protected volatile PropertyChangeSupport propertyChangeSupport;
 
     protected DefaultServiceManager(LocalService<T> service) {
         this(service, null);
@@ -99,6 +103,9 @@ public class DefaultServiceManager<T> implements ServiceManager<T> {
     }
 
     public T getImplementation() {
+        T impl = serviceImpl;
+        if (impl != null)
+            return impl;
         lock();
         try {
             if (serviceImpl == null) {
@@ -111,6 +118,9 @@ public class DefaultServiceManager<T> implements ServiceManager<T> {
     }
 
     public PropertyChangeSupport getPropertyChangeSupport() {
+        PropertyChangeSupport pcs = propertyChangeSupport;
+        if (pcs != null)
+            return pcs;
         lock();
         try {
             if (propertyChangeSupport == null) {
@@ -123,6 +133,10 @@ public class DefaultServiceManager<T> implements ServiceManager<T> {
     }
 
     public void execute(Command<T> cmd) throws Exception {
+        if (!isLockRequired(cmd)) {
+            cmd.execute(this);
+            return;
+        }
         lock();
         try {
             cmd.execute(this);
@@ -131,6 +145,13 @@ public class DefaultServiceManager<T> implements ServiceManager<T> {
         }
     }
 
+    /**
+     * @return <code>true</code>, override and return <code>false</code> for commands that are safe to run concurrently.
+     */
+    protected boolean isLockRequired(Command<T> cmd) {
+        return true;
+    }
+
     @Override
     public Collection<StateVariableValue> getCurrentState() throws Exception {
         lock();
@@ -188,8 +209,9 @@ public class DefaultServiceManager<T> implements ServiceManager<T> {
             serviceImpl = createServiceInstance();
 
             // How the implementation instance will tell us about property changes
-            propertyChangeSupport = createPropertyChangeSupport(serviceImpl);
-            propertyChangeSupport.addPropertyChangeListener(createPropertyChangeListener(serviceImpl));
+            PropertyChangeSupport pcs = createPropertyChangeSupport(serviceImpl);
+            pcs.addPropertyChangeListener(createPropertyChangeListener(serviceImpl));
+            propertyChangeSupport = pcs;
 
         } catch (Exception ex) {
             throw new RuntimeException("Could not initialize implementation: " + ex, ex);
@@ -64,6 +64,17 @@ public class ExpirationDetails {
                 (lastRefreshTimestampSeconds + (maxAgeSeconds/(halfTime ? 2 : 1))) < getCurrentTimestampSeconds();
     }
 
+    /**
+     * @param halfTime If <code>true</code> then half maximum age is used to determine expiration.
+     * @return The time in milliseconds when {@link #hasExpired(boolean)} returns <code>true</code>,
+     *         <code>Long.MAX_VALUE</code> if the maximum age is unlimited.
+     */
+    public long getExpirationTimestampMillis(boolean halfTime) {
+        return maxAgeSeconds == UNLIMITED_AGE
+                ? Long.MAX_VALUE
+                : (lastRefreshTimestampSeconds + (maxAgeSeconds/(halfTime ? 2 : 1)) + 1) * 1000;
+    }
+
     public long getSecondsUntilExpiration() {
         // Note: Uses direct field access for performance reasons on Android
         return maxAgeSeconds == UNLIMITED_AGE
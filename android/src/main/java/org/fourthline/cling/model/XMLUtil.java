@@ -144,12 +144,37 @@ public class XMLUtil {
     }
 
     public static String encodeText(String s) {
-        s = s.replaceAll("&", "&amp;");
-        s = s.replaceAll("<", "&lt;");
-        s = s.replaceAll(">", "&gt;");
-        s = s.replaceAll("'", "&apos;");
-        s = s.replaceAll("\"", "&quot;");
-        return s;
+        return appendEncodedText(new StringBuilder(s.length() + 16), s).toString();
+    }
+
+    /**
+     * Appends the text with the same escaping as {@link #encodeText(String)}, without
+     * creating intermediate strings.
+     */
+    public static StringBuilder appendEncodedText(StringBuilder b, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '&':
+                    b.append("&amp;");
+                    break;
+                case '<':
+                    b.append("&lt;");
+                    break;
+                case '>':
+                    b.append("&gt;");
+                    break;
+                case '\'':
+                    b.append("&apos;");
+                    break;
+                case '"':
+                    b.append("&quot;");
+                    break;
+                default:
+                    b.append(c);
+            }
+        }
+        return b;
     }
 
     public static Element appendNewElement(Document document, Element parent, Enum el) {
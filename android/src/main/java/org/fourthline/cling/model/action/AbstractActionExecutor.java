@@ -68,19 +68,7 @@ public abstract class AbstractActionExecutor implements ActionExecutor {
                 throw new IllegalStateException("Service has no implementation factory, can't get service instance");
             }
 
-            service.getManager().execute(new Command() {
-                public void execute(ServiceManager serviceManager) throws Exception {
-                    AbstractActionExecutor.this.execute(
-                            actionInvocation,
-                            serviceManager.getImplementation()
-                    );
-                }
-
-                @Override
-                public String toString() {
-                    return "Action invocation: " + actionInvocation.getAction();
-                }
-            });
+            service.getManager().execute(new InvocationCommand(actionInvocation));
 
         } catch (ActionException ex) {
             if (log.isLoggable(Level.FINE)) {
@@ -175,4 +163,33 @@ public abstract class AbstractActionExecutor implements ActionExecutor {
 
     }
 
+    /**
+     * Invokes an action on the service implementation, the {@link org.fourthline.cling.model.ServiceManager}
+     * can inspect the invocation to decide how to run it.
+     */
+    public class InvocationCommand implements Command {
+
+        final protected ActionInvocation<LocalService> actionInvocation;
+
+        public InvocationCommand(ActionInvocation<LocalService> actionInvocation) {
+            this.actionInvocation = actionInvocation;
+        }
+
+        public ActionInvocation<LocalService> getActionInvocation() {
+            return actionInvocation;
+        }
+
+        public void execute(ServiceManager serviceManager) throws Exception {
+            AbstractActionExecutor.this.execute(
+                    actionInvocation,
+                    serviceManager.getImplementation()
+            );
+        }
+
+        @Override
+        public String toString() {
+            return "Action invocation: " + actionInvocation.getAction();
+        }
+    }
+
 }
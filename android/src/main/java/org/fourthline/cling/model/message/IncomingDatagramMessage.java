@@ -66,4 +66,29 @@ public class IncomingDatagramMessage<O extends UpnpOperation> extends UpnpMessag
         return localAddress;
     }
 
+    /**
+     * @return The <code>BOOTID.UPNP.ORG</code> header of a UDA 1.1 discovery message, or <code>null</code>.
+     */
+    public Integer getBootId() {
+        return getNumberHeader("BOOTID.UPNP.ORG");
+    }
+
+    /**
+     * @return The <code>CONFIGID.UPNP.ORG</code> header of a UDA 1.1 discovery message, or <code>null</code>.
+     */
+    public Integer getConfigId() {
+        return getNumberHeader("CONFIGID.UPNP.ORG");
+    }
+
+    protected Integer getNumberHeader(String name) {
+        String value = getHeaders().getFirstHeader(name);
+        if (value == null)
+            return null;
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
 }
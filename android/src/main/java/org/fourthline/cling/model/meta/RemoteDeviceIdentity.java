@@ -37,6 +37,10 @@ import java.net.URL;
  * reachable and might be sleeping. (Useful for "stateless" reconnecting control
  * points.)
  * </p>
+ * <p>
+ * Also optional are the <code>BOOTID.UPNP.ORG</code> and <code>CONFIGID.UPNP.ORG</code>
+ * values of UDA 1.1 devices, they tell if cached descriptors are still valid.
+ * </p>
  *
  * @author Christian Bauer
  */
@@ -45,16 +49,26 @@ public class RemoteDeviceIdentity extends DeviceIdentity {
     final private URL descriptorURL;
     final private byte[] interfaceMacAddress;
     final private InetAddress discoveredOnLocalAddress;
+    final private Integer bootId;
+    final private Integer configId;
 
     public RemoteDeviceIdentity(UDN udn, RemoteDeviceIdentity template) {
-        this(udn, template.getMaxAgeSeconds(), template.getDescriptorURL(), template.getInterfaceMacAddress(), template.getDiscoveredOnLocalAddress());
+        this(udn, template.getMaxAgeSeconds(), template.getDescriptorURL(), template.getInterfaceMacAddress(),
+             template.getDiscoveredOnLocalAddress(), template.getBootId(), template.getConfigId());
     }
 
     public RemoteDeviceIdentity(UDN udn, Integer maxAgeSeconds, URL descriptorURL, byte[] interfaceMacAddress, InetAddress discoveredOnLocalAddress) {
+        this(udn, maxAgeSeconds, descriptorURL, interfaceMacAddress, discoveredOnLocalAddress, null, null);
+    }
+
+    public RemoteDeviceIdentity(UDN udn, Integer maxAgeSeconds, URL descriptorURL, byte[] interfaceMacAddress,
+                                InetAddress discoveredOnLocalAddress, Integer bootId, Integer configId) {
         super(udn, maxAgeSeconds);
         this.descriptorURL = descriptorURL;
         this.interfaceMacAddress = interfaceMacAddress;
         this.discoveredOnLocalAddress = discoveredOnLocalAddress;
+        this.bootId = bootId;
+        this.configId = configId;
     }
 
     public RemoteDeviceIdentity(IncomingNotificationRequest notificationRequest) {
@@ -62,7 +76,9 @@ public class RemoteDeviceIdentity extends DeviceIdentity {
              notificationRequest.getMaxAge(),
              notificationRequest.getLocationURL(),
              notificationRequest.getInterfaceMacHeader(),
-             notificationRequest.getLocalAddress()
+             notificationRequest.getLocalAddress(),
+             notificationRequest.getBootId(),
+             notificationRequest.getConfigId()
         );
     }
 
@@ -71,7 +87,9 @@ public class RemoteDeviceIdentity extends DeviceIdentity {
              searchResponse.getMaxAge(),
              searchResponse.getLocationURL(),
              searchResponse.getInterfaceMacHeader(),
-             searchResponse.getLocalAddress()
+             searchResponse.getLocalAddress(),
+             searchResponse.getBootId(),
+             searchResponse.getConfigId()
         );
     }
 
@@ -87,6 +105,20 @@ public class RemoteDeviceIdentity extends DeviceIdentity {
         return discoveredOnLocalAddress;
     }
 
+    /**
+     * @return The <code>BOOTID.UPNP.ORG</code> of the discovery message, or <code>null</code>.
+     */
+    public Integer getBootId() {
+        return bootId;
+    }
+
+    /**
+     * @return The <code>CONFIGID.UPNP.ORG</code> of the discovery message, or <code>null</code>.
+     */
+    public Integer getConfigId() {
+        return configId;
+    }
+
     public byte[] getWakeOnLANBytes() {
         if (getInterfaceMacAddress() == null) return null;
         byte[] bytes = new byte[6 + 16 * getInterfaceMacAddress().length];
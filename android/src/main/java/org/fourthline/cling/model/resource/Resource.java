@@ -67,7 +67,7 @@ public class Resource<M> {
     }
 
     /**
-     * Called periodically by the registry to maintain the resource.
+     * Called by the registry to maintain the resource, whenever any registry item is due.
      * <p>
      * NOOP by default.
      * </p>
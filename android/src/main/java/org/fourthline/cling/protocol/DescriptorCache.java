@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2013 4th Line GmbH, Switzerland
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * Lesser General Public License Version 2 or later ("LGPL") or the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.fourthline.cling.protocol;
+
+import org.fourthline.cling.model.meta.RemoteDeviceIdentity;
+import org.fourthline.cling.model.types.UDN;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Remembers the device and service descriptors of remote devices, by UDN.
+ * <p>
+ * {@link RetrieveRemoteDescriptors} uses a cached entry without any HTTP request if the
+ * device announces the same <code>CONFIGID.UPNP.ORG</code> (or, without a configuration
+ * number, the same <code>BOOTID.UPNP.ORG</code>) at the same descriptor URL. Otherwise it
+ * sends a conditional GET with the cached <code>Last-Modified</code> date and keeps the
+ * cached service descriptors if the device descriptor wasn't modified.
+ * </p>
+ * <p>
+ * The most recently used entries are held in memory. If a directory is given, every entry
+ * is also stored in a file, so known devices are hydrated quickly after a restart.
+ * </p>
+ */
+public class DescriptorCache {
+
+    final private static Logger log = Logger.getLogger(DescriptorCache.class.getName());
+
+    final protected File directory;
+    final protected Map<UDN, Entry> entries;
+
+    /**
+     * Keeps up to 64 entries in memory only.
+     */
+    public DescriptorCache() {
+        this(null, 64);
+    }
+
+    /**
+     * @param directory The directory for entry files, or <code>null</code> for memory only.
+     * @param maxEntriesInMemory The number of most recently used entries held in memory.
+     */
+    public DescriptorCache(File directory, final int maxEntriesInMemory) {
+        this.directory = directory;
+        this.entries = new LinkedHashMap<UDN, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UDN, Entry> eldest) {
+                return size() > maxEntriesInMemory;
+            }
+        };
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            log.warning("Can't create descriptor cache directory, caching in memory only: " + directory);
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return The cached descriptors of the device, or <code>null</code>.
+     */
+    public Entry get(UDN udn) {
+        synchronized (entries) {
+            Entry entry = entries.get(udn);
+            if (entry != null)
+                return entry;
+        }
+        Entry entry = read(udn);
+        if (entry != null) {
+            synchronized (entries) {
+                entries.put(udn, entry);
+            }
+        }
+        return entry;
+    }
+
+    public void put(UDN udn, Entry entry) {
+        synchronized (entries) {
+            entries.put(udn, entry);
+        }
+        write(udn, entry);
+    }
+
+    public void remove(UDN udn) {
+        synchronized (entries) {
+            entries.remove(udn);
+        }
+        File file = getFile(udn);
+        if (file != null && file.exists() && !file.delete()) {
+            log.fine("Can't delete cached descriptors: " + file);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        File[] files = directory != null ? directory.listFiles() : null;
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    protected File getFile(UDN udn) {
+        if (directory == null || !directory.isDirectory())
+            return null;
+        try {
+            return new File(directory, URLEncoder.encode(udn.getIdentifierString(), "UTF-8") + ".properties");
+        } catch (UnsupportedEncodingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    protected Entry read(UDN udn) {
+        File file = getFile(udn);
+        if (file == null || !file.exists())
+            return null;
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+            Properties properties = new Properties();
+            properties.load(reader);
+            return Entry.fromProperties(properties);
+        } catch (Exception ex) {
+            log.log(Level.FINE, "Discarding unreadable cached descriptors: " + file, ex);
+            file.delete();
+            return null;
+        } finally {
+            close(reader);
+        }
+    }
+
+    protected void write(UDN udn, Entry entry) {
+        File file = getFile(udn);
+        if (file == null)
+            return;
+        // Write a temporary file first, a reader never sees a partial entry
+        File tmp = new File(file.getPath() + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+            entry.toProperties().store(writer, udn.toString());
+            writer.close();
+            writer = null;
+            if (!tmp.renameTo(file)) {
+                file.delete();
+                if (!tmp.renameTo(file))
+                    throw new IOException("Can't rename " + tmp + " to " + file);
+            }
+        } catch (IOException ex) {
+            log.warning("Can't store cached descriptors: " + file + ", " + ex);
+            tmp.delete();
+        } finally {
+            close(writer);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null)
+            return;
+        try {
+            closeable.close();
+        } catch (IOException ex) {
+            // Ignore
+        }
+    }
+
+    /**
+     * The descriptors of a root device, with the identifying information they were retrieved with.
+     */
+    public static class Entry {
+
+        final private String descriptorURL;
+        final private Integer bootId;
+        final private Integer configId;
+        final private String lastModified;
+        final private String deviceDescriptor;
+        final private Map<String, String> serviceDescriptors = new LinkedHashMap<String, String>();
+
+        public Entry(String descriptorURL, Integer bootId, Integer configId,
+                     String lastModified, String deviceDescriptor) {
+            this.descriptorURL = descriptorURL;
+            this.bootId = bootId;
+            this.configId = configId;
+            this.lastModified = lastModified;
+            this.deviceDescriptor = deviceDescriptor;
+        }
+
+        /**
+         * @return A copy of this entry, with the boot and configuration numbers of the given identity.
+         */
+        public Entry withIdentity(RemoteDeviceIdentity identity) {
+            Entry entry = new Entry(descriptorURL, identity.getBootId(), identity.getConfigId(), lastModified, deviceDescriptor);
+            entry.serviceDescriptors.putAll(serviceDescriptors);
+            return entry;
+        }
+
+        public String getDescriptorURL() {
+            return descriptorURL;
+        }
+
+        public Integer getBootId() {
+            return bootId;
+        }
+
+        public Integer getConfigId() {
+            return configId;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public String getDeviceDescriptor() {
+            return deviceDescriptor;
+        }
+
+        public String getServiceDescriptor(String url) {
+            return serviceDescriptors.get(url);
+        }
+
+        public void putServiceDescriptor(String url, String descriptor) {
+            serviceDescriptors.put(url, descriptor);
+        }
+
+        public Map<String, String> getServiceDescriptors() {
+            return Collections.unmodifiableMap(serviceDescriptors);
+        }
+
+        /**
+         * @return <code>true</code> if the identity has the same descriptor URL and announces
+         *         the same configuration, the descriptors can be used without validation.
+         */
+        public boolean isCurrent(RemoteDeviceIdentity identity) {
+            if (identity.getDescriptorURL() == null
+                    || !identity.getDescriptorURL().toString().equals(descriptorURL))
+                return false;
+            if (identity.getConfigId() != null)
+                return identity.getConfigId().equals(configId);
+            // UDA 1.1: Descriptions don't change without a new BOOTID
+            return configId == null && identity.getBootId() != null && identity.getBootId().equals(bootId);
+        }
+
+        protected Properties toProperties() {
+            Properties properties = new Properties();
+            properties.setProperty("url", descriptorURL);
+            if (bootId != null)
+                properties.setProperty("bootId", bootId.toString());
+            if (configId != null)
+                properties.setProperty("configId", configId.toString());
+            if (lastModified != null)
+                properties.setProperty("lastModified", lastModified);
+            properties.setProperty("device", deviceDescriptor);
+            int i = 0;
+            for (Map.Entry<String, String> service : serviceDescriptors.entrySet()) {
+                properties.setProperty("service." + i + ".url", service.getKey());
+                properties.setProperty("service." + i + ".descriptor", service.getValue());
+                i++;
+            }
+            return properties;
+        }
+
+        protected static Entry fromProperties(Properties properties) {
+            String url = properties.getProperty("url");
+            String device = properties.getProperty("device");
+            if (url == null || device == null)
+                throw new IllegalArgumentException("Missing descriptor URL or device descriptor");
+            String bootId = properties.getProperty("bootId");
+            String configId = properties.getProperty("configId");
+            Entry entry = new Entry(
+                    url,
+                    bootId != null ? Integer.valueOf(bootId) : null,
+                    configId != null ? Integer.valueOf(configId) : null,
+                    properties.getProperty("lastModified"),
+                    device
+            );
+            for (int i = 0; properties.getProperty("service." + i + ".url") != null; i++) {
+                entry.putServiceDescriptor(
+                        properties.getProperty("service." + i + ".url"),
+                        properties.getProperty("service." + i + ".descriptor", "")
+                );
+            }
+            return entry;
+        }
+    }
+}
@@ -34,6 +34,7 @@ import org.fourthline.cling.model.message.StreamRequestMessage;
 import org.fourthline.cling.model.message.StreamResponseMessage;
 import org.fourthline.cling.model.message.UpnpHeaders;
 import org.fourthline.cling.model.message.UpnpRequest;
+import org.fourthline.cling.model.message.UpnpResponse;
 import org.fourthline.cling.model.meta.Icon;
 import org.fourthline.cling.model.meta.RemoteDevice;
 import org.fourthline.cling.model.meta.RemoteService;
@@ -57,6 +58,12 @@ import org.seamless.util.Exceptions;
  * hydrated device is then added to the {@link org.fourthline.cling.registry.Registry}.
  * </p>
  * <p>
+ * If the configuration provides a {@link DescriptorCache}, descriptors of a device which announces
+ * the same <code>CONFIGID.UPNP.ORG</code> or <code>BOOTID.UPNP.ORG</code> are not retrieved again.
+ * Otherwise the device descriptor is requested with <code>If-Modified-Since</code> and the cached
+ * service descriptors are used if it hasn't been modified.
+ * </p>
+ * <p>
  * Any descriptor retrieval, parsing, or validation error of the metadata will abort this protocol
  * with a warning message in the log.
  * </p>
@@ -73,6 +80,10 @@ public class RetrieveRemoteDescriptors implements Runnable {
     private static final Set<URL> activeRetrievals = new CopyOnWriteArraySet();
     protected List<UDN> errorsAlreadyLogged = new ArrayList<UDN>();
 
+    // The valid cache entry we are hydrating from, and the entry we store when done
+    protected DescriptorCache.Entry cachedDescriptors;
+    protected DescriptorCache.Entry retrievedDescriptors;
+
     public RetrieveRemoteDescriptors(UpnpService upnpService, RemoteDevice rd) {
         this.upnpService = upnpService;
         this.rd = rd;
@@ -126,6 +137,17 @@ public class RetrieveRemoteDescriptors implements Runnable {
     		return ;
     	}
 
+        DescriptorCache cache = getUpnpService().getConfiguration().getDescriptorCache();
+        DescriptorCache.Entry cached = cache != null ? cache.get(rd.getIdentity().getUdn()) : null;
+        if (cached != null && !cached.getDescriptorURL().equals(String.valueOf(rd.getIdentity().getDescriptorURL())))
+            cached = null;
+
+        if (cached != null && cached.isCurrent(rd.getIdentity())) {
+            log.fine("Device configuration unchanged, using cached descriptors: " + rd.getIdentity());
+            describe(cached);
+            return;
+        }
+
     	StreamRequestMessage deviceDescRetrievalMsg;
     	StreamResponseMessage deviceDescMsg;
 
@@ -140,6 +162,9 @@ public class RetrieveRemoteDescriptors implements Runnable {
             if (headers != null)
                 deviceDescRetrievalMsg.getHeaders().putAll(headers);
 
+            if (cached != null && cached.getLastModified() != null)
+                deviceDescRetrievalMsg.getHeaders().add("If-Modified-Since", cached.getLastModified());
+
     		log.fine("Sending device descriptor retrieval message: " + deviceDescRetrievalMsg);
             deviceDescMsg = getUpnpService().getRouter().send(deviceDescRetrievalMsg);
 
@@ -160,6 +185,12 @@ public class RetrieveRemoteDescriptors implements Runnable {
             return;
         }
 
+        if (cached != null && deviceDescMsg.getOperation().getStatusCode() == UpnpResponse.Status.NOT_MODIFIED.getStatusCode()) {
+            log.fine("Device descriptor not modified, using cached descriptors: " + rd.getIdentity());
+            describe(cached);
+            return;
+        }
+
         if (deviceDescMsg.getOperation().isFailed()) {
             log.warning(
                     "Device descriptor retrieval failed: "
@@ -184,9 +215,24 @@ public class RetrieveRemoteDescriptors implements Runnable {
         }
 
         log.fine("Received root device descriptor: " + deviceDescMsg);
+        if (cache != null) {
+            retrievedDescriptors = new DescriptorCache.Entry(
+                    rd.getIdentity().getDescriptorURL().toString(),
+                    rd.getIdentity().getBootId(),
+                    rd.getIdentity().getConfigId(),
+                    deviceDescMsg.getHeaders().getFirstHeader("Last-Modified"),
+                    descriptorContent
+            );
+        }
         describe(descriptorContent);
     }
 
+    protected void describe(DescriptorCache.Entry cached) throws RouterException {
+        cachedDescriptors = cached;
+        retrievedDescriptors = cached.withIdentity(rd.getIdentity());
+        describe(cached.getDeviceDescriptor());
+    }
+
     protected void describe(String descriptorXML) throws RouterException {
 
         boolean notifiedStart = false;
@@ -207,6 +253,7 @@ public class RetrieveRemoteDescriptors implements Runnable {
             log.fine("Hydrating described device's services: " + describedDevice);
             RemoteDevice hydratedDevice = describeServices(describedDevice);
             if (hydratedDevice == null) {
+                evictCachedDescriptors();
             	if(!errorsAlreadyLogged.contains(rd.getIdentity().getUdn())) {
             		errorsAlreadyLogged.add(rd.getIdentity().getUdn());
             		log.warning("Device service description failed: " + rd);
@@ -226,7 +273,12 @@ public class RetrieveRemoteDescriptors implements Runnable {
             // device.
             getUpnpService().getRegistry().addDevice(hydratedDevice);
 
+            DescriptorCache cache = getUpnpService().getConfiguration().getDescriptorCache();
+            if (cache != null && retrievedDescriptors != null)
+                cache.put(rd.getIdentity().getUdn(), retrievedDescriptors);
+
         } catch (ValidationException ex) {
+            evictCachedDescriptors();
     		// Avoid error log spam each time device is discovered, errors are logged once per device.
         	if(!errorsAlreadyLogged.contains(rd.getIdentity().getUdn())) {
         		errorsAlreadyLogged.add(rd.getIdentity().getUdn());
@@ -239,6 +291,7 @@ public class RetrieveRemoteDescriptors implements Runnable {
         	}
 
         } catch (DescriptorBindingException ex) {
+            evictCachedDescriptors();
             log.warning("Could not hydrate device or its services from descriptor: " + rd);
             log.warning("Cause was: " + Exceptions.unwrap(ex));
             if (describedDevice != null && notifiedStart)
@@ -252,6 +305,18 @@ public class RetrieveRemoteDescriptors implements Runnable {
         }
     }
 
+    /**
+     * Forgets the cached descriptors of the device if hydrating from them failed, the
+     * next discovery message will retrieve them again.
+     */
+    protected void evictCachedDescriptors() {
+        DescriptorCache cache = getUpnpService().getConfiguration().getDescriptorCache();
+        if (cache != null && cachedDescriptors != null) {
+            log.fine("Evicting cached descriptors: " + rd.getIdentity());
+            cache.remove(rd.getIdentity().getUdn());
+        }
+    }
+
     protected RemoteDevice describeServices(RemoteDevice currentDevice)
             throws RouterException, DescriptorBindingException, ValidationException {
 
@@ -308,6 +373,17 @@ public class RetrieveRemoteDescriptors implements Runnable {
     		return null;
     	}
 
+        ServiceDescriptorBinder serviceDescriptorBinder =
+                getUpnpService().getConfiguration().getServiceDescriptorBinderUDA10();
+
+        String cachedContent = cachedDescriptors != null
+                ? cachedDescriptors.getServiceDescriptor(descriptorURL.toString())
+                : null;
+        if (cachedContent != null) {
+            log.fine("Hydrating service model from cached descriptor: " + descriptorURL);
+            return serviceDescriptorBinder.describe(service, cachedContent);
+        }
+
         StreamRequestMessage serviceDescRetrievalMsg = new StreamRequestMessage(UpnpRequest.Method.GET, descriptorURL);
 
         // Extra headers
@@ -344,10 +420,10 @@ public class RetrieveRemoteDescriptors implements Runnable {
         }
 
         log.fine("Received service descriptor, hydrating service model: " + serviceDescMsg);
-        ServiceDescriptorBinder serviceDescriptorBinder =
-                getUpnpService().getConfiguration().getServiceDescriptorBinderUDA10();
-
-        return serviceDescriptorBinder.describe(service, descriptorContent);
+        RemoteService describedService = serviceDescriptorBinder.describe(service, descriptorContent);
+        if (retrievedDescriptors != null)
+            retrievedDescriptors.putServiceDescriptor(descriptorURL.toString(), descriptorContent);
+        return describedService;
     }
 
     protected List<RemoteService> filterExclusiveServices(RemoteService[] services) {
@@ -29,15 +29,26 @@ import org.fourthline.cling.model.types.ServiceType;
 import org.fourthline.cling.protocol.SendingAsync;
 import org.fourthline.cling.transport.RouterException;
 
+import java.net.DatagramPacket;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
  * Sending notification messages for a registered local device.
  * <p>
- * Sends all required (dozens) of messages three times, waits between 0 and 150
- * milliseconds between each bulk sending procedure.
+ * Serializes all required (dozens) of messages once and sends them three times, in
+ * batches of a few datagrams with some milliseconds of random delay in between, waiting
+ * 150 milliseconds between each bulk sending procedure.
+ * </p>
+ * <p>
+ * The delays are scheduled on {@link org.fourthline.cling.UpnpServiceConfiguration#getScheduledExecutorService()},
+ * no thread is blocked while waiting. Without a scheduler, or when {@link #runBlocking()}
+ * is called, the calling thread sleeps and sends all repetitions itself.
  * </p>
  *
  * @author Christian Bauer
@@ -46,7 +57,10 @@ public abstract class SendingNotification extends SendingAsync {
 
     final private static Logger log = Logger.getLogger(SendingNotification.class.getName());
 
+    final protected static Random random = new Random();
+
     private LocalDevice device;
+    private volatile boolean blocking;
 
     public SendingNotification(UpnpService upnpService, LocalDevice device) {
         super(upnpService);
@@ -57,6 +71,14 @@ public abstract class SendingNotification extends SendingAsync {
         return device;
     }
 
+    /**
+     * Sends all repetitions before returning, for example when the stack is shutting down.
+     */
+    public void runBlocking() {
+        blocking = true;
+        run();
+    }
+
     protected void execute() throws RouterException {
 
         List<NetworkAddress> activeStreamServers =
@@ -76,21 +98,25 @@ public abstract class SendingNotification extends SendingAsync {
                     )
             );
         }
+        List<DatagramPacket> datagrams = createDatagrams(descriptorLocations);
 
-        for (int i = 0; i < getBulkRepeat(); i++) {
+        Announcement announcement = new Announcement(datagrams);
+        ScheduledExecutorService scheduler = getUpnpService().getConfiguration().getScheduledExecutorService();
+        if (blocking || scheduler == null) {
             try {
-
-                for (Location descriptorLocation : descriptorLocations) {
-                    sendMessages(descriptorLocation);
+                long delay = getInitialDelayMilliseconds();
+                while (delay >= 0) {
+                    if (delay > 0) {
+                        log.finer("Sleeping " + delay + " milliseconds");
+                        Thread.sleep(delay);
+                    }
+                    delay = announcement.sendNextBatch();
                 }
-
-                // UDA 1.0 is silent about this but UDA 1.1 recomments "a few hundred milliseconds"
-                log.finer("Sleeping " + getBulkIntervalMilliseconds() + " milliseconds");
-                Thread.sleep(getBulkIntervalMilliseconds());
-
             } catch (InterruptedException ex) {
                 log.warning("Advertisement thread was interrupted: " + ex);
             }
+        } else {
+            announcement.schedule(scheduler, getInitialDelayMilliseconds());
         }
     }
 
@@ -102,33 +128,59 @@ public abstract class SendingNotification extends SendingAsync {
         return 150;
     }
 
-    public void sendMessages(Location descriptorLocation) throws RouterException {
-        log.finer("Sending root device messages: " + getDevice());
-        List<OutgoingNotificationRequest> rootDeviceMsgs =
-                createDeviceMessages(getDevice(), descriptorLocation);
-        for (OutgoingNotificationRequest upnpMessage : rootDeviceMsgs) {
-            getUpnpService().getRouter().send(upnpMessage);
+    /**
+     * @return The number of datagrams sent without delay.
+     */
+    protected int getBatchSize() {
+        return 8;
+    }
+
+    /**
+     * @return The upper bound of the random delay between two batches.
+     */
+    protected int getBatchJitterMilliseconds() {
+        return 20;
+    }
+
+    /**
+     * @return The delay before the first datagram is sent, defaults to zero.
+     */
+    protected int getInitialDelayMilliseconds() {
+        return 0;
+    }
+
+    /**
+     * Creates and serializes all messages for all descriptor locations, in the order they are sent.
+     */
+    protected List<DatagramPacket> createDatagrams(List<Location> descriptorLocations) {
+        List<DatagramPacket> datagrams = new ArrayList<DatagramPacket>();
+        for (Location descriptorLocation : descriptorLocations) {
+            for (OutgoingNotificationRequest message : createMessages(descriptorLocation)) {
+                datagrams.add(getUpnpService().getConfiguration().getDatagramProcessor().write(message));
+            }
         }
+        return datagrams;
+    }
+
+    public List<OutgoingNotificationRequest> createMessages(Location descriptorLocation) {
+        log.finer("Creating root device messages: " + getDevice());
+        List<OutgoingNotificationRequest> msgs =
+                createDeviceMessages(getDevice(), descriptorLocation);
 
         if (getDevice().hasEmbeddedDevices()) {
             for (LocalDevice embeddedDevice : getDevice().findEmbeddedDevices()) {
-                log.finer("Sending embedded device messages: " + embeddedDevice);
-                List<OutgoingNotificationRequest> embeddedDeviceMsgs =
-                        createDeviceMessages(embeddedDevice, descriptorLocation);
-                for (OutgoingNotificationRequest upnpMessage : embeddedDeviceMsgs) {
-                    getUpnpService().getRouter().send(upnpMessage);
-                }
+                log.finer("Creating embedded device messages: " + embeddedDevice);
+                msgs.addAll(createDeviceMessages(embeddedDevice, descriptorLocation));
             }
         }
 
         List<OutgoingNotificationRequest> serviceTypeMsgs =
                 createServiceTypeMessages(getDevice(), descriptorLocation);
         if (serviceTypeMsgs.size() > 0) {
-            log.finer("Sending service type messages");
-            for (OutgoingNotificationRequest upnpMessage : serviceTypeMsgs) {
-                getUpnpService().getRouter().send(upnpMessage);
-            }
+            log.finer("Creating service type messages");
+            msgs.addAll(serviceTypeMsgs);
         }
+        return msgs;
     }
 
     protected List<OutgoingNotificationRequest> createDeviceMessages(LocalDevice device,
@@ -179,4 +231,58 @@ public abstract class SendingNotification extends SendingAsync {
 
     protected abstract NotificationSubtype getNotificationSubtype();
 
+    /**
+     * Sends the serialized datagrams batch by batch, repeating all of them {@link #getBulkRepeat()} times.
+     */
+    protected class Announcement implements Runnable {
+
+        final protected List<DatagramPacket> datagrams;
+        protected int repetition;
+        protected int index;
+        protected ScheduledExecutorService scheduler;
+
+        public Announcement(List<DatagramPacket> datagrams) {
+            this.datagrams = datagrams;
+        }
+
+        /**
+         * @return The milliseconds to wait before the next batch, or <code>-1</code> if all were sent.
+         */
+        public long sendNextBatch() throws RouterException {
+            if (repetition >= getBulkRepeat() || datagrams.isEmpty())
+                return -1;
+
+            int end = Math.min(index + getBatchSize(), datagrams.size());
+            for (; index < end; index++) {
+                getUpnpService().getRouter().send(datagrams.get(index));
+            }
+            long jitter = getBatchJitterMilliseconds() > 0 ? random.nextInt(getBatchJitterMilliseconds() + 1) : 0;
+            if (index < datagrams.size())
+                return jitter;
+
+            // UDA 1.0 is silent about this but UDA 1.1 recomments "a few hundred milliseconds"
+            index = 0;
+            return ++repetition < getBulkRepeat() ? getBulkIntervalMilliseconds() + jitter : -1;
+        }
+
+        public void schedule(ScheduledExecutorService scheduler, long delay) {
+            this.scheduler = scheduler;
+            try {
+                scheduler.schedule(this, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                log.fine("Scheduler is shut down, not sending notifications for: " + getDevice());
+            }
+        }
+
+        public void run() {
+            try {
+                long delay = sendNextBatch();
+                if (delay >= 0)
+                    schedule(scheduler, delay);
+            } catch (RouterException ex) {
+                log.warning("Sending notifications failed for: " + getDevice() + ", " + ex);
+            }
+        }
+    }
+
 }
@@ -41,6 +41,14 @@ public class SendingNotificationAlive extends SendingNotification {
         super.execute();
     }
 
+    /**
+     * @return Up to 100 milliseconds, to avoid flooding the network when several devices are alive.
+     */
+    @Override
+    protected int getInitialDelayMilliseconds() {
+        return random.nextInt(100);
+    }
+
     protected NotificationSubtype getNotificationSubtype() {
         return NotificationSubtype.ALIVE;
     }
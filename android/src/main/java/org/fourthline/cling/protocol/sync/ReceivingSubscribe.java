@@ -31,6 +31,7 @@ import org.seamless.util.Exceptions;
 
 import java.net.URL;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 /**
@@ -152,9 +153,13 @@ public class ReceivingSubscribe extends ReceivingSync<StreamRequestMessage, Outg
 
                 public void eventReceived() {
                     // The only thing we are interested in, sending an event when the state changes
-                    getUpnpService().getConfiguration().getSyncProtocolExecutorService().execute(
-                            getUpnpService().getProtocolFactory().createSendingEvent(this)
-                    );
+                    Runnable sendingEvent = getUpnpService().getProtocolFactory().createSendingEvent(this);
+                    try {
+                        getUpnpService().getConfiguration().getSyncProtocolExecutorService().execute(sendingEvent);
+                    } catch (RejectedExecutionException ex) {
+                        // Fired from a service or Cling thread, send it here rather than lose the sequence
+                        sendingEvent.run();
+                    }
                 }
             };
         } catch (Exception ex) {
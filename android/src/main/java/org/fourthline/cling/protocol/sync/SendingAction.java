@@ -28,6 +28,7 @@ import org.fourthline.cling.model.types.ErrorCode;
 import org.fourthline.cling.protocol.SendingSync;
 import org.fourthline.cling.model.UnsupportedDataException;
 import org.fourthline.cling.transport.RouterException;
+import org.fourthline.cling.transport.spi.StreamClient;
 import org.seamless.util.Exceptions;
 
 import java.net.URL;
@@ -54,6 +55,9 @@ public class SendingAction extends SendingSync<OutgoingActionRequestMessage, Inc
 
     final protected ActionInvocation actionInvocation;
 
+    private volatile boolean aborted;
+    private StreamClient.PendingRequest pendingRequest;
+
     public SendingAction(UpnpService upnpService, ActionInvocation actionInvocation, URL controlURL) {
         super(upnpService, new OutgoingActionRequestMessage(actionInvocation, controlURL));
         this.actionInvocation = actionInvocation;
@@ -67,50 +71,80 @@ public class SendingAction extends SendingSync<OutgoingActionRequestMessage, Inc
         Device device = actionInvocation.getAction().getService().getDevice();
 
         log.fine("Sending outgoing action call '" + actionInvocation.getAction().getName() + "' to remote service of: " + device);
-        IncomingActionResponseMessage responseMessage = null;
+        StreamResponseMessage streamResponse;
         try {
+            streamResponse = sendRemoteRequest(requestMessage);
+        } catch (ActionException ex) {
+            return failed(ex, null);
+        }
+        return receivedResponse(streamResponse);
+    }
 
-            StreamResponseMessage streamResponse = sendRemoteRequest(requestMessage);
-
-            if (streamResponse == null) {
-                log.fine("No connection or no no response received, returning null");
-                actionInvocation.setFailure(new ActionException(ErrorCode.ACTION_FAILED, "Connection error or no response received"));
-                return null;
-            }
-
-            responseMessage = new IncomingActionResponseMessage(streamResponse);
-
-            if (responseMessage.isFailedNonRecoverable()) {
-                log.fine("Response was a non-recoverable failure: " + responseMessage);
-                throw new ActionException(
-                        ErrorCode.ACTION_FAILED, "Non-recoverable remote execution failure: " + responseMessage.getOperation().getResponseDetails()
-                );
-            } else if (responseMessage.isFailedRecoverable()) {
-                handleResponseFailure(responseMessage);
-            } else {
-                handleResponse(responseMessage);
-            }
+    /**
+     * Sends the action request without blocking the calling thread.
+     * <p>
+     * The response is processed on the thread that received it, like in a synchronous execution.
+     * Then the given task is run, {@link #getOutputMessage()} returns the result. The task isn't
+     * run if this protocol has been {@link #abort() aborted}.
+     * </p>
+     *
+     * @param completion Called when the action has been completed.
+     */
+    public void executeAsync(final Runnable completion) {
+        OutgoingActionRequestMessage requestMessage = getInputMessage();
+        Device device = actionInvocation.getAction().getService().getDevice();
 
-            return responseMessage;
+        log.fine("Sending outgoing action call '" + actionInvocation.getAction().getName() + "' without waiting to remote service of: " + device);
+        StreamClient.PendingRequest request;
+        try {
+            writeRequestBody(requestMessage);
+            request = getUpnpService().getRouter().send(requestMessage, new StreamClient.ResponseListener() {
+                public void received(StreamResponseMessage streamResponse) {
+                    if (aborted) {
+                        log.fine("Action call has been aborted, ignoring response: " + actionInvocation);
+                        return;
+                    }
+                    outputMessage = receivedResponse(streamResponse);
+                    completion.run();
+                }
+            });
+        } catch (ActionException ex) {
+            outputMessage = failed(ex, null);
+            completion.run();
+            return;
+        } catch (RouterException ex) {
+            log.fine("Sending action request message failed: " + ex);
+            actionInvocation.setFailure(new ActionException(ErrorCode.ACTION_FAILED, "Sending request failed: " + ex.getMessage()));
+            outputMessage = null;
+            completion.run();
+            return;
+        }
 
+        synchronized (this) {
+            pendingRequest = request;
+        }
+        if (aborted && request != null)
+            request.abort();
+    }
 
-        } catch (ActionException ex) {
-            log.fine("Remote action invocation failed, returning Internal Server Error message: " + ex.getMessage());
-            actionInvocation.setFailure(ex);
-            if (responseMessage == null || !responseMessage.getOperation().isFailed()) {
-                return new IncomingActionResponseMessage(new UpnpResponse(UpnpResponse.Status.INTERNAL_SERVER_ERROR));
-            } else {
-                return responseMessage;
-            }
+    /**
+     * Aborts an action call sent with {@link #executeAsync(Runnable)}, its response will be ignored.
+     */
+    public void abort() {
+        aborted = true;
+        StreamClient.PendingRequest request;
+        synchronized (this) {
+            request = pendingRequest;
         }
+        if (request != null)
+            request.abort();
     }
 
     protected StreamResponseMessage sendRemoteRequest(OutgoingActionRequestMessage requestMessage)
         throws ActionException, RouterException {
 
         try {
-            log.fine("Writing SOAP request body of: " + requestMessage);
-            getUpnpService().getConfiguration().getSoapActionProcessor().writeBody(requestMessage, actionInvocation);
+            writeRequestBody(requestMessage);
 
             log.fine("Sending SOAP body of message as stream to remote device");
             return getUpnpService().getRouter().send(requestMessage);
@@ -123,6 +157,13 @@ public class SendingAction extends SendingSync<OutgoingActionRequestMessage, Inc
                 throw new ActionCancelledException((InterruptedException)cause);
             }
             throw ex;
+        }
+    }
+
+    protected void writeRequestBody(OutgoingActionRequestMessage requestMessage) throws ActionException {
+        try {
+            log.fine("Writing SOAP request body of: " + requestMessage);
+            getUpnpService().getConfiguration().getSoapActionProcessor().writeBody(requestMessage, actionInvocation);
         } catch (UnsupportedDataException ex) {
             if (log.isLoggable(Level.FINE)) {
                 log.fine("Error writing SOAP body: " + ex);
@@ -132,6 +173,44 @@ public class SendingAction extends SendingSync<OutgoingActionRequestMessage, Inc
         }
     }
 
+    protected IncomingActionResponseMessage receivedResponse(StreamResponseMessage streamResponse) {
+        if (streamResponse == null) {
+            log.fine("No connection or no no response received, returning null");
+            actionInvocation.setFailure(new ActionException(ErrorCode.ACTION_FAILED, "Connection error or no response received"));
+            return null;
+        }
+
+        IncomingActionResponseMessage responseMessage = new IncomingActionResponseMessage(streamResponse);
+        try {
+
+            if (responseMessage.isFailedNonRecoverable()) {
+                log.fine("Response was a non-recoverable failure: " + responseMessage);
+                throw new ActionException(
+                        ErrorCode.ACTION_FAILED, "Non-recoverable remote execution failure: " + responseMessage.getOperation().getResponseDetails()
+                );
+            } else if (responseMessage.isFailedRecoverable()) {
+                handleResponseFailure(responseMessage);
+            } else {
+                handleResponse(responseMessage);
+            }
+
+            return responseMessage;
+
+        } catch (ActionException ex) {
+            return failed(ex, responseMessage);
+        }
+    }
+
+    protected IncomingActionResponseMessage failed(ActionException ex, IncomingActionResponseMessage responseMessage) {
+        log.fine("Remote action invocation failed, returning Internal Server Error message: " + ex.getMessage());
+        actionInvocation.setFailure(ex);
+        if (responseMessage == null || !responseMessage.getOperation().isFailed()) {
+            return new IncomingActionResponseMessage(new UpnpResponse(UpnpResponse.Status.INTERNAL_SERVER_ERROR));
+        } else {
+            return responseMessage;
+        }
+    }
+
     protected void handleResponse(IncomingActionResponseMessage responseMsg) throws ActionException {
 
         try {
@@ -21,7 +21,7 @@ import org.fourthline.cling.model.gena.CancelReason;
 import org.fourthline.cling.model.gena.LocalGENASubscription;
 import org.fourthline.cling.model.meta.LocalDevice;
 import org.fourthline.cling.model.types.UDN;
-import org.fourthline.cling.protocol.SendingAsync;
+import org.fourthline.cling.protocol.async.SendingNotification;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -45,6 +45,9 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
     protected Map<UDN, DiscoveryOptions> discoveryOptions = new HashMap<UDN, DiscoveryOptions>();
     protected long lastAliveIntervalTimestamp = 0;
 
+    // When the next ALIVE advertisement of each local device is due
+    protected Map<UDN, Long> nextAliveTimestamps = new HashMap<UDN, Long>();
+
     LocalItems(RegistryImpl registry) {
         super(registry);
     }
@@ -106,13 +109,20 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
         );
 
         getDeviceItems().add(localItem);
+        devicesChanged();
         log.fine("Registered local device: " + localItem);
 
         if (isByeByeBeforeFirstAlive(localItem.getKey()))
             advertiseByebye(localDevice, true);
 
-        if (isAdvertised(localItem.getKey()))
-             advertiseAlive(localDevice);
+        if (isAdvertised(localItem.getKey())) {
+            advertiseAlive(localDevice);
+            scheduleNextAlive(localDevice);
+        }
+
+        int aliveIntervalMillis = registry.getConfiguration().getAliveIntervalMillis();
+        if (aliveIntervalMillis > 0)
+            registry.scheduleMaintenance(lastAliveIntervalTimestamp + aliveIntervalMillis + 1);
 
         for (final RegistryListener listener : registry.getListeners()) {
             registry.getConfiguration().getRegistryListenerExecutor().execute(
@@ -126,14 +136,6 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
 
     }
 
-    Collection<LocalDevice> get() {
-        Set<LocalDevice> c = new HashSet();
-        for (RegistryItem<UDN, LocalDevice> item : getDeviceItems()) {
-            c.add(item.getItem());
-        }
-        return Collections.unmodifiableCollection(c);
-    }
-
     boolean remove(final LocalDevice localDevice) throws RegistrationException {
         return remove(localDevice, false);
     }
@@ -146,7 +148,9 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
             log.fine("Removing local device from registry: " + localDevice);
 
             setDiscoveryOptions(localDevice.getIdentity().getUdn(), null);
+            nextAliveTimestamps.remove(localDevice.getIdentity().getUdn());
             getDeviceItems().remove(new RegistryItem(localDevice.getIdentity().getUdn()));
+            devicesChanged();
 
             for (Resource deviceResource : getResources(localDevice)) {
                 if (registry.removeResource(deviceResource)) {
@@ -165,6 +169,7 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
                 if (subscriptionForUDN.equals(registeredDevice.getIdentity().getUdn())) {
                     log.fine("Removing incoming subscription: " + incomingSubscription.getKey());
                     it.remove();
+                    subscriptionsChanged();
                     if (!shuttingDown) {
                         registry.getConfiguration().getRegistryListenerExecutor().execute(
                                 new Runnable() {
@@ -220,10 +225,11 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
 
     /* ############################################################################################################ */
     
-    void maintain() {
+    long maintain() {
 
-    	if(getDeviceItems().isEmpty()) return ;
+    	if(getDeviceItems().isEmpty()) return Long.MAX_VALUE;
 
+        long nextDueMillis = Long.MAX_VALUE;
         Set<RegistryItem<UDN, LocalDevice>> expiredLocalItems = new HashSet();
 
         // "Flooding" is enabled, check if we need to send advertisements for all devices
@@ -239,13 +245,15 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
                     }
                 }
         	}
+            nextDueMillis = lastAliveIntervalTimestamp + aliveIntervalMillis + 1;
         } else {
             // Reset, the configuration might dynamically switch the alive interval
             lastAliveIntervalTimestamp = 0;
 
             // Alive interval is not enabled, regular expiration check of all devices
+            long now = System.currentTimeMillis();
             for (RegistryItem<UDN, LocalDevice> localItem : getDeviceItems()) {
-                if (isAdvertised(localItem.getKey()) && localItem.getExpirationDetails().hasExpired(true)) {
+                if (isAdvertised(localItem.getKey()) && isAliveDue(localItem, now)) {
                     log.finer("Local item has expired: " + localItem);
                     expiredLocalItems.add(localItem);
                 }
@@ -257,6 +265,13 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
             log.fine("Refreshing local device advertisement: " + expiredLocalItem.getItem());
             advertiseAlive(expiredLocalItem.getItem());
             expiredLocalItem.getExpirationDetails().stampLastRefresh();
+            scheduleNextAlive(expiredLocalItem.getItem());
+        }
+        if (aliveIntervalMillis <= 0) {
+            for (RegistryItem<UDN, LocalDevice> localItem : getDeviceItems()) {
+                if (isAdvertised(localItem.getKey()))
+                    nextDueMillis = Math.min(nextDueMillis, getAliveDueMillis(localItem));
+            }
         }
 
         // Expire incoming subscriptions
@@ -264,6 +279,8 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
         for (RegistryItem<String, LocalGENASubscription> item : getSubscriptionItems()) {
             if (item.getExpirationDetails().hasExpired(false)) {
                 expiredIncomingSubscriptions.add(item);
+            } else {
+                nextDueMillis = Math.min(nextDueMillis, getSubscriptionDueMillis(item));
             }
         }
         for (RegistryItem<String, LocalGENASubscription> subscription : expiredIncomingSubscriptions) {
@@ -272,11 +289,13 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
             subscription.getItem().end(CancelReason.EXPIRED);
         }
 
+        return nextDueMillis;
     }
 
     void shutdown() {
         log.fine("Clearing all registered subscriptions to local devices during shutdown");
         getSubscriptionItems().clear();
+        subscriptionsChanged();
 
         log.fine("Removing all local devices from registry during shutdown");
         removeAll(true);
@@ -287,26 +306,50 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
     protected Random randomGenerator = new Random();
 
     protected void advertiseAlive(final LocalDevice localDevice) {
-        registry.executeAsyncProtocol(new Runnable() {
-            public void run() {
-                try {
-                    log.finer("Sleeping some milliseconds to avoid flooding the network with ALIVE msgs");
-                    Thread.sleep(randomGenerator.nextInt(100));
-                } catch (InterruptedException ex) {
-                    log.severe("Background execution interrupted: " + ex.getMessage());
-                }
-                registry.getProtocolFactory().createSendingNotificationAlive(localDevice).run();
-            }
-        });
+        // The protocol waits a random delay before sending, without blocking a thread
+        registry.executeAsyncProtocol(registry.getProtocolFactory().createSendingNotificationAlive(localDevice));
     }
 
     protected void advertiseByebye(final LocalDevice localDevice, boolean asynchronous) {
-        final SendingAsync prot = registry.getProtocolFactory().createSendingNotificationByebye(localDevice);
+        final SendingNotification prot = registry.getProtocolFactory().createSendingNotificationByebye(localDevice);
         if (asynchronous) {
             registry.executeAsyncProtocol(prot);
         } else {
-            prot.run();
+            prot.runBlocking();
+        }
+    }
+
+    /**
+     * UDA 1.1 recommends refreshing advertisements at a randomly distributed interval of less
+     * than half the max-age, so devices registered together don't keep announcing together.
+     * The next refresh is due at a random time between a quarter and half of the max-age.
+     */
+    protected void scheduleNextAlive(LocalDevice localDevice) {
+        UDN udn = localDevice.getIdentity().getUdn();
+        Integer maxAgeSeconds = localDevice.getIdentity().getMaxAgeSeconds();
+        if (maxAgeSeconds == null || maxAgeSeconds <= 0) {
+            nextAliveTimestamps.remove(udn);
+            return;
         }
+        long quarterMillis = maxAgeSeconds * 1000L / 4;
+        long delayMillis = quarterMillis + (long) (randomGenerator.nextDouble() * quarterMillis);
+        long nextAliveTimestamp = System.currentTimeMillis() + delayMillis;
+        nextAliveTimestamps.put(udn, nextAliveTimestamp);
+        registry.scheduleMaintenance(nextAliveTimestamp);
+    }
+
+    protected boolean isAliveDue(RegistryItem<UDN, LocalDevice> localItem, long now) {
+        Long nextAliveTimestamp = nextAliveTimestamps.get(localItem.getKey());
+        return nextAliveTimestamp != null
+            ? now >= nextAliveTimestamp
+            : localItem.getExpirationDetails().hasExpired(true);
+    }
+
+    protected long getAliveDueMillis(RegistryItem<UDN, LocalDevice> localItem) {
+        Long nextAliveTimestamp = nextAliveTimestamps.get(localItem.getKey());
+        return nextAliveTimestamp != null
+            ? nextAliveTimestamp
+            : localItem.getExpirationDetails().getExpirationTimestampMillis(true);
     }
 
 }
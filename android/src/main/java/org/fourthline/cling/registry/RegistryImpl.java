@@ -43,6 +43,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -101,24 +102,31 @@ public class RegistryImpl implements Registry {
 
     // #################################################################################################
 
-    protected final Set<RegistryListener> registryListeners = new HashSet();
+    protected final Set<RegistryListener> registryListeners = new CopyOnWriteArraySet<RegistryListener>();
     protected final Set<RegistryItem<URI, Resource>> resourceItems = new HashSet();
+
+    // Lookups don't lock the registry, they read this copy of the resourceItems
+    protected volatile List<Resource> resources = Collections.emptyList();
+
     protected final List<Runnable> pendingExecutions = new ArrayList();
 
+    // Items due during maintenance are included in its result, they don't wake up the maintainer
+    protected boolean maintaining;
+
     protected final RemoteItems remoteItems = new RemoteItems(this);
     protected final LocalItems localItems = new LocalItems(this);
 
     // #################################################################################################
 
-    synchronized public void addListener(RegistryListener listener) {
+    public void addListener(RegistryListener listener) {
         registryListeners.add(listener);
     }
 
-    synchronized public void removeListener(RegistryListener listener) {
+    public void removeListener(RegistryListener listener) {
         registryListeners.remove(listener);
     }
 
-    synchronized public Collection<RegistryListener> getListeners() {
+    public Collection<RegistryListener> getListeners() {
         return Collections.unmodifiableCollection(registryListeners);
     }
 
@@ -203,37 +211,37 @@ public class RegistryImpl implements Registry {
         return false;
     }
 
-    synchronized public Device getDevice(UDN udn, boolean rootOnly) {
+    public Device getDevice(UDN udn, boolean rootOnly) {
         Device device;
         if ((device = localItems.get(udn, rootOnly)) != null) return device;
         if ((device = remoteItems.get(udn, rootOnly)) != null) return device;
         return null;
     }
 
-    synchronized public LocalDevice getLocalDevice(UDN udn, boolean rootOnly) {
+    public LocalDevice getLocalDevice(UDN udn, boolean rootOnly) {
         return localItems.get(udn, rootOnly);
     }
 
-    synchronized public RemoteDevice getRemoteDevice(UDN udn, boolean rootOnly) {
+    public RemoteDevice getRemoteDevice(UDN udn, boolean rootOnly) {
         return remoteItems.get(udn, rootOnly);
     }
 
-    synchronized public Collection<LocalDevice> getLocalDevices() {
+    public Collection<LocalDevice> getLocalDevices() {
         return Collections.unmodifiableCollection(localItems.get());
     }
 
-    synchronized public Collection<RemoteDevice> getRemoteDevices() {
+    public Collection<RemoteDevice> getRemoteDevices() {
         return Collections.unmodifiableCollection(remoteItems.get());
     }
 
-    synchronized public Collection<Device> getDevices() {
+    public Collection<Device> getDevices() {
         Set all = new HashSet();
         all.addAll(localItems.get());
         all.addAll(remoteItems.get());
         return Collections.unmodifiableCollection(all);
     }
 
-    synchronized public Collection<Device> getDevices(DeviceType deviceType) {
+    public Collection<Device> getDevices(DeviceType deviceType) {
         Collection<Device> devices = new HashSet();
 
         devices.addAll(localItems.get(deviceType));
@@ -242,7 +250,7 @@ public class RegistryImpl implements Registry {
         return Collections.unmodifiableCollection(devices);
     }
 
-    synchronized public Collection<Device> getDevices(ServiceType serviceType) {
+    public Collection<Device> getDevices(ServiceType serviceType) {
         Collection<Device> devices = new HashSet();
 
         devices.addAll(localItems.get(serviceType));
@@ -251,7 +259,7 @@ public class RegistryImpl implements Registry {
         return Collections.unmodifiableCollection(devices);
     }
 
-    synchronized public Service getService(ServiceReference serviceReference) {
+    public Service getService(ServiceReference serviceReference) {
         Device device;
         if ((device = getDevice(serviceReference.getUdn(), false)) != null) {
             return device.findService(serviceReference.getServiceId());
@@ -261,16 +269,14 @@ public class RegistryImpl implements Registry {
 
     // #################################################################################################
 
-    synchronized public Resource getResource(URI pathQuery) throws IllegalArgumentException {
+    public Resource getResource(URI pathQuery) throws IllegalArgumentException {
         if (pathQuery.isAbsolute()) {
             throw new IllegalArgumentException("Resource URI can not be absolute, only path and query:" + pathQuery);
         }
 
-        // Note: Uses field access on resourceItems for performance reasons
-
-		for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
-        	Resource resource = resourceItem.getItem();
-        	if (resource.matches(pathQuery)) {
+        List<Resource> resources = this.resources;
+        for (Resource resource : resources) {
+            if (resource.matches(pathQuery)) {
                 return resource;
             }
         }
@@ -280,9 +286,8 @@ public class RegistryImpl implements Registry {
         if (pathQuery.getPath().endsWith("/")) {
             URI pathQueryWithoutSlash = URI.create(pathQuery.toString().substring(0, pathQuery.toString().length() - 1));
 
- 			for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
-            	Resource resource = resourceItem.getItem();
-            	if (resource.matches(pathQueryWithoutSlash)) {
+            for (Resource resource : resources) {
+                if (resource.matches(pathQueryWithoutSlash)) {
                     return resource;
                 }
             }
@@ -291,7 +296,7 @@ public class RegistryImpl implements Registry {
         return null;
     }
 
-    synchronized public <T extends Resource> T getResource(Class<T> resourceType, URI pathQuery) throws IllegalArgumentException {
+    public <T extends Resource> T getResource(Class<T> resourceType, URI pathQuery) throws IllegalArgumentException {
         Resource resource = getResource(pathQuery);
         if (resource != null && resourceType.isAssignableFrom(resource.getClass())) {
             return (T) resource;
@@ -299,19 +304,15 @@ public class RegistryImpl implements Registry {
         return null;
     }
 
-    synchronized public Collection<Resource> getResources() {
-        Collection<Resource> s = new HashSet();
-        for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
-            s.add(resourceItem.getItem());
-        }
-        return s;
+    public Collection<Resource> getResources() {
+        return new HashSet<Resource>(resources);
     }
 
-    synchronized public <T extends Resource> Collection<T> getResources(Class<T> resourceType) {
+    public <T extends Resource> Collection<T> getResources(Class<T> resourceType) {
         Collection<T> s = new HashSet();
-        for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
-            if (resourceType.isAssignableFrom(resourceItem.getItem().getClass()))
-                s.add((T) resourceItem.getItem());
+        for (Resource resource : resources) {
+            if (resourceType.isAssignableFrom(resource.getClass()))
+                s.add((T) resource);
         }
         return s;
     }
@@ -324,10 +325,27 @@ public class RegistryImpl implements Registry {
         RegistryItem resourceItem = new RegistryItem(resource.getPathQuery(), resource, maxAgeSeconds);
         resourceItems.remove(resourceItem);
         resourceItems.add(resourceItem);
+        resourcesChanged();
+        scheduleMaintenance(resourceItem.getExpirationDetails().getExpirationTimestampMillis(false));
     }
 
     synchronized public boolean removeResource(Resource resource) {
-        return resourceItems.remove(new RegistryItem(resource.getPathQuery()));
+        if (resourceItems.remove(new RegistryItem(resource.getPathQuery()))) {
+            resourcesChanged();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Publishes the current resource items to lookups, call with the registry lock held.
+     */
+    protected void resourcesChanged() {
+        List<Resource> list = new ArrayList<Resource>(resourceItems.size());
+        for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
+            list.add(resourceItem.getItem());
+        }
+        resources = Collections.unmodifiableList(list);
     }
 
     // #################################################################################################
@@ -336,7 +354,7 @@ public class RegistryImpl implements Registry {
         localItems.addSubscription(subscription);
     }
 
-    synchronized public LocalGENASubscription getLocalSubscription(String subscriptionId) {
+    public LocalGENASubscription getLocalSubscription(String subscriptionId) {
         return localItems.getSubscription(subscriptionId);
     }
 
@@ -352,7 +370,7 @@ public class RegistryImpl implements Registry {
         remoteItems.addSubscription(subscription);
     }
 
-    synchronized public RemoteGENASubscription getRemoteSubscription(String subscriptionId) {
+    public RemoteGENASubscription getRemoteSubscription(String subscriptionId) {
         return remoteItems.getSubscription(subscriptionId);
     }
 
@@ -427,40 +445,72 @@ public class RegistryImpl implements Registry {
 
     /* ############################################################################################################ */
 
-    synchronized void maintain() {
+    /**
+     * Removes expired items, renews subscriptions and refreshes advertisements which are due.
+     *
+     * @return The time in milliseconds when the next item is due, <code>Long.MAX_VALUE</code> if none expires.
+     */
+    synchronized long maintain() {
 
         if (log.isLoggable(Level.FINEST))
             log.finest("Maintaining registry...");
 
-        // Remove expired resources
-        Iterator<RegistryItem<URI, Resource>> it = resourceItems.iterator();
-        while (it.hasNext()) {
-            RegistryItem<URI, Resource> item = it.next();
-            if (item.getExpirationDetails().hasExpired()) {
-                if (log.isLoggable(Level.FINER))
-                    log.finer("Removing expired resource: " + item);
-                it.remove();
+        maintaining = true;
+        long nextDueMillis = Long.MAX_VALUE;
+        try {
+
+            // Remove expired resources
+            boolean expired = false;
+            Iterator<RegistryItem<URI, Resource>> it = resourceItems.iterator();
+            while (it.hasNext()) {
+                RegistryItem<URI, Resource> item = it.next();
+                if (item.getExpirationDetails().hasExpired()) {
+                    if (log.isLoggable(Level.FINER))
+                        log.finer("Removing expired resource: " + item);
+                    it.remove();
+                    expired = true;
+                } else {
+                    nextDueMillis = Math.min(nextDueMillis, item.getExpirationDetails().getExpirationTimestampMillis(false));
+                }
             }
-        }
+            if (expired)
+                resourcesChanged();
 
-        // Let each resource do its own maintenance
-        for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
-            resourceItem.getItem().maintain(
-                    pendingExecutions,
-                    resourceItem.getExpirationDetails()
-            );
-        }
+            // Let each resource do its own maintenance
+            for (RegistryItem<URI, Resource> resourceItem : resourceItems) {
+                resourceItem.getItem().maintain(
+                        pendingExecutions,
+                        resourceItem.getExpirationDetails()
+                );
+            }
+
+            // These add all their operations to the pendingExecutions queue
+            nextDueMillis = Math.min(nextDueMillis, remoteItems.maintain());
+            nextDueMillis = Math.min(nextDueMillis, localItems.maintain());
 
-        // These add all their operations to the pendingExecutions queue
-        remoteItems.maintain();
-        localItems.maintain();
+        } finally {
+            maintaining = false;
+        }
 
         // We now run the queue asynchronously so the maintenance thread can continue its loop undisturbed
         runPendingExecutions(true);
+        return nextDueMillis;
+    }
+
+    /**
+     * Wakes up the maintainer when an item is due, call with the registry lock held.
+     *
+     * @param timestampMillis The time in milliseconds when the item is due, <code>Long.MAX_VALUE</code> if never.
+     */
+    void scheduleMaintenance(long timestampMillis) {
+        if (registryMaintainer != null && !maintaining && timestampMillis != Long.MAX_VALUE)
+            registryMaintainer.schedule(timestampMillis);
     }
 
     synchronized void executeAsyncProtocol(Runnable runnable) {
         pendingExecutions.add(runnable);
+        // Run it with the next maintenance, even if no item is due
+        scheduleMaintenance(System.currentTimeMillis());
     }
 
     synchronized void runPendingExecutions(boolean async) {
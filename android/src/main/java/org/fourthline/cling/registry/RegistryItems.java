@@ -25,11 +25,20 @@ import org.fourthline.cling.model.types.UDN;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Internal class, required by {@link RegistryImpl}.
+ * <p>
+ * The item sets are only modified while holding the registry lock. Lookups read
+ * immutable snapshots instead, which are republished whenever devices or subscriptions
+ * are added or removed, so they never wait for maintenance or discovery.
+ * </p>
  *
  * @author Christian Bauer
  */
@@ -40,6 +49,9 @@ abstract class RegistryItems<D extends Device, S extends GENASubscription> {
     protected final Set<RegistryItem<UDN, D>> deviceItems = new HashSet();
     protected final Set<RegistryItem<String, S>> subscriptionItems = new HashSet();
 
+    private volatile DeviceSnapshot<D> deviceSnapshot = new DeviceSnapshot<D>(Collections.<RegistryItem<UDN, D>>emptySet());
+    private volatile Map<String, S> subscriptionSnapshot = Collections.emptyMap();
+
     RegistryItems(RegistryImpl registry) {
         this.registry = registry;
     }
@@ -56,9 +68,37 @@ abstract class RegistryItems<D extends Device, S extends GENASubscription> {
     abstract boolean remove(final D device);
     abstract void removeAll();
 
-    abstract void maintain();
+    /**
+     * @return The time in milliseconds when the next item is due, <code>Long.MAX_VALUE</code> if none expires.
+     */
+    abstract long maintain();
     abstract void shutdown();
 
+    /**
+     * @return The time in milliseconds when maintenance has to handle the subscription.
+     */
+    long getSubscriptionDueMillis(RegistryItem<String, S> subscriptionItem) {
+        return subscriptionItem.getExpirationDetails().getExpirationTimestampMillis(false);
+    }
+
+    /**
+     * Publishes the current device items to readers, call after adding or removing one.
+     */
+    void devicesChanged() {
+        deviceSnapshot = new DeviceSnapshot<D>(deviceItems);
+    }
+
+    /**
+     * Publishes the current subscription items to readers, call after adding or removing one.
+     */
+    void subscriptionsChanged() {
+        Map<String, S> subscriptions = new HashMap<String, S>();
+        for (RegistryItem<String, S> item : subscriptionItems) {
+            subscriptions.put(item.getKey(), item.getItem());
+        }
+        subscriptionSnapshot = Collections.unmodifiableMap(subscriptions);
+    }
+
     /**
      * Returns root and embedded devices registered under the given UDN.
      *
@@ -68,17 +108,8 @@ abstract class RegistryItems<D extends Device, S extends GENASubscription> {
      *         no device with the given UDN has been registered.
      */
     D get(UDN udn, boolean rootOnly) {
-        for (RegistryItem<UDN, D> item : deviceItems) {
-            D device = item.getItem();
-            if (device.getIdentity().getUdn().equals(udn)) {
-                return device;
-            }
-            if (!rootOnly) {
-                D foundDevice = (D)item.getItem().findDevice(udn);
-                if (foundDevice != null) return foundDevice;
-            }
-        }
-        return null;
+        DeviceSnapshot<D> snapshot = deviceSnapshot;
+        return rootOnly ? snapshot.roots.get(udn) : snapshot.all.get(udn);
     }
 
     /**
@@ -92,8 +123,8 @@ abstract class RegistryItems<D extends Device, S extends GENASubscription> {
      */
     Collection<D> get(DeviceType deviceType) {
         Collection<D> devices = new HashSet();
-        for (RegistryItem<UDN, D> item : deviceItems) {
-            D[] d = (D[])item.getItem().findDevices(deviceType);
+        for (D device : deviceSnapshot.roots.values()) {
+            D[] d = (D[])device.findDevices(deviceType);
             if (d != null) {
                 devices.addAll(Arrays.asList(d));
             }
@@ -109,9 +140,9 @@ abstract class RegistryItems<D extends Device, S extends GENASubscription> {
      */
     Collection<D> get(ServiceType serviceType) {
         Collection<D> devices = new HashSet();
-        for (RegistryItem<UDN, D> item : deviceItems) {
+        for (D device : deviceSnapshot.roots.values()) {
 
-            D[] d = (D[])item.getItem().findDevices(serviceType);
+            D[] d = (D[])device.findDevices(serviceType);
             if (d != null) {
                 devices.addAll(Arrays.asList(d));
             }
@@ -119,12 +150,11 @@ abstract class RegistryItems<D extends Device, S extends GENASubscription> {
         return devices;
     }
 
+    /**
+     * @return An unmodifiable snapshot of the registered root devices.
+     */
     Collection<D> get() {
-        Collection<D> devices = new HashSet();
-        for (RegistryItem<UDN, D> item : deviceItems) {
-            devices.add(item.getItem());
-        }
-        return devices;
+        return deviceSnapshot.devices;
     }
 
     boolean contains(D device) {
@@ -132,7 +162,7 @@ abstract class RegistryItems<D extends Device, S extends GENASubscription> {
     }
 
     boolean contains(UDN udn) {
-        return deviceItems.contains(new RegistryItem<UDN, D>(udn));
+        return deviceSnapshot.roots.containsKey(udn);
     }
 
     void addSubscription(S subscription) {
@@ -145,27 +175,37 @@ abstract class RegistryItems<D extends Device, S extends GENASubscription> {
                 );
 
         subscriptionItems.add(subscriptionItem);
+        subscriptionsChanged();
+        registry.scheduleMaintenance(getSubscriptionDueMillis(subscriptionItem));
     }
 
     boolean updateSubscription(S subscription) {
-        if (removeSubscription(subscription)) {
-            addSubscription(subscription);
+        // Replace the item with its new expiration, readers never see it missing
+        RegistryItem<String, S> subscriptionItem =
+                new RegistryItem<String, S>(
+                        subscription.getSubscriptionId(),
+                        subscription,
+                        subscription.getActualDurationSeconds()
+                );
+        if (subscriptionItems.remove(subscriptionItem)) {
+            subscriptionItems.add(subscriptionItem);
+            subscriptionsChanged();
+            registry.scheduleMaintenance(getSubscriptionDueMillis(subscriptionItem));
             return true;
         }
         return false;
     }
 
     boolean removeSubscription(S subscription) {
-        return subscriptionItems.remove(new RegistryItem<String, S>(subscription.getSubscriptionId()));
+        if (subscriptionItems.remove(new RegistryItem<String, S>(subscription.getSubscriptionId()))) {
+            subscriptionsChanged();
+            return true;
+        }
+        return false;
     }
 
     S getSubscription(String subscriptionId) {
-        for (RegistryItem<String, S> registryItem : subscriptionItems) {
-            if (registryItem.getKey().equals(subscriptionId)) {
-                return registryItem.getItem();
-            }
-        }
-        return null;
+        return subscriptionSnapshot.get(subscriptionId);
     }
 
     Resource[] getResources(Device device) throws RegistrationException {
@@ -175,4 +215,31 @@ abstract class RegistryItems<D extends Device, S extends GENASubscription> {
             throw new RegistrationException("Resource discover error: " + ex.toString(), ex);
         }
     }
+
+    /**
+     * Root devices by UDN, and root and embedded devices by UDN, as of one point in time.
+     */
+    static class DeviceSnapshot<D extends Device> {
+
+        final Map<UDN, D> roots;
+        final Map<UDN, D> all;
+        final Collection<D> devices;
+
+        DeviceSnapshot(Set<RegistryItem<UDN, D>> items) {
+            Map<UDN, D> roots = new LinkedHashMap<UDN, D>();
+            Map<UDN, D> all = new HashMap<UDN, D>();
+            for (RegistryItem<UDN, D> item : items) {
+                D device = item.getItem();
+                roots.put(device.getIdentity().getUdn(), device);
+                for (Device embedded : device.findEmbeddedDevices()) {
+                    all.put(embedded.getIdentity().getUdn(), (D) embedded);
+                }
+            }
+            // A root device wins over an embedded one with the same UDN
+            all.putAll(roots);
+            this.roots = Collections.unmodifiableMap(roots);
+            this.all = Collections.unmodifiableMap(all);
+            this.devices = Collections.unmodifiableCollection(roots.values());
+        }
+    }
 }
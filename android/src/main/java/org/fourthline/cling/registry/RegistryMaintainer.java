@@ -19,7 +19,13 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Runs periodically and calls {@link org.fourthline.cling.registry.RegistryImpl#maintain()}.
+ * Calls {@link org.fourthline.cling.registry.RegistryImpl#maintain()} when a registry item is due.
+ * <p>
+ * Maintenance returns when the next device or subscription expires, or the next ALIVE
+ * advertisement has to be sent, and the thread waits until then. Adding an item that is
+ * due earlier wakes it up with {@link #schedule(long)}. Items due within the sleep interval
+ * of each other are maintained together, maintenance never runs more often than that.
+ * </p>
  *
  * @author Christian Bauer
  */
@@ -32,6 +38,9 @@ public class RegistryMaintainer implements Runnable {
 
     private volatile boolean stopped = false;
 
+    // Guarded by this
+    private long nextMaintenanceMillis = Long.MAX_VALUE;
+
     public RegistryMaintainer(RegistryImpl registry, int sleepIntervalMillis) {
         this.registry = registry;
         this.sleepIntervalMillis = sleepIntervalMillis;
@@ -41,17 +50,36 @@ public class RegistryMaintainer implements Runnable {
         if (log.isLoggable(Level.FINE))
             log.fine("Setting stopped status on thread");
         stopped = true;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Runs maintenance at the given time, unless it is already scheduled earlier.
+     *
+     * @param timestampMillis The time when an item is due, in milliseconds.
+     */
+    synchronized public void schedule(long timestampMillis) {
+        if (timestampMillis < nextMaintenanceMillis) {
+            nextMaintenanceMillis = timestampMillis;
+            notifyAll();
+        }
     }
 
     public void run() {
         stopped = false;
         if (log.isLoggable(Level.FINE))
-            log.fine("Running registry maintenance loop every milliseconds: " + sleepIntervalMillis);
+            log.fine("Running registry maintenance when items are due, at most every milliseconds: " + sleepIntervalMillis);
         while (!stopped) {
 
             try {
-                registry.maintain();
-                Thread.sleep(sleepIntervalMillis);
+                synchronized (this) {
+                    nextMaintenanceMillis = Long.MAX_VALUE;
+                }
+                long lastMaintenanceMillis = System.currentTimeMillis();
+                schedule(registry.maintain());
+                waitUntilDue(lastMaintenanceMillis + sleepIntervalMillis);
             } catch (InterruptedException ex) {
                 stopped = true;
             }
@@ -60,4 +88,22 @@ public class RegistryMaintainer implements Runnable {
         log.fine("Stopped status on thread received, ending maintenance loop");
     }
 
-}
\ No newline at end of file
+    synchronized protected void waitUntilDue(long earliestMillis) throws InterruptedException {
+        while (!stopped) {
+            long dueMillis = Math.max(nextMaintenanceMillis, earliestMillis);
+            if (dueMillis == Long.MAX_VALUE) {
+                if (log.isLoggable(Level.FINEST))
+                    log.finest("No registry items due, waiting for the next one");
+                wait();
+                continue;
+            }
+            long remainingMillis = dueMillis - System.currentTimeMillis();
+            if (remainingMillis <= 0)
+                return;
+            if (log.isLoggable(Level.FINEST))
+                log.finest("Next registry maintenance in milliseconds: " + remainingMillis);
+            wait(remainingMillis);
+        }
+    }
+
+}
@@ -90,6 +90,8 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
         log.fine("Adding hydrated remote device to registry with "
                          + item.getExpirationDetails().getMaxAgeSeconds() + " seconds expiration: " + device);
         getDeviceItems().add(item);
+        devicesChanged();
+        registry.scheduleMaintenance(item.getExpirationDetails().getExpirationTimestampMillis(false));
 
         if (log.isLoggable(Level.FINEST)) {
             StringBuilder sb = new StringBuilder();
@@ -145,6 +147,7 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
             log.fine("Updating expiration of: " + registeredRemoteDevice);
             getDeviceItems().remove(item);
             getDeviceItems().add(item);
+            registry.scheduleMaintenance(item.getExpirationDetails().getExpirationTimestampMillis(false));
 
             log.fine("Remote device updated, calling listeners: " + registeredRemoteDevice);
             for (final RegistryListener listener : registry.getListeners()) {
@@ -197,6 +200,7 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
                 if (subscriptionForUDN.equals(registeredDevice.getIdentity().getUdn())) {
                     log.fine("Removing outgoing subscription: " + outgoingSubscription.getKey());
                     it.remove();
+                    subscriptionsChanged();
                     if (!shuttingDown) {
                         registry.getConfiguration().getRegistryListenerExecutor().execute(
                                 new Runnable() {
@@ -224,6 +228,7 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
 
             // Finally, remove the device from the registry
             getDeviceItems().remove(new RegistryItem(registeredDevice.getIdentity().getUdn()));
+            devicesChanged();
 
             return true;
         }
@@ -248,9 +253,11 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
         // Noop
     }
 
-    void maintain() {
+    long maintain() {
 
-        if (getDeviceItems().isEmpty()) return;
+        if (getDeviceItems().isEmpty()) return Long.MAX_VALUE;
+
+        long nextDueMillis = Long.MAX_VALUE;
 
         // Remove expired remote devices
         Map<UDN, RemoteDevice> expiredRemoteDevices = new HashMap();
@@ -260,6 +267,8 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
                                    + remoteItem.getExpirationDetails().getSecondsUntilExpiration());
             if (remoteItem.getExpirationDetails().hasExpired(false)) {
                 expiredRemoteDevices.put(remoteItem.getKey(), remoteItem.getItem());
+            } else {
+                nextDueMillis = Math.min(nextDueMillis, remoteItem.getExpirationDetails().getExpirationTimestampMillis(false));
             }
         }
         for (RemoteDevice remoteDevice : expiredRemoteDevices.values()) {
@@ -273,6 +282,8 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
         for (RegistryItem<String, RemoteGENASubscription> item : getSubscriptionItems()) {
             if (item.getExpirationDetails().hasExpired(true)) {
                 expiredOutgoingSubscriptions.add(item.getItem());
+            } else {
+                nextDueMillis = Math.min(nextDueMillis, getSubscriptionDueMillis(item));
             }
         }
         for (RemoteGENASubscription subscription : expiredOutgoingSubscriptions) {
@@ -280,6 +291,15 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
                 log.fine("Renewing outgoing subscription: " + subscription);
             renewOutgoingSubscription(subscription);
         }
+        return nextDueMillis;
+    }
+
+    /**
+     * Outgoing subscriptions are renewed at half of their duration.
+     */
+    @Override
+    long getSubscriptionDueMillis(RegistryItem<String, RemoteGENASubscription> subscriptionItem) {
+        return subscriptionItem.getExpirationDetails().getExpirationTimestampMillis(true);
     }
 
     public void resume() {
@@ -31,6 +31,7 @@ import org.fourthline.cling.support.model.container.Container;
 import org.fourthline.cling.support.model.item.Item;
 import org.seamless.util.io.IO;
 import org.seamless.util.Exceptions;
+import org.seamless.xml.ParserException;
 import org.seamless.xml.SAXParser;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -39,6 +40,7 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.OutputKeys;
@@ -46,10 +48,19 @@ import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedWriter;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
 import java.net.URI;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -81,6 +92,35 @@ public class DIDLParser extends SAXParser {
 
     public static final String UNKNOWN_TITLE = "Unknown Title";
 
+    final private static Attributes NO_ATTRIBUTES = new AttributesImpl();
+
+    final private static List<String> DOM_METHODS = Arrays.asList(
+        "documentToString", "buildDOM", "generateRoot", "generateContainer", "generateItem",
+        "generateResource", "generateDescMetadata", "populateDescMetadata", "appendProperties",
+        "appendClass", "booleanToInt"
+    );
+
+    // Subclasses customizing the DOM keep generating through it
+    final private boolean domOverridden = overridesDOM(getClass());
+
+    /**
+     * Receives the containers and items of a DIDL document while it is parsed.
+     *
+     * @see #parse(String, Listener)
+     */
+    public interface Listener {
+
+        /**
+         * @return <code>false</code> to stop parsing.
+         */
+        boolean container(Container container);
+
+        /**
+         * @return <code>false</code> to stop parsing.
+         */
+        boolean item(Item item);
+    }
+
     /**
      * Uses the current thread's context classloader to read and unmarshall the given resource.
      *
@@ -119,10 +159,48 @@ public class DIDLParser extends SAXParser {
         return content;
     }
 
+    /**
+     * Reads an XML representation and hands each top-level container and item to the
+     * listener as soon as its element has been parsed.
+     * <p>
+     * The objects aren't collected, so a large result doesn't have to be held in memory
+     * at once. Properties and description metadata are materialized when they are first
+     * accessed, only their elements are recorded while parsing.
+     * </p>
+     *
+     * @param xml The XML representation.
+     * @param listener Receives the objects, on the calling thread.
+     * @return A DIDL content model with the description metadata of the document only.
+     * @throws Exception
+     */
+    public DIDLContent parse(String xml, Listener listener) throws Exception {
+
+        if (xml == null || xml.length() == 0) {
+            throw new RuntimeException("Null or empty XML");
+        }
+
+        DIDLContent content = new DIDLContent();
+        createRootHandler(content, this, listener);
+
+        log.fine("Parsing DIDL XML content with listener");
+        try {
+            parse(new InputSource(new StringReader(xml)));
+        } catch (ParserException ex) {
+            if (!(ex.getCause() instanceof StoppedException))
+                throw ex;
+            log.fine("Listener stopped parsing DIDL XML content");
+        }
+        return content;
+    }
+
     protected RootHandler createRootHandler(DIDLContent instance, SAXParser parser) {
         return new RootHandler(instance, parser);
     }
 
+    protected RootHandler createRootHandler(DIDLContent instance, SAXParser parser, Listener listener) {
+        return new RootHandler(instance, parser, listener);
+    }
+
     protected ContainerHandler createContainerHandler(Container instance, Handler parent) {
         return new ContainerHandler(instance, parent);
     }
@@ -237,8 +315,17 @@ public class DIDLParser extends SAXParser {
     }
 
     protected DescMeta createDescMeta(Attributes attributes) {
-        DescMeta desc = new DescMeta();
+        return populateDescMeta(new DescMeta(), attributes);
+    }
+
+    /**
+     * @return A description whose metadata document is built when it is first accessed.
+     */
+    protected DescMeta createDeferredDescMeta(Attributes attributes) {
+        return populateDescMeta(new DeferredDescMeta(), attributes);
+    }
 
+    protected DescMeta populateDescMeta(DescMeta desc, Attributes attributes) {
         desc.setId(attributes.getValue("id"));
 
         if ((attributes.getValue("type") != null))
@@ -277,6 +364,11 @@ public class DIDLParser extends SAXParser {
      * parser can read such a structure, it is unclear whether other DIDL
      * parsers should and actually do support this XML.
      * </p>
+     * <p>
+     * The XML is written by a {@link DIDLWriter}, without building a DOM. Subclasses which
+     * override one of the DOM methods, such as <code>generateItem()</code>, get the XML of
+     * {@link #generateDOM(DIDLContent, boolean)} instead.
+     * </p>
      *
      * @param content     The content model.
      * @param nestedItems <code>true</code> if nested item elements should be rendered for containers.
@@ -284,9 +376,52 @@ public class DIDLParser extends SAXParser {
      * @throws Exception
      */
     public String generate(DIDLContent content, boolean nestedItems) throws Exception {
+        if (domOverridden)
+            return generateDOM(content, nestedItems);
+        StringWriter out = new StringWriter();
+        createDIDLWriter(out).write(content, nestedItems);
+        return out.toString();
+    }
+
+    /**
+     * Writes the UTF-8 encoded XML representation of the content model to the stream.
+     * <p>
+     * The stream is flushed but not closed.
+     * </p>
+     *
+     * @see #generate(DIDLContent, boolean)
+     */
+    public void generate(DIDLContent content, boolean nestedItems, OutputStream out) throws Exception {
+        if (domOverridden) {
+            out.write(generateDOM(content, nestedItems).getBytes("UTF-8"));
+            out.flush();
+            return;
+        }
+        createDIDLWriter(new BufferedWriter(new OutputStreamWriter(out, "UTF-8"))).write(content, nestedItems);
+    }
+
+    /**
+     * Generates the XML representation of the content model through a DOM, the same
+     * markup {@link #generate(DIDLContent, boolean)} writes directly.
+     */
+    public String generateDOM(DIDLContent content, boolean nestedItems) throws Exception {
         return documentToString(buildDOM(content, nestedItems), true);
     }
 
+    protected DIDLWriter createDIDLWriter(Writer out) {
+        return new DIDLWriter(out);
+    }
+
+    protected static boolean overridesDOM(Class<?> clazz) {
+        for (Class<?> c = clazz; c != DIDLParser.class; c = c.getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (DOM_METHODS.contains(method.getName()))
+                    return true;
+            }
+        }
+        return false;
+    }
+
     // TODO: Yes, this only runs on Android 2.2
 
     protected String documentToString(Document document, boolean omitProlog) throws Exception {
@@ -628,8 +763,28 @@ public class DIDLParser extends SAXParser {
 
     public abstract class DIDLObjectHandler<I extends DIDLObject> extends Handler<I> {
 
+        final protected boolean deferred;
+        protected DeferredProperties deferredProperties;
+
         protected DIDLObjectHandler(I instance, Handler parent) {
             super(instance, parent);
+            if (parent instanceof RootHandler) {
+                deferred = ((RootHandler) parent).getListener() != null;
+            } else {
+                deferred = parent instanceof DIDLObjectHandler && ((DIDLObjectHandler) parent).isDeferred();
+            }
+            if (deferred) {
+                deferredProperties = new DeferredProperties();
+                instance.setProperties(deferredProperties);
+            }
+        }
+
+        /**
+         * @return <code>true</code> if properties and description metadata are only
+         *         materialized when they are accessed.
+         */
+        public boolean isDeferred() {
+            return deferred;
         }
 
         @Override
@@ -642,20 +797,8 @@ public class DIDLParser extends SAXParser {
                     getInstance().setTitle(getCharacters());
                 } else if ("creator".equals(localName)) {
                     getInstance().setCreator(getCharacters());
-                } else if ("description".equals(localName)) {
-                    getInstance().addProperty(new DIDLObject.Property.DC.DESCRIPTION(getCharacters()));
-                } else if ("publisher".equals(localName)) {
-                    getInstance().addProperty(new DIDLObject.Property.DC.PUBLISHER(new Person(getCharacters())));
-                } else if ("contributor".equals(localName)) {
-                    getInstance().addProperty(new DIDLObject.Property.DC.CONTRIBUTOR(new Person(getCharacters())));
-                } else if ("date".equals(localName)) {
-                    getInstance().addProperty(new DIDLObject.Property.DC.DATE(getCharacters()));
-                } else if ("language".equals(localName)) {
-                    getInstance().addProperty(new DIDLObject.Property.DC.LANGUAGE(getCharacters()));
-                } else if ("rights".equals(localName)) {
-                    getInstance().addProperty(new DIDLObject.Property.DC.RIGHTS(getCharacters()));
-                } else if ("relation".equals(localName)) {
-                    getInstance().addProperty(new DIDLObject.Property.DC.RELATION(URI.create(getCharacters())));
+                } else {
+                    addProperty(uri, localName);
                 }
 
             } else if (DIDLObject.Property.UPNP.NAMESPACE.URI.equals(uri)) {
@@ -675,158 +818,223 @@ public class DIDLParser extends SAXParser {
                                     getAttributes().getValue("name")
                             )
                     );
-                } else if ("artist".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.ARTIST(
-                                    new PersonWithRole(getCharacters(), getAttributes().getValue("role"))
-                            )
-                    );
-                } else if ("actor".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.ACTOR(
-                                    new PersonWithRole(getCharacters(), getAttributes().getValue("role"))
-                            )
-                    );
-                } else if ("author".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.AUTHOR(
-                                    new PersonWithRole(getCharacters(), getAttributes().getValue("role"))
-                            )
-                    );
-                } else if ("producer".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.PRODUCER(new Person(getCharacters()))
-                    );
-                } else if ("director".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.DIRECTOR(new Person(getCharacters()))
-                    );
-                } else if ("longDescription".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.LONG_DESCRIPTION(getCharacters())
-                    );
-                } else if ("storageUsed".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.STORAGE_USED(Long.valueOf(getCharacters()))
-                    );
-                } else if ("storageTotal".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.STORAGE_TOTAL(Long.valueOf(getCharacters()))
-                    );
-                } else if ("storageFree".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.STORAGE_FREE(Long.valueOf(getCharacters()))
-                    );
-                } else if ("storageMaxPartition".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.STORAGE_MAX_PARTITION(Long.valueOf(getCharacters()))
-                    );
-                } else if ("storageMedium".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.STORAGE_MEDIUM(StorageMedium.valueOrVendorSpecificOf(getCharacters()))
-                    );
-                } else if ("genre".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.GENRE(getCharacters())
-                    );
-                } else if ("album".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.ALBUM(getCharacters())
-                    );
-                } else if ("playlist".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.PLAYLIST(getCharacters())
-                    );
-                } else if ("region".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.REGION(getCharacters())
-                    );
-                } else if ("rating".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.RATING(getCharacters())
-                    );
-                } else if ("toc".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.TOC(getCharacters())
-                    );
-                } else if ("albumArtURI".equals(localName)) {
-                    DIDLObject.Property albumArtURI = new DIDLObject.Property.UPNP.ALBUM_ART_URI(URI.create(getCharacters()));
-
-                    Attributes albumArtURIAttributes = getAttributes();
-                    for (int i = 0; i < albumArtURIAttributes.getLength(); i++) {
-                        if ("profileID".equals(albumArtURIAttributes.getLocalName(i))) {
-                            albumArtURI.addAttribute(
-                                    new DIDLObject.Property.DLNA.PROFILE_ID(
-                                            new DIDLAttribute(
-                                                    DIDLObject.Property.DLNA.NAMESPACE.URI,
-                                                    "dlna",
-                                                    albumArtURIAttributes.getValue(i))
-                                    ));
-                        }
+                } else {
+                    addProperty(uri, localName);
+                }
+
+            } else if (DIDLContent.NAMESPACE_URI.equals(uri)
+                    && ("item".equals(localName) || "container".equals(localName))
+                    && getParent() instanceof RootHandler) {
+
+                // End of this object, nested objects have their own handler
+                ((RootHandler) getParent()).parsed(getInstance());
+            }
+        }
+
+        protected void addProperty(String uri, String localName) {
+            if (deferred) {
+                deferredProperties.defer(uri, localName, getCharacters(), getAttributes());
+            } else {
+                DIDLObject.Property property = createProperty(uri, localName, getCharacters(), getAttributes());
+                if (property != null)
+                    getInstance().addProperty(property);
+            }
+        }
+    }
+
+    /**
+     * @return The property for a DC or UPNP namespace element, or <code>null</code> if the element is unknown.
+     */
+    protected DIDLObject.Property createProperty(String uri, String localName, String characters, Attributes attributes) {
+
+        if (DIDLObject.Property.DC.NAMESPACE.URI.equals(uri)) {
+
+            if ("description".equals(localName)) {
+                return new DIDLObject.Property.DC.DESCRIPTION(characters);
+            } else if ("publisher".equals(localName)) {
+                return new DIDLObject.Property.DC.PUBLISHER(new Person(characters));
+            } else if ("contributor".equals(localName)) {
+                return new DIDLObject.Property.DC.CONTRIBUTOR(new Person(characters));
+            } else if ("date".equals(localName)) {
+                return new DIDLObject.Property.DC.DATE(characters);
+            } else if ("language".equals(localName)) {
+                return new DIDLObject.Property.DC.LANGUAGE(characters);
+            } else if ("rights".equals(localName)) {
+                return new DIDLObject.Property.DC.RIGHTS(characters);
+            } else if ("relation".equals(localName)) {
+                return new DIDLObject.Property.DC.RELATION(URI.create(characters));
+            }
+
+        } else if (DIDLObject.Property.UPNP.NAMESPACE.URI.equals(uri)) {
+
+            if ("artist".equals(localName)) {
+                return new DIDLObject.Property.UPNP.ARTIST(
+                        new PersonWithRole(characters, attributes.getValue("role"))
+                );
+            } else if ("actor".equals(localName)) {
+                return new DIDLObject.Property.UPNP.ACTOR(
+                        new PersonWithRole(characters, attributes.getValue("role"))
+                );
+            } else if ("author".equals(localName)) {
+                return new DIDLObject.Property.UPNP.AUTHOR(
+                        new PersonWithRole(characters, attributes.getValue("role"))
+                );
+            } else if ("producer".equals(localName)) {
+                return new DIDLObject.Property.UPNP.PRODUCER(new Person(characters));
+            } else if ("director".equals(localName)) {
+                return new DIDLObject.Property.UPNP.DIRECTOR(new Person(characters));
+            } else if ("longDescription".equals(localName)) {
+                return new DIDLObject.Property.UPNP.LONG_DESCRIPTION(characters);
+            } else if ("storageUsed".equals(localName)) {
+                return new DIDLObject.Property.UPNP.STORAGE_USED(Long.valueOf(characters));
+            } else if ("storageTotal".equals(localName)) {
+                return new DIDLObject.Property.UPNP.STORAGE_TOTAL(Long.valueOf(characters));
+            } else if ("storageFree".equals(localName)) {
+                return new DIDLObject.Property.UPNP.STORAGE_FREE(Long.valueOf(characters));
+            } else if ("storageMaxPartition".equals(localName)) {
+                return new DIDLObject.Property.UPNP.STORAGE_MAX_PARTITION(Long.valueOf(characters));
+            } else if ("storageMedium".equals(localName)) {
+                return new DIDLObject.Property.UPNP.STORAGE_MEDIUM(StorageMedium.valueOrVendorSpecificOf(characters));
+            } else if ("genre".equals(localName)) {
+                return new DIDLObject.Property.UPNP.GENRE(characters);
+            } else if ("album".equals(localName)) {
+                return new DIDLObject.Property.UPNP.ALBUM(characters);
+            } else if ("playlist".equals(localName)) {
+                return new DIDLObject.Property.UPNP.PLAYLIST(characters);
+            } else if ("region".equals(localName)) {
+                return new DIDLObject.Property.UPNP.REGION(characters);
+            } else if ("rating".equals(localName)) {
+                return new DIDLObject.Property.UPNP.RATING(characters);
+            } else if ("toc".equals(localName)) {
+                return new DIDLObject.Property.UPNP.TOC(characters);
+            } else if ("albumArtURI".equals(localName)) {
+                DIDLObject.Property albumArtURI = new DIDLObject.Property.UPNP.ALBUM_ART_URI(URI.create(characters));
+
+                for (int i = 0; i < attributes.getLength(); i++) {
+                    if ("profileID".equals(attributes.getLocalName(i))) {
+                        albumArtURI.addAttribute(
+                                new DIDLObject.Property.DLNA.PROFILE_ID(
+                                        new DIDLAttribute(
+                                                DIDLObject.Property.DLNA.NAMESPACE.URI,
+                                                "dlna",
+                                                attributes.getValue(i))
+                                ));
                     }
+                }
 
-                    getInstance().addProperty(albumArtURI);
-                } else if ("artistDiscographyURI".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.ARTIST_DISCO_URI(URI.create(getCharacters()))
-                    );
-                } else if ("lyricsURI".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.LYRICS_URI(URI.create(getCharacters()))
-                    );
-                } else if ("icon".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.ICON(URI.create(getCharacters()))
-                    );
-                } else if ("radioCallSign".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.RADIO_CALL_SIGN(getCharacters())
-                    );
-                } else if ("radioStationID".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.RADIO_STATION_ID(getCharacters())
-                    );
-                } else if ("radioBand".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.RADIO_BAND(getCharacters())
-                    );
-                } else if ("channelNr".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.CHANNEL_NR(Integer.valueOf(getCharacters()))
-                    );
-                } else if ("channelName".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.CHANNEL_NAME(getCharacters())
-                    );
-                } else if ("scheduledStartTime".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.SCHEDULED_START_TIME(getCharacters())
-                    );
-                } else if ("scheduledEndTime".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.SCHEDULED_END_TIME(getCharacters())
-                    );
-                } else if ("DVDRegionCode".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.DVD_REGION_CODE(Integer.valueOf(getCharacters()))
-                    );
-                } else if ("originalTrackNumber".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.ORIGINAL_TRACK_NUMBER(Integer.valueOf(getCharacters()))
-                    );
-                } else if ("userAnnotation".equals(localName)) {
-                    getInstance().addProperty(
-                            new DIDLObject.Property.UPNP.USER_ANNOTATION(getCharacters())
-                    );
+                return albumArtURI;
+            } else if ("artistDiscographyURI".equals(localName)) {
+                return new DIDLObject.Property.UPNP.ARTIST_DISCO_URI(URI.create(characters));
+            } else if ("lyricsURI".equals(localName)) {
+                return new DIDLObject.Property.UPNP.LYRICS_URI(URI.create(characters));
+            } else if ("icon".equals(localName)) {
+                return new DIDLObject.Property.UPNP.ICON(URI.create(characters));
+            } else if ("radioCallSign".equals(localName)) {
+                return new DIDLObject.Property.UPNP.RADIO_CALL_SIGN(characters);
+            } else if ("radioStationID".equals(localName)) {
+                return new DIDLObject.Property.UPNP.RADIO_STATION_ID(characters);
+            } else if ("radioBand".equals(localName)) {
+                return new DIDLObject.Property.UPNP.RADIO_BAND(characters);
+            } else if ("channelNr".equals(localName)) {
+                return new DIDLObject.Property.UPNP.CHANNEL_NR(Integer.valueOf(characters));
+            } else if ("channelName".equals(localName)) {
+                return new DIDLObject.Property.UPNP.CHANNEL_NAME(characters);
+            } else if ("scheduledStartTime".equals(localName)) {
+                return new DIDLObject.Property.UPNP.SCHEDULED_START_TIME(characters);
+            } else if ("scheduledEndTime".equals(localName)) {
+                return new DIDLObject.Property.UPNP.SCHEDULED_END_TIME(characters);
+            } else if ("DVDRegionCode".equals(localName)) {
+                return new DIDLObject.Property.UPNP.DVD_REGION_CODE(Integer.valueOf(characters));
+            } else if ("originalTrackNumber".equals(localName)) {
+                return new DIDLObject.Property.UPNP.ORIGINAL_TRACK_NUMBER(Integer.valueOf(characters));
+            } else if ("userAnnotation".equals(localName)) {
+                return new DIDLObject.Property.UPNP.USER_ANNOTATION(characters);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The properties of an object, recorded while parsing and created on first access.
+     * <p>
+     * The list is shared when a generic object is replaced by a specific one. Invalid
+     * values are skipped with a log message, instead of failing the whole document.
+     * </p>
+     */
+    protected class DeferredProperties extends AbstractList<DIDLObject.Property> {
+
+        private List<String[]> pending = new ArrayList<String[]>();
+        private List<Attributes> pendingAttributes = new ArrayList<Attributes>();
+        private List<DIDLObject.Property> properties;
+
+        protected void defer(String uri, String localName, String characters, Attributes attributes) {
+            pending.add(new String[]{uri, localName, characters});
+            pendingAttributes.add(
+                    attributes != null && attributes.getLength() > 0 ? new AttributesImpl(attributes) : NO_ATTRIBUTES
+            );
+        }
+
+        synchronized protected List<DIDLObject.Property> materialize() {
+            if (properties == null) {
+                properties = new ArrayList<DIDLObject.Property>(pending.size());
+                for (int i = 0; i < pending.size(); i++) {
+                    String[] element = pending.get(i);
+                    try {
+                        DIDLObject.Property property =
+                                createProperty(element[0], element[1], element[2], pendingAttributes.get(i));
+                        if (property != null)
+                            properties.add(property);
+                    } catch (Exception ex) {
+                        log.info("Ignoring invalid '" + element[1] + "' value: " + element[2]);
+                    }
                 }
+                pending = null;
+                pendingAttributes = null;
             }
+            return properties;
+        }
+
+        @Override
+        public DIDLObject.Property get(int index) {
+            return materialize().get(index);
+        }
+
+        @Override
+        public int size() {
+            return materialize().size();
+        }
+
+        @Override
+        public DIDLObject.Property set(int index, DIDLObject.Property property) {
+            return materialize().set(index, property);
+        }
+
+        @Override
+        public void add(int index, DIDLObject.Property property) {
+            materialize().add(index, property);
+        }
+
+        @Override
+        public DIDLObject.Property remove(int index) {
+            return materialize().remove(index);
         }
     }
 
     public class RootHandler extends Handler<DIDLContent> {
 
+        final protected Listener listener;
+
         RootHandler(DIDLContent instance, SAXParser parser) {
+            this(instance, parser, null);
+        }
+
+        RootHandler(DIDLContent instance, SAXParser parser, Listener listener) {
             super(instance, parser);
+            this.listener = listener;
+        }
+
+        public Listener getListener() {
+            return listener;
         }
 
         @Override
@@ -838,13 +1046,15 @@ public class DIDLParser extends SAXParser {
             if (localName.equals("container")) {
 
                 Container container = createContainer(attributes);
-                getInstance().addContainer(container);
+                if (listener == null)
+                    getInstance().addContainer(container);
                 createContainerHandler(container, this);
 
             } else if (localName.equals("item")) {
 
                 Item item = createItem(attributes);
-                getInstance().addItem(item);
+                if (listener == null)
+                    getInstance().addItem(item);
                 createItemHandler(item, this);
 
             } else if (localName.equals("desc")) {
@@ -856,6 +1066,22 @@ public class DIDLParser extends SAXParser {
             }
         }
 
+        /**
+         * Called when a top-level container or item has been parsed, hands it to the listener.
+         */
+        protected void parsed(DIDLObject object) throws SAXException {
+            if (listener == null)
+                return;
+            boolean proceed;
+            if (object instanceof Container) {
+                proceed = listener.container(getInstance().replaceGenericContainer((Container) object));
+            } else {
+                proceed = listener.item(getInstance().replaceGenericItem((Item) object));
+            }
+            if (!proceed)
+                throw new StoppedException();
+        }
+
         @Override
         protected boolean isLastElement(String uri, String localName, String qName) {
             if (DIDLContent.NAMESPACE_URI.equals(uri) && "DIDL-Lite".equals(localName)) {
@@ -889,7 +1115,7 @@ public class DIDLParser extends SAXParser {
 
             } else if (localName.equals("desc")) {
 
-                DescMeta desc = createDescMeta(attributes);
+                DescMeta desc = isDeferred() ? createDeferredDescMeta(attributes) : createDescMeta(attributes);
                 getInstance().addDescMetadata(desc);
                 createDescMetaHandler(desc, this);
 
@@ -973,7 +1199,7 @@ public class DIDLParser extends SAXParser {
 
             } else if (localName.equals("desc")) {
 
-                DescMeta desc = createDescMeta(attributes);
+                DescMeta desc = isDeferred() ? createDeferredDescMeta(attributes) : createDescMeta(attributes);
                 getInstance().addDescMetadata(desc);
                 createDescMetaHandler(desc, this);
 
@@ -1023,10 +1249,16 @@ public class DIDLParser extends SAXParser {
 
         protected Element current;
 
+        protected DeferredDescMeta deferred;
+
         public DescMetaHandler(DescMeta instance, Handler parent) {
             super(instance, parent);
-            instance.setMetadata(instance.createMetadataDocument());
-            current = getInstance().getMetadata().getDocumentElement();
+            if (instance instanceof DeferredDescMeta) {
+                deferred = (DeferredDescMeta) instance;
+            } else {
+                instance.setMetadata(instance.createMetadataDocument());
+                current = getInstance().getMetadata().getDocumentElement();
+            }
         }
 
         @Override
@@ -1038,6 +1270,11 @@ public class DIDLParser extends SAXParser {
         public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
             super.startElement(uri, localName, qName, attributes);
 
+            if (deferred != null) {
+                deferred.startElement(uri, qName, attributes);
+                return;
+            }
+
             Element newEl = getInstance().getMetadata().createElementNS(uri, qName);
             for (int i = 0; i < attributes.getLength(); i++) {
                 newEl.setAttributeNS(
@@ -1055,11 +1292,12 @@ public class DIDLParser extends SAXParser {
             super.endElement(uri, localName, qName);
             if (isLastElement(uri, localName, qName)) return;
 
-            // Ignore whitespace
-            if (getCharacters().length() > 0 && !getCharacters().matches("[\\t\\n\\x0B\\f\\r\\s]+"))
-                current.appendChild(getInstance().getMetadata().createTextNode(getCharacters()));
-
-            current = (Element) current.getParentNode();
+            if (deferred != null) {
+                deferred.endElement(getCharacters());
+            } else {
+                appendText(current, getCharacters());
+                current = (Element) current.getParentNode();
+            }
 
             // Reset this so we can continue parsing child nodes with this handler
             characters = new StringBuilder();
@@ -1071,4 +1309,72 @@ public class DIDLParser extends SAXParser {
             return DIDLContent.NAMESPACE_URI.equals(uri) && "desc".equals(localName);
         }
     }
+
+    protected static void appendText(Element element, String characters) {
+        // Ignore whitespace
+        if (characters.length() > 0 && !characters.matches("[\\t\\n\\x0B\\f\\r\\s]+"))
+            element.appendChild(element.getOwnerDocument().createTextNode(characters));
+    }
+
+    /**
+     * Description metadata recorded while parsing, the document is built on first access
+     * like {@link DescMetaHandler} builds it.
+     */
+    protected static class DeferredDescMeta extends DescMeta<Document> {
+
+        // Start: URI, qualified name, attributes; end: text
+        private List<Object[]> events = new ArrayList<Object[]>();
+
+        protected void startElement(String uri, String qName, Attributes attributes) {
+            events.add(new Object[]{
+                    uri, qName, attributes.getLength() > 0 ? new AttributesImpl(attributes) : NO_ATTRIBUTES
+            });
+        }
+
+        protected void endElement(String characters) {
+            events.add(new Object[]{characters});
+        }
+
+        @Override
+        synchronized public Document getMetadata() {
+            if (events != null) {
+                Document document = createMetadataDocument();
+                Element current = document.getDocumentElement();
+                for (Object[] event : events) {
+                    if (event.length == 3) {
+                        Attributes attributes = (Attributes) event[2];
+                        Element newEl = document.createElementNS((String) event[0], (String) event[1]);
+                        for (int i = 0; i < attributes.getLength(); i++) {
+                            newEl.setAttributeNS(
+                                    attributes.getURI(i),
+                                    attributes.getQName(i),
+                                    attributes.getValue(i)
+                            );
+                        }
+                        current.appendChild(newEl);
+                        current = newEl;
+                    } else {
+                        appendText(current, (String) event[0]);
+                        current = (Element) current.getParentNode();
+                    }
+                }
+                metadata = document;
+                events = null;
+            }
+            return metadata;
+        }
+
+        @Override
+        synchronized public void setMetadata(Document metadata) {
+            this.metadata = metadata;
+            events = null;
+        }
+    }
+
+    /**
+     * Thrown through the SAX parser when a {@link Listener} stops parsing.
+     */
+    protected static class StoppedException extends SAXException {
+        private static final long serialVersionUID = 4183250813468924612L;
+    }
 }
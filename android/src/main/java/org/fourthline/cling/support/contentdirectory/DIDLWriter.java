@@ -0,0 +1,487 @@
+/*
+ * Copyright (C) 2013 4th Line GmbH, Switzerland
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * Lesser General Public License Version 2 or later ("LGPL") or the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.fourthline.cling.support.contentdirectory;
+
+import org.fourthline.cling.support.model.DIDLAttribute;
+import org.fourthline.cling.support.model.DIDLContent;
+import org.fourthline.cling.support.model.DIDLObject;
+import org.fourthline.cling.support.model.DescMeta;
+import org.fourthline.cling.support.model.PersonWithRole;
+import org.fourthline.cling.support.model.Res;
+import org.fourthline.cling.support.model.container.Container;
+import org.fourthline.cling.support.model.item.Item;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Writes DIDL-Lite XML to a character stream without building a DOM.
+ * <p>
+ * The markup is the same {@link DIDLParser#generateDOM(DIDLContent, boolean)} produces, but
+ * objects are written one at a time. A content directory can render a page of a large
+ * container this way without collecting it in a {@link DIDLContent} first.
+ * </p>
+ * <pre>
+ * DIDLWriter writer = new DIDLWriter(out);
+ * writer.writeStartDocument();
+ * for (Item item : page) writer.writeItem(item);
+ * writer.writeEndDocument();
+ * </pre>
+ */
+public class DIDLWriter {
+
+    final private static Logger log = Logger.getLogger(DIDLWriter.class.getName());
+
+    /**
+     * Namespace declarations first, then attributes by name, the order of the DOM serializer.
+     */
+    final private static Comparator<String[]> ATTRIBUTE_ORDER = new Comparator<String[]>() {
+        public int compare(String[] a, String[] b) {
+            boolean aDeclaration = isNamespaceDeclaration(a[0]);
+            boolean bDeclaration = isNamespaceDeclaration(b[0]);
+            if (aDeclaration != bDeclaration)
+                return aDeclaration ? -1 : 1;
+            return a[0].compareTo(b[0]);
+        }
+    };
+
+    final protected Writer out;
+
+    // Elements still open, innermost first
+    final private LinkedList<String> elements = new LinkedList<String>();
+
+    // Attributes of the start tag which hasn't been closed yet
+    final private List<String[]> attributes = new ArrayList<String[]>();
+    private boolean startTagOpen;
+
+    public DIDLWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the given content model, see {@link DIDLParser#generate(DIDLContent, boolean)}.
+     */
+    public void write(DIDLContent content, boolean nestedItems) throws IOException {
+        writeStartDocument();
+
+        for (Container container : content.getContainers()) {
+            if (container == null) continue;
+            writeContainer(container, nestedItems);
+        }
+
+        for (Item item : content.getItems()) {
+            if (item == null) continue;
+            writeItem(item);
+        }
+
+        for (DescMeta descMeta : content.getDescMetadata()) {
+            if (descMeta == null) continue;
+            writeDescMetadata(descMeta);
+        }
+
+        writeEndDocument();
+    }
+
+    public void writeStartDocument() throws IOException {
+        startElement("DIDL-Lite");
+        attribute("xmlns", DIDLContent.NAMESPACE_URI);
+        attribute("xmlns:upnp", DIDLObject.Property.UPNP.NAMESPACE.URI);
+        attribute("xmlns:dc", DIDLObject.Property.DC.NAMESPACE.URI);
+        attribute("xmlns:sec", DIDLObject.Property.SEC.NAMESPACE.URI);
+    }
+
+    /**
+     * Closes the root element and flushes the underlying writer.
+     */
+    public void writeEndDocument() throws IOException {
+        while (!elements.isEmpty()) {
+            endElement();
+        }
+        out.flush();
+    }
+
+    public void writeContainer(Container container, boolean nestedItems) throws IOException {
+
+        if (container.getClazz() == null) {
+            throw new RuntimeException("Missing 'upnp:class' element for container: " + container.getId());
+        }
+
+        startElement("container");
+
+        if (container.getId() == null)
+            throw new NullPointerException("Missing id on container: " + container);
+        attribute("id", container.getId());
+
+        if (container.getParentID() == null)
+            throw new NullPointerException("Missing parent id on container: " + container);
+        attribute("parentID", container.getParentID());
+
+        if (container.getChildCount() != null) {
+            attribute("childCount", Integer.toString(container.getChildCount()));
+        }
+
+        attribute("restricted", booleanToInt(container.isRestricted()));
+        attribute("searchable", booleanToInt(container.isSearchable()));
+
+        String title = container.getTitle();
+        if (title == null) {
+            log.warning("Missing 'dc:title' element for container: " + container.getId());
+            title = DIDLParser.UNKNOWN_TITLE;
+        }
+
+        writeElementIfNotNull("dc:title", title);
+        writeElementIfNotNull("dc:creator", container.getCreator());
+        writeElementIfNotNull("upnp:writeStatus", container.getWriteStatus());
+
+        writeClass(container.getClazz(), "upnp:class", false);
+
+        for (DIDLObject.Class searchClass : container.getSearchClasses()) {
+            writeClass(searchClass, "upnp:searchClass", true);
+        }
+
+        for (DIDLObject.Class createClass : container.getCreateClasses()) {
+            writeClass(createClass, "upnp:createClass", true);
+        }
+
+        writeProperties(container, "upnp", DIDLObject.Property.UPNP.NAMESPACE.class);
+        writeProperties(container, "dc", DIDLObject.Property.DC.NAMESPACE.class);
+
+        if (nestedItems) {
+            for (Item item : container.getItems()) {
+                if (item == null) continue;
+                writeItem(item);
+            }
+        }
+
+        for (Res resource : container.getResources()) {
+            if (resource == null) continue;
+            writeResource(resource);
+        }
+
+        for (DescMeta descMeta : container.getDescMetadata()) {
+            if (descMeta == null) continue;
+            writeDescMetadata(descMeta);
+        }
+
+        endElement();
+    }
+
+    public void writeItem(Item item) throws IOException {
+
+        if (item.getClazz() == null) {
+            throw new RuntimeException("Missing 'upnp:class' element for item: " + item.getId());
+        }
+
+        startElement("item");
+
+        if (item.getId() == null)
+            throw new NullPointerException("Missing id on item: " + item);
+        attribute("id", item.getId());
+
+        if (item.getParentID() == null)
+            throw new NullPointerException("Missing parent id on item: " + item);
+        attribute("parentID", item.getParentID());
+
+        if (item.getRefID() != null)
+            attribute("refID", item.getRefID());
+        attribute("restricted", booleanToInt(item.isRestricted()));
+
+        String title = item.getTitle();
+        if (title == null) {
+            log.warning("Missing 'dc:title' element for item: " + item.getId());
+            title = DIDLParser.UNKNOWN_TITLE;
+        }
+
+        writeElementIfNotNull("dc:title", title);
+        writeElementIfNotNull("dc:creator", item.getCreator());
+        writeElementIfNotNull("upnp:writeStatus", item.getWriteStatus());
+
+        writeClass(item.getClazz(), "upnp:class", false);
+
+        writeProperties(item, "upnp", DIDLObject.Property.UPNP.NAMESPACE.class);
+        writeProperties(item, "dc", DIDLObject.Property.DC.NAMESPACE.class);
+        writeProperties(item, "sec", DIDLObject.Property.SEC.NAMESPACE.class);
+
+        for (Res resource : item.getResources()) {
+            if (resource == null) continue;
+            writeResource(resource);
+        }
+
+        for (DescMeta descMeta : item.getDescMetadata()) {
+            if (descMeta == null) continue;
+            writeDescMetadata(descMeta);
+        }
+
+        endElement();
+    }
+
+    protected void writeResource(Res resource) throws IOException {
+
+        if (resource.getValue() == null) {
+            throw new RuntimeException("Missing resource URI value" + resource);
+        }
+        if (resource.getProtocolInfo() == null) {
+            throw new RuntimeException("Missing resource protocol info: " + resource);
+        }
+
+        startElement("res");
+        attribute("protocolInfo", resource.getProtocolInfo().toString());
+        if (resource.getImportUri() != null)
+            attribute("importUri", resource.getImportUri().toString());
+        if (resource.getSize() != null)
+            attribute("size", resource.getSize().toString());
+        if (resource.getDuration() != null)
+            attribute("duration", resource.getDuration());
+        if (resource.getBitrate() != null)
+            attribute("bitrate", resource.getBitrate().toString());
+        if (resource.getSampleFrequency() != null)
+            attribute("sampleFrequency", resource.getSampleFrequency().toString());
+        if (resource.getBitsPerSample() != null)
+            attribute("bitsPerSample", resource.getBitsPerSample().toString());
+        if (resource.getNrAudioChannels() != null)
+            attribute("nrAudioChannels", resource.getNrAudioChannels().toString());
+        if (resource.getColorDepth() != null)
+            attribute("colorDepth", resource.getColorDepth().toString());
+        if (resource.getProtection() != null)
+            attribute("protection", resource.getProtection());
+        if (resource.getResolution() != null)
+            attribute("resolution", resource.getResolution());
+        text(resource.getValue());
+        endElement();
+    }
+
+    /**
+     * Copies the elements of an <code>org.w3c.Document</code> payload, like
+     * {@link DIDLParser#populateDescMetadata(org.w3c.dom.Element, DescMeta)} does.
+     */
+    protected void writeDescMetadata(DescMeta descMeta) throws IOException {
+
+        if (descMeta.getId() == null) {
+            throw new RuntimeException("Missing id of description metadata: " + descMeta);
+        }
+        if (descMeta.getNameSpace() == null) {
+            throw new RuntimeException("Missing namespace of description metadata: " + descMeta);
+        }
+
+        startElement("desc");
+        attribute("id", descMeta.getId());
+        attribute("nameSpace", descMeta.getNameSpace().toString());
+        if (descMeta.getType() != null)
+            attribute("type", descMeta.getType());
+
+        if (descMeta.getMetadata() instanceof Document) {
+            Document doc = (Document) descMeta.getMetadata();
+            NodeList nl = doc.getDocumentElement().getChildNodes();
+            for (int i = 0; i < nl.getLength(); i++) {
+                Node n = nl.item(i);
+                if (n.getNodeType() != Node.ELEMENT_NODE)
+                    continue;
+                closeStartTag();
+                writeNode(n);
+            }
+        } else {
+            log.warning("Unknown desc metadata content, please override writeDescMetadata(): " + descMeta.getMetadata());
+        }
+
+        endElement();
+    }
+
+    protected void writeProperties(DIDLObject object, String prefix,
+                                   Class<? extends DIDLObject.Property.NAMESPACE> namespace) throws IOException {
+        for (DIDLObject.Property<Object> property : object.getPropertiesByNamespace(namespace)) {
+            startElement(prefix + ":" + property.getDescriptorName());
+            if (DIDLObject.Property.PropertyPersonWithRole.class.isInstance(property)) {
+                PersonWithRole person = (PersonWithRole) property.getValue();
+                if (person != null) {
+                    if (person.getRole() != null)
+                        attribute("role", person.getRole());
+                    text(person.toString());
+                }
+            } else {
+                List<String> prefixes = new ArrayList<String>();
+                for (DIDLObject.Property<DIDLAttribute> attr : property.getAttributes()) {
+                    DIDLAttribute value = attr.getValue();
+                    if (!isDeclared(value.getPrefix(), value.getNamespaceURI()) && !prefixes.contains(value.getPrefix())) {
+                        attribute("xmlns:" + value.getPrefix(), value.getNamespaceURI());
+                        prefixes.add(value.getPrefix());
+                    }
+                    attribute(value.getPrefix() + ':' + attr.getDescriptorName(), value.getValue());
+                }
+                text(property.toString());
+            }
+            endElement();
+        }
+    }
+
+    protected void writeClass(DIDLObject.Class clazz, String element, boolean appendDerivation) throws IOException {
+        if (clazz.getValue() == null)
+            return;
+        startElement(element);
+        if (clazz.getFriendlyName() != null && clazz.getFriendlyName().length() > 0)
+            attribute("name", clazz.getFriendlyName());
+        if (appendDerivation)
+            attribute("includeDerived", Boolean.toString(clazz.isIncludeDerived()));
+        text(clazz.getValue());
+        endElement();
+    }
+
+    protected String booleanToInt(boolean b) {
+        return b ? "1" : "0";
+    }
+
+    /* ############################################################################################# */
+
+    protected void writeElementIfNotNull(String element, Object content) throws IOException {
+        if (content == null) return;
+        startElement(element);
+        text(content.toString());
+        endElement();
+    }
+
+    protected void startElement(String element) throws IOException {
+        closeStartTag();
+        elements.addFirst(element);
+        startTagOpen = true;
+    }
+
+    protected void attribute(String name, String value) {
+        if (!startTagOpen)
+            throw new IllegalStateException("No start tag open for attribute: " + name);
+        attributes.add(new String[]{name, value});
+    }
+
+    protected void text(String text) throws IOException {
+        if (text.length() == 0)
+            return;
+        closeStartTag();
+        escape(text, false);
+    }
+
+    protected void endElement() throws IOException {
+        String element = elements.removeFirst();
+        if (startTagOpen) {
+            writeStartTag(element);
+            out.write("/>");
+            startTagOpen = false;
+        } else {
+            out.write("</");
+            out.write(element);
+            out.write('>');
+        }
+    }
+
+    private void closeStartTag() throws IOException {
+        if (startTagOpen) {
+            writeStartTag(elements.getFirst());
+            out.write('>');
+            startTagOpen = false;
+        }
+    }
+
+    private void writeStartTag(String element) throws IOException {
+        out.write('<');
+        out.write(element);
+        Collections.sort(attributes, ATTRIBUTE_ORDER);
+        for (String[] attribute : attributes) {
+            out.write(' ');
+            out.write(attribute[0]);
+            out.write("=\"");
+            escape(attribute[1], true);
+            out.write('"');
+        }
+        attributes.clear();
+    }
+
+    private void writeNode(Node node) throws IOException {
+        try {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            transformer.transform(new DOMSource(node), new StreamResult(out));
+        } catch (Exception ex) {
+            throw new IOException("Can't write desc metadata: " + ex, ex);
+        }
+    }
+
+    private void escape(String s, boolean attribute) throws IOException {
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            String entity;
+            switch (s.charAt(i)) {
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '>':
+                    entity = "&gt;";
+                    break;
+                case '"':
+                    entity = attribute ? "&quot;" : null;
+                    break;
+                case '\n':
+                    entity = attribute ? "&#10;" : null;
+                    break;
+                case '\r':
+                    entity = "&#13;";
+                    break;
+                case '\t':
+                    entity = attribute ? "&#9;" : null;
+                    break;
+                default:
+                    // Characters outside the BMP as references, like the DOM serializer
+                    if (Character.isHighSurrogate(s.charAt(i)) && i + 1 < s.length()
+                            && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        out.write(s, start, i - start);
+                        out.write("&#" + s.codePointAt(i) + ";");
+                        start = ++i + 1;
+                        continue;
+                    }
+                    entity = null;
+            }
+            if (entity != null) {
+                out.write(s, start, i - start);
+                out.write(entity);
+                start = i + 1;
+            }
+        }
+        out.write(s, start, s.length() - start);
+    }
+
+    private boolean isDeclared(String prefix, String namespaceURI) {
+        return ("upnp".equals(prefix) && DIDLObject.Property.UPNP.NAMESPACE.URI.equals(namespaceURI))
+                || ("dc".equals(prefix) && DIDLObject.Property.DC.NAMESPACE.URI.equals(namespaceURI))
+                || ("sec".equals(prefix) && DIDLObject.Property.SEC.NAMESPACE.URI.equals(namespaceURI));
+    }
+
+    private static boolean isNamespaceDeclaration(String name) {
+        return name.equals("xmlns") || name.startsWith("xmlns:");
+    }
+}
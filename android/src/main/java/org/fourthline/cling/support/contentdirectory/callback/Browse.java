@@ -106,7 +106,10 @@ public abstract class Browse extends ActionCallback {
             try {
 
                 DIDLParser didlParser = new DIDLParser();
-                DIDLContent didl = didlParser.parse(result.getResult());
+                DIDLParser.Listener listener = createListener(invocation);
+                DIDLContent didl = listener != null
+                        ? didlParser.parse(result.getResult(), listener)
+                        : didlParser.parse(result.getResult());
                 received(invocation, didl);
                 updateStatus(Status.OK);
 
@@ -123,6 +126,20 @@ public abstract class Browse extends ActionCallback {
         }
     }
 
+    /**
+     * Override this to receive the containers and items of a large result while it is parsed.
+     * <p>
+     * The objects are handed to the listener one by one, their properties and description
+     * metadata are materialized on first access. {@link #received(ActionInvocation, DIDLContent)}
+     * is called afterwards, with the description metadata of the result only.
+     * </p>
+     *
+     * @return <code>null</code>, the result is parsed completely before it is received.
+     */
+    protected DIDLParser.Listener createListener(ActionInvocation actionInvocation) {
+        return null;
+    }
+
     /**
      * Some media servers will crash if there is no limit on the maximum number of results.
      *
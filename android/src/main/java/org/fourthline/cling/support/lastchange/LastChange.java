@@ -36,6 +36,10 @@ import java.util.List;
  * content, when the event XML is received.
  * </p>
  * <p>
+ * The XML is generated once for the current changes, and shared by all consumers until
+ * the next change.
+ * </p>
+ * <p>
  * This class is thread-safe.
  * </p>
  *
@@ -46,6 +50,7 @@ public class LastChange {
     final private Event event;
     final private LastChangeParser parser;
     private String previousValue;
+    private String generated;
 
     public LastChange(String s) {
         throw new UnsupportedOperationException("This constructor is only for service binding detection");
@@ -72,6 +77,11 @@ public class LastChange {
     synchronized public void reset() {
         previousValue = toString();
         event.clear();
+        generated = null;
+    }
+
+    synchronized public boolean hasChanges() {
+        return event.hasChanges();
     }
 
     synchronized public void setEventedValue(int instanceID, EventedValue... ev) {
@@ -80,9 +90,10 @@ public class LastChange {
 
     synchronized public void setEventedValue(UnsignedIntegerFourBytes instanceID, EventedValue... ev) {
         for (EventedValue eventedValue : ev) {
-            if (eventedValue != null)
+            if (eventedValue != null) {
                 event.setEventedValue(instanceID, eventedValue);
-
+                generated = null;
+            }
         }
     }
 
@@ -118,8 +129,9 @@ public class LastChange {
     @Override
     synchronized public String toString() {
         if (!event.hasChanges()) return "";
+        if (generated != null) return generated;
         try {
-            return parser.generate(event);
+            return generated = parser.generate(event);
         } catch (Exception ex) {
             throw new RuntimeException(ex);
         }
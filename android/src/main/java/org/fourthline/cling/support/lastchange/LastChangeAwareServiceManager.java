@@ -42,8 +42,16 @@ import java.util.Collection;
  */
 public class LastChangeAwareServiceManager<T extends LastChangeDelegator> extends DefaultServiceManager<T> {
 
+    /**
+     * UPnP AVTransport and RenderingControl moderate "LastChange" events to one every 0.2 seconds.
+     */
+    public static final long LAST_CHANGE_MINIMUM_INTERVAL_MILLIS = 200;
+
     final protected LastChangeParser lastChangeParser;
 
+    // Guarded by lock()
+    protected long lastFiredMillis;
+
     public LastChangeAwareServiceManager(LocalService<T> localService,
                                          LastChangeParser lastChangeParser) {
         this(localService, null, lastChangeParser);
@@ -62,8 +70,16 @@ public class LastChangeAwareServiceManager<T extends LastChangeDelegator> extend
 
     /**
      * Call this method to propagate all accumulated "LastChange" values to GENA subscribers.
+     * <p>
+     * Nothing is sent if the last event was fired less than
+     * {@link #LAST_CHANGE_MINIMUM_INTERVAL_MILLIS} ago. The values stay accumulated, a newer
+     * value of the same variable and instance replaces the older one, and a later call sends
+     * them in one event.
+     * </p>
+     *
+     * @return The milliseconds until accumulated values can be fired, <code>0</code> if none are left.
      */
-    public void fireLastChange() {
+    public long fireLastChange() {
 
         // We need to obtain locks in the right order to avoid deadlocks:
         // 1. The lock() of the DefaultServiceManager
@@ -71,7 +87,16 @@ public class LastChangeAwareServiceManager<T extends LastChangeDelegator> extend
 
     	lock();
     	try {
-            getImplementation().getLastChange().fire(getPropertyChangeSupport());
+            LastChange lastChange = getImplementation().getLastChange();
+            if (!lastChange.hasChanges())
+                return 0;
+            long now = System.currentTimeMillis();
+            long remainingMillis = lastFiredMillis + LAST_CHANGE_MINIMUM_INTERVAL_MILLIS - now;
+            if (remainingMillis > 0)
+                return remainingMillis;
+            lastChange.fire(getPropertyChangeSupport());
+            lastFiredMillis = now;
+            return 0;
     	} finally {
     		unlock();
     	}
@@ -121,98 +121,114 @@ public class DIDLContent {
         List<Item> specificItems = new ArrayList();
 
         for (Item genericItem : genericItems) {
-            String genericType = genericItem.getClazz().getValue();
-
-            if (AudioItem.CLASS.getValue().equals(genericType)) {
-                specificItems.add(new AudioItem(genericItem));
-            } else if (MusicTrack.CLASS.getValue().equals(genericType)) {
-                specificItems.add(new MusicTrack(genericItem));
-            } else if (AudioBook.CLASS.getValue().equals(genericType)) {
-                specificItems.add(new AudioBook(genericItem));
-            } else if (AudioBroadcast.CLASS.getValue().equals(genericType)) {
-                specificItems.add(new AudioBroadcast(genericItem));
-
-            } else if (VideoItem.CLASS.getValue().equals(genericType)) {
-                specificItems.add(new VideoItem(genericItem));
-            } else if (Movie.CLASS.getValue().equals(genericType)) {
-                specificItems.add(new Movie(genericItem));
-            } else if (VideoBroadcast.CLASS.getValue().equals(genericType)) {
-                specificItems.add(new VideoBroadcast(genericItem));
-            } else if (MusicVideoClip.CLASS.getValue().equals(genericType)) {
-                specificItems.add(new MusicVideoClip(genericItem));
-
-            } else if (ImageItem.CLASS.getValue().equals(genericType)) {
-                specificItems.add(new ImageItem(genericItem));
-            } else if (Photo.CLASS.getValue().equals(genericType)) {
-                specificItems.add(new Photo(genericItem));
-
-            } else if (PlaylistItem.CLASS.getValue().equals(genericType)) {
-                specificItems.add(new PlaylistItem(genericItem));
-
-            } else if (TextItem.CLASS.getValue().equals(genericType)) {
-                specificItems.add(new TextItem(genericItem));
-
-            } else {
-                specificItems.add(genericItem);
-            }
+            specificItems.add(replaceGenericItem(genericItem));
         }
 
         return specificItems;
     }
 
+    /**
+     * @return An instance of the specific class for the item's <code>upnp:class</code>, with the
+     *         same fields, or the given item if the class is unknown.
+     */
+    public Item replaceGenericItem(Item genericItem) {
+        String genericType = genericItem.getClazz().getValue();
+
+        if (AudioItem.CLASS.getValue().equals(genericType)) {
+            return new AudioItem(genericItem);
+        } else if (MusicTrack.CLASS.getValue().equals(genericType)) {
+            return new MusicTrack(genericItem);
+        } else if (AudioBook.CLASS.getValue().equals(genericType)) {
+            return new AudioBook(genericItem);
+        } else if (AudioBroadcast.CLASS.getValue().equals(genericType)) {
+            return new AudioBroadcast(genericItem);
+
+        } else if (VideoItem.CLASS.getValue().equals(genericType)) {
+            return new VideoItem(genericItem);
+        } else if (Movie.CLASS.getValue().equals(genericType)) {
+            return new Movie(genericItem);
+        } else if (VideoBroadcast.CLASS.getValue().equals(genericType)) {
+            return new VideoBroadcast(genericItem);
+        } else if (MusicVideoClip.CLASS.getValue().equals(genericType)) {
+            return new MusicVideoClip(genericItem);
+
+        } else if (ImageItem.CLASS.getValue().equals(genericType)) {
+            return new ImageItem(genericItem);
+        } else if (Photo.CLASS.getValue().equals(genericType)) {
+            return new Photo(genericItem);
+
+        } else if (PlaylistItem.CLASS.getValue().equals(genericType)) {
+            return new PlaylistItem(genericItem);
+
+        } else if (TextItem.CLASS.getValue().equals(genericType)) {
+            return new TextItem(genericItem);
+
+        } else {
+            return genericItem;
+        }
+    }
+
     protected List<Container> replaceGenericContainers(List<Container> genericContainers) {
         List<Container> specificContainers = new ArrayList();
 
         for (Container genericContainer : genericContainers) {
-            String genericType = genericContainer.getClazz().getValue();
+            specificContainers.add(replaceGenericContainer(genericContainer));
+        }
 
-            Container specific;
+        return specificContainers;
+    }
+
+    /**
+     * @return An instance of the specific class for the container's <code>upnp:class</code>, with
+     *         the same fields and specific nested items, or the given container if the class is unknown.
+     */
+    public Container replaceGenericContainer(Container genericContainer) {
+        String genericType = genericContainer.getClazz().getValue();
 
-            if (Album.CLASS.getValue().equals(genericType)) {
-                specific = new Album(genericContainer);
+        Container specific;
 
-            } else if (MusicAlbum.CLASS.getValue().equals(genericType)) {
-                specific = new MusicAlbum(genericContainer);
+        if (Album.CLASS.getValue().equals(genericType)) {
+            specific = new Album(genericContainer);
 
-            } else if (PhotoAlbum.CLASS.getValue().equals(genericType)) {
-                specific = new PhotoAlbum(genericContainer);
+        } else if (MusicAlbum.CLASS.getValue().equals(genericType)) {
+            specific = new MusicAlbum(genericContainer);
 
-            } else if (GenreContainer.CLASS.getValue().equals(genericType)) {
-                specific = new GenreContainer(genericContainer);
+        } else if (PhotoAlbum.CLASS.getValue().equals(genericType)) {
+            specific = new PhotoAlbum(genericContainer);
 
-            } else if (MusicGenre.CLASS.getValue().equals(genericType)) {
-                specific = new MusicGenre(genericContainer);
+        } else if (GenreContainer.CLASS.getValue().equals(genericType)) {
+            specific = new GenreContainer(genericContainer);
 
-            } else if (MovieGenre.CLASS.getValue().equals(genericType)) {
-                specific = new MovieGenre(genericContainer);
+        } else if (MusicGenre.CLASS.getValue().equals(genericType)) {
+            specific = new MusicGenre(genericContainer);
 
-            } else if (PlaylistContainer.CLASS.getValue().equals(genericType)) {
-                specific = new PlaylistContainer(genericContainer);
+        } else if (MovieGenre.CLASS.getValue().equals(genericType)) {
+            specific = new MovieGenre(genericContainer);
 
-            } else if (PersonContainer.CLASS.getValue().equals(genericType)) {
-                specific = new PersonContainer(genericContainer);
+        } else if (PlaylistContainer.CLASS.getValue().equals(genericType)) {
+            specific = new PlaylistContainer(genericContainer);
 
-            } else if (MusicArtist.CLASS.getValue().equals(genericType)) {
-                specific = new MusicArtist(genericContainer);
+        } else if (PersonContainer.CLASS.getValue().equals(genericType)) {
+            specific = new PersonContainer(genericContainer);
 
-            } else if (StorageSystem.CLASS.getValue().equals(genericType)) {
-                specific = new StorageSystem(genericContainer);
+        } else if (MusicArtist.CLASS.getValue().equals(genericType)) {
+            specific = new MusicArtist(genericContainer);
 
-            } else if (StorageVolume.CLASS.getValue().equals(genericType)) {
-                specific = new StorageVolume(genericContainer);
+        } else if (StorageSystem.CLASS.getValue().equals(genericType)) {
+            specific = new StorageSystem(genericContainer);
 
-            } else if (StorageFolder.CLASS.getValue().equals(genericType)) {
-                specific = new StorageFolder(genericContainer);
+        } else if (StorageVolume.CLASS.getValue().equals(genericType)) {
+            specific = new StorageVolume(genericContainer);
 
-            } else {
-                specific = genericContainer;
-            }
+        } else if (StorageFolder.CLASS.getValue().equals(genericType)) {
+            specific = new StorageFolder(genericContainer);
 
-            specific.setItems(replaceGenericItems(genericContainer.getItems()));
-            specificContainers.add(specific);
+        } else {
+            specific = genericContainer;
         }
 
-        return specificContainers;
+        specific.setItems(replaceGenericItems(genericContainer.getItems()));
+        return specific;
     }
     
     public long getCount() {
@@ -19,6 +19,7 @@ import org.w3c.dom.Element;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -95,6 +96,10 @@ public abstract class DIDLObject {
             }
         }
 
+        public List<Property<DIDLAttribute>> getAttributes() {
+            return Collections.unmodifiableList(attributes);
+        }
+
         public Property<DIDLAttribute> getAttribute(String descriptorName) {
             for (Property<DIDLAttribute> attr : attributes) {
                 if (attr.getDescriptorName().equals(descriptorName)) {
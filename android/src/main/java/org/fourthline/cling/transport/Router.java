@@ -23,8 +23,10 @@ import org.fourthline.cling.model.message.StreamRequestMessage;
 import org.fourthline.cling.model.message.StreamResponseMessage;
 import org.fourthline.cling.protocol.ProtocolFactory;
 import org.fourthline.cling.transport.spi.InitializationException;
+import org.fourthline.cling.transport.spi.StreamClient;
 import org.fourthline.cling.transport.spi.UpnpStream;
 
+import java.net.DatagramPacket;
 import java.net.InetAddress;
 import java.util.List;
 
@@ -139,6 +141,15 @@ public interface Router {
      */
     public void send(OutgoingDatagramMessage msg) throws RouterException;
 
+    /**
+     * <p>
+     * Call this method to send an already serialized UDP datagram through all datagram transports.
+     * </p>
+     * @param datagram The UDP datagram to send, with destination address and port.
+     * @throws RouterException if a recoverable error, such as thread interruption, occurs.
+     */
+    public void send(DatagramPacket datagram) throws RouterException;
+
     /**
      * <p>
      * Call this method to send a TCP (HTTP) stream message.
@@ -149,6 +160,18 @@ public interface Router {
      */
     public StreamResponseMessage send(StreamRequestMessage msg) throws RouterException;
 
+    /**
+     * <p>
+     * Call this method to send a TCP (HTTP) stream message without waiting for the response.
+     * </p>
+     * @param msg The TCP (HTTP) stream message to send.
+     * @param listener Receives the response, or <code>null</code> if no response has been received.
+     * @return The pending request or <code>null</code> if the message hasn't been sent, the listener
+     *         has then already been called.
+     * @throws RouterException if a recoverable error, such as thread interruption, occurs.
+     */
+    public StreamClient.PendingRequest send(StreamRequestMessage msg, StreamClient.ResponseListener listener) throws RouterException;
+
     /**
      * <p>
      * Call this method to broadcast a UDP message to all hosts on the network.
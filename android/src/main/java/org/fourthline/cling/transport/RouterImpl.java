@@ -48,6 +48,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -293,7 +294,12 @@ public class RouterImpl implements Router {
             return;
         }
         log.fine("Received synchronous stream: " + stream);
-        getConfiguration().getSyncProtocolExecutorService().execute(stream);
+        try {
+            getConfiguration().getSyncProtocolExecutorService().execute(stream);
+        } catch (RejectedExecutionException ex) {
+            // Called on a stream server thread, which can wait for the response
+            stream.run();
+        }
     }
 
     /**
@@ -316,6 +322,26 @@ public class RouterImpl implements Router {
         }
     }
 
+    /**
+     * Sends the UDP datagram on all bound {@link org.fourthline.cling.transport.spi.DatagramIO}s.
+     *
+     * @param datagram The UDP datagram to send.
+     */
+    public void send(DatagramPacket datagram) throws RouterException {
+        lock(readLock);
+        try {
+            if (enabled) {
+                for (DatagramIO datagramIO : datagramIOs.values()) {
+                    datagramIO.send(datagram);
+                }
+            } else {
+                log.fine("Router disabled, not sending datagram to: " + datagram.getAddress());
+            }
+        } finally {
+            unlock(readLock);
+        }
+    }
+
     /**
      * Sends the TCP stream request with the {@link org.fourthline.cling.transport.spi.StreamClient}.
      *
@@ -346,6 +372,35 @@ public class RouterImpl implements Router {
         }
     }
 
+    /**
+     * Sends the TCP stream request with the {@link org.fourthline.cling.transport.spi.StreamClient},
+     * without waiting for the response.
+     *
+     * @param msg The TCP (HTTP) stream message to send.
+     * @param listener Receives the response, with <code>null</code> immediately if no
+     *                <code>StreamClient</code> is available.
+     * @return The return value of the {@link org.fourthline.cling.transport.spi.StreamClient#sendRequest(StreamRequestMessage, StreamClient.ResponseListener)}
+     *         method or <code>null</code> if no <code>StreamClient</code> is available.
+     */
+    public StreamClient.PendingRequest send(StreamRequestMessage msg, StreamClient.ResponseListener listener) throws RouterException {
+        lock(readLock);
+        try {
+            if (enabled) {
+                if (streamClient != null) {
+                    log.fine("Sending via TCP unicast stream without waiting: " + msg);
+                    return streamClient.sendRequest(msg, listener);
+                }
+                log.fine("No StreamClient available, not sending: " + msg);
+            } else {
+                log.fine("Router disabled, not sending stream request: " + msg);
+            }
+        } finally {
+            unlock(readLock);
+        }
+        listener.received(null);
+        return null;
+    }
+
     /**
      * Sends the given bytes as a broadcast on all bound {@link org.fourthline.cling.transport.spi.DatagramIO}s,
      * using source port 9.
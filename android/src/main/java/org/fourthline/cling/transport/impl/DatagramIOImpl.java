@@ -15,6 +15,7 @@
 
 package org.fourthline.cling.transport.impl;
 
+import org.fourthline.cling.model.message.IncomingDatagramMessage;
 import org.fourthline.cling.model.message.OutgoingDatagramMessage;
 import org.fourthline.cling.transport.Router;
 import org.fourthline.cling.transport.spi.DatagramIO;
@@ -116,7 +117,9 @@ public class DatagramIOImpl implements DatagramIO<DatagramIOConfigurationImpl> {
                 );
 
 
-                router.received(datagramProcessor.read(localAddress.getAddress(), datagram));
+                IncomingDatagramMessage message = datagramProcessor.read(localAddress.getAddress(), datagram);
+                if (message != null)
+                    router.received(message);
 
             } catch (SocketException ex) {
                 log.fine("Socket closed");
@@ -24,14 +24,17 @@ import org.fourthline.cling.model.message.UpnpHeaders;
 import org.fourthline.cling.model.message.UpnpOperation;
 import org.fourthline.cling.model.message.UpnpRequest;
 import org.fourthline.cling.model.message.UpnpResponse;
+import org.fourthline.cling.model.message.header.UpnpHeader;
+import org.fourthline.cling.model.types.NotificationSubtype;
+import org.fourthline.cling.model.types.UDN;
 import org.fourthline.cling.transport.spi.DatagramProcessor;
 import org.fourthline.cling.model.UnsupportedDataException;
-import org.seamless.http.Headers;
 
-import java.io.ByteArrayInputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.DatagramPacket;
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -49,17 +52,59 @@ public class DatagramProcessorImpl implements DatagramProcessor {
 
             if (log.isLoggable(Level.FINER)) {
                 log.finer("===================================== DATAGRAM BEGIN ============================================");
-                log.finer(new String(datagram.getData()));
+                log.finer(new String(datagram.getData(), datagram.getOffset(), datagram.getLength()));
                 log.finer("-===================================== DATAGRAM END =============================================");
             }
 
-            ByteArrayInputStream is = new ByteArrayInputStream(datagram.getData());
+            byte[] data = datagram.getData();
+            int end = datagram.getOffset() + datagram.getLength();
+
+            // One pass over the bytes, the start line and the header lines are split in place
+            int lineEnd = findLineEnd(data, datagram.getOffset(), end);
+            String startLine = readString(data, datagram.getOffset(), lineEnd);
+            List<String> fields = new ArrayList<String>(32);
+            int pos = skipLineBreak(data, lineEnd, end);
+            while (pos < end) {
+                lineEnd = findLineEnd(data, pos, end);
+                if (lineEnd == pos)
+                    break; // Blank line, end of headers
+                if ((data[pos] == ' ' || data[pos] == '\t') && fields.size() > 0) {
+                    // Folded continuation of the previous value
+                    int last = fields.size() - 1;
+                    fields.set(last, fields.get(last) + readString(data, pos, lineEnd).trim());
+                } else {
+                    int colon = indexOf(data, (byte) ':', pos, lineEnd);
+                    if (colon > pos) {
+                        fields.add(readString(data, pos, colon).trim());
+                        fields.add(readString(data, colon + 1, lineEnd).trim());
+                    }
+                }
+                pos = skipLineBreak(data, lineEnd, end);
+            }
 
-            String[] startLine = Headers.readLine(is).split(" ");
-            if (startLine[0].startsWith("HTTP/1.")) {
-                return readResponseMessage(receivedOnAddress, datagram, is, Integer.valueOf(startLine[1]), startLine[2], startLine[0]);
+            int firstSpace = startLine.indexOf(' ');
+            int secondSpace = firstSpace != -1 ? startLine.indexOf(' ', firstSpace + 1) : -1;
+            if (secondSpace == -1)
+                throw new IllegalArgumentException("Invalid start line: " + startLine);
+            String first = startLine.substring(0, firstSpace);
+            String second = startLine.substring(firstSpace + 1, secondSpace);
+            String third = startLine.substring(secondSpace + 1).trim();
+
+            if (first.startsWith("HTTP/1.")) {
+                if (!isRelevantResponse(fields)) {
+                    if (log.isLoggable(Level.FINE))
+                        log.fine("Ignoring irrelevant datagram response: " + startLine);
+                    return null;
+                }
+                return readResponseMessage(receivedOnAddress, datagram, createHeaders(fields), Integer.valueOf(second), third, first);
             } else {
-                return readRequestMessage(receivedOnAddress, datagram, is, startLine[0], startLine[2]);
+                if (!isRelevantRequest(first, fields)) {
+                    if (log.isLoggable(Level.FINE))
+                        log.fine("Ignoring irrelevant datagram request: " + startLine);
+                    return null;
+                }
+                int protocolStart = third.lastIndexOf(' ');
+                return readRequestMessage(receivedOnAddress, datagram, createHeaders(fields), first, third.substring(protocolStart + 1));
             }
 
         } catch (Exception ex) {
@@ -67,6 +112,103 @@ public class DatagramProcessorImpl implements DatagramProcessor {
         }
     }
 
+    /**
+     * Checks the raw header values of a received request before any message or header
+     * instance is created.
+     * <p>
+     * A multicast receiver sees every advertisement on the LAN, this drops the ones the
+     * receiving protocols would ignore anyway: anything but <code>NOTIFY</code> and
+     * <code>M-SEARCH</code>, notifications without a known NTS or without a USN, and
+     * <code>ssdp:alive</code> notifications without location or max-age.
+     * </p>
+     *
+     * @param fields Alternating header names and values, as received.
+     * @return <code>false</code> if the datagram should be dropped.
+     */
+    protected boolean isRelevantRequest(String requestMethod, List<String> fields) {
+        UpnpRequest.Method method = UpnpRequest.Method.getByHttpName(requestMethod);
+        if (method == UpnpRequest.Method.MSEARCH)
+            return true;
+        if (method != UpnpRequest.Method.NOTIFY)
+            return false;
+
+        if (!isUSN(getField(fields, UpnpHeader.Type.USN)))
+            return false;
+        String nts = getField(fields, UpnpHeader.Type.NTS);
+        if (NotificationSubtype.BYEBYE.getHeaderString().equals(nts))
+            return true;
+        return NotificationSubtype.ALIVE.getHeaderString().equals(nts)
+            && getField(fields, UpnpHeader.Type.LOCATION) != null
+            && getField(fields, UpnpHeader.Type.MAX_AGE) != null;
+    }
+
+    /**
+     * Checks the raw header values of a received response before any message or header
+     * instance is created, search responses without ST, USN, EXT, location or max-age are
+     * dropped.
+     *
+     * @param fields Alternating header names and values, as received.
+     * @return <code>false</code> if the datagram should be dropped.
+     */
+    protected boolean isRelevantResponse(List<String> fields) {
+        return getField(fields, UpnpHeader.Type.ST) != null
+            && isUSN(getField(fields, UpnpHeader.Type.USN))
+            && getField(fields, UpnpHeader.Type.EXT) != null
+            && getField(fields, UpnpHeader.Type.LOCATION) != null
+            && getField(fields, UpnpHeader.Type.MAX_AGE) != null;
+    }
+
+    protected boolean isUSN(String value) {
+        return value != null && (value.startsWith(UDN.PREFIX) || value.contains("::"));
+    }
+
+    protected String getField(List<String> fields, UpnpHeader.Type type) {
+        for (int i = 0; i < fields.size(); i += 2) {
+            if (fields.get(i).equalsIgnoreCase(type.getHttpName()))
+                return fields.get(i + 1);
+        }
+        return null;
+    }
+
+    protected UpnpHeaders createHeaders(List<String> fields) {
+        UpnpHeaders headers = new UpnpHeaders();
+        for (int i = 0; i < fields.size(); i += 2) {
+            headers.add(fields.get(i), fields.get(i + 1));
+        }
+        return headers;
+    }
+
+    private static int findLineEnd(byte[] data, int pos, int end) {
+        while (pos < end && data[pos] != '\r' && data[pos] != '\n')
+            pos++;
+        return pos;
+    }
+
+    private static int skipLineBreak(byte[] data, int pos, int end) {
+        if (pos < end && data[pos] == '\r')
+            pos++;
+        if (pos < end && data[pos] == '\n')
+            pos++;
+        return pos;
+    }
+
+    private static int indexOf(byte[] data, byte b, int pos, int end) {
+        for (; pos < end; pos++) {
+            if (data[pos] == b)
+                return pos;
+        }
+        return -1;
+    }
+
+    // Headers are US-ASCII, anything else is read as ISO-8859-1 like HTTP/1.1 does
+    private static String readString(byte[] data, int pos, int end) {
+        char[] chars = new char[end - pos];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (data[pos + i] & 0xff);
+        }
+        return new String(chars);
+    }
+
     public DatagramPacket write(OutgoingDatagramMessage message) throws UnsupportedDataException {
 
         StringBuilder statusLine = new StringBuilder();
@@ -120,13 +262,10 @@ public class DatagramProcessorImpl implements DatagramProcessor {
 
     protected IncomingDatagramMessage readRequestMessage(InetAddress receivedOnAddress,
                                                          DatagramPacket datagram,
-                                                         ByteArrayInputStream is,
+                                                         UpnpHeaders headers,
                                                          String requestMethod,
                                                          String httpProtocol) throws Exception {
 
-        // Headers
-        UpnpHeaders headers = new UpnpHeaders(is);
-
         // Assemble message
         IncomingDatagramMessage requestMessage;
         UpnpRequest upnpRequest = new UpnpRequest(UpnpRequest.Method.getByHttpName(requestMethod));
@@ -140,14 +279,11 @@ public class DatagramProcessorImpl implements DatagramProcessor {
 
     protected IncomingDatagramMessage readResponseMessage(InetAddress receivedOnAddress,
                                                           DatagramPacket datagram,
-                                                          ByteArrayInputStream is,
+                                                          UpnpHeaders headers,
                                                           int statusCode,
                                                           String statusMessage,
                                                           String httpProtocol) throws Exception {
 
-        // Headers
-        UpnpHeaders headers = new UpnpHeaders(is);
-
         // Assemble the message
         IncomingDatagramMessage responseMessage;
         UpnpResponse upnpResponse = new UpnpResponse(statusCode, statusMessage);
@@ -38,11 +38,17 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.FactoryConfigurationError;
 
 import java.io.StringReader;
+import java.util.Collection;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Default implementation based on the <em>W3C DOM</em> XML processing API.
+ * <p>
+ * All subscribers of a service receive the same state variable values when its state
+ * changes. The body written for the last event is kept, and the UTF-8 bytes are shared by
+ * the messages to all subscribers instead of writing the same XML for each of them.
+ * </p>
  *
  * @author Christian Bauer
  */
@@ -50,6 +56,8 @@ public class GENAEventProcessorImpl implements GENAEventProcessor, ErrorHandler
 
     private static Logger log = Logger.getLogger(GENAEventProcessor.class.getName());
 
+    private volatile WrittenBody lastWrittenBody;
+
     protected DocumentBuilderFactory createDocumentBuilderFactory() throws FactoryConfigurationError {
     	return DocumentBuilderFactory.newInstance();
     }
@@ -59,18 +67,22 @@ public class GENAEventProcessorImpl implements GENAEventProcessor, ErrorHandler
 
         try {
 
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            Document d = factory.newDocumentBuilder().newDocument();
-            Element propertysetElement = writePropertysetElement(d);
+            byte[] body = getWrittenBody(requestMessage);
+            if (body == null) {
+                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware(true);
+                Document d = factory.newDocumentBuilder().newDocument();
+                Element propertysetElement = writePropertysetElement(d);
 
-            writeProperties(d, propertysetElement, requestMessage);
+                writeProperties(d, propertysetElement, requestMessage);
 
-            requestMessage.setBody(UpnpMessage.BodyType.STRING, toString(d));
+                body = setWrittenBody(requestMessage, toString(d));
+            }
+            requestMessage.setBody(UpnpMessage.BodyType.BYTES, body);
 
             if (log.isLoggable(Level.FINER)) {
                 log.finer("===================================== GENA BODY BEGIN ============================================");
-                log.finer(requestMessage.getBody().toString());
+                log.finer(requestMessage.getBodyString());
                 log.finer("====================================== GENA BODY END =============================================");
             }
 
@@ -109,6 +121,27 @@ public class GENAEventProcessorImpl implements GENAEventProcessor, ErrorHandler
         }
     }
 
+    /**
+     * @return The body of the last written message, if it had the same state variable values.
+     */
+    protected byte[] getWrittenBody(OutgoingEventRequestMessage requestMessage) {
+        WrittenBody writtenBody = lastWrittenBody;
+        return writtenBody != null && writtenBody.hasValues(requestMessage.getStateVariableValues())
+            ? writtenBody.body
+            : null;
+    }
+
+    /**
+     * Keeps the body for messages with the same state variable values.
+     *
+     * @return The UTF-8 bytes of the body.
+     */
+    protected byte[] setWrittenBody(OutgoingEventRequestMessage requestMessage, String body) throws Exception {
+        byte[] bytes = body.getBytes("UTF-8");
+        lastWrittenBody = new WrittenBody(requestMessage.getStateVariableValues(), bytes);
+        return bytes;
+    }
+
     /* ##################################################################################################### */
 
     protected Element writePropertysetElement(Document d) {
@@ -216,5 +249,30 @@ public class GENAEventProcessorImpl implements GENAEventProcessor, ErrorHandler
     public void fatalError(SAXParseException e) throws SAXException {
         throw e;
     }
-}
 
+    /**
+     * The values of an event are read once and shared by all subscriptions, the same
+     * instances mean the same body.
+     */
+    protected static class WrittenBody {
+
+        final StateVariableValue[] values;
+        final byte[] body;
+
+        WrittenBody(Collection<StateVariableValue> values, byte[] body) {
+            this.values = values.toArray(new StateVariableValue[values.size()]);
+            this.body = body;
+        }
+
+        boolean hasValues(Collection<StateVariableValue> values) {
+            if (values.size() != this.values.length)
+                return false;
+            int i = 0;
+            for (StateVariableValue value : values) {
+                if (value != this.values[i++])
+                    return false;
+            }
+            return true;
+        }
+    }
+}
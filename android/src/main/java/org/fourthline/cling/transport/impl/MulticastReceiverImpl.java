@@ -15,6 +15,7 @@
 
 package org.fourthline.cling.transport.impl;
 
+import org.fourthline.cling.model.message.IncomingDatagramMessage;
 import org.fourthline.cling.transport.Router;
 import org.fourthline.cling.transport.spi.DatagramProcessor;
 import org.fourthline.cling.transport.spi.InitializationException;
@@ -127,7 +128,9 @@ public class MulticastReceiverImpl implements MulticastReceiver<MulticastReceive
                                 + " and address: " + receivedOnLocalAddress.getHostAddress()
                 );
 
-                router.received(datagramProcessor.read(receivedOnLocalAddress, datagram));
+                IncomingDatagramMessage message = datagramProcessor.read(receivedOnLocalAddress, datagram);
+                if (message != null)
+                    router.received(message);
 
             } catch (SocketException ex) {
                 log.fine("Socket closed");
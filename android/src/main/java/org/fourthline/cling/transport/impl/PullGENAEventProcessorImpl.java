@@ -15,14 +15,18 @@
 
 package org.fourthline.cling.transport.impl;
 
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.fourthline.cling.model.Constants;
+import org.fourthline.cling.model.XMLUtil;
+import org.fourthline.cling.model.message.UpnpMessage;
 import org.fourthline.cling.model.message.gena.IncomingEventRequestMessage;
+import org.fourthline.cling.model.message.gena.OutgoingEventRequestMessage;
 import org.fourthline.cling.model.meta.StateVariable;
 import org.fourthline.cling.model.state.StateVariableValue;
 import org.fourthline.cling.transport.spi.GENAEventProcessor;
 import org.fourthline.cling.model.UnsupportedDataException;
-import org.seamless.xml.XmlPullParserUtils;
 import org.xmlpull.v1.XmlPullParser;
 
 import javax.enterprise.inject.Alternative;
@@ -31,6 +35,8 @@ import javax.enterprise.inject.Alternative;
  * Implementation based on the <em>Xml Pull Parser</em> XML processing API.
  * <p>
  * This processor is more lenient with parsing, looking only for the required XML tags.
+ * It doesn't build a DOM, message bodies are parsed with a pull parser reused by the
+ * calling thread, and property sets are written directly into a string buffer.
  * </p>
  * <p>
  * To use this parser you need to install an implementation of the
@@ -44,10 +50,53 @@ public class PullGENAEventProcessorImpl extends GENAEventProcessorImpl {
 
 	private static Logger log = Logger.getLogger(GENAEventProcessor.class.getName());
 
+	public void writeBody(OutgoingEventRequestMessage requestMessage) throws UnsupportedDataException {
+		log.fine("Writing body of: " + requestMessage);
+
+		try {
+			byte[] body = getWrittenBody(requestMessage);
+			if (body == null) {
+				StringBuilder b = new StringBuilder(256);
+				writeProperties(b, requestMessage);
+				body = setWrittenBody(requestMessage, b.toString());
+			}
+			requestMessage.setBody(UpnpMessage.BodyType.BYTES, body);
+
+			if (log.isLoggable(Level.FINER)) {
+				log.finer("===================================== GENA BODY BEGIN ============================================");
+				log.finer(requestMessage.getBodyString());
+				log.finer("====================================== GENA BODY END =============================================");
+			}
+
+		} catch (Exception ex) {
+			throw new UnsupportedDataException("Can't transform message payload: " + ex.getMessage(), ex);
+		}
+	}
+
+	protected void writeProperties(StringBuilder b, OutgoingEventRequestMessage message) {
+		// Same output as the serialized DOM of the superclass
+		b.append("<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"yes\"?>");
+		b.append("<e:propertyset xmlns:e=\"").append(Constants.NS_UPNP_EVENT_10).append("\">");
+		for (StateVariableValue stateVariableValue : message.getStateVariableValues()) {
+			String name = stateVariableValue.getStateVariable().getName();
+			String value = stateVariableValue.toString();
+			b.append("<e:property>");
+			if (value == null) {
+				b.append("<").append(name).append("/>");
+			} else {
+				b.append("<").append(name).append(">");
+				XMLUtil.appendEncodedText(b, value);
+				b.append("</").append(name).append(">");
+			}
+			b.append("</e:property>");
+		}
+		b.append("</e:propertyset>");
+	}
+
 	public void readBody(IncomingEventRequestMessage requestMessage) throws UnsupportedDataException {
         String body = getMessageBody(requestMessage);
 		try {
-			XmlPullParser xpp = XmlPullParserUtils.createParser(body);
+			XmlPullParser xpp = PullParserPool.obtain(body);
 			readProperties(xpp, requestMessage);
 		} catch (Exception ex) {
 			throw new UnsupportedDataException("Can't transform message payload: " + ex.getMessage(), ex, body);	
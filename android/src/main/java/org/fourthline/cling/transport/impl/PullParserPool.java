@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2013 4th Line GmbH, Switzerland
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * Lesser General Public License Version 2 or later ("LGPL") or the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.fourthline.cling.transport.impl;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.StringReader;
+
+/**
+ * One namespace aware pull parser per thread, reset for every message body.
+ * <p>
+ * Looking up the parser factory and creating a parser costs more than parsing a
+ * typical SOAP or GENA body. Parsers and factories aren't thread-safe, so each thread
+ * of the protocol executors keeps its own.
+ * </p>
+ */
+class PullParserPool {
+
+    final private static ThreadLocal<XmlPullParserFactory> factories = new ThreadLocal<XmlPullParserFactory>();
+    final private static ThreadLocal<XmlPullParser> parsers = new ThreadLocal<XmlPullParser>();
+
+    private PullParserPool() {
+    }
+
+    /**
+     * @return The parser of the calling thread, positioned at the start of the given document.
+     */
+    static XmlPullParser obtain(String body) throws XmlPullParserException {
+        XmlPullParser xpp = parsers.get();
+        if (xpp == null) {
+            XmlPullParserFactory factory = factories.get();
+            if (factory == null) {
+                factory = XmlPullParserFactory.newInstance();
+                factory.setNamespaceAware(true);
+                factories.set(factory);
+            }
+            xpp = factory.newPullParser();
+            parsers.set(xpp);
+        }
+        xpp.setInput(new StringReader(body));
+        return xpp;
+    }
+}
@@ -20,8 +20,11 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.fourthline.cling.model.Constants;
+import org.fourthline.cling.model.XMLUtil;
 import org.fourthline.cling.model.action.ActionArgumentValue;
 import org.fourthline.cling.model.action.ActionException;
 import org.fourthline.cling.model.action.ActionInvocation;
@@ -40,6 +43,8 @@ import javax.enterprise.inject.Alternative;
  * Implementation based on the <em>Xml Pull Parser</em> XML processing API.
  * <p>
  * This processor is more lenient with parsing, looking only for the required XML tags.
+ * It doesn't build a DOM, message bodies are parsed with a pull parser reused by the
+ * calling thread, and envelopes are written directly into a string buffer.
  * </p>
  * <p>
  * To use this parser you need to install an implementation of the
@@ -53,10 +58,110 @@ public class PullSOAPActionProcessorImpl extends SOAPActionProcessorImpl {
 
     protected static Logger log = Logger.getLogger(SOAPActionProcessor.class.getName());
 
+    public void writeBody(ActionRequestMessage requestMessage, ActionInvocation actionInvocation) throws UnsupportedDataException {
+
+        log.fine("Writing body of " + requestMessage + " for: " + actionInvocation);
+
+        try {
+            StringBuilder b = new StringBuilder(512);
+            writeEnvelopeStart(b);
+            writeActionElement(b, requestMessage.getActionNamespace(), actionInvocation.getAction().getName(),
+                actionInvocation.getAction().getInputArguments(), actionInvocation, true);
+            writeEnvelopeEnd(b);
+            requestMessage.setBody(b.toString());
+
+            if (log.isLoggable(Level.FINER)) {
+                log.finer("===================================== SOAP BODY BEGIN ============================================");
+                log.finer(requestMessage.getBodyString());
+                log.finer("-===================================== SOAP BODY END ============================================");
+            }
+
+        } catch (Exception ex) {
+            throw new UnsupportedDataException("Can't transform message payload: " + ex, ex);
+        }
+    }
+
+    public void writeBody(ActionResponseMessage responseMessage, ActionInvocation actionInvocation) throws UnsupportedDataException {
+
+        log.fine("Writing body of " + responseMessage + " for: " + actionInvocation);
+
+        try {
+            StringBuilder b = new StringBuilder(512);
+            writeEnvelopeStart(b);
+            if (actionInvocation.getFailure() != null) {
+                writeFaultElement(b, actionInvocation);
+            } else {
+                writeActionElement(b, responseMessage.getActionNamespace(), actionInvocation.getAction().getName() + "Response",
+                    actionInvocation.getAction().getOutputArguments(), actionInvocation, false);
+            }
+            writeEnvelopeEnd(b);
+            responseMessage.setBody(b.toString());
+
+            if (log.isLoggable(Level.FINER)) {
+                log.finer("===================================== SOAP BODY BEGIN ============================================");
+                log.finer(responseMessage.getBodyString());
+                log.finer("-===================================== SOAP BODY END ============================================");
+            }
+
+        } catch (Exception ex) {
+            throw new UnsupportedDataException("Can't transform message payload: " + ex, ex);
+        }
+    }
+
+    // The output is the same as the serialized DOM of the superclass
+
+    protected void writeEnvelopeStart(StringBuilder b) {
+        b.append("<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"yes\"?>");
+        b.append("<s:Envelope s:encodingStyle=\"").append(Constants.SOAP_URI_ENCODING_STYLE)
+            .append("\" xmlns:s=\"").append(Constants.SOAP_NS_ENVELOPE).append("\">");
+        b.append("<s:Body>");
+    }
+
+    protected void writeEnvelopeEnd(StringBuilder b) {
+        b.append("</s:Body></s:Envelope>");
+    }
+
+    protected void writeActionElement(StringBuilder b, String namespace, String elementName,
+                                      ActionArgument[] args, ActionInvocation actionInvocation, boolean input) {
+        log.fine("Writing action element: " + elementName);
+        b.append("<u:").append(elementName).append(" xmlns:u=\"").append(namespace).append("\">");
+        for (ActionArgument argument : args) {
+            log.fine("Writing action argument: " + argument.getName());
+            ActionArgumentValue value = input ? actionInvocation.getInput(argument) : actionInvocation.getOutput(argument);
+            writeElement(b, argument.getName(), value != null ? value.toString() : "");
+        }
+        b.append("</u:").append(elementName).append(">");
+    }
+
+    protected void writeFaultElement(StringBuilder b, ActionInvocation actionInvocation) {
+        int errorCode = actionInvocation.getFailure().getErrorCode();
+        String errorDescription = actionInvocation.getFailure().getMessage();
+
+        log.fine("Writing fault element: " + errorCode + " - " + errorDescription);
+
+        b.append("<s:Fault>");
+        writeElement(b, "faultcode", "s:Client");
+        writeElement(b, "faultstring", "UPnPError");
+        b.append("<detail><UPnPError xmlns=\"").append(Constants.NS_UPNP_CONTROL_10).append("\">");
+        writeElement(b, "errorCode", Integer.toString(errorCode));
+        writeElement(b, "errorDescription", errorDescription);
+        b.append("</UPnPError></detail></s:Fault>");
+    }
+
+    protected void writeElement(StringBuilder b, String name, String content) {
+        if (content == null) {
+            b.append("<").append(name).append("/>");
+            return;
+        }
+        b.append("<").append(name).append(">");
+        XMLUtil.appendEncodedText(b, content);
+        b.append("</").append(name).append(">");
+    }
+
     public void readBody(ActionRequestMessage requestMessage, ActionInvocation actionInvocation) throws UnsupportedDataException {
         String body = getMessageBody(requestMessage);
         try {
-            XmlPullParser xpp = XmlPullParserUtils.createParser(body);
+            XmlPullParser xpp = PullParserPool.obtain(body);
             readBodyRequest(xpp, requestMessage, actionInvocation);
         } catch (Exception ex) {
             throw new UnsupportedDataException("Can't transform message payload: " + ex, ex, body);
@@ -66,7 +171,7 @@ public class PullSOAPActionProcessorImpl extends SOAPActionProcessorImpl {
     public void readBody(ActionResponseMessage responseMsg, ActionInvocation actionInvocation) throws UnsupportedDataException {
         String body = getMessageBody(responseMsg);
         try {
-            XmlPullParser xpp = XmlPullParserUtils.createParser(body);
+            XmlPullParser xpp = PullParserPool.obtain(body);
             readBodyElement(xpp);
             readBodyResponse(xpp, actionInvocation);
         } catch (Exception ex) {
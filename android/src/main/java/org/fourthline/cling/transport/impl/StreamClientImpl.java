@@ -39,6 +39,7 @@ import java.net.URL;
 import java.net.URLStreamHandlerFactory;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -192,6 +193,24 @@ public class StreamClientImpl implements StreamClient {
         }
     }
 
+    /**
+     * Sends the request on a thread of the request executor service, there is no way to
+     * wait for a response of <code>HttpURLConnection</code> without blocking.
+     */
+    @Override
+    public PendingRequest sendRequest(final StreamRequestMessage requestMessage, final ResponseListener listener) {
+        final Future<?> future = getConfiguration().getRequestExecutorService().submit(new Runnable() {
+            public void run() {
+                listener.received(sendRequest(requestMessage));
+            }
+        });
+        return new PendingRequest() {
+            public void abort() {
+                future.cancel(true);
+            }
+        };
+    }
+
     @Override
     public void stop() {
         // NOOP
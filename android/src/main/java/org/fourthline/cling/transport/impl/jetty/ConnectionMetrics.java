@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2013 4th Line GmbH, Switzerland
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * Lesser General Public License Version 2 or later ("LGPL") or the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.fourthline.cling.transport.impl.jetty;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the persistent connections of a {@link StreamClientImpl}.
+ * <p>
+ * A connection is recognized by its local socket address when a request has been written
+ * on it. An address that hasn't been seen within the idle timeout is a new connection, the
+ * time from sending until the request has been written is its connect latency, mostly the
+ * TCP handshake.
+ * </p>
+ */
+public class ConnectionMetrics {
+
+    final private static int MAX_TRACKED_CONNECTIONS = 64;
+
+    final protected long idleNanos;
+
+    // Local address of a connection and when it last carried a request
+    final private Map<String, Long> connections = new ConcurrentHashMap<String, Long>();
+
+    final private AtomicLong requestCount = new AtomicLong();
+    final private AtomicLong connectionCount = new AtomicLong();
+    final private AtomicLong reusedCount = new AtomicLong();
+    final private AtomicLong connectNanos = new AtomicLong();
+    final private AtomicLong maxConnectNanos = new AtomicLong();
+
+    public ConnectionMetrics(long idleMillis) {
+        this.idleNanos = idleMillis * 1000000L;
+    }
+
+    /**
+     * Called when a request has been written.
+     *
+     * @param localAddress The local address of the connection, <code>null</code> if unknown.
+     * @param sentNanos When the request has been handed to the client.
+     */
+    public void committed(String localAddress, long sentNanos) {
+        long now = System.nanoTime();
+        requestCount.incrementAndGet();
+        if (localAddress == null)
+            return;
+        Long lastUsed = connections.put(localAddress, now);
+        if (lastUsed != null && now - lastUsed <= idleNanos) {
+            reusedCount.incrementAndGet();
+            return;
+        }
+
+        connectionCount.incrementAndGet();
+        long elapsed = now - sentNanos;
+        connectNanos.addAndGet(elapsed);
+        long max = maxConnectNanos.get();
+        while (elapsed > max && !maxConnectNanos.compareAndSet(max, elapsed))
+            max = maxConnectNanos.get();
+
+        if (connections.size() > MAX_TRACKED_CONNECTIONS)
+            removeIdle(now);
+    }
+
+    protected void removeIdle(long now) {
+        for (Iterator<Long> it = connections.values().iterator(); it.hasNext(); ) {
+            if (now - it.next() > idleNanos)
+                it.remove();
+        }
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * @return The number of requests written on a connection opened for an earlier request.
+     */
+    public long getReusedCount() {
+        return reusedCount.get();
+    }
+
+    /**
+     * @return The average connect latency of new connections in milliseconds.
+     */
+    public double getAverageConnectMillis() {
+        long connections = getConnectionCount();
+        return connections > 0 ? connectNanos.get() / 1000000d / connections : 0;
+    }
+
+    public double getMaxConnectMillis() {
+        return maxConnectNanos.get() / 1000000d;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ")"
+            + " requests: " + getRequestCount()
+            + ", connections: " + getConnectionCount()
+            + ", reused: " + getReusedCount()
+            + ", connect ms avg/max: " + String.format("%.1f/%.1f", getAverageConnectMillis(), getMaxConnectMillis());
+    }
+}
@@ -41,4 +41,22 @@ public class StreamClientConfigurationImpl extends AbstractStreamClientConfigura
 		return 0;
 	}
 
+    /**
+     * Requests to a host wait for a free connection when this limit has been reached.
+     *
+     * @return By default <code>2</code>, so a slow action doesn't block polling the same device.
+     */
+    public int getMaxConnectionsPerHost() {
+        return 2;
+    }
+
+    /**
+     * Persistent connections are closed when they haven't been used for this time.
+     *
+     * @return By default <code>15</code> seconds, less than the keep-alive timeout of most devices.
+     */
+    public int getIdleConnectionSeconds() {
+        return 15;
+    }
+
 }
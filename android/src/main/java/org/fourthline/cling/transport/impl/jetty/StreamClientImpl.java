@@ -15,6 +15,7 @@
 
 package org.fourthline.cling.transport.impl.jetty;
 
+import org.eclipse.jetty.client.Address;
 import org.eclipse.jetty.client.ContentExchange;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.HttpExchange;
@@ -36,10 +37,12 @@ import org.fourthline.cling.transport.spi.StreamClient;
 import org.seamless.util.Exceptions;
 import org.seamless.util.MimeType;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -49,6 +52,17 @@ import java.util.logging.Logger;
  * This implementation works on Android, dependencies are the <code>jetty-client</code>
  * Maven module.
  * </p>
+ * <p>
+ * Connections are persistent and pooled per host, with the limit and idle timeout of the
+ * {@link StreamClientConfigurationImpl}. Requests aren't pipelined, a connection is reused
+ * after the previous response has been read completely. {@link #getMetrics()} counts new
+ * and reused connections.
+ * </p>
+ * <p>
+ * Requests sent with {@link #sendRequest(StreamRequestMessage, ResponseListener)} don't occupy
+ * a thread while waiting for the response, the exchange calls the listener when it completes
+ * or expires.
+ * </p>
  *
  * @author Christian Bauer
  */
@@ -58,6 +72,7 @@ public class StreamClientImpl extends AbstractStreamClient<StreamClientConfigura
 
     final protected StreamClientConfigurationImpl configuration;
     final protected HttpClient client;
+    final protected ConnectionMetrics metrics;
 
     public StreamClientImpl(StreamClientConfigurationImpl configuration) throws InitializationException {
         this.configuration = configuration;
@@ -83,6 +98,14 @@ public class StreamClientImpl extends AbstractStreamClient<StreamClientConfigura
 
         client.setMaxRetries(configuration.getRequestRetryCount());
 
+        // Connect on the selector, a sender doesn't wait for the TCP handshake
+        client.setConnectBlocking(false);
+
+        // Keep-alive connections, at most a few per device; some TVs accept connections slowly
+        client.setMaxConnectionsPerAddress(configuration.getMaxConnectionsPerHost());
+        client.setIdleTimeout(configuration.getIdleConnectionSeconds() * 1000L);
+        metrics = new ConnectionMetrics(client.getIdleTimeout());
+
         try {
             client.start();
         } catch (Exception ex) {
@@ -97,9 +120,18 @@ public class StreamClientImpl extends AbstractStreamClient<StreamClientConfigura
         return configuration;
     }
 
+    public ConnectionMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     protected HttpContentExchange createRequest(StreamRequestMessage requestMessage) {
-        return new HttpContentExchange(getConfiguration(), client, requestMessage);
+        return new HttpContentExchange(getConfiguration(), client, requestMessage, metrics);
+    }
+
+    protected void send(HttpContentExchange exchange) throws IOException {
+        exchange.sentNanos = System.nanoTime();
+        client.send(exchange);
     }
 
     @Override
@@ -111,7 +143,7 @@ public class StreamClientImpl extends AbstractStreamClient<StreamClientConfigura
                 if (log.isLoggable(Level.FINE))
                     log.fine("Sending HTTP request: " + requestMessage);
 
-                client.send(exchange);
+                send(exchange);
                 int exchangeState = exchange.waitForDone();
 
                 if (exchangeState == HttpExchange.STATUS_COMPLETED) {
@@ -135,6 +167,27 @@ public class StreamClientImpl extends AbstractStreamClient<StreamClientConfigura
         };
     }
 
+    @Override
+    public PendingRequest sendRequest(StreamRequestMessage requestMessage, ResponseListener listener) {
+
+        if (log.isLoggable(Level.FINE))
+            log.fine("Preparing HTTP request: " + requestMessage);
+
+        HttpContentExchange exchange = createRequest(requestMessage);
+        exchange.setResponseListener(listener);
+        exchange.setTimeout(getConfiguration().getTimeoutSeconds() * 1000L);
+
+        try {
+            if (log.isLoggable(Level.FINE))
+                log.fine("Sending HTTP request without waiting: " + requestMessage);
+            send(exchange);
+        } catch (IOException ex) {
+            log.log(Level.WARNING, "HTTP request failed: " + requestMessage, Exceptions.unwrap(ex));
+            exchange.completed(null);
+        }
+        return exchange;
+    }
+
     @Override
     protected void abort(HttpContentExchange exchange) {
         exchange.cancel();
@@ -154,7 +207,7 @@ public class StreamClientImpl extends AbstractStreamClient<StreamClientConfigura
         }
     }
 
-    static public class HttpContentExchange extends ContentExchange {
+    static public class HttpContentExchange extends ContentExchange implements PendingRequest {
 
         final protected StreamClientConfigurationImpl configuration;
         final protected HttpClient client;
@@ -162,26 +215,100 @@ public class StreamClientImpl extends AbstractStreamClient<StreamClientConfigura
 
         protected Throwable exception;
 
+        protected ResponseListener responseListener;
+
+        final protected ConnectionMetrics metrics;
+        protected long sentNanos;
+        final private AtomicBoolean completed = new AtomicBoolean();
+
         public HttpContentExchange(StreamClientConfigurationImpl configuration,
                                    HttpClient client,
                                    StreamRequestMessage requestMessage) {
+            this(configuration, client, requestMessage, null);
+        }
+
+        public HttpContentExchange(StreamClientConfigurationImpl configuration,
+                                   HttpClient client,
+                                   StreamRequestMessage requestMessage,
+                                   ConnectionMetrics metrics) {
             super(true);
             this.configuration = configuration;
             this.client = client;
             this.requestMessage = requestMessage;
+            this.metrics = metrics;
             applyRequestURLMethod();
             applyRequestHeaders();
             applyRequestBody();
         }
 
+        @Override
+        protected void onRequestCommitted() throws IOException {
+            super.onRequestCommitted();
+            if (metrics != null) {
+                Address localAddress = getLocalAddress();
+                metrics.committed(localAddress != null ? localAddress.toString() : null, sentNanos);
+            }
+        }
+
         @Override
         protected void onConnectionFailed(Throwable t) {
             log.log(Level.WARNING, "HTTP connection failed: " + requestMessage, Exceptions.unwrap(t));
+            completed(null);
         }
 
         @Override
         protected void onException(Throwable t) {
             log.log(Level.WARNING, "HTTP request failed: " + requestMessage, Exceptions.unwrap(t));
+            completed(null);
+        }
+
+        @Override
+        protected void onExpire() {
+            if (responseListener == null) {
+                super.onExpire();
+                return;
+            }
+            log.info(
+                "Timeout of " + getConfiguration().getTimeoutSeconds()
+                + " seconds while waiting for HTTP request to complete: " + requestMessage
+            );
+            completed(null);
+        }
+
+        @Override
+        protected void onResponseComplete() throws IOException {
+            super.onResponseComplete();
+            if (responseListener == null)
+                return;
+            StreamResponseMessage response = null;
+            try {
+                response = createResponse();
+            } catch (Throwable t) {
+                log.log(Level.WARNING, "Error reading response: " + requestMessage, Exceptions.unwrap(t));
+            }
+            completed(response);
+        }
+
+        public void abort() {
+            if (log.isLoggable(Level.FINE))
+                log.fine("Aborting HTTP request: " + requestMessage);
+            cancel();
+        }
+
+        /**
+         * Without a listener, the request is sent with {@link HttpClient#send(HttpExchange)} and
+         * the caller waits for it to complete.
+         */
+        public void setResponseListener(ResponseListener responseListener) {
+            this.responseListener = responseListener;
+        }
+
+        /**
+         * Calls the response listener, only once.
+         */
+        protected void completed(StreamResponseMessage response) {
+            if (responseListener != null && completed.compareAndSet(false, true))
+                responseListener.received(response);
         }
 
         public StreamClientConfigurationImpl getConfiguration() {
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2013 4th Line GmbH, Switzerland
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * Lesser General Public License Version 2 or later ("LGPL") or the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.fourthline.cling.transport.impl.nio;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One selector thread for all datagram channels of a UPnP stack.
+ * <p>
+ * The multicast receivers and datagram IO services of all network interfaces register
+ * their channel with a shared instance. The first {@link DatagramChannelTransport#run()}
+ * executed by the router drives the selection loop, the others return immediately. The
+ * loop ends when the last channel has been closed, a restarted router starts it again.
+ * </p>
+ * <p>
+ * Received datagrams are read into a single direct buffer and copied into a reused
+ * <code>DatagramPacket</code> for the {@link org.fourthline.cling.transport.spi.DatagramProcessor}.
+ * Outgoing datagrams are copied into pooled direct buffers and queued without locks,
+ * the selector thread writes them.
+ * </p>
+ */
+public class DatagramChannelSelector {
+
+    final private static Logger log = Logger.getLogger(DatagramChannelSelector.class.getName());
+
+    /**
+     * The most datagrams read from one channel before the others get their turn.
+     */
+    final public static int MAX_READS_PER_SELECT = 64;
+
+    final protected int maxPooledBuffers;
+    final protected int pooledBufferBytes;
+
+    final private Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<Runnable>();
+    final private Queue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<ByteBuffer>();
+    final private AtomicInteger pooledBuffers = new AtomicInteger();
+    final private AtomicBoolean running = new AtomicBoolean();
+
+    private Selector selector;
+
+    // Only accessed by the selector thread
+    private ByteBuffer receiveBuffer;
+    private byte[] receiveBytes;
+    private DatagramPacket receivePacket;
+
+    /**
+     * Pools up to 64 send buffers of 640 bytes.
+     */
+    public DatagramChannelSelector() {
+        this(64, 640);
+    }
+
+    public DatagramChannelSelector(int maxPooledBuffers, int pooledBufferBytes) {
+        this.maxPooledBuffers = maxPooledBuffers;
+        this.pooledBufferBytes = pooledBufferBytes;
+    }
+
+    synchronized protected Selector getSelector() throws IOException {
+        if (selector == null || !selector.isOpen())
+            selector = Selector.open();
+        return selector;
+    }
+
+    synchronized protected Selector getCurrentSelector() {
+        return selector;
+    }
+
+    /**
+     * Registers the channel of the transport for reading, on the selector thread.
+     */
+    void register(final DatagramChannelTransport transport) throws IOException {
+        final Selector selector = getSelector();
+        execute(new Runnable() {
+            public void run() {
+                try {
+                    transport.getChannel().register(selector, SelectionKey.OP_READ, transport);
+                } catch (ClosedChannelException ex) {
+                    log.fine("Channel closed before registration: " + transport);
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs the task on the selector thread, before the next selection.
+     */
+    void execute(Runnable task) {
+        pendingTasks.add(task);
+        wakeup();
+    }
+
+    void wakeup() {
+        Selector selector = getCurrentSelector();
+        if (selector != null)
+            selector.wakeup();
+    }
+
+    /**
+     * Closes the selector; call this after all transports have been stopped.
+     */
+    synchronized public void close() {
+        if (selector != null) {
+            try {
+                selector.close();
+            } catch (IOException ex) {
+                log.fine("Error closing selector: " + ex);
+            }
+        }
+        pendingTasks.clear();
+        bufferPool.clear();
+        pooledBuffers.set(0);
+    }
+
+    /**
+     * @return A cleared buffer with at least the given capacity, direct if pooled.
+     */
+    ByteBuffer acquireBuffer(int bytes) {
+        if (bytes > pooledBufferBytes)
+            return ByteBuffer.allocate(bytes);
+        ByteBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(pooledBufferBytes);
+        } else {
+            pooledBuffers.decrementAndGet();
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    void releaseBuffer(ByteBuffer buffer) {
+        if (!buffer.isDirect() || buffer.capacity() != pooledBufferBytes)
+            return;
+        if (pooledBuffers.incrementAndGet() <= maxPooledBuffers) {
+            bufferPool.add(buffer);
+        } else {
+            pooledBuffers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Runs the selection loop on the calling thread, unless another thread already does.
+     */
+    void run() {
+        if (!running.compareAndSet(false, true)) {
+            log.fine("Selection loop is already running");
+            return;
+        }
+        log.fine("Entering selection loop for UDP datagrams");
+        try {
+            while (true) {
+                Selector selector = getCurrentSelector();
+                if (selector == null || !selector.isOpen())
+                    break;
+
+                runPendingTasks();
+
+                // Also flushes cancelled keys of closed channels
+                int selected = selector.selectNow();
+                if (selected == 0) {
+                    if (selector.keys().isEmpty()) {
+                        if (pendingTasks.isEmpty())
+                            break;
+                        continue;
+                    }
+                    selector.select();
+                }
+                processSelectedKeys(selector);
+            }
+        } catch (ClosedSelectorException ex) {
+            log.fine("Selector closed");
+        } catch (IOException ex) {
+            log.log(Level.WARNING, "Selection loop failed: " + ex, ex);
+        } finally {
+            running.set(false);
+            log.fine("Left selection loop for UDP datagrams");
+        }
+        // A transport might have registered after the last check
+        Selector selector = getCurrentSelector();
+        if (selector != null && selector.isOpen() && !pendingTasks.isEmpty())
+            run();
+    }
+
+    protected void runPendingTasks() {
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception ex) {
+                log.log(Level.WARNING, "Selector task failed: " + ex, ex);
+            }
+        }
+    }
+
+    protected void processSelectedKeys(Selector selector) {
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+            SelectionKey key = it.next();
+            it.remove();
+            DatagramChannelTransport transport = (DatagramChannelTransport) key.attachment();
+            try {
+                if (key.isValid() && key.isWritable())
+                    transport.flush(key);
+                if (key.isValid() && key.isReadable())
+                    read(transport);
+            } catch (CancelledKeyException ex) {
+                log.fine("Channel closed: " + transport);
+            }
+        }
+    }
+
+    protected void read(DatagramChannelTransport transport) {
+        int maxBytes = transport.getMaxDatagramBytes();
+        if (receiveBuffer == null || receiveBuffer.capacity() < maxBytes) {
+            receiveBuffer = ByteBuffer.allocateDirect(maxBytes);
+            receiveBytes = new byte[maxBytes];
+            receivePacket = new DatagramPacket(receiveBytes, maxBytes);
+        }
+        for (int i = 0; i < MAX_READS_PER_SELECT; i++) {
+            SocketAddress source;
+            try {
+                receiveBuffer.clear();
+                // Longer datagrams are truncated, like with a DatagramSocket
+                receiveBuffer.limit(maxBytes);
+                source = transport.getChannel().receive(receiveBuffer);
+            } catch (IOException ex) {
+                if (transport.getChannel().isOpen())
+                    log.fine("Error receiving datagram on " + transport + ": " + ex);
+                return;
+            }
+            if (source == null)
+                return; // Nothing left
+
+            receiveBuffer.flip();
+            int length = receiveBuffer.remaining();
+            receiveBuffer.get(receiveBytes, 0, length);
+
+            InetSocketAddress sourceAddress = (InetSocketAddress) source;
+            // The processor keeps no reference to the packet or its bytes
+            receivePacket.setData(receiveBytes, 0, length);
+            receivePacket.setAddress(sourceAddress.getAddress());
+            receivePacket.setPort(sourceAddress.getPort());
+            try {
+                transport.received(receivePacket);
+            } catch (Exception ex) {
+                log.log(Level.WARNING, "Error handling datagram received on " + transport + ": " + ex, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2013 4th Line GmbH, Switzerland
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * Lesser General Public License Version 2 or later ("LGPL") or the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.fourthline.cling.transport.impl.nio;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A non-blocking datagram channel, read and written by a {@link DatagramChannelSelector}.
+ * <p>
+ * Any thread can send, datagrams are queued and written by the selector thread. If the
+ * socket buffer is full, the channel is selected for writing until the queue is empty.
+ * </p>
+ */
+abstract class DatagramChannelTransport implements Runnable {
+
+    final private static Logger log = Logger.getLogger(DatagramChannelTransport.class.getName());
+
+    final protected DatagramChannelSelector selector;
+
+    final private Queue<Outgoing> sendQueue = new ConcurrentLinkedQueue<Outgoing>();
+    final private AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    final private Runnable flushTask = new Runnable() {
+        public void run() {
+            Selector current = selector.getCurrentSelector();
+            flush(current != null ? getChannel().keyFor(current) : null);
+        }
+    };
+
+    // Only accessed by the selector thread
+    private Outgoing stalled;
+
+    protected DatagramChannelTransport(DatagramChannelSelector selector) {
+        this.selector = selector;
+    }
+
+    abstract protected DatagramChannel getChannel();
+
+    abstract protected int getMaxDatagramBytes();
+
+    /**
+     * Called on the selector thread, the packet is reused after this method returns.
+     */
+    abstract protected void received(DatagramPacket datagram) throws Exception;
+
+    public void run() {
+        selector.run();
+    }
+
+    protected void register() throws IOException {
+        selector.register(this);
+    }
+
+    /**
+     * Queues the datagram, it is written by the selector thread.
+     */
+    public void send(DatagramPacket datagram) {
+        DatagramChannel channel = getChannel();
+        if (channel == null || !channel.isOpen()) {
+            log.fine("Channel closed, aborting datagram send to: " + datagram.getAddress());
+            return;
+        }
+        ByteBuffer buffer = selector.acquireBuffer(datagram.getLength());
+        buffer.put(datagram.getData(), datagram.getOffset(), datagram.getLength());
+        buffer.flip();
+        sendQueue.add(new Outgoing(buffer, datagram.getSocketAddress()));
+        if (flushScheduled.compareAndSet(false, true))
+            selector.execute(flushTask);
+    }
+
+    /**
+     * Writes queued datagrams until the queue is empty or the socket buffer is full.
+     */
+    protected void flush(SelectionKey key) {
+        flushScheduled.set(false);
+        DatagramChannel channel = getChannel();
+        while (true) {
+            Outgoing outgoing = stalled != null ? stalled : sendQueue.poll();
+            stalled = null;
+            if (outgoing == null)
+                break;
+            try {
+                if (channel.send(outgoing.buffer, outgoing.target) == 0) {
+                    // Socket buffer is full, continue when the channel is writable
+                    stalled = outgoing;
+                    if (key != null && key.isValid())
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            } catch (IOException ex) {
+                if (channel.isOpen()) {
+                    log.log(Level.SEVERE, "Exception sending datagram to: " + outgoing.target + ": " + ex, ex);
+                } else {
+                    log.fine("Channel closed, aborting datagram send to: " + outgoing.target);
+                }
+            }
+            selector.releaseBuffer(outgoing.buffer);
+        }
+        if (key != null && key.isValid() && (key.interestOps() & SelectionKey.OP_WRITE) != 0)
+            key.interestOps(SelectionKey.OP_READ);
+    }
+
+    protected static class Outgoing {
+
+        final ByteBuffer buffer;
+        final SocketAddress target;
+
+        Outgoing(ByteBuffer buffer, SocketAddress target) {
+            this.buffer = buffer;
+            this.target = target;
+        }
+    }
+}
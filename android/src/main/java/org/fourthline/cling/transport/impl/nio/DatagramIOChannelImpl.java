@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2013 4th Line GmbH, Switzerland
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * Lesser General Public License Version 2 or later ("LGPL") or the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.fourthline.cling.transport.impl.nio;
+
+import org.fourthline.cling.model.UnsupportedDataException;
+import org.fourthline.cling.model.message.IncomingDatagramMessage;
+import org.fourthline.cling.model.message.OutgoingDatagramMessage;
+import org.fourthline.cling.transport.Router;
+import org.fourthline.cling.transport.impl.DatagramIOConfigurationImpl;
+import org.fourthline.cling.transport.spi.DatagramIO;
+import org.fourthline.cling.transport.spi.DatagramProcessor;
+import org.fourthline.cling.transport.spi.InitializationException;
+
+import java.net.DatagramPacket;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.util.logging.Logger;
+
+/**
+ * Sends unicast and multicast datagrams and receives unicast datagrams on a
+ * non-blocking <code>DatagramChannel</code>.
+ * <p>
+ * Like {@link org.fourthline.cling.transport.impl.DatagramIOImpl}, the channel is bound
+ * to an ephemeral port of the given address. Requires the multicast channel API of Java 7,
+ * available on Android since API level 24. The channel is read and written by a shared
+ * {@link DatagramChannelSelector}, {@link #send(DatagramPacket)} never blocks.
+ * </p>
+ */
+public class DatagramIOChannelImpl extends DatagramChannelTransport
+        implements DatagramIO<DatagramIOConfigurationImpl> {
+
+    final private static Logger log = Logger.getLogger(DatagramIO.class.getName());
+
+    final protected DatagramIOConfigurationImpl configuration;
+
+    protected Router router;
+    protected DatagramProcessor datagramProcessor;
+
+    protected InetSocketAddress localAddress;
+    private DatagramChannel channel;
+
+    public DatagramIOChannelImpl(DatagramIOConfigurationImpl configuration,
+                                 DatagramChannelSelector selector) {
+        super(selector);
+        this.configuration = configuration;
+    }
+
+    public DatagramIOConfigurationImpl getConfiguration() {
+        return configuration;
+    }
+
+    synchronized public void init(InetAddress bindAddress, Router router, DatagramProcessor datagramProcessor) throws InitializationException {
+
+        this.router = router;
+        this.datagramProcessor = datagramProcessor;
+
+        try {
+
+            // Ephemeral port, see DatagramIOImpl
+            log.info("Creating bound channel (for datagram input/output) on: " + bindAddress);
+            channel = DatagramChannel.open(
+                bindAddress instanceof Inet6Address
+                    ? StandardProtocolFamily.INET6
+                    : StandardProtocolFamily.INET
+            );
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, 262144); // Keep a backlog of incoming datagrams if we are not fast enough
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, configuration.getTimeToLive());
+            NetworkInterface networkInterface = NetworkInterface.getByInetAddress(bindAddress);
+            if (networkInterface != null)
+                channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+            channel.bind(new InetSocketAddress(bindAddress, 0));
+            localAddress = (InetSocketAddress) channel.getLocalAddress();
+
+            channel.configureBlocking(false);
+            register();
+
+        } catch (Exception ex) {
+            stop();
+            throw new InitializationException("Could not initialize " + getClass().getSimpleName() + ": " + ex);
+        }
+    }
+
+    synchronized public void stop() {
+        if (channel != null && channel.isOpen()) {
+            try {
+                log.fine("Closing unicast channel");
+                channel.close();
+            } catch (Exception ex) {
+                log.fine("Could not close unicast channel: " + ex);
+            }
+        }
+        selector.wakeup();
+    }
+
+    public void send(OutgoingDatagramMessage message) {
+        log.fine("Sending message from address: " + localAddress);
+        DatagramPacket packet = datagramProcessor.write(message);
+        log.fine("Sending UDP datagram packet to: " + message.getDestinationAddress() + ":" + message.getDestinationPort());
+        send(packet);
+    }
+
+    @Override
+    synchronized protected DatagramChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    protected int getMaxDatagramBytes() {
+        return getConfiguration().getMaxDatagramBytes();
+    }
+
+    @Override
+    protected void received(DatagramPacket datagram) throws Exception {
+        log.fine(
+                "UDP datagram received from: "
+                        + datagram.getAddress().getHostAddress()
+                        + ":" + datagram.getPort()
+                        + " on: " + localAddress
+        );
+
+        try {
+            IncomingDatagramMessage message = datagramProcessor.read(localAddress.getAddress(), datagram);
+            if (message != null)
+                router.received(message);
+        } catch (UnsupportedDataException ex) {
+            log.info("Could not read datagram: " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") " + localAddress;
+    }
+}
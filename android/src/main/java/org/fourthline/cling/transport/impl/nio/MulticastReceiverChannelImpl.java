@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2013 4th Line GmbH, Switzerland
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * Lesser General Public License Version 2 or later ("LGPL") or the
+ * Common Development and Distribution License Version 1 or later
+ * ("CDDL") (collectively, the "License"). You may not use this file
+ * except in compliance with the License. See LICENSE.txt for more
+ * information.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+
+package org.fourthline.cling.transport.impl.nio;
+
+import org.fourthline.cling.model.UnsupportedDataException;
+import org.fourthline.cling.model.message.IncomingDatagramMessage;
+import org.fourthline.cling.transport.Router;
+import org.fourthline.cling.transport.impl.MulticastReceiverConfigurationImpl;
+import org.fourthline.cling.transport.spi.DatagramProcessor;
+import org.fourthline.cling.transport.spi.InitializationException;
+import org.fourthline.cling.transport.spi.MulticastReceiver;
+import org.fourthline.cling.transport.spi.NetworkAddressFactory;
+
+import java.net.DatagramPacket;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.MembershipKey;
+import java.util.logging.Logger;
+
+/**
+ * Receives multicast datagrams on a non-blocking <code>DatagramChannel</code>.
+ * <p>
+ * Requires the multicast channel API of Java 7, available on Android since API level 24.
+ * The channel is read by a shared {@link DatagramChannelSelector}.
+ * </p>
+ */
+public class MulticastReceiverChannelImpl extends DatagramChannelTransport
+        implements MulticastReceiver<MulticastReceiverConfigurationImpl> {
+
+    final private static Logger log = Logger.getLogger(MulticastReceiver.class.getName());
+
+    final protected MulticastReceiverConfigurationImpl configuration;
+
+    protected Router router;
+    protected NetworkAddressFactory networkAddressFactory;
+    protected DatagramProcessor datagramProcessor;
+
+    protected NetworkInterface multicastInterface;
+    protected InetSocketAddress multicastAddress;
+    private DatagramChannel channel;
+    private MembershipKey membership;
+
+    public MulticastReceiverChannelImpl(MulticastReceiverConfigurationImpl configuration,
+                                        DatagramChannelSelector selector) {
+        super(selector);
+        this.configuration = configuration;
+    }
+
+    public MulticastReceiverConfigurationImpl getConfiguration() {
+        return configuration;
+    }
+
+    synchronized public void init(NetworkInterface networkInterface,
+                                  Router router,
+                                  NetworkAddressFactory networkAddressFactory,
+                                  DatagramProcessor datagramProcessor) throws InitializationException {
+
+        this.router = router;
+        this.networkAddressFactory = networkAddressFactory;
+        this.datagramProcessor = datagramProcessor;
+        this.multicastInterface = networkInterface;
+
+        try {
+
+            log.info("Creating wildcard channel (for receiving multicast datagrams) on port: " + configuration.getPort());
+            multicastAddress = new InetSocketAddress(configuration.getGroup(), configuration.getPort());
+
+            channel = DatagramChannel.open(
+                multicastAddress.getAddress() instanceof Inet6Address
+                    ? StandardProtocolFamily.INET6
+                    : StandardProtocolFamily.INET
+            );
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, 32768); // Keep a backlog of incoming datagrams if we are not fast enough
+            channel.bind(new InetSocketAddress(configuration.getPort()));
+
+            log.info("Joining multicast group: " + multicastAddress + " on network interface: " + multicastInterface.getDisplayName());
+            membership = channel.join(multicastAddress.getAddress(), multicastInterface);
+
+            channel.configureBlocking(false);
+            register();
+
+        } catch (Exception ex) {
+            stop();
+            throw new InitializationException("Could not initialize " + getClass().getSimpleName() + ": " + ex);
+        }
+    }
+
+    synchronized public void stop() {
+        if (membership != null) {
+            log.fine("Leaving multicast group");
+            membership.drop();
+            membership = null;
+        }
+        if (channel != null && channel.isOpen()) {
+            try {
+                log.fine("Closing multicast channel");
+                channel.close();
+            } catch (Exception ex) {
+                log.fine("Could not close multicast channel: " + ex);
+            }
+        }
+        // Lets the selector flush the cancelled key, and stop if this was the last channel
+        selector.wakeup();
+    }
+
+    @Override
+    synchronized protected DatagramChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    protected int getMaxDatagramBytes() {
+        return getConfiguration().getMaxDatagramBytes();
+    }
+
+    @Override
+    protected void received(DatagramPacket datagram) throws Exception {
+        InetAddress receivedOnLocalAddress =
+                networkAddressFactory.getLocalAddress(
+                    multicastInterface,
+                    multicastAddress.getAddress() instanceof Inet6Address,
+                    datagram.getAddress()
+                );
+
+        log.fine(
+                "UDP datagram received from: " + datagram.getAddress().getHostAddress()
+                        + ":" + datagram.getPort()
+                        + " on local interface: " + multicastInterface.getDisplayName()
+                        + " and address: " + (receivedOnLocalAddress != null ? receivedOnLocalAddress.getHostAddress() : null)
+        );
+
+        try {
+            IncomingDatagramMessage message = datagramProcessor.read(receivedOnLocalAddress, datagram);
+            if (message != null)
+                router.received(message);
+        } catch (UnsupportedDataException ex) {
+            log.info("Could not read datagram: " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") " + multicastAddress;
+    }
+}
@@ -102,6 +102,35 @@ public abstract class AbstractStreamClient<C extends StreamClientConfiguration,
         }
     }
 
+    /**
+     * Sends the request with {@link #sendRequest(StreamRequestMessage)} on a thread of the
+     * request executor service.
+     * <p>
+     * This occupies a thread until the response arrives, override it if the HTTP client can
+     * complete requests without blocking.
+     * </p>
+     */
+    @Override
+    public PendingRequest sendRequest(final StreamRequestMessage requestMessage, final ResponseListener listener) {
+        final Future<?> future = getConfiguration().getRequestExecutorService().submit(new Runnable() {
+            public void run() {
+                StreamResponseMessage response = null;
+                try {
+                    response = sendRequest(requestMessage);
+                } catch (InterruptedException ex) {
+                    if (log.isLoggable(Level.FINE))
+                        log.fine("Interruption, request aborted: " + requestMessage);
+                }
+                listener.received(response);
+            }
+        });
+        return new PendingRequest() {
+            public void abort() {
+                future.cancel(true);
+            }
+        };
+    }
+
     /**
      * Create a proprietary representation of this request, log warnings and
      * return <code>null</code> if creation fails.
@@ -69,6 +69,22 @@ public interface StreamClient<C extends StreamClientConfiguration> {
      */
     public StreamResponseMessage sendRequest(StreamRequestMessage message) throws InterruptedException;
 
+    /**
+     * Sends the given request via TCP (HTTP) without blocking the calling thread.
+     *
+     * <p>
+     * Expiration, logging, and headers work like {@link #sendRequest(StreamRequestMessage)}. The
+     * listener is called once, on a thread of the implementation, with the response or <code>null</code>
+     * if no response has been received or an error occurred. After the request has been aborted,
+     * the listener might not be called at all.
+     * </p>
+     *
+     * @param message The message to send.
+     * @param listener Receives the response.
+     * @return The pending request, to abort it.
+     */
+    public PendingRequest sendRequest(StreamRequestMessage message, ResponseListener listener);
+
     /**
      * Stops the service, closes any connection pools etc.
      */
@@ -79,4 +95,26 @@ public interface StreamClient<C extends StreamClientConfiguration> {
      */
     public C getConfiguration();
 
+    /**
+     * Receives the response of a request sent with {@link #sendRequest(StreamRequestMessage, ResponseListener)}.
+     */
+    public interface ResponseListener {
+
+        /**
+         * @param response The response or <code>null</code> if no response has been received or an error occurred.
+         */
+        public void received(StreamResponseMessage response);
+    }
+
+    /**
+     * A request sent with {@link #sendRequest(StreamRequestMessage, ResponseListener)}.
+     */
+    public interface PendingRequest {
+
+        /**
+         * Cancels and aborts the request, if it is still in progress.
+         */
+        public void abort();
+    }
+
 }
@@ -93,9 +93,36 @@ export function closeService(): void;
  */
 export function discoverDevices(): Promise<DLNADevice[]>;
 
+/**
+ * Search for MediaRenderers, only devices with an AVTransport service respond
+ * Results are reported with the devicesChangedEventName event. A search is also
+ * sent when the service starts.
+ *
+ * @param mxSeconds - Maximum seconds devices wait before responding (default: 1)
+ *
+ * @example
+ * searchDevices();
+ */
+export function searchDevices(mxSeconds?: number): void;
+
+/**
+ * Prepare casting when the device picker opens
+ * Asks the renderers for their transport state, which also opens a connection to
+ * them, so a castToDevice() within 15 seconds starts sooner.
+ *
+ * @param deviceId - The device UUID, all discovered renderers if omitted
+ *
+ * @example
+ * prepareCast();
+ */
+export function prepareCast(deviceId?: string): void;
+
 /**
  * Cast video to a DLNA device (like Samsung TV)
  *
+ * Previous media is stopped while the new URL is set. A failed step is retried
+ * up to 3 times without repeating the steps that succeeded.
+ *
  * Supported formats:
  * - MP4 (H.264/AAC) - Best compatibility across all devices
  * - HLS (.m3u8) - Supported on Samsung TV 2018+ models and modern smart TVs
@@ -248,6 +275,16 @@ export const deviceFoundEventName: 'dlna-device-found';
  */
 export const deviceLostEventName: 'dlna-device-lost';
 
+/**
+ * Event name for batched device changes, emitted at most once per frame
+ *
+ * @example
+ * ByronEmitter.addListener(devicesChangedEventName, ({ added, updated, removed }) => {
+ *   console.log(`${added.length} new, ${removed.length} gone`);
+ * });
+ */
+export const devicesChangedEventName: 'dlna-devices-changed';
+
 /**
  * Event name for casting progress notifications
  *
@@ -286,6 +323,18 @@ export interface DeviceLostEvent {
   id: string;
 }
 
+/**
+ * Devices changed event data
+ */
+export interface DevicesChangedEvent {
+  /** Devices found since the last event */
+  added: DLNADevice[];
+  /** Devices whose details changed since the last event */
+  updated: DLNADevice[];
+  /** IDs of devices that were removed */
+  removed: string[];
+}
+
 /**
  * Cast progress event data
  */
@@ -298,6 +347,12 @@ export interface CastProgressEvent {
   deviceName: string;
   /** Timestamp in milliseconds */
   timestamp: number;
+  /** Latency of the step reaching this stage in milliseconds, including retries */
+  stageMs: number;
+  /** Milliseconds since castToDevice was called */
+  elapsedMs: number;
+  /** Attempts of the step reaching this stage */
+  attempts: number;
 }
 
 /**
@@ -46,19 +46,50 @@ export const discoverDevices = () => {
   return Promise.reject(new Error('discoverDevices not available'));
 };
 
+/**
+ * Search for MediaRenderers (devices with an AVTransport service)
+ * Found devices are reported with devicesChangedEventName; a search is also sent
+ * when the service starts.
+ * @param {number} [mxSeconds=1] - Maximum seconds devices wait before responding
+ *
+ * @example
+ * searchDevices();
+ */
+export const searchDevices = (mxSeconds = 1) => {
+  if (RNByronDLNA.searchDevices) {
+    RNByronDLNA.searchDevices(mxSeconds);
+  }
+};
+
+/**
+ * Prepare casting when the device picker opens
+ * Asks the renderers for their transport state, which also opens a connection to
+ * them, so a castToDevice() within 15 seconds starts sooner.
+ * @param {string} [deviceId] - Device UUID, all discovered renderers if omitted
+ *
+ * @example
+ * prepareCast();
+ */
+export const prepareCast = (deviceId = null) => {
+  if (RNByronDLNA.prepareCast) {
+    RNByronDLNA.prepareCast(deviceId);
+  }
+};
+
 /**
  * Cast video to a DLNA device (like Samsung TV) with automatic retry
  *
- * This method automatically retries up to 3 times with exponential backoff
- * (1s, 2s, 4s delays) if the initial cast fails.
+ * Previous media is stopped while the new URL is set. A failed step is retried
+ * up to 3 times with exponential backoff (1s, 2s delays), the steps that
+ * succeeded aren't repeated. Progress is reported with castProgressEventName.
  *
- * Timeout: 30 seconds per attempt
+ * Timeout: 15 seconds per attempt
  *
  * @param {string} deviceId - Device UUID from discoverDevices()
  * @param {string} videoUrl - HTTP/HTTPS URL (HLS supported on Samsung 2018+)
  * @param {string} [title='Video'] - Media title
  * @returns {Promise<boolean>} Resolves when casting succeeds
- * @throws {Error} INVALID_URL, DEVICE_NOT_FOUND, TIMEOUT, MAX_RETRIES_EXCEEDED, CAST_FAILED
+ * @throws {Error} INVALID_URL, DEVICE_NOT_FOUND, SERVICE_NOT_AVAILABLE, CAST_FAILED, CAST_CANCELLED
  *
  * @example
  * const devices = await discoverDevices();
@@ -68,10 +99,10 @@ export const discoverDevices = () => {
  *   await castToDevice(samsungTV.id, 'http://example.com/video.mp4', 'My Video');
  *   console.log('Successfully cast to TV');
  * } catch (error) {
- *   if (error.code === 'MAX_RETRIES_EXCEEDED') {
+ *   if (error.code === 'CAST_FAILED') {
  *     console.error('Failed after 3 attempts');
- *   } else if (error.code === 'TIMEOUT') {
- *     console.error('Operation timed out');
+ *   } else if (error.code === 'CAST_CANCELLED') {
+ *     console.log('Replaced by a newer cast');
  *   }
  * }
  */
@@ -106,6 +137,16 @@ export const dlnaEventName = "dlna-player";
 export const deviceFoundEventName = "dlna-device-found";
 export const deviceLostEventName = "dlna-device-lost";
 
+/**
+ * Event name for batched device changes, at most one event per frame
+ *
+ * @example
+ * ByronEmitter.addListener(devicesChangedEventName, ({ added, updated, removed }) => {
+ *   // added and updated are DLNADevice arrays, removed is an array of device IDs
+ * });
+ */
+export const devicesChangedEventName = "dlna-devices-changed";
+
 /**
  * Event name for casting progress notifications
  *